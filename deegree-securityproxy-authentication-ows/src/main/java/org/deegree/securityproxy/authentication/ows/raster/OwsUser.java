@@ -4,6 +4,7 @@ import org.deegree.securityproxy.authentication.OwsUserDetails;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 
 import static java.util.Collections.unmodifiableList;
@@ -31,6 +32,8 @@ public class OwsUser extends OwsUserDetails {
 
     private final List<GeometryFilterInfo> filters;
 
+    private final Date subscriptionEnd;
+
     /**
      * @param username
      *            may be <code>null</code>
@@ -43,6 +46,26 @@ public class OwsUser extends OwsUserDetails {
      */
     public OwsUser( String username, String password, String accessToken, List<OwsPermission> authorities,
                        List<GeometryFilterInfo> filters ) {
+        this( username, password, accessToken, authorities, filters, null );
+    }
+
+    /**
+     * @param username
+     *            may be <code>null</code>
+     * @param password
+     *            may be <code>null</code>
+     * @param accessToken
+     *            may be <code>null</code>
+     * @param authorities
+     *            may be <code>null</code> or empty
+     * @param filters
+     *            may be <code>null</code> or empty
+     * @param subscriptionEnd
+     *            the end of the first expiring subscription of the authorities, may be <code>null</code> if the
+     *            subscriptions are unlimited
+     */
+    public OwsUser( String username, String password, String accessToken, List<OwsPermission> authorities,
+                       List<GeometryFilterInfo> filters, Date subscriptionEnd ) {
         super( accessToken );
         this.username = username;
         this.password = password;
@@ -56,6 +79,8 @@ public class OwsUser extends OwsUserDetails {
             this.filters = unmodifiableList( filters );
         else
             this.filters = unmodifiableList( Collections.<GeometryFilterInfo>emptyList() );
+
+        this.subscriptionEnd = subscriptionEnd != null ? new Date( subscriptionEnd.getTime() ) : null;
     }
 
     @Override
@@ -100,4 +125,12 @@ public class OwsUser extends OwsUserDetails {
         return filters;
     }
 
+    /**
+     * @return the end of the first expiring subscription of the authorities, <code>null</code> if the subscriptions
+     *         are unlimited
+     */
+    public Date getSubscriptionEnd() {
+        return subscriptionEnd != null ? new Date( subscriptionEnd.getTime() ) : null;
+    }
+
 }
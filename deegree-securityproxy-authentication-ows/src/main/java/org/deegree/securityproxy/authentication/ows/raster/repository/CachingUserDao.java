@@ -0,0 +1,266 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.authentication.ows.raster.repository;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.deegree.securityproxy.authentication.ows.raster.OwsUser;
+import org.deegree.securityproxy.authentication.repository.UserDao;
+import org.springframework.security.core.userdetails.UserDetails;
+
+/**
+ * Caches the users retrieved by a {@link UserDao}, by access token and by name. A cached user is valid for the time to
+ * live, but not longer than the first of its subscriptions ends. If the maximal number of users is exceeded, expired
+ * users are removed first (at most once per time to live, the sweep visits all cached users), then a batch of arbitrary
+ * users (1/16 of the maximal number), so the following misses do not evict again. Unknown users are not cached.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class CachingUserDao implements UserDao, CachingUserDaoMBean {
+
+    private static final Logger LOG = Logger.getLogger( CachingUserDao.class );
+
+    private final UserDao userDao;
+
+    private final int maxEntries;
+
+    private final long timeToLive;
+
+    private final int evictionBatchSize;
+
+    private final ConcurrentMap<String, CachedUser> usersByAccessToken = new ConcurrentHashMap<String, CachedUser>();
+
+    private final ConcurrentMap<String, CachedUser> usersByName = new ConcurrentHashMap<String, CachedUser>();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final AtomicLong nextExpirySweep = new AtomicLong();
+
+    /**
+     * @param userDao
+     *            retrieves the users not cached, never <code>null</code>
+     * @param maxEntries
+     *            the maximal number of users cached by access token and by name each, 0 disables the cache
+     * @param timeToLive
+     *            the time in milliseconds a user is cached, must be greater than 0
+     * @throws IllegalArgumentException
+     *             - userDao is <code>null</code>, maxEntries is negative or timeToLive is not greater than 0
+     */
+    public CachingUserDao( UserDao userDao, int maxEntries, long timeToLive ) {
+        if ( userDao == null )
+            throw new IllegalArgumentException( "userDao must not be null!" );
+        if ( maxEntries < 0 )
+            throw new IllegalArgumentException( "maxEntries must not be negative!" );
+        if ( timeToLive <= 0 )
+            throw new IllegalArgumentException( "timeToLive must be greater than 0!" );
+        this.userDao = userDao;
+        this.maxEntries = maxEntries;
+        this.timeToLive = timeToLive;
+        this.evictionBatchSize = Math.max( 1, maxEntries / 16 );
+    }
+
+    @Override
+    public UserDetails retrieveUserById( String headerValue ) {
+        if ( !isEnabled() || headerValue == null || headerValue.isEmpty() )
+            return userDao.retrieveUserById( headerValue );
+        UserDetails cached = get( usersByAccessToken, headerValue );
+        if ( cached != null )
+            return cached;
+        UserDetails user = userDao.retrieveUserById( headerValue );
+        put( usersByAccessToken, headerValue, user );
+        return user;
+    }
+
+    @Override
+    public UserDetails retrieveUserByName( String name ) {
+        if ( !isEnabled() || name == null || name.isEmpty() )
+            return userDao.retrieveUserByName( name );
+        UserDetails cached = get( usersByName, name );
+        if ( cached != null )
+            return cached;
+        UserDetails user = userDao.retrieveUserByName( name );
+        put( usersByName, name, user );
+        return user;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return maxEntries > 0;
+    }
+
+    @Override
+    public int getUsersCachedByAccessToken() {
+        return usersByAccessToken.size();
+    }
+
+    @Override
+    public int getUsersCachedByName() {
+        return usersByName.size();
+    }
+
+    @Override
+    public long getHits() {
+        return hits.get();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    @Override
+    public void invalidateUser( String name ) {
+        if ( name == null )
+            return;
+        usersByName.remove( name );
+        Iterator<CachedUser> cachedUsers = usersByAccessToken.values().iterator();
+        while ( cachedUsers.hasNext() ) {
+            if ( name.equals( cachedUsers.next().user.getUsername() ) )
+                cachedUsers.remove();
+        }
+    }
+
+    @Override
+    public void invalidateAccessToken( String accessToken ) {
+        if ( accessToken != null )
+            usersByAccessToken.remove( accessToken );
+    }
+
+    @Override
+    public void clear() {
+        usersByAccessToken.clear();
+        usersByName.clear();
+    }
+
+    /**
+     * @return the current time in milliseconds, may be overwritten for testing
+     */
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    private UserDetails get( ConcurrentMap<String, CachedUser> users, String key ) {
+        CachedUser cached = users.get( key );
+        if ( cached != null ) {
+            if ( cached.expiresAt > currentTimeMillis() ) {
+                hits.incrementAndGet();
+                return cached.user;
+            }
+            users.remove( key, cached );
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    private void put( ConcurrentMap<String, CachedUser> users, String key, UserDetails user ) {
+        if ( user == null )
+            return;
+        long now = currentTimeMillis();
+        long expiresAt = calculateExpiry( user, now );
+        if ( expiresAt <= now )
+            return;
+        users.put( key, new CachedUser( user, expiresAt ) );
+        if ( users.size() > maxEntries )
+            evict( users, now );
+    }
+
+    private long calculateExpiry( UserDetails user, long now ) {
+        long expiresAt = now + timeToLive;
+        if ( user instanceof OwsUser ) {
+            Date subscriptionEnd = ( (OwsUser) user ).getSubscriptionEnd();
+            if ( subscriptionEnd != null && subscriptionEnd.getTime() < expiresAt )
+                return subscriptionEnd.getTime();
+        }
+        return expiresAt;
+    }
+
+    private void evict( ConcurrentMap<String, CachedUser> users, long now ) {
+        long sweepAt = nextExpirySweep.get();
+        if ( now >= sweepAt && nextExpirySweep.compareAndSet( sweepAt, now + timeToLive ) ) {
+            removeExpired( usersByAccessToken, now );
+            removeExpired( usersByName, now );
+            if ( users.size() <= maxEntries )
+                return;
+        }
+        int usersToEvict = users.size() - maxEntries - 1 + evictionBatchSize;
+        Iterator<CachedUser> cachedUsers = users.values().iterator();
+        while ( usersToEvict > 0 && cachedUsers.hasNext() ) {
+            cachedUsers.next();
+            cachedUsers.remove();
+            evictions.incrementAndGet();
+            usersToEvict--;
+        }
+        LOG.debug( "Cached users evicted, " + users.size() + " users remain cached." );
+    }
+
+    private void removeExpired( ConcurrentMap<String, CachedUser> users, long now ) {
+        Iterator<CachedUser> cachedUsers = users.values().iterator();
+        while ( cachedUsers.hasNext() ) {
+            if ( cachedUsers.next().expiresAt <= now )
+                cachedUsers.remove();
+        }
+    }
+
+    private static class CachedUser {
+
+        private final UserDetails user;
+
+        private final long expiresAt;
+
+        private CachedUser( UserDetails user, long expiresAt ) {
+            this.user = user;
+            this.expiresAt = expiresAt;
+        }
+
+    }
+
+}
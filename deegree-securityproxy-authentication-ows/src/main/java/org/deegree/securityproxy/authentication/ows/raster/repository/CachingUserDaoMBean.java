@@ -0,0 +1,98 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.authentication.ows.raster.repository;
+
+/**
+ * Management interface of the {@link CachingUserDao}.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public interface CachingUserDaoMBean {
+
+    /**
+     * @return <code>true</code> if users are cached, <code>false</code> otherwise
+     */
+    boolean isEnabled();
+
+    /**
+     * @return the number of users cached by access token
+     */
+    int getUsersCachedByAccessToken();
+
+    /**
+     * @return the number of users cached by name
+     */
+    int getUsersCachedByName();
+
+    /**
+     * @return the number of lookups answered with a cached user
+     */
+    long getHits();
+
+    /**
+     * @return the number of lookups sent to the database because no valid user was cached
+     */
+    long getMisses();
+
+    /**
+     * @return the number of users removed from the cache because the maximal number of users was exceeded
+     */
+    long getEvictions();
+
+    /**
+     * Removes the user with the given name from the cache, cached by name and by access token.
+     * 
+     * @param name
+     *            the name of the user, may be <code>null</code>
+     */
+    void invalidateUser( String name );
+
+    /**
+     * Removes the user cached by the given access token.
+     * 
+     * @param accessToken
+     *            the access token of the user, may be <code>null</code>
+     */
+    void invalidateAccessToken( String accessToken );
+
+    /**
+     * Removes all cached users.
+     */
+    void clear();
+
+}
@@ -2,6 +2,8 @@ package org.deegree.securityproxy.authentication.ows.raster.repository;
 
 import static java.util.Arrays.asList;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
@@ -22,6 +24,7 @@ import org.deegree.securityproxy.authentication.repository.UserDao;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.security.core.userdetails.UserDetails;
 
 /**
@@ -40,38 +43,43 @@ public class UserDaoImpl implements UserDao {
     private static final List<String> SUPPORTED_SERVICE_NAMES = asList( new String[] { "WCS", "WMS", "WPS", "WFS",
                                                                                       "CSW", "WMTS" } );
 
-    @Autowired
-    private DataSource source;
+    private static final int NO_COLUMN = 0;
+
+    private JdbcTemplate template;
+
+    private final String selectUserByHeaderSql;
+
+    private final String selectUserByNameSql;
 
-    private final String schemaName;
+    private final boolean isSubscriptionLimited;
 
-    private final String tableName;
+    private final boolean isServiceVersionLimited;
 
-    private final String headerColumn;
+    private final int nameIndex;
 
-    private final String nameColumn;
+    private final int passwordIndex;
 
-    private final String passwordColumn;
+    private final int headerIndex;
 
-    private final String serviceTypeColumn;
+    private final int serviceTypeIndex;
 
-    private final String serviceVersionColumn;
+    private final int serviceNameIndex;
 
-    private final String operationTypeColumn;
+    private final int internalServiceUrlIndex;
 
-    private final String serviceNameColumn;
+    private final int serviceVersionIndex;
 
-    private final String internalServiceUrlColumn;
+    private final int operationTypeIndex;
 
-    private final String layerNameColumn;
+    private final int layerNameIndex;
 
-    private final String subscriptionStartColumn;
+    private final int geometryLimitIndex;
 
-    private final String subscriptionEndColumn;
+    private final int subscriptionEndIndex;
 
-    private final String geometryLimitColumn;
+    private final List<String> additionalRequestParametersColumns;
 
-    private List<String> additionalRequestParametersColumns;
+    private final int[] additionalRequestParametersIndexes;
 
     /**
      * 
@@ -180,24 +188,48 @@ public class UserDaoImpl implements UserDao {
                               String operationTypeColumn, String serviceNameColumn, String internalServiceUrlColumn,
                               String layerNameColumn, String subscriptionStartColumn, String subscriptionEndColumn,
                               String geometryLimitColumn, String[] additionalRequestParametersColumns ) {
-        this.schemaName = schemaName;
-        this.tableName = tableName;
-        this.headerColumn = headerColumn;
-        this.nameColumn = nameColumn;
-        this.passwordColumn = passwordColumn;
-        this.serviceTypeColumn = serviceTypeColumn;
-        this.serviceVersionColumn = serviceVersionColumn;
-        this.operationTypeColumn = operationTypeColumn;
-        this.serviceNameColumn = serviceNameColumn;
-        this.internalServiceUrlColumn = internalServiceUrlColumn;
-        this.layerNameColumn = layerNameColumn;
-        this.subscriptionStartColumn = subscriptionStartColumn;
-        this.subscriptionEndColumn = subscriptionEndColumn;
-        this.geometryLimitColumn = geometryLimitColumn;
+        // the indexes of the selected columns are resolved once, the rows are read by index
+        List<String> columns = new ArrayList<String>();
+        columns.add( nameColumn );
+        this.nameIndex = columns.size();
+        this.passwordIndex = addColumn( columns, passwordColumn );
+        this.headerIndex = addColumn( columns, headerColumn );
+        this.serviceTypeIndex = addColumn( columns, serviceTypeColumn );
+        this.serviceNameIndex = addColumn( columns, serviceNameColumn );
+        this.internalServiceUrlIndex = addColumn( columns, internalServiceUrlColumn );
+        this.serviceVersionIndex = addColumn( columns, serviceVersionColumn );
+        this.operationTypeIndex = addColumn( columns, operationTypeColumn );
+        this.layerNameIndex = addColumn( columns, layerNameColumn );
+        this.geometryLimitIndex = addColumn( columns, geometryLimitColumn );
+        this.isSubscriptionLimited = checkIfNotNullOrEmpty( subscriptionStartColumn )
+                                     && checkIfNotNullOrEmpty( subscriptionEndColumn );
+        this.subscriptionEndIndex = isSubscriptionLimited ? addColumn( columns, subscriptionEndColumn ) : NO_COLUMN;
+        this.isServiceVersionLimited = serviceVersionColumn != null;
         if ( additionalRequestParametersColumns != null )
             this.additionalRequestParametersColumns = asList( additionalRequestParametersColumns );
         else
             this.additionalRequestParametersColumns = Collections.emptyList();
+        this.additionalRequestParametersIndexes = new int[this.additionalRequestParametersColumns.size()];
+        for ( int i = 0; i < additionalRequestParametersIndexes.length; i++ ) {
+            columns.add( this.additionalRequestParametersColumns.get( i ) );
+            additionalRequestParametersIndexes[i] = columns.size();
+        }
+        String selectFrom = generateSelectFrom( columns, schemaName, tableName );
+        this.selectUserByHeaderSql = selectFrom + generateWhere( headerColumn, subscriptionStartColumn,
+                                                                 subscriptionEndColumn );
+        this.selectUserByNameSql = selectFrom + generateWhere( nameColumn, subscriptionStartColumn,
+                                                               subscriptionEndColumn );
+        LOG.debug( "SQL-Statement to query user by id: '" + selectUserByHeaderSql + "'" );
+        LOG.debug( "SQL-Statement to query user by name: '" + selectUserByNameSql + "'" );
+    }
+
+    /**
+     * @param source
+     *            the data source to retrieve the users from, never <code>null</code>
+     */
+    @Autowired
+    public void setDataSource( DataSource source ) {
+        this.template = new JdbcTemplate( source );
     }
 
     @Override
@@ -206,9 +238,7 @@ public class UserDaoImpl implements UserDao {
             LOG.info( "Could not find user: header value is null or empty!" );
             return null;
         }
-        String jdbcString = generateSelectUserByHeaderSqlQuery();
-        LOG.debug( "SQL-Statement to query user by id: '" + jdbcString + "'" );
-        return retrieveUser( headerValue, jdbcString );
+        return retrieveUser( headerValue, selectUserByHeaderSql );
     }
 
     @Override
@@ -217,21 +247,18 @@ public class UserDaoImpl implements UserDao {
             LOG.info( "Could not find user: name is null or empty!" );
             return null;
         }
-        String jdbcString = generateSelectByNameSqlQuery();
-        LOG.debug( "SQL-Statement to query user by name: '" + jdbcString + "'" );
-        return retrieveUser( name, jdbcString );
+        return retrieveUser( name, selectUserByNameSql );
     }
 
     private OwsUser retrieveUser( String selectByValue, String jdbcString ) {
-        JdbcTemplate template = new JdbcTemplate( source );
+        OwsUserRowCallbackHandler rowHandler = new OwsUserRowCallbackHandler();
         try {
-            List<Map<String, Object>> rows;
-            if ( checkIfNotNullOrEmpty( subscriptionStartColumn ) && checkIfNotNullOrEmpty( subscriptionEndColumn ) ) {
+            if ( isSubscriptionLimited ) {
                 Date now = new Date();
-                rows = template.queryForList( jdbcString, selectByValue, now );
+                template.query( jdbcString, rowHandler, selectByValue, now );
             } else
-                rows = template.queryForList( jdbcString, selectByValue );
-            return createUserForRows( rows );
+                template.query( jdbcString, rowHandler, selectByValue );
+            return rowHandler.createUser();
         } catch ( DataAccessException e ) {
             LOG.error( "An error occured during retrieving the user:", e );
             return null;
@@ -242,142 +269,134 @@ public class UserDaoImpl implements UserDao {
         return !( parameterValue == null || "".equals( parameterValue ) );
     }
 
-    private String generateSelectUserByHeaderSqlQuery() {
-        return generateSqlQuery( headerColumn );
+    private int addColumn( List<String> columns, String column ) {
+        if ( !checkIfNotNullOrEmpty( column ) )
+            return NO_COLUMN;
+        columns.add( column );
+        return columns.size();
     }
 
-    private String generateSelectByNameSqlQuery() {
-        return generateSqlQuery( nameColumn );
-    }
-
-    private String generateSqlQuery( String whereClauseColumn ) {
+    private String generateSelectFrom( List<String> columns, String schemaName, String tableName ) {
         StringBuilder builder = new StringBuilder();
         builder.append( "SELECT " );
-        builder.append( nameColumn ).append( "," );
-        appendIfNotNull( builder, passwordColumn );
-        appendIfNotNull( builder, headerColumn );
-        appendIfNotNull( builder, serviceTypeColumn );
-        appendIfNotNull( builder, serviceNameColumn );
-        appendIfNotNull( builder, internalServiceUrlColumn );
-        appendIfNotNull( builder, serviceVersionColumn );
-        appendIfNotNull( builder, operationTypeColumn );
-        appendIfNotNull( builder, layerNameColumn );
-        appendIfNotNull( builder, geometryLimitColumn );
-        removeLastCharIfNecessary( builder );
-        appendAdditionaRequestParameters( builder );
-        appendFrom( builder );
-        appendWhere( whereClauseColumn, builder );
-        return builder.toString();
-    }
-
-    private void appendAdditionaRequestParameters( StringBuilder builder ) {
-        if ( additionalRequestParametersColumns != null && !additionalRequestParametersColumns.isEmpty() ) {
-            for ( String additionalRequestParameter : additionalRequestParametersColumns ) {
+        for ( int i = 0; i < columns.size(); i++ ) {
+            if ( i > 0 )
                 builder.append( "," );
-                builder.append( additionalRequestParameter );
-            }
+            builder.append( columns.get( i ) );
         }
-    }
-
-    private void appendFrom( StringBuilder builder ) {
         builder.append( " FROM " );
-        if ( schemaName != null && !"".equals( schemaName ) )
+        if ( checkIfNotNullOrEmpty( schemaName ) )
             builder.append( schemaName ).append( "." );
         builder.append( tableName );
+        return builder.toString();
     }
 
-    private void appendWhere( String whereClauseColumn, StringBuilder builder ) {
+    private String generateWhere( String whereClauseColumn, String subscriptionStartColumn,
+                                  String subscriptionEndColumn ) {
+        StringBuilder builder = new StringBuilder();
         builder.append( " WHERE " );
         builder.append( whereClauseColumn ).append( " = ?" );
-        if ( checkIfNotNullOrEmpty( subscriptionStartColumn ) && checkIfNotNullOrEmpty( subscriptionEndColumn ) ) {
+        if ( isSubscriptionLimited ) {
             builder.append( " AND ? BETWEEN " );
             builder.append( subscriptionStartColumn ).append( " AND " );
             builder.append( subscriptionEndColumn );
         }
+        return builder.toString();
     }
 
-    private void removeLastCharIfNecessary( StringBuilder builder ) {
-        if ( builder.toString().endsWith( "," ) )
-            if ( builder.length() > 0 )
-                builder.deleteCharAt( builder.length() - 1 );
-    }
-
-    private void appendIfNotNull( StringBuilder builder, String column ) {
-        if ( checkIfNotNullOrEmpty( column ) )
-            builder.append( column ).append( "," );
-    }
-
-    private OwsUser createUserForRows( List<Map<String, Object>> rows ) {
-        String name = null;
-        String password = null;
-        String accessToken = null;
-        List<OwsPermission> authorities = new ArrayList<OwsPermission>();
-        List<GeometryFilterInfo> geometrieFilter = new ArrayList<GeometryFilterInfo>();
-        for ( Map<String, Object> row : rows ) {
-            String serviceType = getAsString( row, serviceTypeColumn );
-            if ( checkIfServiceTypeisSupported( serviceType ) ) {
-                name = getAsString( row, nameColumn );
-                password = getAsString( row, passwordColumn );
-                accessToken = getAsString( row, headerColumn );
-                authorities.add( createAuthority( serviceType, row ) );
-                createGeometryFilter( geometrieFilter, row );
-            }
-        }
-        if ( name != null )
-            return new OwsUser( name, password, accessToken, authorities, geometrieFilter );
-        return null;
-    }
-
-    private OwsPermission createAuthority( String serviceType, Map<String, Object> row ) {
-        String serviceName = getAsString( row, serviceNameColumn );
+    private OwsPermission createAuthority( String serviceType, String layerName, ResultSet row )
+                            throws SQLException {
+        String serviceName = getString( row, serviceNameIndex );
         LimitedServiceVersion serviceVersion = parseServiceVersion( row );
-        String operationType = retrieveOperationType( row );
-        String layerName = getAsString( row, layerNameColumn );
-        String internalServiceUrl = getAsString( row, internalServiceUrlColumn );
+        String operationType = getString( row, operationTypeIndex );
+        String internalServiceUrl = getString( row, internalServiceUrlIndex );
         Map<String, String[]> userRequestParameters = retrieveAdditionalRequestParams( row );
         return new OwsPermission( serviceType, operationType, serviceVersion, layerName, serviceName,
                         internalServiceUrl, userRequestParameters );
     }
 
-    private Map<String, String[]> retrieveAdditionalRequestParams( Map<String, Object> row ) {
+    private Map<String, String[]> retrieveAdditionalRequestParams( ResultSet row )
+                            throws SQLException {
         Map<String, String[]> userRequestParameters = new HashMap<String, String[]>();
-        for ( String additionalRequestParam : additionalRequestParametersColumns ) {
-            String paramValue = getAsString( row, additionalRequestParam );
+        for ( int i = 0; i < additionalRequestParametersIndexes.length; i++ ) {
+            String paramValue = getString( row, additionalRequestParametersIndexes[i] );
             if ( paramValue != null && !paramValue.isEmpty() )
-                userRequestParameters.put( additionalRequestParam, new String[] { paramValue } );
+                userRequestParameters.put( additionalRequestParametersColumns.get( i ), new String[] { paramValue } );
         }
         return userRequestParameters;
     }
 
-    private void createGeometryFilter( List<GeometryFilterInfo> geometryFilter, Map<String, Object> row ) {
-        String layerName = getAsString( row, layerNameColumn );
-        if ( layerName != null && !layerName.isEmpty() ) {
-            String geometryLimit = getAsString( row, geometryLimitColumn );
-            GeometryFilterInfo wcsGeometryFilter = new GeometryFilterInfo( layerName, geometryLimit );
-            geometryFilter.add( wcsGeometryFilter );
-        }
+    private Date retrieveEarlierSubscriptionEnd( Date subscriptionEnd, ResultSet row )
+                            throws SQLException {
+        if ( subscriptionEndIndex == NO_COLUMN )
+            return null;
+        Date end = row.getTimestamp( subscriptionEndIndex );
+        if ( end != null && ( subscriptionEnd == null || end.before( subscriptionEnd ) ) )
+            return end;
+        return subscriptionEnd;
     }
 
     private boolean checkIfServiceTypeisSupported( String serviceType ) {
-        return SUPPORTED_SERVICE_NAMES.contains( serviceType.toUpperCase() );
+        return serviceType != null && SUPPORTED_SERVICE_NAMES.contains( serviceType.toUpperCase() );
     }
 
-    private String retrieveOperationType( Map<String, Object> row ) {
-        return getAsString( row, operationTypeColumn );
-    }
-
-    private LimitedServiceVersion parseServiceVersion( Map<String, Object> row ) {
-        if ( serviceVersionColumn == null )
+    private LimitedServiceVersion parseServiceVersion( ResultSet row )
+                            throws SQLException {
+        if ( !isServiceVersionLimited )
             return new UnlimitedServiceVersion();
-        String serviceVersion = getAsString( row, serviceVersionColumn );
+        String serviceVersion = getString( row, serviceVersionIndex );
         if ( serviceVersion != null && !serviceVersion.isEmpty() ) {
             return new LimitedOwsServiceVersion( serviceVersion );
         }
         return null;
     }
 
-    private String getAsString( Map<String, Object> row, String columnName ) {
-        return row.get( columnName ) != null ? (String) row.get( columnName ) : null;
+    private String getString( ResultSet row, int columnIndex )
+                            throws SQLException {
+        return columnIndex != NO_COLUMN ? row.getString( columnIndex ) : null;
+    }
+
+    /**
+     * Collects the permissions of one user while the rows are read.
+     */
+    private class OwsUserRowCallbackHandler implements RowCallbackHandler {
+
+        private final List<OwsPermission> authorities = new ArrayList<OwsPermission>();
+
+        private final List<GeometryFilterInfo> geometryFilter = new ArrayList<GeometryFilterInfo>();
+
+        private String name;
+
+        private String password;
+
+        private String accessToken;
+
+        private Date subscriptionEnd;
+
+        @Override
+        public void processRow( ResultSet row )
+                                throws SQLException {
+            String serviceType = getString( row, serviceTypeIndex );
+            if ( !checkIfServiceTypeisSupported( serviceType ) )
+                return;
+            name = getString( row, nameIndex );
+            password = getString( row, passwordIndex );
+            accessToken = getString( row, headerIndex );
+            String layerName = getString( row, layerNameIndex );
+            authorities.add( createAuthority( serviceType, layerName, row ) );
+            if ( layerName != null && !layerName.isEmpty() ) {
+                String geometryLimit = getString( row, geometryLimitIndex );
+                geometryFilter.add( new GeometryFilterInfo( layerName, geometryLimit ) );
+            }
+            subscriptionEnd = retrieveEarlierSubscriptionEnd( subscriptionEnd, row );
+        }
+
+        private OwsUser createUser() {
+            if ( name != null )
+                return new OwsUser( name, password, accessToken, authorities, geometryFilter, subscriptionEnd );
+            return null;
+        }
+
     }
 
 }
\ No newline at end of file
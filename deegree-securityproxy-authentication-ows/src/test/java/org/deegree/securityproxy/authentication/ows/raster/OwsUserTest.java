@@ -3,10 +3,12 @@ package org.deegree.securityproxy.authentication.ows.raster;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
 
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 
 import org.junit.Test;
@@ -53,6 +55,23 @@ public class OwsUserTest {
         assertThat( filters, is( insertedFilterList ) );
     }
 
+    @Test
+    public void testGetSubscriptionEndShouldReturnInsertedSubscriptionEnd()
+                            throws Exception {
+        Date subscriptionEnd = new Date( 1000 );
+        OwsUser wcsUser = new OwsUser( USERNAME, PASSWORD, ACCESSTOKEN, createEmptyPermissionsList(),
+                                       createEmptyFilterList(), subscriptionEnd );
+        assertThat( wcsUser.getSubscriptionEnd(), is( subscriptionEnd ) );
+    }
+
+    @Test
+    public void testGetSubscriptionEndWithoutSubscriptionEndShouldReturnNull()
+                            throws Exception {
+        OwsUser wcsUser = new OwsUser( USERNAME, PASSWORD, ACCESSTOKEN, createEmptyPermissionsList(),
+                                       createEmptyFilterList() );
+        assertThat( wcsUser.getSubscriptionEnd(), is( nullValue() ) );
+    }
+
     @Test(expected = UnsupportedOperationException.class)
     public void testGetPermissionsShouldReturnUnmodifiableWcsPermissionList()
                             throws Exception {
@@ -0,0 +1,264 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.authentication.ows.raster.repository;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Date;
+
+import org.deegree.securityproxy.authentication.ows.raster.OwsUser;
+import org.deegree.securityproxy.authentication.repository.UserDao;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.core.userdetails.UserDetails;
+
+/**
+ * Tests for {@link CachingUserDao}.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class CachingUserDaoTest {
+
+    private static final long TIME_TO_LIVE = 1000;
+
+    private static final String TOKEN = "token";
+
+    private static final String NAME = "user";
+
+    private final UserDao userDao = mock( UserDao.class );
+
+    private final OwsUser user = new OwsUser( NAME, "password", TOKEN, null, null );
+
+    private long now = 10000;
+
+    @Before
+    public void mockUserDao() {
+        when( userDao.retrieveUserById( TOKEN ) ).thenReturn( user );
+        when( userDao.retrieveUserByName( NAME ) ).thenReturn( user );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorWithNullUserDaoShouldFail() {
+        new CachingUserDao( null, 10, TIME_TO_LIVE );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorWithNegativeMaxEntriesShouldFail() {
+        new CachingUserDao( userDao, -1, TIME_TO_LIVE );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorWithoutTimeToLiveShouldFail() {
+        new CachingUserDao( userDao, 10, 0 );
+    }
+
+    @Test
+    public void testRetrieveUserByIdShouldCacheUser() {
+        CachingUserDao cachingUserDao = createCachingUserDao( 10 );
+
+        UserDetails first = cachingUserDao.retrieveUserById( TOKEN );
+        UserDetails second = cachingUserDao.retrieveUserById( TOKEN );
+
+        assertThat( first, is( sameInstance( (UserDetails) user ) ) );
+        assertThat( second, is( sameInstance( (UserDetails) user ) ) );
+        verify( userDao, times( 1 ) ).retrieveUserById( TOKEN );
+        assertThat( cachingUserDao.getHits(), is( 1L ) );
+        assertThat( cachingUserDao.getMisses(), is( 1L ) );
+    }
+
+    @Test
+    public void testRetrieveUserByNameShouldCacheUser() {
+        CachingUserDao cachingUserDao = createCachingUserDao( 10 );
+
+        cachingUserDao.retrieveUserByName( NAME );
+        cachingUserDao.retrieveUserByName( NAME );
+
+        verify( userDao, times( 1 ) ).retrieveUserByName( NAME );
+        assertThat( cachingUserDao.getUsersCachedByName(), is( 1 ) );
+        assertThat( cachingUserDao.getUsersCachedByAccessToken(), is( 0 ) );
+    }
+
+    @Test
+    public void testRetrieveUserByIdUnknownUserShouldNotBeCached() {
+        CachingUserDao cachingUserDao = createCachingUserDao( 10 );
+
+        UserDetails first = cachingUserDao.retrieveUserById( "unknown" );
+        cachingUserDao.retrieveUserById( "unknown" );
+
+        assertThat( first, is( nullValue() ) );
+        verify( userDao, times( 2 ) ).retrieveUserById( "unknown" );
+        assertThat( cachingUserDao.getUsersCachedByAccessToken(), is( 0 ) );
+    }
+
+    @Test
+    public void testRetrieveUserByIdAfterTimeToLiveShouldRetrieveUserAgain() {
+        CachingUserDao cachingUserDao = createCachingUserDao( 10 );
+
+        cachingUserDao.retrieveUserById( TOKEN );
+        now += TIME_TO_LIVE;
+        cachingUserDao.retrieveUserById( TOKEN );
+
+        verify( userDao, times( 2 ) ).retrieveUserById( TOKEN );
+        assertThat( cachingUserDao.getMisses(), is( 2L ) );
+    }
+
+    @Test
+    public void testRetrieveUserByIdAfterSubscriptionEndShouldRetrieveUserAgain() {
+        OwsUser expiringUser = new OwsUser( NAME, "password", TOKEN, null, null, new Date( now + 100 ) );
+        when( userDao.retrieveUserById( TOKEN ) ).thenReturn( expiringUser );
+        CachingUserDao cachingUserDao = createCachingUserDao( 10 );
+
+        cachingUserDao.retrieveUserById( TOKEN );
+        now += 50;
+        cachingUserDao.retrieveUserById( TOKEN );
+        now += 50;
+        cachingUserDao.retrieveUserById( TOKEN );
+
+        verify( userDao, times( 2 ) ).retrieveUserById( TOKEN );
+    }
+
+    @Test
+    public void testRetrieveUserByIdExceedingMaxEntriesShouldEvictUsers() {
+        CachingUserDao cachingUserDao = createCachingUserDao( 2 );
+
+        for ( int i = 0; i < 5; i++ ) {
+            String token = TOKEN + i;
+            when( userDao.retrieveUserById( token ) ).thenReturn( user );
+            cachingUserDao.retrieveUserById( token );
+        }
+
+        assertThat( cachingUserDao.getUsersCachedByAccessToken(), is( 2 ) );
+        assertThat( cachingUserDao.getEvictions(), is( 3L ) );
+    }
+
+    @Test
+    public void testRetrieveUserByIdExceedingMaxEntriesShouldEvictBatchOfUsers() {
+        CachingUserDao cachingUserDao = createCachingUserDao( 32 );
+
+        for ( int i = 0; i < 36; i++ ) {
+            String token = TOKEN + i;
+            when( userDao.retrieveUserById( token ) ).thenReturn( user );
+            cachingUserDao.retrieveUserById( token );
+        }
+
+        // 33rd and 35th user evict two users each
+        assertThat( cachingUserDao.getUsersCachedByAccessToken(), is( 32 ) );
+        assertThat( cachingUserDao.getEvictions(), is( 4L ) );
+    }
+
+    @Test
+    public void testRetrieveUserByIdExceedingMaxEntriesShouldRemoveExpiredUsersFirst() {
+        CachingUserDao cachingUserDao = createCachingUserDao( 2 );
+        for ( int i = 0; i < 2; i++ ) {
+            when( userDao.retrieveUserById( TOKEN + i ) ).thenReturn( user );
+            cachingUserDao.retrieveUserById( TOKEN + i );
+        }
+        now += TIME_TO_LIVE;
+
+        cachingUserDao.retrieveUserById( TOKEN );
+
+        assertThat( cachingUserDao.getUsersCachedByAccessToken(), is( 1 ) );
+        assertThat( cachingUserDao.getEvictions(), is( 0L ) );
+    }
+
+    @Test
+    public void testRetrieveUserByIdDisabledShouldNotCache() {
+        CachingUserDao cachingUserDao = createCachingUserDao( 0 );
+
+        cachingUserDao.retrieveUserById( TOKEN );
+        cachingUserDao.retrieveUserById( TOKEN );
+
+        verify( userDao, times( 2 ) ).retrieveUserById( TOKEN );
+        assertThat( cachingUserDao.isEnabled(), is( false ) );
+    }
+
+    @Test
+    public void testInvalidateUserShouldRemoveUserByNameAndAccessToken() {
+        CachingUserDao cachingUserDao = createCachingUserDao( 10 );
+        cachingUserDao.retrieveUserById( TOKEN );
+        cachingUserDao.retrieveUserByName( NAME );
+
+        cachingUserDao.invalidateUser( NAME );
+
+        assertThat( cachingUserDao.getUsersCachedByAccessToken(), is( 0 ) );
+        assertThat( cachingUserDao.getUsersCachedByName(), is( 0 ) );
+    }
+
+    @Test
+    public void testInvalidateAccessTokenShouldRemoveUserByAccessToken() {
+        CachingUserDao cachingUserDao = createCachingUserDao( 10 );
+        cachingUserDao.retrieveUserById( TOKEN );
+        cachingUserDao.retrieveUserByName( NAME );
+
+        cachingUserDao.invalidateAccessToken( TOKEN );
+        cachingUserDao.retrieveUserById( TOKEN );
+
+        verify( userDao, times( 2 ) ).retrieveUserById( TOKEN );
+        assertThat( cachingUserDao.getUsersCachedByAccessToken(), is( 1 ) );
+        assertThat( cachingUserDao.getUsersCachedByName(), is( 1 ) );
+    }
+
+    @Test
+    public void testClearShouldRemoveAllUsers() {
+        CachingUserDao cachingUserDao = createCachingUserDao( 10 );
+        cachingUserDao.retrieveUserById( TOKEN );
+        cachingUserDao.retrieveUserByName( NAME );
+
+        cachingUserDao.clear();
+
+        assertThat( cachingUserDao.getUsersCachedByAccessToken(), is( 0 ) );
+        assertThat( cachingUserDao.getUsersCachedByName(), is( 0 ) );
+    }
+
+    private CachingUserDao createCachingUserDao( int maxEntries ) {
+        return new CachingUserDao( userDao, maxEntries, TIME_TO_LIVE ) {
+            @Override
+            protected long currentTimeMillis() {
+                return now;
+            }
+        };
+    }
+
+}
@@ -6,6 +6,7 @@ import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertThat;
 
+import java.sql.Date;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -179,6 +180,35 @@ public class UserDaoImplTest {
         assertThat( details, notNullValue() );
     }
 
+    @Test
+    public void testRetrieveUserByIdShouldHaveSubscriptionEnd() {
+        OwsUser wcsUser = (OwsUser) source.retrieveUserById( "VALID_HEADER" );
+        assertThat( wcsUser.getSubscriptionEnd().getTime(), is( Date.valueOf( "2113-05-05" ).getTime() ) );
+    }
+
+    @Test
+    public void testRetrieveUserByIdShouldHaveEarlierSubscriptionEndOfMultipleRows() {
+        OwsUser wcsUser = (OwsUser) source.retrieveUserById( "VALID_HEADER_TWO_SUBSCRIPTIONS" );
+        assertThat( wcsUser.getAuthorities().size(), is( 2 ) );
+        assertThat( wcsUser.getSubscriptionEnd().getTime(), is( Date.valueOf( "2114-06-06" ).getTime() ) );
+    }
+
+    @Test
+    public void testRetrieveUserByIdWithNullServiceTypeShouldSkipRow() {
+        OwsUser wcsUser = (OwsUser) source.retrieveUserById( "VALID_HEADER_NULL_SERVICE_TYPE" );
+        assertThat( wcsUser.getUsername(), is( "USER_NULL_SERVICE_TYPE" ) );
+        assertThat( wcsUser.getAuthorities().size(), is( 1 ) );
+        OwsPermission permission = (OwsPermission) wcsUser.getAuthorities().get( 0 );
+        assertThat( permission.getServiceType().toLowerCase(), is( "wcs" ) );
+        assertThat( permission.getLayerName(), is( "wcsLayer" ) );
+    }
+
+    @Test
+    public void testRetrieveUserByIdWithOnlyNullServiceTypeShouldReturnNull() {
+        UserDetails details = source.retrieveUserById( "VALID_HEADER_ONLY_NULL_SERVICE_TYPE" );
+        assertThat( details, nullValue() );
+    }
+
     @Test
     public void testLoadUserDetailsForUserSubscriptionExpired() {
         UserDetails details = source.retrieveUserById( "VALID_HEADER_SUBSCRIPTION_EXPIRED" );
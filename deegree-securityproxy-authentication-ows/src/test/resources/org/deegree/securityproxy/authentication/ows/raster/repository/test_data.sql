@@ -52,3 +52,16 @@ INSERT INTO usertable(access_token, user_name, password, layer_service_type_name
   
 INSERT INTO usertable(access_token, user_name, password, serviceVersion, layerName, serviceName,  operationType, layer_service_type_name, subscription_start, subscription_end ) 
  VALUES ('VALID_HEADER_EXECUTE','USER','PASSWORD', '<= 1.0.0', 'processId', 'serviceName', 'Execute', 'WPS', '2013-05-05', '2113-05-05');
+
+INSERT INTO usertable(access_token, user_name, password, layerName, layer_service_type_name, subscription_start, subscription_end ) 
+ VALUES ('VALID_HEADER_NULL_SERVICE_TYPE','USER_NULL_SERVICE_TYPE','PASSWORD', 'nullTypeLayer', NULL, '2013-05-05', '2113-05-05');
+INSERT INTO usertable(access_token, user_name, password, layerName, layer_service_type_name, subscription_start, subscription_end ) 
+ VALUES ('VALID_HEADER_NULL_SERVICE_TYPE','USER_NULL_SERVICE_TYPE','PASSWORD', 'wcsLayer', 'WCS', '2013-05-05', '2113-05-05');
+
+INSERT INTO usertable(access_token, user_name, password, layer_service_type_name, subscription_start, subscription_end ) 
+ VALUES ('VALID_HEADER_ONLY_NULL_SERVICE_TYPE','USER_ONLY_NULL_SERVICE_TYPE','PASSWORD', NULL, '2013-05-05', '2113-05-05');
+
+INSERT INTO usertable(access_token, user_name, password, layerName, layer_service_type_name, subscription_start, subscription_end ) 
+ VALUES ('VALID_HEADER_TWO_SUBSCRIPTIONS','USER_TWO_SUBSCRIPTIONS','PASSWORD', 'laterLayer', 'WCS', '2013-05-05', '2115-07-07');
+INSERT INTO usertable(access_token, user_name, password, layerName, layer_service_type_name, subscription_start, subscription_end ) 
+ VALUES ('VALID_HEADER_TWO_SUBSCRIPTIONS','USER_TWO_SUBSCRIPTIONS','PASSWORD', 'earlierLayer', 'WCS', '2013-05-05', '2114-06-06');
@@ -47,6 +47,8 @@ import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.events.Attribute;
 import javax.xml.stream.events.XMLEvent;
 
+import org.deegree.securityproxy.xml.XmlFactories;
+
 /**
  * Appends a new attribute in the root element of the xml.
  * 
@@ -57,11 +59,11 @@ import javax.xml.stream.events.XMLEvent;
  */
 public class AddAttributeAtFirstElementStrategy implements PostStrategy {
 
-    private final XMLEventFactory newFactory = XMLEventFactory.newFactory();
+    private final XMLEventFactory newFactory = XmlFactories.getEventFactory();
 
-    private final XMLOutputFactory outputFactory = XMLOutputFactory.newFactory();
+    private final XMLOutputFactory outputFactory = XmlFactories.getOutputFactory();
 
-    private final XMLInputFactory inputFactory = XMLInputFactory.newFactory();
+    private final XMLInputFactory inputFactory = XmlFactories.getInputFactory();
 
     private final String attributeName;
 
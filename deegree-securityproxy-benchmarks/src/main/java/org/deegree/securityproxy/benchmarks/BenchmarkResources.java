@@ -0,0 +1,147 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.benchmarks;
+
+import static org.apache.commons.io.IOUtils.closeQuietly;
+import static org.apache.commons.io.IOUtils.toByteArray;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.deegree.securityproxy.authentication.ows.domain.LimitedOwsServiceVersion;
+import org.deegree.securityproxy.authentication.ows.raster.OwsPermission;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+/**
+ * Fixtures shared by the benchmarks. The documents and images are the test resources of the service modules.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+final class BenchmarkResources {
+
+    static final String WMS_CAPABILITIES = "/org/deegree/securityproxy/wms/responsefilter/capabilities/wms_1_3_0.xml";
+
+    static final String WCS_CAPABILITIES = "/org/deegree/securityproxy/wcs/responsefilter/capabilities/wcs_1_0_0.xml";
+
+    static final String WMS_IMAGE = "/org/deegree/securityproxy/wms/responsefilter/clipping/overview.png";
+
+    static final String WCS_IMAGE = "/org/deegree/securityproxy/wcs/responsefilter/clipping/dem90_geotiff_tiled.tiff";
+
+    static final String WMS_SERVICE_NAME = "wms";
+
+    static final String WMS_GETCAPABILITIES = "SERVICE=WMS&VERSION=1.3.0&REQUEST=GetCapabilities";
+
+    static final String WMS_GETMAP = "SERVICE=WMS&VERSION=1.3.0&REQUEST=GetMap&LAYERS=testdata_view,footprints"
+                                     + "&STYLES=&CRS=EPSG:4326&BBOX=50.52,7.33,54.64,11.45&WIDTH=256&HEIGHT=256"
+                                     + "&FORMAT=image/png";
+
+    static final String WCS_GETCOVERAGE = "SERVICE=WCS&VERSION=1.0.0&REQUEST=GetCoverage&COVERAGE=testdata_raw"
+                                          + "&CRS=EPSG:4326&BBOX=7.33,50.52,11.45,54.64&WIDTH=256&HEIGHT=256"
+                                          + "&FORMAT=GeoTIFF";
+
+    private BenchmarkResources() {
+    }
+
+    /**
+     * @param resource
+     *            absolute name of the classpath resource, never <code>null</code>
+     * @return the content of the resource, never <code>null</code>
+     * @throws IOException
+     *             if the resource does not exist or could not be read
+     */
+    static byte[] readResource( String resource )
+                    throws IOException {
+        InputStream stream = BenchmarkResources.class.getResourceAsStream( resource );
+        if ( stream == null )
+            throw new IOException( "Resource " + resource + " is not available!" );
+        try {
+            return toByteArray( stream );
+        } finally {
+            closeQuietly( stream );
+        }
+    }
+
+    /**
+     * Creates a GET request like a servlet container does: the raw query string and the decoded parameters are set.
+     * 
+     * @param serviceName
+     *            the last step of the servlet path, never <code>null</code>
+     * @param queryString
+     *            the query string without encoded characters, never <code>null</code>
+     * @return the request, never <code>null</code>
+     */
+    static MockHttpServletRequest createGetRequest( String serviceName, String queryString ) {
+        MockHttpServletRequest request = new MockHttpServletRequest( "GET", "/services/" + serviceName );
+        request.setServletPath( "/services/" + serviceName );
+        request.setQueryString( queryString );
+        for ( String keyValuePair : queryString.split( "&" ) ) {
+            int separator = keyValuePair.indexOf( '=' );
+            request.addParameter( keyValuePair.substring( 0, separator ), keyValuePair.substring( separator + 1 ) );
+        }
+        return request;
+    }
+
+    /**
+     * @return an authentication with GetCapabilities and GetMap permissions for the layers of the WMS capabilities
+     *         fixture, never <code>null</code>
+     */
+    static Authentication createWmsAuthentication() {
+        List<GrantedAuthority> permissions = new ArrayList<GrantedAuthority>();
+        permissions.add( createWmsPermission( "GetCapabilities", null ) );
+        permissions.add( createWmsPermission( "GetMap", "testdata_view" ) );
+        permissions.add( createWmsPermission( "GetMap", "sub_testdata_view1" ) );
+        permissions.add( createWmsPermission( "GetMap", "footprints" ) );
+        return createAuthentication( permissions );
+    }
+
+    private static OwsPermission createWmsPermission( String operationType, String layerName ) {
+        return new OwsPermission( "wms", operationType, new LimitedOwsServiceVersion( "<= 1.3.0" ), layerName,
+                        WMS_SERVICE_NAME, "http://localhost/backend/wms", null );
+    }
+
+    private static Authentication createAuthentication( Collection<? extends GrantedAuthority> permissions ) {
+        return new UsernamePasswordAuthenticationToken( "benchmark", "benchmark", permissions );
+    }
+
+}
@@ -0,0 +1,145 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.benchmarks;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static org.deegree.securityproxy.benchmarks.BenchmarkResources.WCS_CAPABILITIES;
+import static org.deegree.securityproxy.benchmarks.BenchmarkResources.WMS_CAPABILITIES;
+import static org.deegree.securityproxy.benchmarks.BenchmarkResources.WMS_SERVICE_NAME;
+import static org.deegree.securityproxy.benchmarks.BenchmarkResources.createWmsAuthentication;
+import static org.deegree.securityproxy.benchmarks.BenchmarkResources.readResource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.deegree.securityproxy.authentication.ows.domain.LimitedOwsServiceVersion;
+import org.deegree.securityproxy.authentication.ows.raster.OwsPermission;
+import org.deegree.securityproxy.request.OwsServiceVersion;
+import org.deegree.securityproxy.service.commons.responsefilter.capabilities.XmlFilter;
+import org.deegree.securityproxy.service.commons.responsefilter.capabilities.XmlModificationManager;
+import org.deegree.securityproxy.wcs.request.WcsRequest;
+import org.deegree.securityproxy.wcs.responsefilter.capabilities.WcsCapabilitiesModificationManagerCreator;
+import org.deegree.securityproxy.wms.request.WmsRequest;
+import org.deegree.securityproxy.wms.responsefilter.capabilities.WmsCapabilitiesModificationManagerCreator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+
+/**
+ * Measures the {@link XmlFilter} removing the layers and coverages the user is not permitted to access from the WMS
+ * 1.3.0 and WCS 1.0.0 capabilities fixtures. The {@link XmlModificationManager}s are created once, as the filtering
+ * itself is measured.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CapabilitiesFilterBenchmark {
+
+    private final XmlFilter xmlFilter = new XmlFilter();
+
+    private final ByteArrayOutputStream filteredCapabilities = new ByteArrayOutputStream( 64 * 1024 );
+
+    private byte[] wmsCapabilities;
+
+    private byte[] wcsCapabilities;
+
+    private XmlModificationManager wmsModificationManager;
+
+    private XmlModificationManager wcsModificationManager;
+
+    @Setup
+    public void createModificationManagers()
+                    throws IOException {
+        wmsCapabilities = readResource( WMS_CAPABILITIES );
+        wcsCapabilities = readResource( WCS_CAPABILITIES );
+        WmsRequest wmsRequest = new WmsRequest( "GetCapabilities", new OwsServiceVersion( "1.3.0" ),
+                        WMS_SERVICE_NAME );
+        wmsModificationManager = new WmsCapabilitiesModificationManagerCreator().createXmlModificationManager( wmsRequest,
+                                                                                                             createWmsAuthentication() );
+        WcsRequest wcsRequest = new WcsRequest( "GetCapabilities", new OwsServiceVersion( "1.0.0" ), "wcs" );
+        wcsModificationManager = new WcsCapabilitiesModificationManagerCreator().createXmlModificationManager( wcsRequest,
+                                                                                                             createWcsAuthentication() );
+    }
+
+    @Benchmark
+    public int filterWmsCapabilities()
+                    throws IOException, XMLStreamException {
+        return filter( wmsCapabilities, wmsModificationManager );
+    }
+
+    @Benchmark
+    public int filterWcsCapabilities()
+                    throws IOException, XMLStreamException {
+        return filter( wcsCapabilities, wcsModificationManager );
+    }
+
+    private int filter( byte[] capabilities, XmlModificationManager modificationManager )
+                    throws IOException, XMLStreamException {
+        filteredCapabilities.reset();
+        xmlFilter.filterXml( new ByteArrayInputStream( capabilities ), filteredCapabilities, modificationManager );
+        return filteredCapabilities.size();
+    }
+
+    private UsernamePasswordAuthenticationToken createWcsAuthentication() {
+        List<GrantedAuthority> permissions = new ArrayList<GrantedAuthority>();
+        LimitedOwsServiceVersion version = new LimitedOwsServiceVersion( "<= 1.0.0" );
+        permissions.add( new OwsPermission( "wcs", "GetCapabilities", version, "testdata_raw", "wcs",
+                        "http://localhost/backend/wcs", null ) );
+        return new UsernamePasswordAuthenticationToken( "benchmark", "benchmark", permissions );
+    }
+
+}
@@ -0,0 +1,162 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.benchmarks;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.deegree.securityproxy.filter.KvpRequestWrapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+/**
+ * Measures reading the parameters of a {@link KvpRequestWrapper} as done while forwarding a request: with the merged
+ * parameter map and query string computed once and with both rebuilt on every access. The allocations per request are
+ * reported by the GC profiler added by the {@link BenchmarkRunner}.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KvpRequestWrapperBenchmark {
+
+    private static final int PARAMETER_ACCESSES = 10;
+
+    private HttpServletRequest request;
+
+    private Map<String, String[]> additionalParameters;
+
+    @Setup
+    public void createRequest() {
+        MockHttpServletRequest getMapRequest = new MockHttpServletRequest( "GET", "/wms" );
+        getMapRequest.setQueryString( "SERVICE=WMS&REQUEST=GetMap&VERSION=1.3.0&LAYERS=roads&STYLES=&CRS=EPSG:4326"
+                                      + "&BBOX=50,7,51,8&WIDTH=512&HEIGHT=512&FORMAT=image/png" );
+        getMapRequest.addParameter( "SERVICE", "WMS" );
+        getMapRequest.addParameter( "REQUEST", "GetMap" );
+        getMapRequest.addParameter( "VERSION", "1.3.0" );
+        getMapRequest.addParameter( "LAYERS", "roads" );
+        getMapRequest.addParameter( "STYLES", "" );
+        getMapRequest.addParameter( "CRS", "EPSG:4326" );
+        getMapRequest.addParameter( "BBOX", "50,7,51,8" );
+        getMapRequest.addParameter( "WIDTH", "512" );
+        getMapRequest.addParameter( "HEIGHT", "512" );
+        getMapRequest.addParameter( "FORMAT", "image/png" );
+        request = getMapRequest;
+        additionalParameters = new HashMap<String, String[]>();
+        additionalParameters.put( "user", new String[] { "test" } );
+    }
+
+    @Benchmark
+    public int readParametersComputedOnce() {
+        return readParameters( new KvpRequestWrapper( request, additionalParameters ) );
+    }
+
+    @Benchmark
+    public int readParametersRebuiltPerAccess() {
+        return readParameters( new RebuildingKvpRequestWrapper( request, additionalParameters ) );
+    }
+
+    private int readParameters( KvpRequestWrapper wrapper ) {
+        int checksum = 0;
+        for ( int access = 0; access < PARAMETER_ACCESSES; access++ ) {
+            checksum += wrapper.getParameter( "REQUEST" ).length();
+            checksum += wrapper.getParameterValues( "LAYERS" ).length;
+        }
+        Enumeration<String> parameterNames = wrapper.getParameterNames();
+        while ( parameterNames.hasMoreElements() )
+            checksum += parameterNames.nextElement().length();
+        checksum += wrapper.getQueryString().length();
+        checksum += wrapper.getQueryString().length();
+        return checksum;
+    }
+
+    /**
+     * Rebuilds the merged parameter map and the query string on every access.
+     */
+    private static class RebuildingKvpRequestWrapper extends KvpRequestWrapper {
+
+        private final HttpServletRequest request;
+
+        private final Map<String, String[]> additionalParameters;
+
+        private RebuildingKvpRequestWrapper( HttpServletRequest request, Map<String, String[]> additionalParameters ) {
+            super( request, additionalParameters );
+            this.request = request;
+            this.additionalParameters = additionalParameters;
+        }
+
+        @Override
+        public String getQueryString() {
+            StringBuilder queryString = new StringBuilder( request.getQueryString() );
+            for ( Map.Entry<String, String[]> entry : new TreeMap<String, String[]>( additionalParameters ).entrySet() )
+                queryString.append( '&' ).append( entry.getKey() ).append( '=' ).append( entry.getValue()[0] );
+            return queryString.toString();
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public Map<String, String[]> getParameterMap() {
+            Map<String, String[]> parameters = new TreeMap<String, String[]>();
+            parameters.putAll( request.getParameterMap() );
+            parameters.putAll( additionalParameters );
+            return Collections.unmodifiableMap( parameters );
+        }
+
+    }
+
+}
@@ -0,0 +1,138 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.benchmarks;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.deegree.securityproxy.benchmarks.BenchmarkResources.WCS_IMAGE;
+import static org.deegree.securityproxy.benchmarks.BenchmarkResources.WMS_IMAGE;
+import static org.deegree.securityproxy.benchmarks.BenchmarkResources.WMS_SERVICE_NAME;
+import static org.deegree.securityproxy.benchmarks.BenchmarkResources.readResource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.deegree.securityproxy.request.OwsServiceVersion;
+import org.deegree.securityproxy.responsefilter.logging.ResponseClippingReport;
+import org.deegree.securityproxy.service.commons.responsefilter.clipping.exception.ClippingException;
+import org.deegree.securityproxy.wcs.request.WcsRequest;
+import org.deegree.securityproxy.wcs.responsefilter.clipping.GeotiffClipper;
+import org.deegree.securityproxy.wms.request.WmsRequest;
+import org.deegree.securityproxy.wms.responsefilter.clipping.SimpleRasterClipper;
+import org.opengis.referencing.FactoryException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+
+/**
+ * Measures clipping of a PNG map by the {@link SimpleRasterClipper} and of a tiled GeoTIFF coverage by the
+ * {@link GeotiffClipper}. The visible areas intersect the images, so both clippers decode, mask and encode the image.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RasterClipperBenchmark {
+
+    private final ByteArrayOutputStream clippedImage = new ByteArrayOutputStream( 1024 * 1024 );
+
+    private final GeometryFactory geometryFactory = new GeometryFactory();
+
+    private SimpleRasterClipper rasterClipper;
+
+    private GeotiffClipper geotiffClipper;
+
+    private byte[] wmsImage;
+
+    private byte[] wcsImage;
+
+    private WmsRequest wmsRequest;
+
+    private WcsRequest wcsRequest;
+
+    private Geometry wmsVisibleArea;
+
+    private Geometry wcsVisibleArea;
+
+    @Setup
+    public void createClippers()
+                    throws IOException, FactoryException {
+        rasterClipper = new SimpleRasterClipper();
+        geotiffClipper = new GeotiffClipper();
+        wmsImage = readResource( WMS_IMAGE );
+        wcsImage = readResource( WCS_IMAGE );
+        Envelope mapExtent = new Envelope( 7.3345265546875, 11.454399601562, 50.526648257812, 54.646521304687 );
+        wmsRequest = new WmsRequest( "GetMap", new OwsServiceVersion( "1.3.0" ), null, WMS_SERVICE_NAME, mapExtent,
+                        "EPSG:4326", "image/png" );
+        wcsRequest = new WcsRequest( "GetCoverage", new OwsServiceVersion( "1.0.0" ), "dem90", "wcs" );
+        wmsVisibleArea = geometryFactory.toGeometry( new Envelope( 8, 10, 51, 53 ) );
+        wcsVisibleArea = geometryFactory.toGeometry( new Envelope( -111.57, -111.53, 40, 40.1 ) );
+    }
+
+    @Benchmark
+    public ResponseClippingReport clipPng()
+                    throws ClippingException {
+        clippedImage.reset();
+        return rasterClipper.calculateClippedImage( new ByteArrayInputStream( wmsImage ), wmsVisibleArea,
+                                                    clippedImage, wmsRequest );
+    }
+
+    @Benchmark
+    public ResponseClippingReport clipGeotiff()
+                    throws ClippingException {
+        clippedImage.reset();
+        return geotiffClipper.calculateClippedImage( new ByteArrayInputStream( wcsImage ), wcsVisibleArea,
+                                                     clippedImage, wcsRequest );
+    }
+
+}
@@ -0,0 +1,120 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.benchmarks;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static org.deegree.securityproxy.benchmarks.BenchmarkResources.WCS_GETCOVERAGE;
+import static org.deegree.securityproxy.benchmarks.BenchmarkResources.WMS_GETCAPABILITIES;
+import static org.deegree.securityproxy.benchmarks.BenchmarkResources.WMS_GETMAP;
+import static org.deegree.securityproxy.benchmarks.BenchmarkResources.createGetRequest;
+
+import org.deegree.securityproxy.request.OwsRequest;
+import org.deegree.securityproxy.request.UnsupportedRequestTypeException;
+import org.deegree.securityproxy.request.parser.OwsRequestContext;
+import org.deegree.securityproxy.request.parser.OwsRequestParser;
+import org.deegree.securityproxy.request.parser.RequestParsingException;
+import org.deegree.securityproxy.wcs.request.WcsRequestParser;
+import org.deegree.securityproxy.wms.request.WmsRequestParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+/**
+ * Measures parsing of KVP requests by the {@link WmsRequestParser} and the {@link WcsRequestParser}. The requests are
+ * created once, the {@link OwsRequestContext} attached by the previous invocation is removed before each parse.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestParserBenchmark {
+
+    private final WmsRequestParser wmsRequestParser = new WmsRequestParser();
+
+    private final WcsRequestParser wcsRequestParser = new WcsRequestParser();
+
+    private MockHttpServletRequest wmsGetMapRequest;
+
+    private MockHttpServletRequest wmsGetCapabilitiesRequest;
+
+    private MockHttpServletRequest wcsGetCoverageRequest;
+
+    @Setup
+    public void createRequests() {
+        wmsGetMapRequest = createGetRequest( "wms", WMS_GETMAP );
+        wmsGetCapabilitiesRequest = createGetRequest( "wms", WMS_GETCAPABILITIES );
+        wcsGetCoverageRequest = createGetRequest( "wcs", WCS_GETCOVERAGE );
+    }
+
+    @Benchmark
+    public OwsRequest parseWmsGetMap()
+                    throws UnsupportedRequestTypeException, RequestParsingException {
+        return parse( wmsRequestParser, wmsGetMapRequest );
+    }
+
+    @Benchmark
+    public OwsRequest parseWmsGetCapabilities()
+                    throws UnsupportedRequestTypeException, RequestParsingException {
+        return parse( wmsRequestParser, wmsGetCapabilitiesRequest );
+    }
+
+    @Benchmark
+    public OwsRequest parseWcsGetCoverage()
+                    throws UnsupportedRequestTypeException, RequestParsingException {
+        return parse( wcsRequestParser, wcsGetCoverageRequest );
+    }
+
+    private OwsRequest parse( OwsRequestParser parser, MockHttpServletRequest request )
+                    throws UnsupportedRequestTypeException, RequestParsingException {
+        request.removeAttribute( OwsRequestContext.REQUEST_ATTRIBUTE );
+        return parser.parse( request );
+    }
+
+}
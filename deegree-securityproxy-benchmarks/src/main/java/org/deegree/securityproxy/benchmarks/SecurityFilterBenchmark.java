@@ -0,0 +1,181 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.benchmarks;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static org.deegree.securityproxy.benchmarks.BenchmarkResources.WMS_CAPABILITIES;
+import static org.deegree.securityproxy.benchmarks.BenchmarkResources.WMS_GETCAPABILITIES;
+import static org.deegree.securityproxy.benchmarks.BenchmarkResources.WMS_GETMAP;
+import static org.deegree.securityproxy.benchmarks.BenchmarkResources.WMS_IMAGE;
+import static org.deegree.securityproxy.benchmarks.BenchmarkResources.WMS_SERVICE_NAME;
+import static org.deegree.securityproxy.benchmarks.BenchmarkResources.createGetRequest;
+import static org.deegree.securityproxy.benchmarks.BenchmarkResources.createWmsAuthentication;
+import static org.deegree.securityproxy.benchmarks.BenchmarkResources.readResource;
+import static org.springframework.security.core.context.SecurityContextHolder.clearContext;
+import static org.springframework.security.core.context.SecurityContextHolder.getContext;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import org.deegree.securityproxy.exception.OwsServiceExceptionHandler;
+import org.deegree.securityproxy.filter.SecurityFilter;
+import org.deegree.securityproxy.filter.ServiceManager;
+import org.deegree.securityproxy.logger.ResponseFilterReportLogger;
+import org.deegree.securityproxy.logger.SecurityRequestResponseLogger;
+import org.deegree.securityproxy.report.SecurityReport;
+import org.deegree.securityproxy.responsefilter.logging.ResponseFilterReport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * Measures a complete pass through the {@link SecurityFilter} with the WMS {@link ServiceManager} configured as in
+ * wmsContext.xml: wrapping, service type detection, parsing, authorization, the invocation of a backend stub serving
+ * the fixtures and response filtering. GetMap responses are passed through, GetCapabilities responses are filtered.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SecurityFilterBenchmark {
+
+    private static final String CONTEXT = "classpath:org/deegree/securityproxy/benchmarks/securityFilterBenchmarkContext.xml";
+
+    private ClassPathXmlApplicationContext applicationContext;
+
+    private SecurityFilter securityFilter;
+
+    private FilterChain capabilitiesBackend;
+
+    private FilterChain mapBackend;
+
+    @Setup
+    public void createSecurityFilter()
+                    throws IOException {
+        applicationContext = new ClassPathXmlApplicationContext( CONTEXT );
+        ServiceManager serviceManager = applicationContext.getBean( ServiceManager.class );
+        NoOpReportLogger reportLogger = new NoOpReportLogger();
+        List<ServiceManager> serviceManagers = Collections.singletonList( serviceManager );
+        securityFilter = new SecurityFilter( serviceManagers, reportLogger, reportLogger,
+                        new OwsServiceExceptionHandler() );
+        capabilitiesBackend = new BackendStub( readResource( WMS_CAPABILITIES ), "text/xml" );
+        mapBackend = new BackendStub( readResource( WMS_IMAGE ), "image/png" );
+        getContext().setAuthentication( createWmsAuthentication() );
+    }
+
+    @TearDown
+    public void clearAuthenticationAndCloseApplicationContext() {
+        clearContext();
+        applicationContext.close();
+    }
+
+    @Benchmark
+    public int getMap()
+                    throws IOException, ServletException {
+        return doFilter( WMS_GETMAP, mapBackend );
+    }
+
+    @Benchmark
+    public int getCapabilities()
+                    throws IOException, ServletException {
+        return doFilter( WMS_GETCAPABILITIES, capabilitiesBackend );
+    }
+
+    private int doFilter( String queryString, FilterChain backend )
+                    throws IOException, ServletException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        securityFilter.doFilter( createGetRequest( WMS_SERVICE_NAME, queryString ), response, backend );
+        return response.getContentAsByteArray().length;
+    }
+
+    /**
+     * Answers each request with the same document, as the proxied service would.
+     */
+    private static class BackendStub implements FilterChain {
+
+        private final byte[] body;
+
+        private final String contentType;
+
+        private BackendStub( byte[] body, String contentType ) {
+            this.body = body;
+            this.contentType = contentType;
+        }
+
+        @Override
+        public void doFilter( ServletRequest request, ServletResponse response )
+                        throws IOException {
+            response.setContentType( contentType );
+            response.getOutputStream().write( body );
+        }
+
+    }
+
+    private static class NoOpReportLogger implements SecurityRequestResponseLogger, ResponseFilterReportLogger {
+
+        @Override
+        public void logProxyReportInfo( SecurityReport report, String serialUuid ) {
+        }
+
+        @Override
+        public void logResponseFilterReport( ResponseFilterReport report, String serialUuid ) {
+        }
+
+    }
+
+}
@@ -0,0 +1,103 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.benchmarks;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+import org.deegree.securityproxy.authentication.repository.UserDao;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+import org.springframework.security.core.userdetails.UserDetails;
+
+/**
+ * Measures the lookup of users with their permissions by the {@link UserDao} against the embedded HSQL database of the
+ * authentication tests.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserDaoBenchmark {
+
+    private static final String CONTEXT = "classpath:org/deegree/securityproxy/benchmarks/userDaoBenchmarkContext.xml";
+
+    private ClassPathXmlApplicationContext applicationContext;
+
+    private UserDao userDao;
+
+    @Setup
+    public void createUserDao() {
+        applicationContext = new ClassPathXmlApplicationContext( CONTEXT );
+        userDao = applicationContext.getBean( UserDao.class );
+    }
+
+    @TearDown
+    public void closeApplicationContext() {
+        applicationContext.close();
+    }
+
+    @Benchmark
+    public UserDetails retrieveUserWithOnePermission() {
+        return userDao.retrieveUserById( "WMS_VALID_HEADER" );
+    }
+
+    @Benchmark
+    public UserDetails retrieveUserWithMultiplePermissions() {
+        return userDao.retrieveUserById( "VALID_HEADER_MULTIPLE" );
+    }
+
+    @Benchmark
+    public UserDetails retrieveUserByName() {
+        return userDao.retrieveUserByName( "VALID_MINIMAL_USER" );
+    }
+
+}
@@ -0,0 +1,101 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.benchmarks;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+import java.io.ByteArrayInputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.deegree.securityproxy.xml.XmlFactories;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures creating an {@link XMLStreamReader} and reading the root element of a small request with a new
+ * {@link XMLInputFactory} per request and with the factory shared by the {@link XmlFactories}.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XmlFactoriesBenchmark {
+
+    private static final byte[] REQUEST = ( "<wps:Execute xmlns:wps=\"http://www.opengis.net/wps/1.0.0\" "
+                                            + "xmlns:ows=\"http://www.opengis.net/ows/1.1\" service=\"WPS\" "
+                                            + "version=\"1.0.0\"><ows:Identifier>Buffer</ows:Identifier>"
+                                            + "</wps:Execute>" ).getBytes();
+
+    @Benchmark
+    public String readWithNewFactory()
+                    throws XMLStreamException {
+        return readRootElement( XMLInputFactory.newInstance() );
+    }
+
+    @Benchmark
+    public String readWithSharedFactory()
+                    throws XMLStreamException {
+        return readRootElement( XmlFactories.getInputFactory() );
+    }
+
+    private String readRootElement( XMLInputFactory factory )
+                    throws XMLStreamException {
+        XMLStreamReader reader = factory.createXMLStreamReader( new ByteArrayInputStream( REQUEST ) );
+        try {
+            reader.nextTag();
+            return reader.getLocalName();
+        } finally {
+            reader.close();
+        }
+    }
+
+}
@@ -1,6 +1,7 @@
 package org.deegree.securityproxy.exception;
 
-import org.deegree.securityproxy.request.parser.ServiceTypeParser;
+import static org.deegree.securityproxy.request.parser.OwsRequestContext.retrieveContext;
+
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.web.AuthenticationEntryPoint;
@@ -38,7 +39,7 @@ public class ServiceExceptionHandler implements AuthenticationEntryPoint, Access
                           AuthenticationException authenticationException )
                     throws IOException, ServletException {
         if ( serviceExceptionManagers != null ) {
-            String serviceType = new ServiceTypeParser().determineServiceType( request );
+            String serviceType = retrieveContext( request ).getServiceType();
             for ( ServiceExceptionManager serviceManager : serviceExceptionManagers ) {
                 if ( serviceManager.isServiceTypeSupported( serviceType, request ) ) {
                     ServiceExceptionWrapper serviceExceptionWrapper = serviceManager.retrieveServiceExceptionWrapper();
@@ -55,7 +56,7 @@ public class ServiceExceptionHandler implements AuthenticationEntryPoint, Access
                         AccessDeniedException accessDeniedException )
                     throws IOException, ServletException {
         if ( serviceExceptionManagers != null ) {
-            String serviceType = new ServiceTypeParser().determineServiceType( request );
+            String serviceType = retrieveContext( request ).getServiceType();
             for ( ServiceExceptionManager serviceManager : serviceExceptionManagers ) {
                 if ( serviceManager.isServiceTypeSupported( serviceType, request ) ) {
                     ServiceExceptionWrapper serviceExceptionWrapper = serviceManager.retrieveServiceExceptionWrapper();
@@ -0,0 +1,130 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.filter;
+
+/**
+ * Evaluates the value of an HTTP <code>Accept-Encoding</code> request header.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public final class AcceptEncodingParser {
+
+    private static final String GZIP = "gzip";
+
+    private static final String X_GZIP = "x-gzip";
+
+    private static final String DEFLATE = "deflate";
+
+    private static final String ANY = "*";
+
+    private AcceptEncodingParser() {
+    }
+
+    /**
+     * Checks if the gzip content coding is acceptable. gzip is acceptable if it is listed (or x-gzip) with a quality
+     * value greater than 0 or if the wildcard is listed with a quality value greater than 0 and gzip is not excluded
+     * explicitly.
+     * 
+     * @param acceptEncoding
+     *            the value of the <code>Accept-Encoding</code> header, may be <code>null</code>
+     * @return <code>true</code> if a gzip encoded response is acceptable, <code>false</code> otherwise
+     */
+    public static boolean isGzipAccepted( String acceptEncoding ) {
+        return isAccepted( acceptEncoding, GZIP, X_GZIP );
+    }
+
+    /**
+     * Checks if the deflate content coding is acceptable, see {@link #isGzipAccepted(String)}.
+     * 
+     * @param acceptEncoding
+     *            the value of the <code>Accept-Encoding</code> header, may be <code>null</code>
+     * @return <code>true</code> if a deflate encoded response is acceptable, <code>false</code> otherwise
+     */
+    public static boolean isDeflateAccepted( String acceptEncoding ) {
+        return isAccepted( acceptEncoding, DEFLATE, DEFLATE );
+    }
+
+    /**
+     * Selects the content coding of a compressed response: gzip is preferred as it is supported by all clients
+     * reliably, deflate is selected only if gzip is not acceptable.
+     * 
+     * @param acceptEncoding
+     *            the value of the <code>Accept-Encoding</code> header, may be <code>null</code>
+     * @return 'gzip' or 'deflate', <code>null</code> if no compressed response is acceptable
+     */
+    public static String selectContentEncoding( String acceptEncoding ) {
+        if ( isGzipAccepted( acceptEncoding ) )
+            return GZIP;
+        if ( isDeflateAccepted( acceptEncoding ) )
+            return DEFLATE;
+        return null;
+    }
+
+    private static boolean isAccepted( String acceptEncoding, String contentCoding, String alias ) {
+        if ( acceptEncoding == null )
+            return false;
+        Boolean codingAccepted = null;
+        boolean anyAccepted = false;
+        for ( String coding : acceptEncoding.split( "," ) ) {
+            int parameterIndex = coding.indexOf( ';' );
+            String name = ( parameterIndex < 0 ? coding : coding.substring( 0, parameterIndex ) ).trim();
+            boolean accepted = parameterIndex < 0 || parseQuality( coding.substring( parameterIndex + 1 ) ) > 0;
+            if ( contentCoding.equalsIgnoreCase( name ) || alias.equalsIgnoreCase( name ) )
+                codingAccepted = codingAccepted == null ? accepted : codingAccepted || accepted;
+            else if ( ANY.equals( name ) )
+                anyAccepted = accepted;
+        }
+        return codingAccepted != null ? codingAccepted : anyAccepted;
+    }
+
+    private static double parseQuality( String parameters ) {
+        for ( String parameter : parameters.split( ";" ) ) {
+            int separatorIndex = parameter.indexOf( '=' );
+            if ( separatorIndex > 0 && "q".equalsIgnoreCase( parameter.substring( 0, separatorIndex ).trim() ) ) {
+                try {
+                    return Double.parseDouble( parameter.substring( separatorIndex + 1 ).trim() );
+                } catch ( NumberFormatException e ) {
+                    // invalid quality value, the coding is not acceptable
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+}
@@ -0,0 +1,149 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.filter;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Limits the number of requests per service type processed concurrently by the backend services. Requests exceeding
+ * the limit wait until a running request is finished or the configured timeout is elapsed. A waiting request still
+ * holds its container thread (Servlet 2.5 does not support asynchronous processing), a slow backend service with a
+ * long timeout may therefore still occupy all container threads. The recommended timeout is 0: requests exceeding the
+ * limit are rejected immediately and the container threads remain available for requests to the other services.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class BackendConcurrencyLimiter {
+
+    /**
+     * Maximal number of concurrent requests disabling the limitation.
+     */
+    public static final int UNLIMITED = 0;
+
+    private final int maxConcurrentRequests;
+
+    private final long acquireTimeout;
+
+    private final ConcurrentMap<String, Semaphore> permits = new ConcurrentHashMap<String, Semaphore>();
+
+    /**
+     * Instantiates a {@link BackendConcurrencyLimiter} without limitation.
+     */
+    public BackendConcurrencyLimiter() {
+        this( UNLIMITED, 0 );
+    }
+
+    /**
+     * @param maxConcurrentRequests
+     *            the maximal number of concurrent requests per service type, {@link #UNLIMITED} if the number of
+     *            requests should not be limited, must not be negative
+     * @param acquireTimeout
+     *            the maximal time in milliseconds a request waits for a running request to finish, 0 if requests
+     *            exceeding the limit should be rejected immediately, must not be negative
+     * @throws IllegalArgumentException
+     *             if one of the arguments is negative
+     */
+    public BackendConcurrencyLimiter( int maxConcurrentRequests, long acquireTimeout ) {
+        if ( maxConcurrentRequests < 0 )
+            throw new IllegalArgumentException( "Maximal number of concurrent requests must not be negative!" );
+        if ( acquireTimeout < 0 )
+            throw new IllegalArgumentException( "Acquire timeout must not be negative!" );
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.acquireTimeout = acquireTimeout;
+    }
+
+    /**
+     * Acquires a permit to send a request to the backend service. Each successful invocation must be followed by
+     * {@link #release(String)}.
+     * 
+     * @param serviceType
+     *            the type of the requested service, never <code>null</code>
+     * @return <code>true</code> if the request may be processed, <code>false</code> if the maximal number of
+     *         concurrent requests was still reached after the timeout
+     */
+    public boolean acquire( String serviceType ) {
+        if ( maxConcurrentRequests == UNLIMITED )
+            return true;
+        try {
+            return retrievePermits( serviceType ).tryAcquire( acquireTimeout, MILLISECONDS );
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Releases a permit acquired with {@link #acquire(String)}.
+     * 
+     * @param serviceType
+     *            the type of the requested service, never <code>null</code>
+     */
+    public void release( String serviceType ) {
+        if ( maxConcurrentRequests == UNLIMITED )
+            return;
+        retrievePermits( serviceType ).release();
+    }
+
+    /**
+     * @param serviceType
+     *            the type of the requested service, never <code>null</code>
+     * @return the number of requests to the service which may be processed currently, {@link Integer#MAX_VALUE} if the
+     *         number of requests is not limited
+     */
+    public int getAvailablePermits( String serviceType ) {
+        if ( maxConcurrentRequests == UNLIMITED )
+            return Integer.MAX_VALUE;
+        return retrievePermits( serviceType ).availablePermits();
+    }
+
+    private Semaphore retrievePermits( String serviceType ) {
+        Semaphore semaphore = permits.get( serviceType );
+        if ( semaphore == null ) {
+            Semaphore newSemaphore = new Semaphore( maxConcurrentRequests );
+            semaphore = permits.putIfAbsent( serviceType, newSemaphore );
+            if ( semaphore == null )
+                semaphore = newSemaphore;
+        }
+        return semaphore;
+    }
+
+}
@@ -0,0 +1,131 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.filter;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread-safe pool of fixed-size byte chunks used to buffer response bodies. Released chunks are kept for reuse up to
+ * a maximum number of pooled chunks, surplus chunks are left to the garbage collector.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class ByteChunkPool {
+
+    public static final int DEFAULT_CHUNK_SIZE = 16 * 1024;
+
+    public static final int DEFAULT_MAX_POOLED_CHUNKS = 1024;
+
+    private static final ByteChunkPool DEFAULT_POOL = new ByteChunkPool( DEFAULT_CHUNK_SIZE, DEFAULT_MAX_POOLED_CHUNKS );
+
+    private final Queue<byte[]> pooledChunks = new ConcurrentLinkedQueue<byte[]>();
+
+    private final AtomicInteger numberOfPooledChunks = new AtomicInteger();
+
+    private final int chunkSize;
+
+    private final int maxPooledChunks;
+
+    /**
+     * @param chunkSize
+     *            size of each chunk in bytes, must be greater than 0
+     * @param maxPooledChunks
+     *            maximum number of released chunks kept for reuse, 0 disables pooling
+     * @throws IllegalArgumentException
+     *             if chunkSize is not greater than 0 or maxPooledChunks is negative
+     */
+    public ByteChunkPool( int chunkSize, int maxPooledChunks ) {
+        if ( chunkSize <= 0 )
+            throw new IllegalArgumentException( "Chunk size must be greater than 0!" );
+        if ( maxPooledChunks < 0 )
+            throw new IllegalArgumentException( "Maximum number of pooled chunks must not be negative!" );
+        this.chunkSize = chunkSize;
+        this.maxPooledChunks = maxPooledChunks;
+    }
+
+    /**
+     * @return the pool shared by all buffers not configured with a dedicated pool, never <code>null</code>
+     */
+    public static ByteChunkPool getDefaultPool() {
+        return DEFAULT_POOL;
+    }
+
+    /**
+     * @return a chunk of {@link #getChunkSize()} bytes, a pooled one if available, never <code>null</code>
+     */
+    public byte[] acquire() {
+        byte[] chunk = pooledChunks.poll();
+        if ( chunk != null ) {
+            numberOfPooledChunks.decrementAndGet();
+            return chunk;
+        }
+        return new byte[chunkSize];
+    }
+
+    /**
+     * Returns a chunk to the pool. The chunk must not be used by the caller afterwards.
+     * 
+     * @param chunk
+     *            the chunk to release, chunks of a different size are ignored, may be <code>null</code>
+     */
+    public void release( byte[] chunk ) {
+        if ( chunk == null || chunk.length != chunkSize )
+            return;
+        if ( numberOfPooledChunks.incrementAndGet() <= maxPooledChunks )
+            pooledChunks.offer( chunk );
+        else
+            numberOfPooledChunks.decrementAndGet();
+    }
+
+    /**
+     * @return the size of each chunk in bytes
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * @return the number of chunks currently available for reuse
+     */
+    public int getNumberOfPooledChunks() {
+        return numberOfPooledChunks.get();
+    }
+
+}
@@ -0,0 +1,184 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.filter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * {@link OutputStream} compressing the response body with gzip or deflate. The first bytes are kept in memory until
+ * the minimum size is reached: smaller bodies are written uncompressed with a Content-Length header when the stream is
+ * closed, larger bodies are compressed while they are written. The Content-Encoding header is set before the first
+ * compressed byte is written.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+class CompressingOutputStream extends OutputStream {
+
+    static final String GZIP = "gzip";
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final HttpServletResponse response;
+
+    private final OutputStream out;
+
+    private final String contentEncoding;
+
+    private final int compressionLevel;
+
+    private final byte[] pending;
+
+    private int pendingLength;
+
+    private Deflater deflater;
+
+    private DeflaterOutputStream compressingStream;
+
+    private boolean isClosed;
+
+    /**
+     * @param response
+     *            the response to set the Content-Encoding and Content-Length headers, never <code>null</code>
+     * @param out
+     *            the stream to write the response body in, never <code>null</code>
+     * @param contentEncoding
+     *            'gzip' or 'deflate', never <code>null</code>
+     * @param compressionLevel
+     *            the compression level between 1 and 9
+     * @param minimumSize
+     *            the minimum size of a response body in bytes to be compressed, must not be negative
+     */
+    CompressingOutputStream( HttpServletResponse response, OutputStream out, String contentEncoding,
+                             int compressionLevel, int minimumSize ) {
+        this.response = response;
+        this.out = out;
+        this.contentEncoding = contentEncoding;
+        this.compressionLevel = compressionLevel;
+        this.pending = new byte[minimumSize];
+    }
+
+    @Override
+    public void write( int b )
+                    throws IOException {
+        write( new byte[] { (byte) b }, 0, 1 );
+    }
+
+    @Override
+    public void write( byte[] bytes, int offset, int length )
+                    throws IOException {
+        if ( isClosed )
+            throw new IOException( "Stream is closed!" );
+        if ( compressingStream == null && pendingLength + length <= pending.length ) {
+            System.arraycopy( bytes, offset, pending, pendingLength, length );
+            pendingLength += length;
+            return;
+        }
+        if ( compressingStream == null )
+            startCompression();
+        compressingStream.write( bytes, offset, length );
+    }
+
+    @Override
+    public void flush()
+                    throws IOException {
+        // pending bytes are kept until the minimum size is reached, flushing would prevent the compression
+        if ( compressingStream != null )
+            compressingStream.flush();
+    }
+
+    /**
+     * Completes the response body, the wrapped stream is flushed but not closed.
+     */
+    @Override
+    public void close()
+                    throws IOException {
+        if ( isClosed )
+            return;
+        isClosed = true;
+        try {
+            if ( compressingStream == null ) {
+                response.addHeader( "Vary", "Accept-Encoding" );
+                response.setContentLength( pendingLength );
+                out.write( pending, 0, pendingLength );
+            } else {
+                compressingStream.finish();
+            }
+            out.flush();
+        } finally {
+            if ( deflater != null )
+                deflater.end();
+        }
+    }
+
+    private void startCompression()
+                    throws IOException {
+        response.setHeader( "Content-Encoding", contentEncoding );
+        response.addHeader( "Vary", "Accept-Encoding" );
+        if ( GZIP.equals( contentEncoding ) ) {
+            LeveledGzipOutputStream gzipStream = new LeveledGzipOutputStream( out, compressionLevel );
+            deflater = gzipStream.getDeflater();
+            compressingStream = gzipStream;
+        } else {
+            deflater = new Deflater( compressionLevel );
+            compressingStream = new DeflaterOutputStream( out, deflater, BUFFER_SIZE );
+        }
+        compressingStream.write( pending, 0, pendingLength );
+        pendingLength = 0;
+    }
+
+    private static class LeveledGzipOutputStream extends GZIPOutputStream {
+
+        private LeveledGzipOutputStream( OutputStream out, int compressionLevel )
+                        throws IOException {
+            super( out, BUFFER_SIZE );
+            def.setLevel( compressionLevel );
+        }
+
+        private Deflater getDeflater() {
+            return def;
+        }
+
+    }
+
+}
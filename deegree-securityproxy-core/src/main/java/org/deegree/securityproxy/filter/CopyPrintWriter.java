@@ -1,44 +1,129 @@
 package org.deegree.securityproxy.filter;
 
-import java.io.ByteArrayOutputStream;
+import static java.nio.charset.CodingErrorAction.REPLACE;
+
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
 
 /**
+ * {@link PrintWriter} writing into the wrapped {@link Writer} and copying the encoded characters into a
+ * {@link ResponseBodyBuffer}.
+ *
  * see http://stackoverflow.com/questions/3242236/capture-and-log-the-response-body
- * 
- * 
+ *
+ *
  * @version $Revision: $, $Date: $
  */
 public class CopyPrintWriter extends PrintWriter {
 
-    private final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    private static final int ENCODING_BUFFER_SIZE = 1024;
+
+    private static final char NO_PENDING_CHAR = 0;
+
+    private final ResponseBodyBuffer copy;
+
+    private final CharsetEncoder encoder;
+
+    private final ByteBuffer encoded;
+
+    private final CharBuffer singleChar = CharBuffer.allocate( 1 );
+
+    private char pendingHighSurrogate = NO_PENDING_CHAR;
 
+    /**
+     * Instantiates a {@link CopyPrintWriter} copying into a new {@link ResponseBodyBuffer} using the platform charset.
+     *
+     * @param writer
+     *            the writer to write in, never <code>null</code>
+     */
     public CopyPrintWriter( Writer writer ) {
+        this( writer, new ResponseBodyBuffer(), Charset.defaultCharset() );
+    }
+
+    /**
+     * @param writer
+     *            the writer to write in, never <code>null</code>
+     * @param copy
+     *            the buffer to copy the encoded characters into, never <code>null</code>
+     * @param charset
+     *            the charset used to encode the copied characters, should be the charset of the wrapped writer, never
+     *            <code>null</code>
+     */
+    public CopyPrintWriter( Writer writer, ResponseBodyBuffer copy, Charset charset ) {
         super( writer );
+        this.copy = copy;
+        this.encoder = charset.newEncoder().onMalformedInput( REPLACE ).onUnmappableCharacter( REPLACE );
+        this.encoded = ByteBuffer.allocate( ENCODING_BUFFER_SIZE );
     }
 
     @Override
     public void write( int c ) {
-        baos.write( c );
-        super.write( c );
+        synchronized ( lock ) {
+            singleChar.clear();
+            singleChar.put( (char) c ).flip();
+            copy( singleChar );
+            super.write( c );
+        }
     }
 
     @Override
     public void write( char[] chars, int offset, int length ) {
-        byte[] bytes = new String( chars ).getBytes();
-        baos.write( bytes, offset, length );
-        super.write( chars, offset, length );
+        synchronized ( lock ) {
+            copy( CharBuffer.wrap( chars, offset, length ) );
+            super.write( chars, offset, length );
+        }
     }
 
     @Override
     public void write( String string, int offset, int length ) {
-        baos.write( string.getBytes(), offset, length );
-        super.write( string, offset, length );
+        synchronized ( lock ) {
+            copy( CharBuffer.wrap( string, offset, offset + length ) );
+            super.write( string, offset, length );
+        }
+    }
+
+    /**
+     * @return the copied content, may be empty but never <code>null</code>
+     * @throws IOException
+     *             if the copied content could not be read
+     */
+    public byte[] getCopy()
+                    throws IOException {
+        return copy.toByteArray();
+    }
+
+    private void copy( CharBuffer chars ) {
+        CharBuffer toEncode = prependPendingHighSurrogate( chars );
+        CoderResult result;
+        do {
+            result = encoder.encode( toEncode, encoded, false );
+            encoded.flip();
+            try {
+                copy.write( encoded.array(), encoded.arrayOffset(), encoded.limit() );
+            } catch ( IOException e ) {
+                // PrintWriter does not throw exceptions, the error is available with checkError()
+                setError();
+            }
+            encoded.clear();
+        } while ( result.isOverflow() );
+        // an incomplete surrogate pair remains, the low surrogate is expected with the next invocation
+        if ( toEncode.hasRemaining() )
+            pendingHighSurrogate = toEncode.get();
     }
 
-    public byte[] getCopy() {
-        return baos.toByteArray();
+    private CharBuffer prependPendingHighSurrogate( CharBuffer chars ) {
+        if ( pendingHighSurrogate == NO_PENDING_CHAR )
+            return chars;
+        CharBuffer joined = CharBuffer.allocate( chars.remaining() + 1 );
+        joined.put( pendingHighSurrogate ).put( chars ).flip();
+        pendingHighSurrogate = NO_PENDING_CHAR;
+        return joined;
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,82 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.filter;
+
+/**
+ * Evaluates the value of an HTTP <code>If-None-Match</code> request header.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public final class EntityTagMatcher {
+
+    private static final String WEAK_PREFIX = "W/";
+
+    private static final String ANY = "*";
+
+    private EntityTagMatcher() {
+    }
+
+    /**
+     * Checks if the passed entity tag is listed in the <code>If-None-Match</code> header. Entity tags are compared
+     * weakly (the weakness indicator is ignored) as required for <code>If-None-Match</code>.
+     * 
+     * @param ifNoneMatch
+     *            the value of the <code>If-None-Match</code> header, may be <code>null</code>
+     * @param entityTag
+     *            the quoted entity tag of the current representation, never <code>null</code>
+     * @return <code>true</code> if the entity tag matches, <code>false</code> otherwise
+     */
+    public static boolean isMatching( String ifNoneMatch, String entityTag ) {
+        if ( ifNoneMatch == null )
+            return false;
+        String opaqueTag = stripWeakPrefix( entityTag );
+        for ( String listedTag : ifNoneMatch.split( "," ) ) {
+            String trimmedTag = listedTag.trim();
+            if ( ANY.equals( trimmedTag ) || opaqueTag.equals( stripWeakPrefix( trimmedTag ) ) )
+                return true;
+        }
+        return false;
+    }
+
+    private static String stripWeakPrefix( String entityTag ) {
+        if ( entityTag.startsWith( WEAK_PREFIX ) )
+            return entityTag.substring( WEAK_PREFIX.length() );
+        return entityTag;
+    }
+
+}
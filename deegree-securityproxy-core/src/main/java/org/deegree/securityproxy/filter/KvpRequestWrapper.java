@@ -20,6 +20,11 @@ public class KvpRequestWrapper extends HttpServletRequestWrapper {
 
     private final Map<String, String[]> additionalParameters;
 
+    // computed on first access and invalidated by addParameter, the parameters are read repeatedly while forwarding
+    private Map<String, String[]> mergedParameters;
+
+    private String queryString;
+
     /**
      * Constructs a request object wrapping the given request.
      * 
@@ -46,17 +51,21 @@ public class KvpRequestWrapper extends HttpServletRequestWrapper {
 
     @Override
     public String getQueryString() {
-        String originalQueryString = super.getQueryString();
-        return addAdditionalKeyValuePairsAsString( originalQueryString );
+        if ( queryString == null )
+            queryString = addAdditionalKeyValuePairsAsString( super.getQueryString() );
+        return queryString;
     }
 
     @SuppressWarnings("unchecked")
     @Override
     public Map<String, String[]> getParameterMap() {
-        Map<String, String[]> parameters = new TreeMap<String, String[]>();
-        parameters.putAll( super.getParameterMap() );
-        parameters.putAll( additionalParameters );
-        return Collections.unmodifiableMap( parameters );
+        if ( mergedParameters == null ) {
+            Map<String, String[]> parameters = new TreeMap<String, String[]>();
+            parameters.putAll( super.getParameterMap() );
+            parameters.putAll( additionalParameters );
+            mergedParameters = Collections.unmodifiableMap( parameters );
+        }
+        return mergedParameters;
     }
 
     @Override
@@ -88,8 +97,11 @@ public class KvpRequestWrapper extends HttpServletRequestWrapper {
      *            of the new entry
      */
     public void addParameter( String key, String value ) {
-        if ( key != null )
+        if ( key != null ) {
             additionalParameters.put( key, new String[] { value } );
+            mergedParameters = null;
+            queryString = null;
+        }
     }
 
     private String addAdditionalKeyValuePairsAsString( String originalQueryString ) {
@@ -35,19 +35,21 @@
  ----------------------------------------------------------------------------*/
 package org.deegree.securityproxy.filter;
 
-import static org.apache.commons.io.IOUtils.toByteArray;
-
 import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.charset.Charset;
 
 import javax.servlet.ServletInputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletRequestWrapper;
 
+import org.deegree.securityproxy.request.RequestBodyTooLargeException;
+
 /**
- * Wraps a {@link HttpServletRequest} and allows reading the stream multiple times.
+ * Wraps a {@link HttpServletRequest} and allows reading the stream multiple times. The body is buffered when the
+ * stream or reader is requested the first time, requests whose body is never read are not buffered at all.
  * 
  * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz</a>
  * @author last edited by: $Author: lyn $
@@ -56,31 +58,80 @@ import javax.servlet.http.HttpServletRequestWrapper;
  */
 public class RequestBodyWrapper extends HttpServletRequestWrapper {
 
-    private byte[] byteArray;
+    /**
+     * Maximal body size disabling the limit.
+     */
+    public static final long UNLIMITED_BODY_SIZE = Long.MAX_VALUE;
+
+    private static final int COPY_BUFFER_SIZE = 8192;
+
+    private final ResponseBodyBufferFactory bufferFactory;
+
+    private final long maxBodySize;
 
-    public RequestBodyWrapper( HttpServletRequest request ) throws IOException {
+    private ResponseBodyBuffer body;
+
+    private boolean isBodyTooLarge = false;
+
+    /**
+     * Instantiates a {@link RequestBodyWrapper} buffering the body in memory without size limit.
+     * 
+     * @param request
+     *            the request to wrap, never <code>null</code>
+     */
+    public RequestBodyWrapper( HttpServletRequest request ) {
+        this( request, new ResponseBodyBufferFactory(), UNLIMITED_BODY_SIZE );
+    }
+
+    /**
+     * @param request
+     *            the request to wrap, never <code>null</code>
+     * @param bufferFactory
+     *            creates the buffer capturing the body, never <code>null</code>
+     * @param maxBodySize
+     *            the maximal size of the body in bytes, {@link #UNLIMITED_BODY_SIZE} if the size is not limited
+     */
+    public RequestBodyWrapper( HttpServletRequest request, ResponseBodyBufferFactory bufferFactory, long maxBodySize ) {
         super( request );
-        byteArray = toByteArray( request.getInputStream() );
+        this.bufferFactory = bufferFactory;
+        this.maxBodySize = maxBodySize;
     }
 
     @Override
     public ServletInputStream getInputStream()
                     throws IOException {
+        final InputStream bodyStream = bufferBody().asInputStream();
         return new ServletInputStream() {
 
-            private final ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream( byteArray );
-
             @Override
             public int read()
                             throws IOException {
-                return byteArrayInputStream.read();
+                return bodyStream.read();
+            }
+
+            @Override
+            public int read( byte[] bytes, int offset, int length )
+                            throws IOException {
+                return bodyStream.read( bytes, offset, length );
+            }
+
+            @Override
+            public long skip( long n )
+                            throws IOException {
+                return bodyStream.skip( n );
+            }
+
+            @Override
+            public int available()
+                            throws IOException {
+                return bodyStream.available();
             }
 
             @Override
             public void close()
                             throws IOException {
                 super.close();
-                byteArrayInputStream.close();
+                bodyStream.close();
             }
         };
     }
@@ -88,15 +139,88 @@ public class RequestBodyWrapper extends HttpServletRequestWrapper {
     @Override
     public BufferedReader getReader()
                     throws IOException {
-        final ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream( byteArray );
-        return new BufferedReader( new InputStreamReader( byteArrayInputStream ) ) {
+        final InputStream bodyStream = bufferBody().asInputStream();
+        return new BufferedReader( new InputStreamReader( bodyStream, retrieveCharset() ) ) {
 
             @Override
             public void close()
                             throws IOException {
                 super.close();
-                byteArrayInputStream.close();
+                bodyStream.close();
             }
         };
     }
-}
\ No newline at end of file
+
+    /**
+     * @return <code>true</code> if the body was already read from the wrapped request, <code>false</code> otherwise
+     */
+    public boolean isBodyBuffered() {
+        return body != null;
+    }
+
+    /**
+     * Checks if reading the body failed because it exceeds the maximal size. The body is not read by this method.
+     * 
+     * @throws RequestBodyTooLargeException
+     *             if the body exceeds the maximal size
+     */
+    public void checkBodySize()
+                    throws RequestBodyTooLargeException {
+        if ( isBodyTooLarge )
+            throw new RequestBodyTooLargeException( maxBodySize );
+    }
+
+    /**
+     * Releases the resources held by the buffered body. Must be invoked when the request is completed, the body is not
+     * available afterwards.
+     */
+    public void release() {
+        if ( body != null )
+            body.release();
+    }
+
+    private ResponseBodyBuffer bufferBody()
+                    throws IOException {
+        checkBodySize();
+        if ( body == null ) {
+            if ( getContentLength() > maxBodySize ) {
+                isBodyTooLarge = true;
+                checkBodySize();
+            }
+            ResponseBodyBuffer buffer = bufferFactory.createBuffer();
+            try {
+                copyBody( super.getInputStream(), buffer );
+            } catch ( IOException e ) {
+                buffer.release();
+                throw e;
+            }
+            body = buffer;
+        }
+        return body;
+    }
+
+    private void copyBody( InputStream source, ResponseBodyBuffer buffer )
+                    throws IOException {
+        byte[] bytes = new byte[COPY_BUFFER_SIZE];
+        int read;
+        while ( ( read = source.read( bytes ) ) != -1 ) {
+            if ( buffer.size() + read > maxBodySize ) {
+                isBodyTooLarge = true;
+                checkBodySize();
+            }
+            buffer.write( bytes, 0, read );
+        }
+    }
+
+    private Charset retrieveCharset() {
+        String characterEncoding = getCharacterEncoding();
+        try {
+            if ( characterEncoding != null )
+                return Charset.forName( characterEncoding );
+        } catch ( IllegalArgumentException e ) {
+            // unsupported or illegal encoding, the platform default is used
+        }
+        return Charset.defaultCharset();
+    }
+
+}
@@ -0,0 +1,87 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.filter;
+
+import static org.deegree.securityproxy.filter.RequestBodyWrapper.UNLIMITED_BODY_SIZE;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Creates the {@link RequestBodyWrapper}s with the configured maximal body size and buffer.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class RequestBodyWrapperFactory {
+
+    private final ResponseBodyBufferFactory bufferFactory;
+
+    private final long maxBodySize;
+
+    /**
+     * Instantiates a {@link RequestBodyWrapperFactory} creating wrappers buffering the body in memory without size
+     * limit.
+     */
+    public RequestBodyWrapperFactory() {
+        this( new ResponseBodyBufferFactory(), UNLIMITED_BODY_SIZE );
+    }
+
+    /**
+     * @param bufferFactory
+     *            creates the buffers capturing the request bodies, never <code>null</code>
+     * @param maxBodySize
+     *            the maximal size of a request body in bytes, must be positive
+     * @throws IllegalArgumentException
+     *             if the maximal body size is not positive
+     */
+    public RequestBodyWrapperFactory( ResponseBodyBufferFactory bufferFactory, long maxBodySize ) {
+        if ( maxBodySize <= 0 )
+            throw new IllegalArgumentException( "Maximal request body size must be positive: " + maxBodySize );
+        this.bufferFactory = bufferFactory;
+        this.maxBodySize = maxBodySize;
+    }
+
+    /**
+     * @param request
+     *            the request to wrap, never <code>null</code>
+     * @return a new {@link RequestBodyWrapper} wrapping the passed request, never <code>null</code>
+     */
+    public RequestBodyWrapper wrap( HttpServletRequest request ) {
+        return new RequestBodyWrapper( request, bufferFactory, maxBodySize );
+    }
+
+}
@@ -0,0 +1,476 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.filter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Captures a response body in a list of fixed-size chunks taken from a {@link ByteChunkPool}. The content can be read
+ * as {@link InputStream} or written to another {@link OutputStream} without copying it into a single array. The buffer
+ * is not thread-safe, it is intended to be used by the thread processing the request only.
+ * <p>
+ * If a spill threshold is configured the buffer moves its content into a temporary file as soon as the buffered
+ * content would exceed the threshold. Afterwards a single chunk is kept to collect the written bytes before they are
+ * appended to the file. The temporary file is deleted when the buffer is {@link #release() released}.
+ * </p>
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class ResponseBodyBuffer extends OutputStream {
+
+    private static final Logger LOG = Logger.getLogger( ResponseBodyBuffer.class );
+
+    /**
+     * Spill threshold disabling spilling, the content is always kept in memory.
+     */
+    public static final long NO_SPILLING = Long.MAX_VALUE;
+
+    private static final String SPILL_FILE_PREFIX = "securityproxy-response";
+
+    private static final String SPILL_FILE_SUFFIX = ".tmp";
+
+    private final ByteChunkPool chunkPool;
+
+    private final int chunkSize;
+
+    private final long spillThreshold;
+
+    private final File spillDirectory;
+
+    private final ArrayList<byte[]> chunks = new ArrayList<byte[]>();
+
+    private byte[] currentChunk;
+
+    private int positionInCurrentChunk;
+
+    private long size;
+
+    private boolean isReleased = false;
+
+    private File spillFile;
+
+    private RandomAccessFile spillFileAccess;
+
+    private FileChannel spillChannel;
+
+    private long spilledSize;
+
+    /**
+     * Instantiates a {@link ResponseBodyBuffer} using the default {@link ByteChunkPool} keeping the content in memory.
+     */
+    public ResponseBodyBuffer() {
+        this( ByteChunkPool.getDefaultPool() );
+    }
+
+    /**
+     * Instantiates a {@link ResponseBodyBuffer} keeping the content in memory.
+     * 
+     * @param chunkPool
+     *            the pool to acquire and release the chunks from, never <code>null</code>
+     */
+    public ResponseBodyBuffer( ByteChunkPool chunkPool ) {
+        this( chunkPool, NO_SPILLING, null );
+    }
+
+    /**
+     * @param chunkPool
+     *            the pool to acquire and release the chunks from, never <code>null</code>
+     * @param spillThreshold
+     *            the maximal number of bytes kept in memory before the content is moved into a temporary file,
+     *            {@link #NO_SPILLING} to keep the content in memory
+     * @param spillDirectory
+     *            the directory to create the temporary file in, may be <code>null</code> if the default temporary
+     *            directory should be used
+     */
+    public ResponseBodyBuffer( ByteChunkPool chunkPool, long spillThreshold, File spillDirectory ) {
+        this.chunkPool = chunkPool;
+        this.chunkSize = chunkPool.getChunkSize();
+        this.spillThreshold = spillThreshold;
+        this.spillDirectory = spillDirectory;
+    }
+
+    /**
+     * Reserves space for the number of chunks required to hold the expected content. Not more than the spill
+     * threshold is reserved.
+     * 
+     * @param expectedSize
+     *            the expected size of the content in bytes (e.g. the Content-Length), ignored if not positive
+     */
+    public void presize( long expectedSize ) {
+        if ( expectedSize > 0 && !isSpilled() ) {
+            long sizeToReserve = Math.min( expectedSize, spillThreshold );
+            long numberOfChunks = ( sizeToReserve + chunkSize - 1 ) / chunkSize;
+            chunks.ensureCapacity( (int) Math.min( numberOfChunks, Integer.MAX_VALUE - 8 ) );
+        }
+    }
+
+    @Override
+    public void write( int b )
+                    throws IOException {
+        checkNotReleased();
+        if ( currentChunk == null || positionInCurrentChunk == chunkSize )
+            nextChunk();
+        currentChunk[positionInCurrentChunk++] = (byte) b;
+        size++;
+    }
+
+    @Override
+    public void write( byte[] bytes, int offset, int length )
+                    throws IOException {
+        checkNotReleased();
+        if ( offset < 0 || length < 0 || offset + length > bytes.length )
+            throw new IndexOutOfBoundsException();
+        while ( length > 0 ) {
+            if ( isSpilled() && length >= chunkSize ) {
+                // large writes are appended to the file directly instead of being copied chunk by chunk
+                flushCurrentChunkToSpillFile();
+                writeToSpillFile( ByteBuffer.wrap( bytes, offset, length ) );
+                size += length;
+                return;
+            }
+            if ( currentChunk == null || positionInCurrentChunk == chunkSize )
+                nextChunk();
+            int bytesToCopy = Math.min( length, chunkSize - positionInCurrentChunk );
+            System.arraycopy( bytes, offset, currentChunk, positionInCurrentChunk, bytesToCopy );
+            positionInCurrentChunk += bytesToCopy;
+            offset += bytesToCopy;
+            length -= bytesToCopy;
+            size += bytesToCopy;
+        }
+    }
+
+    /**
+     * @return the number of bytes written into this buffer
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return <code>true</code> if the content was moved into a temporary file, <code>false</code> if it is kept in
+     *         memory
+     */
+    public boolean isSpilled() {
+        return spillChannel != null;
+    }
+
+    /**
+     * Copies the content into a new byte array.
+     * 
+     * @return the content, may be empty but never <code>null</code>
+     * @throws IllegalStateException
+     *             if the content is too large to fit into a byte array
+     * @throws IOException
+     *             if reading the temporary file failed
+     */
+    public byte[] toByteArray()
+                    throws IOException {
+        if ( size > Integer.MAX_VALUE )
+            throw new IllegalStateException( "Buffered content is too large to fit into a byte array: " + size );
+        byte[] content = new byte[(int) size];
+        if ( isSpilled() ) {
+            readFromSpillFile( ByteBuffer.wrap( content, 0, (int) spilledSize ), 0 );
+            System.arraycopy( currentChunk, 0, content, (int) spilledSize, positionInCurrentChunk );
+            return content;
+        }
+        int position = 0;
+        for ( int chunkIndex = 0; chunkIndex < chunks.size(); chunkIndex++ ) {
+            int length = lengthOfChunk( chunkIndex );
+            System.arraycopy( chunks.get( chunkIndex ), 0, content, position, length );
+            position += length;
+        }
+        return content;
+    }
+
+    /**
+     * Writes the complete content chunk by chunk to the passed {@link OutputStream}. The content of a temporary file is
+     * transferred by the {@link FileChannel}.
+     * 
+     * @param out
+     *            to write the content to, never <code>null</code>
+     * @throws IOException
+     *             if writing to the passed stream or reading the temporary file failed
+     */
+    public void writeTo( OutputStream out )
+                    throws IOException {
+        if ( isSpilled() ) {
+            WritableByteChannel target = Channels.newChannel( out );
+            long position = 0;
+            while ( position < spilledSize ) {
+                position += spillChannel.transferTo( position, spilledSize - position, target );
+            }
+            out.write( currentChunk, 0, positionInCurrentChunk );
+            return;
+        }
+        for ( int chunkIndex = 0; chunkIndex < chunks.size(); chunkIndex++ ) {
+            out.write( chunks.get( chunkIndex ), 0, lengthOfChunk( chunkIndex ) );
+        }
+    }
+
+    /**
+     * Creates a new {@link InputStream} reading the content from the beginning. The stream reads directly from the
+     * chunks or the temporary file of this buffer, the content written after the stream was created is visible to the
+     * stream.
+     * 
+     * @return a new {@link InputStream}, never <code>null</code>
+     */
+    public InputStream asInputStream() {
+        return new ChunkInputStream();
+    }
+
+    /**
+     * Returns all chunks to the pool and deletes the temporary file. The buffer and all {@link InputStream}s created
+     * from it must not be used afterwards. Subsequent invocations have no effect.
+     */
+    public void release() {
+        if ( isReleased )
+            return;
+        isReleased = true;
+        for ( byte[] chunk : chunks ) {
+            chunkPool.release( chunk );
+        }
+        chunks.clear();
+        if ( isSpilled() ) {
+            chunkPool.release( currentChunk );
+            deleteSpillFile();
+        }
+        currentChunk = null;
+        size = 0;
+    }
+
+    private void nextChunk()
+                    throws IOException {
+        if ( isSpilled() ) {
+            flushCurrentChunkToSpillFile();
+        } else if ( (long) ( chunks.size() + 1 ) * chunkSize > spillThreshold ) {
+            spill();
+        } else {
+            currentChunk = chunkPool.acquire();
+            chunks.add( currentChunk );
+            positionInCurrentChunk = 0;
+        }
+    }
+
+    private void spill()
+                    throws IOException {
+        spillFile = File.createTempFile( SPILL_FILE_PREFIX, SPILL_FILE_SUFFIX, spillDirectory );
+        LOG.debug( "Buffered content exceeds " + spillThreshold + " bytes, moving it into " + spillFile );
+        try {
+            spillFileAccess = new RandomAccessFile( spillFile, "rw" );
+            spillChannel = spillFileAccess.getChannel();
+            for ( int chunkIndex = 0; chunkIndex < chunks.size(); chunkIndex++ ) {
+                writeToSpillFile( ByteBuffer.wrap( chunks.get( chunkIndex ), 0, lengthOfChunk( chunkIndex ) ) );
+            }
+        } catch ( IOException e ) {
+            deleteSpillFile();
+            throw e;
+        }
+        // the last chunk is kept to collect the bytes appended to the file
+        if ( chunks.isEmpty() )
+            currentChunk = chunkPool.acquire();
+        else
+            currentChunk = chunks.remove( chunks.size() - 1 );
+        for ( byte[] chunk : chunks ) {
+            chunkPool.release( chunk );
+        }
+        chunks.clear();
+        chunks.trimToSize();
+        positionInCurrentChunk = 0;
+    }
+
+    private void flushCurrentChunkToSpillFile()
+                    throws IOException {
+        if ( positionInCurrentChunk > 0 ) {
+            writeToSpillFile( ByteBuffer.wrap( currentChunk, 0, positionInCurrentChunk ) );
+            positionInCurrentChunk = 0;
+        }
+    }
+
+    private void writeToSpillFile( ByteBuffer bytes )
+                    throws IOException {
+        while ( bytes.hasRemaining() ) {
+            spilledSize += spillChannel.write( bytes );
+        }
+    }
+
+    private int readFromSpillFile( ByteBuffer target, long position )
+                    throws IOException {
+        int bytesRead = 0;
+        while ( target.hasRemaining() ) {
+            int read = spillChannel.read( target, position + bytesRead );
+            if ( read < 0 )
+                throw new IOException( "Unexpected end of file " + spillFile );
+            bytesRead += read;
+        }
+        return bytesRead;
+    }
+
+    private void deleteSpillFile() {
+        try {
+            if ( spillFileAccess != null )
+                spillFileAccess.close();
+        } catch ( IOException e ) {
+            LOG.warn( "Could not close temporary file " + spillFile + ": " + e.getMessage() );
+        }
+        if ( !spillFile.delete() && spillFile.exists() ) {
+            LOG.warn( "Could not delete temporary file " + spillFile + ", it is deleted on exit." );
+            spillFile.deleteOnExit();
+        }
+        spillFileAccess = null;
+        spillChannel = null;
+    }
+
+    private int lengthOfChunk( int chunkIndex ) {
+        if ( chunkIndex == chunks.size() - 1 )
+            return positionInCurrentChunk;
+        return chunkSize;
+    }
+
+    private void checkNotReleased() {
+        if ( isReleased )
+            throw new IllegalStateException( "Buffer was already released!" );
+    }
+
+    private class ChunkInputStream extends InputStream {
+
+        private final byte[] singleByte = new byte[1];
+
+        private long position;
+
+        private long mark;
+
+        @Override
+        public int read()
+                        throws IOException {
+            if ( isReleased || position >= size )
+                return -1;
+            if ( isSpilled() ) {
+                if ( read( singleByte, 0, 1 ) < 0 )
+                    return -1;
+                return singleByte[0] & 0xff;
+            }
+            byte b = chunks.get( (int) ( position / chunkSize ) )[(int) ( position % chunkSize )];
+            position++;
+            return b & 0xff;
+        }
+
+        @Override
+        public int read( byte[] bytes, int offset, int length )
+                        throws IOException {
+            if ( offset < 0 || length < 0 || offset + length > bytes.length )
+                throw new IndexOutOfBoundsException();
+            if ( length == 0 )
+                return 0;
+            if ( isReleased || position >= size )
+                return -1;
+            if ( isSpilled() )
+                return readSpilled( bytes, offset, length );
+            int bytesRead = 0;
+            while ( bytesRead < length && position < size ) {
+                byte[] chunk = chunks.get( (int) ( position / chunkSize ) );
+                int positionInChunk = (int) ( position % chunkSize );
+                long remainingInBuffer = size - position;
+                int bytesToCopy = (int) Math.min( Math.min( length - bytesRead, chunkSize - positionInChunk ),
+                                                  remainingInBuffer );
+                System.arraycopy( chunk, positionInChunk, bytes, offset + bytesRead, bytesToCopy );
+                bytesRead += bytesToCopy;
+                position += bytesToCopy;
+            }
+            return bytesRead;
+        }
+
+        @Override
+        public long skip( long n ) {
+            if ( n <= 0 || isReleased )
+                return 0;
+            long skipped = Math.min( n, size - position );
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            if ( isReleased )
+                return 0;
+            return (int) Math.min( size - position, Integer.MAX_VALUE );
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        @Override
+        public synchronized void mark( int readlimit ) {
+            mark = position;
+        }
+
+        @Override
+        public synchronized void reset() {
+            position = mark;
+        }
+
+        private int readSpilled( byte[] bytes, int offset, int length )
+                        throws IOException {
+            int bytesRead;
+            if ( position < spilledSize ) {
+                int bytesToRead = (int) Math.min( length, spilledSize - position );
+                bytesRead = readFromSpillFile( ByteBuffer.wrap( bytes, offset, bytesToRead ), position );
+            } else {
+                int positionInChunk = (int) ( position - spilledSize );
+                bytesRead = Math.min( length, positionInCurrentChunk - positionInChunk );
+                System.arraycopy( currentChunk, positionInChunk, bytes, offset, bytesRead );
+            }
+            position += bytesRead;
+            return bytesRead;
+        }
+
+    }
+
+}
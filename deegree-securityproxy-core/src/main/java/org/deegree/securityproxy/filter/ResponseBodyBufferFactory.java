@@ -0,0 +1,114 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.filter;
+
+import static org.deegree.securityproxy.filter.ResponseBodyBuffer.NO_SPILLING;
+
+import java.io.File;
+
+/**
+ * Creates the {@link ResponseBodyBuffer}s capturing the response bodies with the configured spill threshold and
+ * directory.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class ResponseBodyBufferFactory {
+
+    private final ByteChunkPool chunkPool;
+
+    private final long spillThreshold;
+
+    private final File spillDirectory;
+
+    /**
+     * Instantiates a {@link ResponseBodyBufferFactory} creating buffers keeping the content in memory.
+     */
+    public ResponseBodyBufferFactory() {
+        this( ByteChunkPool.getDefaultPool(), NO_SPILLING, null );
+    }
+
+    /**
+     * @param spillThreshold
+     *            the maximal number of bytes of a response body kept in memory before it is moved into a temporary
+     *            file, must not be negative
+     * @param spillDirectory
+     *            the directory to create the temporary files in, may be <code>null</code> or empty if the default
+     *            temporary directory should be used
+     * @throws IllegalArgumentException
+     *             if the spill threshold is negative or the spill directory does not exist
+     */
+    public ResponseBodyBufferFactory( long spillThreshold, String spillDirectory ) {
+        this( ByteChunkPool.getDefaultPool(), spillThreshold, asDirectory( spillDirectory ) );
+    }
+
+    /**
+     * @param chunkPool
+     *            the pool the buffers acquire and release their chunks from, never <code>null</code>
+     * @param spillThreshold
+     *            the maximal number of bytes of a response body kept in memory before it is moved into a temporary
+     *            file, {@link ResponseBodyBuffer#NO_SPILLING} to keep the content in memory, must not be negative
+     * @param spillDirectory
+     *            the directory to create the temporary files in, may be <code>null</code> if the default temporary
+     *            directory should be used
+     * @throws IllegalArgumentException
+     *             if the spill threshold is negative or the spill directory does not exist
+     */
+    public ResponseBodyBufferFactory( ByteChunkPool chunkPool, long spillThreshold, File spillDirectory ) {
+        if ( spillThreshold < 0 )
+            throw new IllegalArgumentException( "Spill threshold must not be negative: " + spillThreshold );
+        if ( spillDirectory != null && !spillDirectory.isDirectory() )
+            throw new IllegalArgumentException( "Spill directory " + spillDirectory + " does not exist!" );
+        this.chunkPool = chunkPool;
+        this.spillThreshold = spillThreshold;
+        this.spillDirectory = spillDirectory;
+    }
+
+    /**
+     * @return a new {@link ResponseBodyBuffer}, never <code>null</code>
+     */
+    public ResponseBodyBuffer createBuffer() {
+        return new ResponseBodyBuffer( chunkPool, spillThreshold, spillDirectory );
+    }
+
+    private static File asDirectory( String spillDirectory ) {
+        if ( spillDirectory == null || spillDirectory.trim().isEmpty() )
+            return null;
+        return new File( spillDirectory.trim() );
+    }
+
+}
@@ -0,0 +1,130 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.filter;
+
+import static java.util.zip.Deflater.BEST_COMPRESSION;
+
+import java.io.OutputStream;
+
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Compresses the filtered response bodies if the client accepts a gzip or deflate encoded response. The responses are
+ * compressed while they are written, responses smaller than the configured minimum size are sent uncompressed as the
+ * compression does not pay off.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class ResponseCompressor {
+
+    /**
+     * Compression level disabling the compression.
+     */
+    public static final int DISABLED = 0;
+
+    private final int compressionLevel;
+
+    private final int minimumSize;
+
+    /**
+     * Instantiates a disabled {@link ResponseCompressor}.
+     */
+    public ResponseCompressor() {
+        this( DISABLED, 0 );
+    }
+
+    /**
+     * @param compressionLevel
+     *            the compression level between 1 (fastest) and 9 (best compression), {@link #DISABLED} if the
+     *            responses should not be compressed
+     * @param minimumSize
+     *            the minimum size of a response body in bytes to be compressed, must not be negative
+     * @throws IllegalArgumentException
+     *             if the compression level is not between 0 and 9 or the minimum size is negative
+     */
+    public ResponseCompressor( int compressionLevel, int minimumSize ) {
+        if ( compressionLevel < DISABLED || compressionLevel > BEST_COMPRESSION )
+            throw new IllegalArgumentException( "Compression level must be between 0 and 9!" );
+        if ( minimumSize < 0 )
+            throw new IllegalArgumentException( "Minimum size of compressed responses must not be negative!" );
+        this.compressionLevel = compressionLevel;
+        this.minimumSize = minimumSize;
+    }
+
+    /**
+     * @return <code>true</code> if responses are compressed, <code>false</code> otherwise
+     */
+    public boolean isEnabled() {
+        return compressionLevel != DISABLED;
+    }
+
+    /**
+     * Selects the content coding of the response.
+     * 
+     * @param acceptEncoding
+     *            the value of the <code>Accept-Encoding</code> header, may be <code>null</code>
+     * @return 'gzip' or 'deflate', <code>null</code> if the response is not compressed
+     */
+    public String negotiateContentEncoding( String acceptEncoding ) {
+        if ( !isEnabled() )
+            return null;
+        return AcceptEncodingParser.selectContentEncoding( acceptEncoding );
+    }
+
+    /**
+     * Creates the stream compressing the response body. The returned stream must be closed to complete the response
+     * body.
+     * 
+     * @param response
+     *            the response to set the Content-Encoding and Content-Length headers, never <code>null</code>
+     * @param out
+     *            the stream to write the response body in, never <code>null</code>
+     * @param contentEncoding
+     *            the negotiated content coding (see {@link #negotiateContentEncoding(String)}), may be
+     *            <code>null</code> if the response is not compressed
+     * @return the stream compressing the response body, the passed stream if the response is not compressed, never
+     *         <code>null</code>
+     */
+    public OutputStream createCompressingStream( HttpServletResponse response, OutputStream out,
+                                                 String contentEncoding ) {
+        if ( !isEnabled() || contentEncoding == null )
+            return out;
+        return new CompressingOutputStream( response, out, contentEncoding, compressionLevel, minimumSize );
+    }
+
+}
@@ -1,8 +1,20 @@
 package org.deegree.securityproxy.filter;
 
+import static java.lang.Boolean.TRUE;
+import static javax.servlet.http.HttpServletResponse.SC_BAD_REQUEST;
 import static javax.servlet.http.HttpServletResponse.SC_OK;
+import static javax.servlet.http.HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE;
+import static javax.servlet.http.HttpServletResponse.SC_SERVICE_UNAVAILABLE;
 import static org.deegree.securityproxy.exception.OwsCommonException.INVALID_PARAMETER;
 import static org.deegree.securityproxy.exception.OwsCommonException.MISSING_PARAMETER;
+import static org.deegree.securityproxy.filter.AcceptEncodingParser.isGzipAccepted;
+import static org.deegree.securityproxy.metrics.ProxyMetrics.BUFFERED_RESPONSE_BYTES;
+import static org.deegree.securityproxy.metrics.ProxyMetrics.CLIPPING_DECISIONS;
+import static org.deegree.securityproxy.metrics.ProxyMetrics.STAGE_DURATION;
+import static org.deegree.securityproxy.request.parser.OwsRequestContext.retrieveContext;
+import static org.deegree.securityproxy.usage.UsageStatistics.DENIED;
+import static org.deegree.securityproxy.usage.UsageStatistics.FAILURE;
+import static org.deegree.securityproxy.usage.UsageStatistics.SUCCESS;
 import static org.springframework.security.core.context.SecurityContextHolder.getContext;
 
 import java.io.IOException;
@@ -24,14 +36,18 @@ import org.deegree.securityproxy.authorization.logging.AuthorizationReport;
 import org.deegree.securityproxy.exception.OwsServiceExceptionHandler;
 import org.deegree.securityproxy.logger.ResponseFilterReportLogger;
 import org.deegree.securityproxy.logger.SecurityRequestResponseLogger;
+import org.deegree.securityproxy.metrics.ProxyMetrics;
 import org.deegree.securityproxy.report.SecurityReport;
 import org.deegree.securityproxy.request.MissingParameterException;
 import org.deegree.securityproxy.request.OwsRequest;
+import org.deegree.securityproxy.request.RequestBodyTooLargeException;
 import org.deegree.securityproxy.request.UnsupportedRequestTypeException;
+import org.deegree.securityproxy.request.parser.OwsRequestContext;
 import org.deegree.securityproxy.request.parser.RequestParsingException;
-import org.deegree.securityproxy.request.parser.ServiceTypeParser;
 import org.deegree.securityproxy.responsefilter.ResponseFilterException;
+import org.deegree.securityproxy.responsefilter.logging.ResponseClippingReport;
 import org.deegree.securityproxy.responsefilter.logging.ResponseFilterReport;
+import org.deegree.securityproxy.usage.UsageStatistics;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.Authentication;
 
@@ -51,9 +67,17 @@ public class SecurityFilter implements Filter {
 
     private static final String UNSUPPORTED_REQUEST_ERROR_MSG = "Service type is not supported!";
 
-    static final String REQUEST_ATTRIBUTE_SERVICE_URL = "net.sf.j2ep.serviceurl";
+    /**
+     * Name of the request attribute containing the url of the internal service the request is forwarded to.
+     */
+    public static final String REQUEST_ATTRIBUTE_SERVICE_URL = "net.sf.j2ep.serviceurl";
 
-    private final List<ServiceManager> serviceManagers;
+    /**
+     * Name of the request attribute marking requests whose response is passed through without filtering.
+     */
+    public static final String REQUEST_ATTRIBUTE_PASS_THROUGH = "org.deegree.securityproxy.passthrough";
+
+    private final ServiceManagerRoutingTable serviceManagerRoutingTable;
 
     private final SecurityRequestResponseLogger proxyReportLogger;
 
@@ -61,15 +85,90 @@ public class SecurityFilter implements Filter {
 
     private final OwsServiceExceptionHandler owsServiceExceptionHandler;
 
+    private ResponseBodyBufferFactory responseBodyBufferFactory = new ResponseBodyBufferFactory();
+
+    private RequestBodyWrapperFactory requestBodyWrapperFactory = new RequestBodyWrapperFactory();
+
+    private BackendConcurrencyLimiter backendConcurrencyLimiter = new BackendConcurrencyLimiter();
+
+    private ResponseCompressor responseCompressor = new ResponseCompressor();
+
+    private ProxyMetrics metrics = new ProxyMetrics();
+
+    private UsageStatistics usageStatistics = new UsageStatistics();
+
+    /**
+     * Instantiates a {@link SecurityFilter} with the default optional collaborators (request and response bodies
+     * buffered in memory, no concurrency limit, no compression, in-memory metrics, no usage statistics), which are
+     * replaced with the setters before the filter is used.
+     * 
+     * @param serviceManagers
+     *            the {@link ServiceManager}s handling the supported services, may be <code>null</code>
+     * @param proxyReportLogger
+     *            logs the proxy reports, never <code>null</code>
+     * @param filterReportLogger
+     *            logs the response filter reports, never <code>null</code>
+     * @param owsServiceExceptionHandler
+     *            writes the exceptions of unsupported requests, never <code>null</code>
+     */
     public SecurityFilter( List<ServiceManager> serviceManagers, SecurityRequestResponseLogger proxyReportLogger,
                            ResponseFilterReportLogger filterReportLogger,
                            OwsServiceExceptionHandler owsServiceExceptionHandler ) {
-        this.serviceManagers = serviceManagers;
+        this.serviceManagerRoutingTable = new ServiceManagerRoutingTable( serviceManagers );
         this.proxyReportLogger = proxyReportLogger;
         this.filterReportLogger = filterReportLogger;
         this.owsServiceExceptionHandler = owsServiceExceptionHandler;
     }
 
+    /**
+     * @param responseBodyBufferFactory
+     *            creates the buffers capturing the response bodies, never <code>null</code>
+     */
+    public void setResponseBodyBufferFactory( ResponseBodyBufferFactory responseBodyBufferFactory ) {
+        this.responseBodyBufferFactory = responseBodyBufferFactory;
+    }
+
+    /**
+     * @param requestBodyWrapperFactory
+     *            creates the wrappers buffering the request bodies, never <code>null</code>
+     */
+    public void setRequestBodyWrapperFactory( RequestBodyWrapperFactory requestBodyWrapperFactory ) {
+        this.requestBodyWrapperFactory = requestBodyWrapperFactory;
+    }
+
+    /**
+     * @param backendConcurrencyLimiter
+     *            limits the number of concurrent requests per backend service, never <code>null</code>
+     */
+    public void setBackendConcurrencyLimiter( BackendConcurrencyLimiter backendConcurrencyLimiter ) {
+        this.backendConcurrencyLimiter = backendConcurrencyLimiter;
+    }
+
+    /**
+     * @param responseCompressor
+     *            compresses the filtered response bodies, never <code>null</code>
+     */
+    public void setResponseCompressor( ResponseCompressor responseCompressor ) {
+        this.responseCompressor = responseCompressor;
+    }
+
+    /**
+     * @param metrics
+     *            records the duration of parsing, authorization, backend request and response filtering, never
+     *            <code>null</code>
+     */
+    public void setMetrics( ProxyMetrics metrics ) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @param usageStatistics
+     *            counts the requests and response filter results, never <code>null</code>
+     */
+    public void setUsageStatistics( UsageStatistics usageStatistics ) {
+        this.usageStatistics = usageStatistics;
+    }
+
     @Override
     public void init( FilterConfig filterConfig )
                     throws ServletException {
@@ -78,13 +177,18 @@ public class SecurityFilter implements Filter {
     @Override
     public void doFilter( ServletRequest servletRequest, ServletResponse servletResponse, FilterChain chain )
                     throws IOException, ServletException {
-        HttpServletRequest httpRequest = wrapRequest( servletRequest );
+        RequestBodyWrapper httpRequest = wrapRequest( servletRequest );
         StatusCodeResponseBodyWrapper response = wrapResponse( servletResponse );
+        String acceptEncoding = httpRequest.getHeader( "Accept-Encoding" );
+        response.setGzipAccepted( isGzipAccepted( acceptEncoding ) );
+        response.enableCompression( responseCompressor, acceptEncoding );
+        if ( "GET".equals( httpRequest.getMethod() ) )
+            response.setIfNoneMatch( httpRequest.getHeader( "If-None-Match" ) );
         String uuid = createUuidHeader( response );
 
         try {
             String serviceType = retrieveAndCheckServiceType( httpRequest );
-            ServiceManager serviceManager = detectServiceManager( serviceType, httpRequest );
+            ServiceManager serviceManager = serviceManagerRoutingTable.route( serviceType, httpRequest );
             handleAuthorization( chain, httpRequest, response, uuid, serviceManager );
         } catch ( UnsupportedRequestTypeException e ) {
             owsServiceExceptionHandler.writeException( response, INVALID_PARAMETER, "service" );
@@ -92,6 +196,12 @@ public class SecurityFilter implements Filter {
         } catch ( MissingParameterException e ) {
             owsServiceExceptionHandler.writeException( response, MISSING_PARAMETER, e.getParameterName() );
             generateAndLogProxyReport( e.getMessage(), uuid, httpRequest, response );
+        } catch ( RequestBodyTooLargeException e ) {
+            response.sendError( SC_REQUEST_ENTITY_TOO_LARGE, e.getMessage() );
+            generateAndLogProxyReport( e.getMessage(), uuid, httpRequest, response );
+        } finally {
+            response.release();
+            httpRequest.release();
         }
     }
 
@@ -107,8 +217,11 @@ public class SecurityFilter implements Filter {
         Authentication authentication = getContext().getAuthentication();
         OwsRequest owsRequest = null;
         try {
+            long start = System.nanoTime();
             owsRequest = serviceManager.parse( httpRequest );
+            start = recordStage( "parse", start, owsRequest );
             authorizationReport = serviceManager.authorize( authentication, owsRequest );
+            recordStage( "authorize", start, owsRequest );
         } catch ( UnsupportedRequestTypeException e ) {
             authorizationReport = new AuthorizationReport( UNSUPPORTED_REQUEST_ERROR_MSG );
         } catch ( IllegalArgumentException e ) {
@@ -117,18 +230,54 @@ public class SecurityFilter implements Filter {
             authorizationReport = new AuthorizationReport( e.getMessage() );
         }
         if ( authorizationReport.isAuthorized() ) {
-            attachServiceUrlAttributeToRequest( httpRequest, authorizationReport );
-            Map<String, String[]> additionalKeyValuePairs = authorizationReport.getAdditionalKeyValuePairs();
-            KvpRequestWrapper wrappedRequest = new KvpRequestWrapper( httpRequest, additionalKeyValuePairs );
-            chain.doFilter( wrappedRequest, wrappedResponse );
-            if ( serviceManager.isResponseFilterEnabled( owsRequest ) ) {
-                filterResponse( wrappedResponse, uuid, authentication, owsRequest, serviceManager, authorizationReport );
-            } else {
-                LOG.debug( "No filter configured for " + owsRequest.getClass() );
-                wrappedResponse.copyBufferedStreamToRealStream();
+            String serviceType = owsRequest.getServiceType();
+            if ( !backendConcurrencyLimiter.acquire( serviceType ) ) {
+                rejectBackendOverload( uuid, httpRequest, wrappedResponse, owsRequest );
+                return;
+            }
+            try {
+                forwardAuthorizedRequest( chain, httpRequest, wrappedResponse, uuid, serviceManager, authentication,
+                                          owsRequest, authorizationReport );
+            } finally {
+                backendConcurrencyLimiter.release( serviceType );
             }
         }
-        handleAuthorizationReport( uuid, httpRequest, wrappedResponse, authorizationReport );
+        handleAuthorizationReport( uuid, httpRequest, wrappedResponse, authorizationReport, owsRequest );
+    }
+
+    private void forwardAuthorizedRequest( FilterChain chain, HttpServletRequest httpRequest,
+                                           StatusCodeResponseBodyWrapper wrappedResponse, String uuid,
+                                           ServiceManager serviceManager, Authentication authentication,
+                                           OwsRequest owsRequest, AuthorizationReport authorizationReport )
+                    throws IOException, ServletException {
+        attachServiceUrlAttributeToRequest( httpRequest, authorizationReport );
+        Map<String, String[]> additionalKeyValuePairs = authorizationReport.getAdditionalKeyValuePairs();
+        KvpRequestWrapper wrappedRequest = new KvpRequestWrapper( httpRequest, additionalKeyValuePairs );
+        boolean isResponseFilterEnabled = serviceManager.isResponseFilterEnabled( owsRequest );
+        if ( !isResponseFilterEnabled ) {
+            LOG.debug( "No filter configured for " + owsRequest.getClass() + ", response is passed through." );
+            wrappedResponse.enablePassThrough();
+            // the backend response may be sent compressed as it is not filtered
+            httpRequest.setAttribute( REQUEST_ATTRIBUTE_PASS_THROUGH, TRUE );
+        }
+        long start = System.nanoTime();
+        chain.doFilter( wrappedRequest, wrappedResponse );
+        recordStage( "backend", start, owsRequest );
+        if ( isResponseFilterEnabled ) {
+            metrics.increment( BUFFERED_RESPONSE_BYTES, wrappedResponse.getBufferedSize(), "service",
+                               owsRequest.getServiceType(), "operation", owsRequest.getOperationType() );
+            filterResponse( wrappedResponse, uuid, authentication, owsRequest, serviceManager, authorizationReport );
+        }
+    }
+
+    private void rejectBackendOverload( String uuid, HttpServletRequest httpRequest,
+                                        StatusCodeResponseBodyWrapper wrappedResponse, OwsRequest owsRequest )
+                    throws IOException {
+        String message = "Maximal number of concurrent requests to the " + owsRequest.getServiceType()
+                         + " service is reached!";
+        LOG.warn( message );
+        wrappedResponse.sendError( SC_SERVICE_UNAVAILABLE, message );
+        generateAndLogProxyReport( message, uuid, httpRequest, wrappedResponse, owsRequest, FAILURE );
     }
 
     private void filterResponse( StatusCodeResponseBodyWrapper wrappedResponse, String uuid,
@@ -136,8 +285,11 @@ public class SecurityFilter implements Filter {
                                  AuthorizationReport authorizationReport )
                     throws ServletException {
         try {
+            long start = System.nanoTime();
             ResponseFilterReport filterResponse = serviceManager.filterResponse( wrappedResponse, authentication,
                                                                                  owsRequest );
+            recordFilterMetrics( start, owsRequest, filterResponse );
+            usageStatistics.countFilterReport( getUserName(), owsRequest, filterResponse );
             filterReportLogger.logResponseFilterReport( filterResponse, uuid );
             LOG.debug( "Filter was applied. Response: " + filterResponse.getMessage() );
         } catch ( ResponseFilterException e ) {
@@ -149,33 +301,77 @@ public class SecurityFilter implements Filter {
 
     private void handleAuthorizationReport( String uuid, HttpServletRequest httpRequest,
                                             StatusCodeResponseBodyWrapper wrappedResponse,
-                                            AuthorizationReport authorizationReport ) {
-        generateAndLogProxyReport( authorizationReport, uuid, httpRequest, wrappedResponse );
+                                            AuthorizationReport authorizationReport, OwsRequest owsRequest ) {
+        generateAndLogProxyReport( authorizationReport, uuid, httpRequest, wrappedResponse, owsRequest );
         if ( !authorizationReport.isAuthorized() ) {
             throw new AccessDeniedException( authorizationReport.getMessage() );
         }
     }
 
     private void generateAndLogProxyReport( AuthorizationReport authorizationReport, String uuid,
-                                            HttpServletRequest request, StatusCodeResponseBodyWrapper response ) {
+                                            HttpServletRequest request, StatusCodeResponseBodyWrapper response,
+                                            OwsRequest owsRequest ) {
         String message = "";
         if ( authorizationReport.getMessage() != null ) {
             message = authorizationReport.getMessage();
         }
-        generateAndLogProxyReport( message, uuid, request, response );
+        String outcome = authorizationReport.isAuthorized() ? null : DENIED;
+        generateAndLogProxyReport( message, uuid, request, response, owsRequest, outcome );
     }
 
     private void generateAndLogProxyReport( String message, String uuid, HttpServletRequest request,
                                             StatusCodeResponseBodyWrapper response ) {
+        generateAndLogProxyReport( message, uuid, request, response, null, null );
+    }
+
+    private void generateAndLogProxyReport( String message, String uuid, HttpServletRequest request,
+                                            StatusCodeResponseBodyWrapper response, OwsRequest owsRequest,
+                                            String outcome ) {
         int statusCode = response.getStatus();
-        boolean isRequestSuccessful = SC_OK == statusCode;
+        // 2xx and 3xx, e.g. 304 Not Modified answering a conditional request, are successful
+        boolean isRequestSuccessful = statusCode >= SC_OK && statusCode < SC_BAD_REQUEST;
         String targetURI = request.getRequestURL().toString();
         String queryString = request.getQueryString();
         String requestURL = queryString != null ? targetURI + "?" + queryString : targetURI;
-        SecurityReport report = new SecurityReport( request.getRemoteAddr(), requestURL, isRequestSuccessful, message );
+        String userName = getUserName();
+        SecurityReport report = new SecurityReport( request.getRemoteAddr(), requestURL, isRequestSuccessful, message,
+                                                    userName );
+        // authorized requests and errors are counted by the status code of the response
+        if ( outcome == null )
+            outcome = isRequestSuccessful ? SUCCESS : FAILURE;
+        usageStatistics.countRequest( userName, owsRequest, outcome );
         proxyReportLogger.logProxyReportInfo( report, uuid );
     }
 
+    private String getUserName() {
+        Authentication authentication = getContext().getAuthentication();
+        return authentication != null ? authentication.getName() : null;
+    }
+
+    private long recordStage( String stage, long start, OwsRequest owsRequest ) {
+        long end = System.nanoTime();
+        metrics.recordTime( STAGE_DURATION, end - start, "stage", stage, "service", owsRequest.getServiceType(),
+                            "operation", owsRequest.getOperationType() );
+        return end;
+    }
+
+    private void recordFilterMetrics( long start, OwsRequest owsRequest, ResponseFilterReport filterReport ) {
+        boolean isClipping = filterReport instanceof ResponseClippingReport;
+        metrics.recordTime( STAGE_DURATION, System.nanoTime() - start, "stage", "filter", "service",
+                            owsRequest.getServiceType(), "operation", owsRequest.getOperationType(), "filter",
+                            isClipping ? "clipping" : "capabilities" );
+        if ( isClipping ) {
+            metrics.increment( CLIPPING_DECISIONS, 1, "service", owsRequest.getServiceType(), "operation",
+                               owsRequest.getOperationType(), "decision", retrieveClippingDecision( filterReport ) );
+        }
+    }
+
+    private String retrieveClippingDecision( ResponseFilterReport clippingReport ) {
+        if ( clippingReport.isFailed() )
+            return "failed";
+        return clippingReport.isFiltered() ? "clipped" : "not_clipped";
+    }
+
     private String createUuidHeader( StatusCodeResponseBodyWrapper wrappedResponse ) {
         String uuid = UUID.randomUUID().toString();
         wrappedResponse.addHeader( "serial_uuid", uuid );
@@ -189,34 +385,25 @@ public class SecurityFilter implements Filter {
             httpRequest.setAttribute( REQUEST_ATTRIBUTE_SERVICE_URL, serviceUrl );
     }
 
-    private String retrieveAndCheckServiceType( HttpServletRequest request )
-                    throws MissingParameterException {
-        String serviceType = new ServiceTypeParser().determineServiceType( request );
-        if ( serviceType == null && "GET".equals( request.getMethod() ) )
+    private String retrieveAndCheckServiceType( RequestBodyWrapper request )
+                    throws MissingParameterException, RequestBodyTooLargeException {
+        OwsRequestContext context = retrieveContext( request );
+        String serviceType = context.getServiceType();
+        // the body of POST requests was read by the parser, which does not pass read failures
+        request.checkBodySize();
+        if ( serviceType == null && "GET".equals( context.getMethod() ) )
             throw new MissingParameterException( "service" );
         return serviceType;
     }
 
-    private ServiceManager detectServiceManager( String serviceType, HttpServletRequest request )
-                    throws UnsupportedRequestTypeException {
-        if ( serviceManagers != null ) {
-            for ( ServiceManager serviceManager : serviceManagers ) {
-                if ( serviceManager.isServiceTypeSupported( serviceType, request ) )
-                    return serviceManager;
-            }
-        }
-        throw new UnsupportedRequestTypeException( UNSUPPORTED_REQUEST_ERROR_MSG );
-    }
-
-    private HttpServletRequest wrapRequest( ServletRequest servletRequest )
-                    throws IOException {
+    private RequestBodyWrapper wrapRequest( ServletRequest servletRequest ) {
         HttpServletRequest httpRequest = (HttpServletRequest) servletRequest;
-        return new RequestBodyWrapper( httpRequest );
+        return requestBodyWrapperFactory.wrap( httpRequest );
     }
 
     private StatusCodeResponseBodyWrapper wrapResponse( ServletResponse servletResponse ) {
         HttpServletResponse httpResponse = (HttpServletResponse) servletResponse;
-        return new StatusCodeResponseBodyWrapper( httpResponse );
+        return new StatusCodeResponseBodyWrapper( httpResponse, responseBodyBufferFactory.createBuffer() );
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,109 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.filter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.deegree.securityproxy.request.UnsupportedRequestTypeException;
+
+/**
+ * Routes requests to the {@link ServiceManager} responsible for the requested service type. The first
+ * {@link ServiceManager} supporting a service type is remembered, later requests of the same service type are routed
+ * without asking the {@link ServiceManager}s again.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class ServiceManagerRoutingTable {
+
+    static final int MAX_ROUTES = 64;
+
+    private static final String UNSUPPORTED_REQUEST_ERROR_MSG = "Service type is not supported!";
+
+    private final List<ServiceManager> serviceManagers;
+
+    private final ConcurrentMap<String, ServiceManager> routes = new ConcurrentHashMap<String, ServiceManager>();
+
+    /**
+     * @param serviceManagers
+     *            the {@link ServiceManager}s in the order they are asked, may be <code>null</code>
+     */
+    public ServiceManagerRoutingTable( List<ServiceManager> serviceManagers ) {
+        if ( serviceManagers != null )
+            this.serviceManagers = serviceManagers;
+        else
+            this.serviceManagers = Collections.emptyList();
+    }
+
+    /**
+     * @param serviceType
+     *            the requested service type, may be <code>null</code> if the request does not contain a service type
+     * @param request
+     *            the request to route, never <code>null</code>
+     * @return the first {@link ServiceManager} supporting the service type, never <code>null</code>
+     * @throws UnsupportedRequestTypeException
+     *             if none of the {@link ServiceManager}s supports the service type
+     */
+    public ServiceManager route( String serviceType, HttpServletRequest request )
+                    throws UnsupportedRequestTypeException {
+        if ( serviceType == null )
+            return detectServiceManager( null, request );
+        ServiceManager serviceManager = routes.get( serviceType );
+        if ( serviceManager != null )
+            return serviceManager;
+        serviceManager = detectServiceManager( serviceType, request );
+        // the service type is sent by the client, unsupported types are not remembered and the size is limited
+        if ( routes.size() < MAX_ROUTES )
+            routes.putIfAbsent( serviceType, serviceManager );
+        return serviceManager;
+    }
+
+    private ServiceManager detectServiceManager( String serviceType, HttpServletRequest request )
+                    throws UnsupportedRequestTypeException {
+        for ( ServiceManager serviceManager : serviceManagers ) {
+            if ( serviceManager.isServiceTypeSupported( serviceType, request ) )
+                return serviceManager;
+        }
+        throw new UnsupportedRequestTypeException( UNSUPPORTED_REQUEST_ERROR_MSG );
+    }
+
+}
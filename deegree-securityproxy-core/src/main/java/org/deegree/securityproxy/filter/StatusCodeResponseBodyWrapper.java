@@ -1,20 +1,19 @@
 package org.deegree.securityproxy.filter;
 
-import static org.apache.commons.io.IOUtils.copy;
-
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.nio.charset.Charset;
 
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpServletResponseWrapper;
 
 /**
- * Custom Response wrapper that allows access to the response code Deletes the "Transfer Encoding" HTTP Header
+ * Custom Response wrapper that allows access to the response code Deletes the "Transfer Encoding" HTTP Header. The
+ * response body is buffered, unless pass-through is enabled. Stream and writer share one {@link ResponseBodyBuffer},
+ * which is presized from the Content-Length if available.
  * 
  * @author <a href="erben@lat-lon.de">Alexander Erben</a>
  * @author <a href="goltz@lat-lon.de">Lyn Goltz</a>
@@ -31,30 +30,71 @@ public class StatusCodeResponseBodyWrapper extends HttpServletResponseWrapper {
 
     private boolean isStreamUsed = false;
 
+    private boolean isPassThrough = false;
+
+    private boolean isGzipAccepted = false;
+
+    private String ifNoneMatch;
+
+    private ResponseCompressor responseCompressor = new ResponseCompressor();
+
+    private String contentEncoding;
+
+    private static final String DEFAULT_CHARACTER_ENCODING = "ISO-8859-1";
+
     private CopyPrintWriter bufferingWriter;
 
     private ServletOutputStream servletOutputStream;
 
-    private final ByteArrayOutputStream bufferingStream = new ByteArrayOutputStream();
+    private final ResponseBodyBuffer buffer;
 
     public StatusCodeResponseBodyWrapper( HttpServletResponse response ) {
+        this( response, new ResponseBodyBuffer() );
+    }
+
+    /**
+     * @param response
+     *            the response to wrap, never <code>null</code>
+     * @param buffer
+     *            the buffer capturing the response body, never <code>null</code>
+     */
+    public StatusCodeResponseBodyWrapper( HttpServletResponse response, ResponseBodyBuffer buffer ) {
         super( response );
+        this.buffer = buffer;
     }
 
     @Override
     public void setHeader( String name, String value ) {
         if ( !"Transfer-Encoding".equals( name ) ) {
-            super.setHeader( name, value );
+            presizeBuffer( name, value );
+            if ( !isBufferedContentLength( name ) )
+                super.setHeader( name, value );
         }
     }
 
     @Override
     public void addHeader( String name, String value ) {
         if ( !"Transfer-Encoding".equals( name ) ) {
-            super.addHeader( name, value );
+            presizeBuffer( name, value );
+            if ( !isBufferedContentLength( name ) )
+                super.addHeader( name, value );
         }
     }
 
+    @Override
+    public void setIntHeader( String name, int value ) {
+        if ( "Content-Length".equalsIgnoreCase( name ) )
+            buffer.presize( value );
+        if ( !isBufferedContentLength( name ) )
+            super.setIntHeader( name, value );
+    }
+
+    @Override
+    public void setContentLength( int len ) {
+        buffer.presize( len );
+        super.setContentLength( len );
+    }
+
     @Override
     public void sendError( int sc )
                             throws IOException {
@@ -76,58 +116,167 @@ public class StatusCodeResponseBodyWrapper extends HttpServletResponseWrapper {
     }
 
     @Override
-    public ServletOutputStream getOutputStream() {
+    public ServletOutputStream getOutputStream()
+                            throws IOException {
+        if ( isPassThrough )
+            return getRealOutputStream();
         isStreamUsed = true;
-        servletOutputStream = new ServletOutputStream() {
+        if ( servletOutputStream == null ) {
+            servletOutputStream = new ServletOutputStream() {
 
-            public void write( int b )
-                                    throws IOException {
-                bufferingStream.write( b );
-            }
-        };
+                @Override
+                public void write( int b )
+                                        throws IOException {
+                    buffer.write( b );
+                }
+
+                @Override
+                public void write( byte[] bytes, int offset, int length )
+                                        throws IOException {
+                    buffer.write( bytes, offset, length );
+                }
+            };
+        }
         return servletOutputStream;
     }
 
     @Override
     public PrintWriter getWriter()
                             throws IOException {
+        if ( isPassThrough )
+            return super.getWriter();
         isWriterUsed = true;
-        this.bufferingWriter = new CopyPrintWriter( super.getWriter() );
+        if ( bufferingWriter == null )
+            bufferingWriter = new CopyPrintWriter( super.getWriter(), buffer, retrieveCharset() );
         return bufferingWriter;
     }
 
     /**
-     * Copies the content of the internal buffered stream to the real outputstream of the underlying http response
+     * Switches the wrapper to pass-through mode: the response body is no longer buffered but written directly to the
+     * wrapped {@link HttpServletResponse}. Must be invoked before {@link #getOutputStream()} or {@link #getWriter()} is
+     * requested.
+     * 
+     * @throws IllegalStateException
+     *             if the response body was already requested
+     */
+    public void enablePassThrough() {
+        if ( isStreamUsed || isWriterUsed )
+            throw new IllegalStateException( "Pass-through can not be enabled, response body is already buffered!" );
+        isPassThrough = true;
+    }
+
+    /**
+     * @return <code>true</code> if the response body is written directly to the wrapped {@link HttpServletResponse},
+     *         <code>false</code> if it is buffered
+     */
+    public boolean isPassThrough() {
+        return isPassThrough;
+    }
+
+    /**
+     * @param isGzipAccepted
+     *            <code>true</code> if the client accepts a gzip encoded response body, <code>false</code> otherwise
+     */
+    public void setGzipAccepted( boolean isGzipAccepted ) {
+        this.isGzipAccepted = isGzipAccepted;
+    }
+
+    /**
+     * @return <code>true</code> if the client accepts a gzip encoded response body, <code>false</code> otherwise
+     *         (default)
+     */
+    public boolean isGzipAccepted() {
+        return isGzipAccepted;
+    }
+
+    /**
+     * @param ifNoneMatch
+     *            the value of the If-None-Match header of a GET request, may be <code>null</code> if not sent
+     */
+    public void setIfNoneMatch( String ifNoneMatch ) {
+        this.ifNoneMatch = ifNoneMatch;
+    }
+
+    /**
+     * @return the value of the If-None-Match header of a GET request, <code>null</code> if not sent (default)
+     */
+    public String getIfNoneMatch() {
+        return ifNoneMatch;
+    }
+
+    /**
+     * Enables the compression of the response bodies written with {@link #getCompressingOutputStream()}.
+     * 
+     * @param responseCompressor
+     *            compresses the response bodies, never <code>null</code>
+     * @param acceptEncoding
+     *            the value of the Accept-Encoding header of the request, may be <code>null</code> if not sent
+     */
+    public void enableCompression( ResponseCompressor responseCompressor, String acceptEncoding ) {
+        this.responseCompressor = responseCompressor;
+        this.contentEncoding = responseCompressor.negotiateContentEncoding( acceptEncoding );
+    }
+
+    /**
+     * @return the content coding of the response bodies written with {@link #getCompressingOutputStream()} if the
+     *         compression pays off, <code>null</code> if the response is not compressed (default)
+     */
+    public String getContentEncoding() {
+        return contentEncoding;
+    }
+
+    /**
+     * Copies the content of the internal buffered stream to the real outputstream of the underlying http response. In
+     * pass-through mode nothing is copied as the content was already written.
      * 
      * @throws IOException
      *             if an I/O error occurs
      */
     public void copyBufferedStreamToRealStream()
                             throws IOException {
-        copy( getBufferedStream(), getRealOutputStream() );
+        if ( !isPassThrough ) {
+            long size = buffer.size();
+            if ( size <= Integer.MAX_VALUE )
+                super.setContentLength( (int) size );
+            buffer.writeTo( getRealOutputStream() );
+        }
+    }
+
+    /**
+     * Releases the resources held by the buffered response body. Must be invoked when the request is completed, the
+     * buffered content is not available afterwards.
+     */
+    public void release() {
+        buffer.release();
     }
 
     /**
      * Retrieves the buffered response body;
      * 
-     * @return buffered content as byte array. may be empty.
+     * @return buffered content as byte array. may be empty (always in pass-through mode).
+     * @throws IOException
+     *             if the buffered content could not be read
      */
-    public byte[] getBufferedBody() {
-        if ( isWriterUsed )
-            return bufferingWriter.getCopy();
-        if ( isStreamUsed ) {
-            return bufferingStream.toByteArray();
-        }
-        return new byte[0];
+    public byte[] getBufferedBody()
+                            throws IOException {
+        return buffer.toByteArray();
+    }
+
+    /**
+     * @return the number of buffered bytes of the response body, 0 in pass-through mode
+     */
+    public long getBufferedSize() {
+        return buffer.size();
     }
 
     /**
      * Retrieves the buffered response as {@link InputStream};
      * 
-     * @return buffered content as {@link InputStream} array. may be empty, never <code>null</code>
+     * @return buffered content as {@link InputStream} reading directly from the buffer. may be empty, never
+     *         <code>null</code>
      */
     public InputStream getBufferedStream() {
-        return new ByteArrayInputStream( getBufferedBody() );
+        return buffer.asInputStream();
     }
 
     /**
@@ -140,6 +289,21 @@ public class StatusCodeResponseBodyWrapper extends HttpServletResponseWrapper {
         return super.getOutputStream();
     }
 
+    /**
+     * Creates a stream writing the response body into the real outputstream of the underlying http response. The body
+     * is compressed with the negotiated content coding (see {@link #getContentEncoding()}) if it exceeds the configured
+     * minimum size. The returned stream must be closed to complete the body.
+     * 
+     * @return {@link OutputStream} compressing into the stream of the wrapped {@link HttpServletResponse}, never
+     *         <code>null</code>
+     * @throws IOException
+     *             if an input or output exception occurred
+     */
+    public OutputStream getCompressingOutputStream()
+                            throws IOException {
+        return responseCompressor.createCompressingStream( this, getRealOutputStream(), contentEncoding );
+    }
+
     /**
      * Retrieve the http status code of the response.
      * 
@@ -149,4 +313,31 @@ public class StatusCodeResponseBodyWrapper extends HttpServletResponseWrapper {
         return httpStatus;
     }
 
+    // the buffered body may be modified by the response filters, the length of the body sent to the client is set by
+    // copyBufferedStreamToRealStream() or the response filter
+    private boolean isBufferedContentLength( String name ) {
+        return !isPassThrough && "Content-Length".equalsIgnoreCase( name );
+    }
+
+    private void presizeBuffer( String name, String value ) {
+        if ( "Content-Length".equalsIgnoreCase( name ) && value != null ) {
+            try {
+                buffer.presize( Long.parseLong( value.trim() ) );
+            } catch ( NumberFormatException e ) {
+                // invalid Content-Length, the buffer grows on demand
+            }
+        }
+    }
+
+    private Charset retrieveCharset() {
+        String characterEncoding = getCharacterEncoding();
+        try {
+            if ( characterEncoding != null )
+                return Charset.forName( characterEncoding );
+        } catch ( IllegalArgumentException e ) {
+            // unsupported or illegal encoding, the servlet default is used
+        }
+        return Charset.forName( DEFAULT_CHARACTER_ENCODING );
+    }
+
 }
\ No newline at end of file
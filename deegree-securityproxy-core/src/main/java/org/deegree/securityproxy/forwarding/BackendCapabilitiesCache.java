@@ -0,0 +1,329 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.forwarding;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Caches the unfiltered capabilities documents of the backend services. A document is fresh for the time to live
+ * after it was received or revalidated. Afterwards it is stale: a stale document is still served while it is
+ * revalidated in the background (one revalidation per document at a time), until the maximal stale time is exceeded.
+ * The least recently used document is evicted if the maximal number of documents is exceeded.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class BackendCapabilitiesCache implements BackendCapabilitiesCacheMBean {
+
+    private static final Logger LOG = Logger.getLogger( BackendCapabilitiesCache.class );
+
+    private static final int REVALIDATION_THREADS = 2;
+
+    private final int maxEntries;
+
+    private final long timeToLive;
+
+    private final long maxStaleTime;
+
+    private final Map<String, CachedBackendCapabilities> entries;
+
+    private final Set<String> revalidatingKeys = Collections.newSetFromMap( new ConcurrentHashMap<String, Boolean>() );
+
+    private final ExecutorService revalidationExecutor;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong staleHits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong notModifiedRevalidations = new AtomicLong();
+
+    private final AtomicLong modifiedRevalidations = new AtomicLong();
+
+    /**
+     * Instantiates a disabled {@link BackendCapabilitiesCache}.
+     */
+    public BackendCapabilitiesCache() {
+        this( 0, 1, 0 );
+    }
+
+    /**
+     * @param maxEntries
+     *            the maximal number of cached documents, 0 disables the cache
+     * @param timeToLive
+     *            the time in milliseconds a document is fresh after it was received or revalidated, must be greater
+     *            than 0
+     * @param maxStaleTime
+     *            the time in milliseconds a stale document is served while it is revalidated, 0 if stale documents
+     *            should not be served
+     * @throws IllegalArgumentException
+     *             - maxEntries or maxStaleTime is negative or timeToLive is not greater than 0
+     */
+    public BackendCapabilitiesCache( final int maxEntries, long timeToLive, long maxStaleTime ) {
+        if ( maxEntries < 0 )
+            throw new IllegalArgumentException( "maxEntries must not be negative!" );
+        if ( timeToLive <= 0 )
+            throw new IllegalArgumentException( "timeToLive must be greater than 0!" );
+        if ( maxStaleTime < 0 )
+            throw new IllegalArgumentException( "maxStaleTime must not be negative!" );
+        this.maxEntries = maxEntries;
+        this.timeToLive = timeToLive;
+        this.maxStaleTime = maxStaleTime;
+        this.entries = new LinkedHashMap<String, CachedBackendCapabilities>( 16, 0.75f, true ) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<String, CachedBackendCapabilities> eldest ) {
+                return size() > maxEntries;
+            }
+        };
+        this.revalidationExecutor = isEnabled() ? createRevalidationExecutor() : null;
+    }
+
+    /**
+     * @param key
+     *            identifies the capabilities request, never <code>null</code>
+     * @return the cached document, if fresh or stale but still servable, <code>null</code> otherwise
+     */
+    public CachedBackendCapabilities get( String key ) {
+        synchronized ( entries ) {
+            CachedBackendCapabilities cached = entries.get( key );
+            if ( cached == null ) {
+                misses.incrementAndGet();
+                return null;
+            }
+            long age = currentTimeMillis() - cached.getValidatedAt();
+            if ( age < timeToLive ) {
+                hits.incrementAndGet();
+                return cached;
+            }
+            if ( age < timeToLive + maxStaleTime ) {
+                staleHits.incrementAndGet();
+                return cached;
+            }
+            LOG.debug( "Cached capabilities with key " + key + " exceeded the maximal stale time." );
+            entries.remove( key );
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * @param cached
+     *            the cached document to check, never <code>null</code>
+     * @return <code>true</code> if the document does not require revalidation, <code>false</code> if it is stale
+     */
+    public boolean isFresh( CachedBackendCapabilities cached ) {
+        return currentTimeMillis() - cached.getValidatedAt() < timeToLive;
+    }
+
+    /**
+     * Stores the document as validated now, an already cached document with the same key is replaced. Does nothing if
+     * the cache is disabled.
+     * 
+     * @param key
+     *            identifies the capabilities request, never <code>null</code>
+     * @param capabilities
+     *            the document to store, never <code>null</code>
+     */
+    public void put( String key, CachedBackendCapabilities capabilities ) {
+        if ( !isEnabled() )
+            return;
+        CachedBackendCapabilities validated = capabilities.validatedAt( currentTimeMillis() );
+        synchronized ( entries ) {
+            entries.put( key, validated );
+        }
+    }
+
+    /**
+     * Revalidates the cached document in the background. The revalidation is skipped if the document is already
+     * revalidated.
+     * 
+     * @param key
+     *            identifies the capabilities request, never <code>null</code>
+     * @param cached
+     *            the stale document, never <code>null</code>
+     * @param revalidation
+     *            requests the backend service, never <code>null</code>
+     */
+    public void revalidateInBackground( final String key, final CachedBackendCapabilities cached,
+                                        final Revalidation revalidation ) {
+        if ( !isEnabled() || !revalidatingKeys.add( key ) )
+            return;
+        try {
+            revalidationExecutor.execute( new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        revalidate( key, cached, revalidation );
+                    } finally {
+                        revalidatingKeys.remove( key );
+                    }
+                }
+            } );
+        } catch ( RejectedExecutionException e ) {
+            revalidatingKeys.remove( key );
+            LOG.debug( "Revalidation of capabilities with key " + key + " was rejected, cache is closed." );
+        }
+    }
+
+    /**
+     * Stops the revalidation threads.
+     */
+    public void close() {
+        if ( revalidationExecutor != null )
+            revalidationExecutor.shutdownNow();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return maxEntries > 0;
+    }
+
+    @Override
+    public int getCachedDocuments() {
+        synchronized ( entries ) {
+            return entries.size();
+        }
+    }
+
+    @Override
+    public long getHits() {
+        return hits.get();
+    }
+
+    @Override
+    public long getStaleHits() {
+        return staleHits.get();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public long getNotModifiedRevalidations() {
+        return notModifiedRevalidations.get();
+    }
+
+    @Override
+    public long getModifiedRevalidations() {
+        return modifiedRevalidations.get();
+    }
+
+    @Override
+    public void clear() {
+        synchronized ( entries ) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * @return the current time in milliseconds, may be overwritten for testing
+     */
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    void revalidate( String key, CachedBackendCapabilities cached, Revalidation revalidation ) {
+        try {
+            CachedBackendCapabilities revalidated = revalidation.revalidate( cached );
+            if ( revalidated == null ) {
+                LOG.info( "Capabilities with key " + key + " could not be revalidated, stale document is kept." );
+                return;
+            }
+            if ( revalidated == cached )
+                notModifiedRevalidations.incrementAndGet();
+            else
+                modifiedRevalidations.incrementAndGet();
+            put( key, revalidated );
+        } catch ( IOException e ) {
+            LOG.warn( "Revalidation of capabilities with key " + key + " failed: " + e.getMessage() );
+        } catch ( RuntimeException e ) {
+            LOG.error( "Revalidation of capabilities with key " + key + " failed!", e );
+        }
+    }
+
+    private ExecutorService createRevalidationExecutor() {
+        return Executors.newFixedThreadPool( REVALIDATION_THREADS, new ThreadFactory() {
+
+            private final AtomicInteger threadNumber = new AtomicInteger();
+
+            @Override
+            public Thread newThread( Runnable runnable ) {
+                Thread thread = new Thread( runnable, "capabilities-revalidation-" + threadNumber.incrementAndGet() );
+                thread.setDaemon( true );
+                return thread;
+            }
+        } );
+    }
+
+    /**
+     * Revalidates a stale document by requesting the backend service.
+     */
+    public interface Revalidation {
+
+        /**
+         * @param cached
+         *            the stale document, never <code>null</code>
+         * @return the passed stale document if it was not modified or the new document if it was modified,
+         *         <code>null</code> if the document could not be revalidated
+         * @throws IOException
+         *             if requesting the backend service failed
+         */
+        CachedBackendCapabilities revalidate( CachedBackendCapabilities cached )
+                        throws IOException;
+
+    }
+
+}
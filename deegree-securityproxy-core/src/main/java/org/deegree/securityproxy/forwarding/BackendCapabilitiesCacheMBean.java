@@ -0,0 +1,87 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.forwarding;
+
+/**
+ * Management interface of the {@link BackendCapabilitiesCache}.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public interface BackendCapabilitiesCacheMBean {
+
+    /**
+     * @return <code>true</code> if capabilities documents are cached, <code>false</code> otherwise
+     */
+    boolean isEnabled();
+
+    /**
+     * @return the number of cached capabilities documents
+     */
+    int getCachedDocuments();
+
+    /**
+     * @return the number of requests answered with a fresh cached document
+     */
+    long getHits();
+
+    /**
+     * @return the number of requests answered with a stale cached document while it was revalidated
+     */
+    long getStaleHits();
+
+    /**
+     * @return the number of requests sent to the backend service because no usable document was cached
+     */
+    long getMisses();
+
+    /**
+     * @return the number of revalidations confirming the cached document was not modified
+     */
+    long getNotModifiedRevalidations();
+
+    /**
+     * @return the number of revalidations replacing the cached document by a modified one
+     */
+    long getModifiedRevalidations();
+
+    /**
+     * Removes all cached documents.
+     */
+    void clear();
+
+}
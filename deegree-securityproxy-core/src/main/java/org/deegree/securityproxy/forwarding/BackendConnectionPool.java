@@ -0,0 +1,182 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.forwarding;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.io.IOException;
+import java.util.Set;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.log4j.Logger;
+
+/**
+ * Keeps alive the connections to the backend services for reuse. The number of connections is limited in total and
+ * per backend service (route, identified by scheme, host and port of the internal service url).
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class BackendConnectionPool implements BackendConnectionPoolMBean {
+
+    private static final Logger LOG = Logger.getLogger( BackendConnectionPool.class );
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+
+    private final CloseableHttpClient httpClient;
+
+    /**
+     * Instantiates a {@link BackendConnectionPool} with 200 connections, 50 per backend service, a connect timeout of
+     * 10 seconds and without socket timeout.
+     */
+    public BackendConnectionPool() {
+        this( 200, 50, 10000, 0, 30000, 60000 );
+    }
+
+    /**
+     * @param maxConnections
+     *            the maximal number of connections to all backend services, must be positive
+     * @param maxConnectionsPerRoute
+     *            the maximal number of connections to a single backend service, must be positive
+     * @param connectTimeout
+     *            timeout in milliseconds until a connection is established, 0 is interpreted as infinite timeout
+     * @param socketTimeout
+     *            maximal time in milliseconds between two packets received from the backend service, 0 is interpreted
+     *            as infinite timeout
+     * @param connectionRequestTimeout
+     *            maximal time in milliseconds a request waits for a connection of the pool, 0 is interpreted as
+     *            infinite timeout
+     * @param idleConnectionTimeout
+     *            time in milliseconds after which unused connections are closed, 0 if idle connections should be kept
+     *            until the backend service closes them
+     * @throws IllegalArgumentException
+     *             if one of the connection limits is not positive or one of the timeouts is negative
+     */
+    public BackendConnectionPool( int maxConnections, int maxConnectionsPerRoute, int connectTimeout,
+                                  int socketTimeout, int connectionRequestTimeout, long idleConnectionTimeout ) {
+        checkParameters( maxConnections, maxConnectionsPerRoute, connectTimeout, socketTimeout,
+                         connectionRequestTimeout, idleConnectionTimeout );
+        this.connectionManager = new PoolingHttpClientConnectionManager();
+        this.connectionManager.setMaxTotal( maxConnections );
+        this.connectionManager.setDefaultMaxPerRoute( maxConnectionsPerRoute );
+        RequestConfig requestConfig = RequestConfig.custom().setConnectTimeout( connectTimeout )
+                                .setSocketTimeout( socketTimeout )
+                                .setConnectionRequestTimeout( connectionRequestTimeout ).build();
+        HttpClientBuilder builder = HttpClientBuilder.create().setConnectionManager( connectionManager );
+        builder.setDefaultRequestConfig( requestConfig );
+        // requests and responses are passed unchanged between client and backend service
+        builder.disableRedirectHandling().disableCookieManagement().disableAuthCaching().disableContentCompression();
+        if ( idleConnectionTimeout > 0 )
+            builder.evictExpiredConnections().evictIdleConnections( idleConnectionTimeout, MILLISECONDS );
+        this.httpClient = builder.build();
+    }
+
+    /**
+     * @return the client sending the requests with the pooled connections, never <code>null</code>
+     */
+    public CloseableHttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    /**
+     * Closes all connections, the pool must not be used afterwards.
+     */
+    public void close() {
+        try {
+            httpClient.close();
+        } catch ( IOException e ) {
+            LOG.warn( "Backend connections could not be closed: " + e.getMessage() );
+        }
+    }
+
+    @Override
+    public int getMaxConnections() {
+        return connectionManager.getMaxTotal();
+    }
+
+    @Override
+    public int getMaxConnectionsPerRoute() {
+        return connectionManager.getDefaultMaxPerRoute();
+    }
+
+    @Override
+    public int getLeasedConnections() {
+        return connectionManager.getTotalStats().getLeased();
+    }
+
+    @Override
+    public int getAvailableConnections() {
+        return connectionManager.getTotalStats().getAvailable();
+    }
+
+    @Override
+    public int getPendingRequests() {
+        return connectionManager.getTotalStats().getPending();
+    }
+
+    @Override
+    public int getRouteCount() {
+        return connectionManager.getRoutes().size();
+    }
+
+    @Override
+    public String[] getRouteStatistics() {
+        Set<HttpRoute> routes = connectionManager.getRoutes();
+        String[] statistics = new String[routes.size()];
+        int index = 0;
+        for ( HttpRoute route : routes ) {
+            PoolStats stats = connectionManager.getStats( route );
+            statistics[index++] = route.getTargetHost().toURI() + ": leased " + stats.getLeased() + ", available "
+                                  + stats.getAvailable() + ", pending " + stats.getPending();
+        }
+        return statistics;
+    }
+
+    private void checkParameters( int maxConnections, int maxConnectionsPerRoute, int connectTimeout,
+                                  int socketTimeout, int connectionRequestTimeout, long idleConnectionTimeout ) {
+        if ( maxConnections <= 0 || maxConnectionsPerRoute <= 0 )
+            throw new IllegalArgumentException( "Maximal number of connections must be positive!" );
+        if ( connectTimeout < 0 || socketTimeout < 0 || connectionRequestTimeout < 0 || idleConnectionTimeout < 0 )
+            throw new IllegalArgumentException( "Timeouts must not be negative!" );
+    }
+
+}
@@ -0,0 +1,83 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.forwarding;
+
+/**
+ * Management interface of the {@link BackendConnectionPool}.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public interface BackendConnectionPoolMBean {
+
+    /**
+     * @return the maximal number of connections to all backend services
+     */
+    int getMaxConnections();
+
+    /**
+     * @return the maximal number of connections to a single backend service
+     */
+    int getMaxConnectionsPerRoute();
+
+    /**
+     * @return the number of connections currently used by requests
+     */
+    int getLeasedConnections();
+
+    /**
+     * @return the number of idle connections kept alive for reuse
+     */
+    int getAvailableConnections();
+
+    /**
+     * @return the number of requests waiting for a connection
+     */
+    int getPendingRequests();
+
+    /**
+     * @return the number of backend services (scheme, host and port) connections are kept for
+     */
+    int getRouteCount();
+
+    /**
+     * @return one line per backend service with the number of leased, available and pending connections, may be empty
+     *         but never <code>null</code>
+     */
+    String[] getRouteStatistics();
+
+}
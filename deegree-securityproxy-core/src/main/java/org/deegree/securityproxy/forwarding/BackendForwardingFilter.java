@@ -0,0 +1,662 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.forwarding;
+
+import static java.lang.Boolean.TRUE;
+import static javax.servlet.http.HttpServletResponse.SC_BAD_GATEWAY;
+import static javax.servlet.http.HttpServletResponse.SC_GATEWAY_TIMEOUT;
+import static javax.servlet.http.HttpServletResponse.SC_NOT_MODIFIED;
+import static javax.servlet.http.HttpServletResponse.SC_OK;
+import static javax.servlet.http.HttpServletResponse.SC_SERVICE_UNAVAILABLE;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+import static org.deegree.securityproxy.filter.SecurityFilter.REQUEST_ATTRIBUTE_PASS_THROUGH;
+import static org.deegree.securityproxy.filter.SecurityFilter.REQUEST_ATTRIBUTE_SERVICE_URL;
+import static org.deegree.securityproxy.xml.XmlFactories.getInputFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.net.URLEncoder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.entity.DeflateDecompressingEntity;
+import org.apache.http.client.entity.GzipDecompressingEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.log4j.Logger;
+import org.deegree.securityproxy.filter.ResponseBodyBuffer;
+import org.deegree.securityproxy.filter.ResponseBodyBufferFactory;
+import org.deegree.securityproxy.filter.SecurityFilter;
+import org.deegree.securityproxy.forwarding.BackendCapabilitiesCache.Revalidation;
+import org.deegree.securityproxy.forwarding.RequestCoalescer.BackendCall;
+
+/**
+ * Servlet Filter forwarding the requests to the internal service url attached by the {@link SecurityFilter} and
+ * streaming the response of the backend service back to the client. The connections to the backend services are
+ * reused from a {@link BackendConnectionPool}. Concurrent identical GET requests (e.g. GetMap tiles) are coalesced by
+ * a {@link RequestCoalescer}: they share one backend request, each client receives a copy of the response, which is
+ * filtered for the client by the {@link SecurityFilter} afterwards. Large shared responses are moved into temporary
+ * files by the spill threshold of the {@link ResponseBodyBufferFactory}. Unfiltered GetCapabilities responses are
+ * cached in a {@link BackendCapabilitiesCache} and revalidated with ETag/Last-Modified or the OGC updateSequence.
+ * <p>
+ * The clients are authorized by the proxy, the credentials of the client (Authorization, Cookie and the access token
+ * header) are not forwarded to the backend service. Therefore the responses of the backend service do not depend on
+ * the client and can be shared by all clients. The Accept-Encoding header of the client is forwarded only if the
+ * response is passed through unfiltered, otherwise compressed backend responses are decoded. This filter terminates
+ * the filter chain.
+ * </p>
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class BackendForwardingFilter implements Filter {
+
+    private static final Logger LOG = Logger.getLogger( BackendForwardingFilter.class );
+
+    private static final Set<String> HOP_BY_HOP_HEADERS = new HashSet<String>(
+                    Arrays.asList( "connection", "keep-alive", "proxy-authenticate", "proxy-authorization", "te",
+                                   "trailer", "trailers", "transfer-encoding", "upgrade" ) );
+
+    // set by the client from the target url and the entity
+    private static final Set<String> SKIPPED_REQUEST_HEADERS = new HashSet<String>(
+                    Arrays.asList( "host", "content-length" ) );
+
+    private static final Set<String> DECODED_CONTENT_CODINGS = new HashSet<String>(
+                    Arrays.asList( "gzip", "x-gzip", "deflate" ) );
+
+    // conditional headers of the client, the cached capabilities document must be complete and responses to
+    // conditional requests are not coalesced
+    private static final String[] CLIENT_CONDITIONAL_HEADERS = { "If-None-Match", "If-Modified-Since", "If-Match",
+                                                                "If-Unmodified-Since", "If-Range" };
+
+    // the client is authorized by the proxy, the backend service answers all clients alike
+    private static final Set<String> CLIENT_CREDENTIAL_HEADERS = new HashSet<String>(
+                    Arrays.asList( "authorization", "cookie" ) );
+
+    private static final String ACCEPT_ENCODING = "Accept-Encoding";
+
+    private static final String SET_COOKIE = "Set-Cookie";
+
+    private static final Charset ASCII = Charset.forName( "US-ASCII" );
+
+    // contained in 'ServiceExceptionReport' as well
+    private static final byte[] EXCEPTION_REPORT = "ExceptionReport".getBytes( ASCII );
+
+    private static final byte[] CURRENT_UPDATE_SEQUENCE = "CurrentUpdateSequence".getBytes( ASCII );
+
+    private static final Comparator<String> PARAMETER_NAME_COMPARATOR = new Comparator<String>() {
+        @Override
+        public int compare( String parameter, String otherParameter ) {
+            return parameterName( parameter ).compareTo( parameterName( otherParameter ) );
+        }
+    };
+
+    private final BackendConnectionPool connectionPool;
+
+    private final RequestCoalescer requestCoalescer;
+
+    private final ResponseBodyBufferFactory responseBodyBufferFactory;
+
+    private final BackendCapabilitiesCache capabilitiesCache;
+
+    private String accessTokenHeaderName;
+
+    /**
+     * Instantiates a {@link BackendForwardingFilter} sending each request to the backend service.
+     * 
+     * @param connectionPool
+     *            the pool providing the connections to the backend services, never <code>null</code>
+     */
+    public BackendForwardingFilter( BackendConnectionPool connectionPool ) {
+        this( connectionPool, new RequestCoalescer( false ), new ResponseBodyBufferFactory() );
+    }
+
+    /**
+     * @param connectionPool
+     *            the pool providing the connections to the backend services, never <code>null</code>
+     * @param requestCoalescer
+     *            coalesces identical GET requests, never <code>null</code>
+     * @param responseBodyBufferFactory
+     *            creates the buffers for the responses of coalesced requests, never <code>null</code>
+     */
+    public BackendForwardingFilter( BackendConnectionPool connectionPool, RequestCoalescer requestCoalescer,
+                                    ResponseBodyBufferFactory responseBodyBufferFactory ) {
+        this( connectionPool, requestCoalescer, responseBodyBufferFactory, new BackendCapabilitiesCache() );
+    }
+
+    /**
+     * @param connectionPool
+     *            the pool providing the connections to the backend services, never <code>null</code>
+     * @param requestCoalescer
+     *            coalesces identical GET requests, never <code>null</code>
+     * @param responseBodyBufferFactory
+     *            creates the buffers for the responses of coalesced requests, never <code>null</code>
+     * @param capabilitiesCache
+     *            caches the unfiltered capabilities documents of the backend services, never <code>null</code>
+     */
+    public BackendForwardingFilter( BackendConnectionPool connectionPool, RequestCoalescer requestCoalescer,
+                                    ResponseBodyBufferFactory responseBodyBufferFactory,
+                                    BackendCapabilitiesCache capabilitiesCache ) {
+        this.connectionPool = connectionPool;
+        this.requestCoalescer = requestCoalescer;
+        this.responseBodyBufferFactory = responseBodyBufferFactory;
+        this.capabilitiesCache = capabilitiesCache;
+    }
+
+    /**
+     * @param accessTokenHeaderName
+     *            the name of the header containing the access token of the client, which is not forwarded to the
+     *            backend service, may be <code>null</code>
+     */
+    public void setAccessTokenHeaderName( String accessTokenHeaderName ) {
+        this.accessTokenHeaderName = accessTokenHeaderName;
+    }
+
+    @Override
+    public void init( FilterConfig filterConfig )
+                    throws ServletException {
+    }
+
+    @Override
+    public void doFilter( ServletRequest servletRequest, ServletResponse servletResponse, FilterChain chain )
+                    throws IOException, ServletException {
+        HttpServletRequest request = (HttpServletRequest) servletRequest;
+        HttpServletResponse response = (HttpServletResponse) servletResponse;
+        Object serviceUrl = request.getAttribute( REQUEST_ATTRIBUTE_SERVICE_URL );
+        if ( serviceUrl == null ) {
+            LOG.warn( "Request to " + request.getRequestURL() + " could not be forwarded, service url is missing." );
+            response.sendError( SC_BAD_GATEWAY, "No backend service is configured for the request!" );
+            return;
+        }
+        if ( isCacheableCapabilitiesRequest( request ) )
+            forwardCapabilities( request, response, serviceUrl.toString() );
+        else if ( isCoalescable( request ) )
+            forwardCoalesced( request, response, serviceUrl.toString() );
+        else
+            forward( request, response, serviceUrl.toString() );
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    private void forward( HttpServletRequest request, HttpServletResponse response, String serviceUrl )
+                    throws IOException {
+        HttpUriRequest backendRequest = createBackendRequest( request, serviceUrl );
+        LOG.debug( "Forward request to " + backendRequest.getURI() );
+        CloseableHttpResponse backendResponse;
+        try {
+            backendResponse = connectionPool.getHttpClient().execute( backendRequest );
+        } catch ( IOException e ) {
+            handleBackendFailure( response, backendRequest, e );
+            return;
+        }
+        try {
+            copyResponse( backendRequest, backendResponse, response );
+        } finally {
+            // the connection was released into the pool when the body was consumed completely, otherwise it is closed
+            backendResponse.close();
+        }
+    }
+
+    private void forwardCoalesced( HttpServletRequest request, HttpServletResponse response, String serviceUrl )
+                    throws IOException {
+        final HttpUriRequest backendRequest = createBackendRequest( request, serviceUrl );
+        String key = createCoalescingKey( serviceUrl, request.getQueryString() );
+        // a compressed response is shared with clients accepting the same content codings only
+        Header acceptEncoding = backendRequest.getFirstHeader( ACCEPT_ENCODING );
+        if ( acceptEncoding != null )
+            key = key + '\n' + acceptEncoding.getValue();
+        SharedBackendResponse sharedResponse;
+        try {
+            sharedResponse = requestCoalescer.execute( key, new BackendCall() {
+                @Override
+                public SharedBackendResponse execute()
+                                throws IOException {
+                    LOG.debug( "Forward request to " + backendRequest.getURI() );
+                    return receiveCompleteResponse( backendRequest );
+                }
+            } );
+        } catch ( IOException e ) {
+            handleBackendFailure( response, backendRequest, e );
+            return;
+        }
+        try {
+            sharedResponse.writeTo( response );
+        } finally {
+            sharedResponse.release();
+        }
+    }
+
+    private void forwardCapabilities( HttpServletRequest request, HttpServletResponse response, String serviceUrl )
+                    throws IOException {
+        final HttpUriRequest backendRequest = createCapabilitiesBackendRequest( request, serviceUrl );
+        final String key = createCoalescingKey( serviceUrl, request.getQueryString() );
+        CachedBackendCapabilities cached = capabilitiesCache.get( key );
+        if ( cached != null ) {
+            if ( !capabilitiesCache.isFresh( cached ) ) {
+                capabilitiesCache.revalidateInBackground( key, cached, new Revalidation() {
+                    @Override
+                    public CachedBackendCapabilities revalidate( CachedBackendCapabilities stale )
+                                    throws IOException {
+                        return revalidateCapabilities( backendRequest, stale );
+                    }
+                } );
+            }
+            LOG.debug( "Serve cached capabilities of " + backendRequest.getURI() );
+            cached.writeTo( response );
+            return;
+        }
+        SharedBackendResponse sharedResponse;
+        try {
+            sharedResponse = requestCoalescer.execute( key, new BackendCall() {
+                @Override
+                public SharedBackendResponse execute()
+                                throws IOException {
+                    LOG.debug( "Forward request to " + backendRequest.getURI() );
+                    return receiveCompleteResponse( backendRequest );
+                }
+            } );
+        } catch ( IOException e ) {
+            handleBackendFailure( response, backendRequest, e );
+            return;
+        }
+        try {
+            CachedBackendCapabilities capabilities = createCachedCapabilities( sharedResponse );
+            if ( capabilities != null )
+                capabilitiesCache.put( key, capabilities );
+            sharedResponse.writeTo( response );
+        } finally {
+            sharedResponse.release();
+        }
+    }
+
+    CachedBackendCapabilities revalidateCapabilities( HttpUriRequest backendRequest, CachedBackendCapabilities stale )
+                    throws IOException {
+        if ( stale.getETag() != null || stale.getLastModified() != null ) {
+            LOG.debug( "Revalidate capabilities of " + backendRequest.getURI() + " with ETag/Last-Modified." );
+            RequestBuilder conditionalRequest = RequestBuilder.copy( backendRequest );
+            if ( stale.getETag() != null )
+                conditionalRequest.setHeader( "If-None-Match", stale.getETag() );
+            if ( stale.getLastModified() != null )
+                conditionalRequest.setHeader( "If-Modified-Since", stale.getLastModified() );
+            SharedBackendResponse revalidationResponse = receiveCompleteResponse( conditionalRequest.build() );
+            try {
+                if ( revalidationResponse.getStatusCode() == SC_NOT_MODIFIED )
+                    return stale;
+                return createCachedCapabilities( revalidationResponse );
+            } finally {
+                revalidationResponse.release();
+            }
+        }
+        if ( stale.getUpdateSequence() != null ) {
+            LOG.debug( "Revalidate capabilities of " + backendRequest.getURI() + " with updateSequence." );
+            String query = "updateSequence=" + URLEncoder.encode( stale.getUpdateSequence(), "UTF-8" );
+            RequestBuilder conditionalRequest = RequestBuilder.copy( backendRequest );
+            conditionalRequest.setUri( createBackendUri( backendRequest.getURI().toString(), query ) );
+            SharedBackendResponse revalidationResponse = receiveCompleteResponse( conditionalRequest.build() );
+            try {
+                byte[] body = revalidationResponse.getBodyAsByteArray();
+                // the service answers with an exception if the updateSequence is current
+                if ( contains( body, CURRENT_UPDATE_SEQUENCE ) )
+                    return stale;
+                CachedBackendCapabilities modified = createCachedCapabilities( revalidationResponse );
+                if ( modified != null )
+                    return modified;
+            } finally {
+                revalidationResponse.release();
+            }
+        }
+        LOG.debug( "Request capabilities of " + backendRequest.getURI() + " unconditionally." );
+        SharedBackendResponse response = receiveCompleteResponse( RequestBuilder.copy( backendRequest ).build() );
+        try {
+            return createCachedCapabilities( response );
+        } finally {
+            response.release();
+        }
+    }
+
+    private CachedBackendCapabilities createCachedCapabilities( SharedBackendResponse response )
+                    throws IOException {
+        if ( response.getStatusCode() != SC_OK )
+            return null;
+        byte[] body = response.getBodyAsByteArray();
+        if ( body.length == 0 || contains( body, EXCEPTION_REPORT ) )
+            return null;
+        // the cookie is meant for the requesting client only
+        if ( containsHeader( response.getHeaders(), SET_COOKIE ) ) {
+            LOG.debug( "Capabilities response sets a cookie and is not cached." );
+            return null;
+        }
+        return new CachedBackendCapabilities( response.getHeaders(), body, parseUpdateSequence( body ) );
+    }
+
+    private boolean containsHeader( List<Header> headers, String name ) {
+        for ( Header header : headers ) {
+            if ( name.equalsIgnoreCase( header.getName() ) )
+                return true;
+        }
+        return false;
+    }
+
+    private String parseUpdateSequence( byte[] capabilities ) {
+        try {
+            XMLStreamReader reader = getInputFactory().createXMLStreamReader( new ByteArrayInputStream( capabilities ) );
+            try {
+                while ( reader.hasNext() ) {
+                    if ( reader.next() == START_ELEMENT )
+                        return reader.getAttributeValue( null, "updateSequence" );
+                }
+            } finally {
+                reader.close();
+            }
+        } catch ( XMLStreamException e ) {
+            LOG.debug( "updateSequence could not be parsed from capabilities: " + e.getMessage() );
+        }
+        return null;
+    }
+
+    private static boolean contains( byte[] body, byte[] searched ) {
+        int lastStart = body.length - searched.length;
+        for ( int start = 0; start <= lastStart; start++ ) {
+            int index = 0;
+            while ( index < searched.length && body[start + index] == searched[index] )
+                index++;
+            if ( index == searched.length )
+                return true;
+        }
+        return false;
+    }
+
+    private SharedBackendResponse receiveCompleteResponse( HttpUriRequest backendRequest )
+                    throws IOException {
+        CloseableHttpResponse backendResponse = connectionPool.getHttpClient().execute( backendRequest );
+        try {
+            boolean isContentDecoded = isContentDecoded( backendRequest, backendResponse );
+            ResponseBodyBuffer body = responseBodyBufferFactory.createBuffer();
+            try {
+                HttpEntity entity = retrieveEntity( backendResponse, isContentDecoded );
+                if ( entity != null ) {
+                    body.presize( entity.getContentLength() );
+                    IOUtils.copyLarge( entity.getContent(), body );
+                }
+            } catch ( IOException e ) {
+                body.release();
+                throw e;
+            }
+            return new SharedBackendResponse( backendResponse.getStatusLine().getStatusCode(),
+                                              retainEndToEndHeaders( backendResponse, isContentDecoded ), body );
+        } finally {
+            backendResponse.close();
+        }
+    }
+
+    private boolean isCacheableCapabilitiesRequest( HttpServletRequest request ) {
+        if ( !capabilitiesCache.isEnabled() || !"GET".equals( request.getMethod() ) || hasBody( request ) )
+            return false;
+        String queryString = request.getQueryString();
+        // the response to a request with updateSequence depends on the value
+        return "GetCapabilities".equalsIgnoreCase( retrieveParameterValue( queryString, "request" ) )
+               && retrieveParameterValue( queryString, "updateSequence" ) == null;
+    }
+
+    private boolean isCoalescable( HttpServletRequest request ) {
+        return requestCoalescer.isEnabled() && "GET".equals( request.getMethod() ) && !hasBody( request )
+               && !isConditional( request );
+    }
+
+    // the response to a conditional request (e.g. 304 Not Modified) must not be shared with other clients
+    private boolean isConditional( HttpServletRequest request ) {
+        for ( String conditionalHeader : CLIENT_CONDITIONAL_HEADERS ) {
+            if ( request.getHeader( conditionalHeader ) != null )
+                return true;
+        }
+        return false;
+    }
+
+    String createCoalescingKey( String serviceUrl, String queryString ) {
+        List<String> parameters = new ArrayList<String>();
+        if ( queryString != null ) {
+            for ( String parameter : queryString.split( "&" ) ) {
+                if ( parameter.startsWith( "?" ) )
+                    parameter = parameter.substring( 1 );
+                if ( !parameter.isEmpty() )
+                    parameters.add( normalizeParameterName( parameter ) );
+            }
+        }
+        // stable sort, the order of the values of repeated parameters is kept
+        Collections.sort( parameters, PARAMETER_NAME_COMPARATOR );
+        StringBuilder key = new StringBuilder( serviceUrl ).append( '\n' );
+        for ( String parameter : parameters ) {
+            key.append( parameter ).append( '&' );
+        }
+        return key.toString();
+    }
+
+    private static String retrieveParameterValue( String queryString, String name ) {
+        if ( queryString == null )
+            return null;
+        for ( String parameter : queryString.split( "&" ) ) {
+            if ( parameter.startsWith( "?" ) )
+                parameter = parameter.substring( 1 );
+            String parameterName = parameterName( parameter );
+            if ( parameterName.equalsIgnoreCase( name ) )
+                return parameter.length() > parameterName.length() ? parameter.substring( parameterName.length() + 1 )
+                                                                    : "";
+        }
+        return null;
+    }
+
+    private static String normalizeParameterName( String parameter ) {
+        String name = parameterName( parameter );
+        return name.toLowerCase() + parameter.substring( name.length() );
+    }
+
+    private static String parameterName( String parameter ) {
+        int indexOfEquals = parameter.indexOf( '=' );
+        if ( indexOfEquals < 0 )
+            return parameter;
+        return parameter.substring( 0, indexOfEquals );
+    }
+
+    private HttpUriRequest createBackendRequest( HttpServletRequest request, String serviceUrl )
+                    throws IOException {
+        RequestBuilder builder = RequestBuilder.create( request.getMethod() );
+        builder.setUri( createBackendUri( serviceUrl, request.getQueryString() ) );
+        copyRequestHeaders( request, builder );
+        // the response filters expect an uncompressed body, compressed bodies are passed through only
+        if ( !TRUE.equals( request.getAttribute( REQUEST_ATTRIBUTE_PASS_THROUGH ) ) )
+            builder.removeHeaders( ACCEPT_ENCODING );
+        if ( hasBody( request ) )
+            builder.setEntity( createEntity( request ) );
+        return builder.build();
+    }
+
+    private HttpUriRequest createCapabilitiesBackendRequest( HttpServletRequest request, String serviceUrl )
+                    throws IOException {
+        RequestBuilder builder = RequestBuilder.copy( createBackendRequest( request, serviceUrl ) );
+        for ( String conditionalHeader : CLIENT_CONDITIONAL_HEADERS ) {
+            builder.removeHeaders( conditionalHeader );
+        }
+        // the cached capabilities document is served to all clients
+        builder.removeHeaders( ACCEPT_ENCODING );
+        return builder.build();
+    }
+
+    String createBackendUri( String serviceUrl, String queryString ) {
+        String query = queryString;
+        if ( query != null && query.startsWith( "?" ) )
+            query = query.substring( 1 );
+        if ( query == null || query.isEmpty() )
+            return serviceUrl;
+        StringBuilder uri = new StringBuilder( serviceUrl );
+        if ( serviceUrl.indexOf( '?' ) < 0 )
+            uri.append( '?' );
+        else if ( !serviceUrl.endsWith( "?" ) && !serviceUrl.endsWith( "&" ) )
+            uri.append( '&' );
+        return uri.append( query ).toString();
+    }
+
+    private void copyRequestHeaders( HttpServletRequest request, RequestBuilder builder ) {
+        Enumeration<?> headerNames = request.getHeaderNames();
+        if ( headerNames == null )
+            return;
+        while ( headerNames.hasMoreElements() ) {
+            String headerName = (String) headerNames.nextElement();
+            String lowerCaseName = headerName.toLowerCase();
+            if ( HOP_BY_HOP_HEADERS.contains( lowerCaseName ) || SKIPPED_REQUEST_HEADERS.contains( lowerCaseName )
+                 || isCredentialHeader( headerName ) )
+                continue;
+            Enumeration<?> values = request.getHeaders( headerName );
+            while ( values != null && values.hasMoreElements() )
+                builder.addHeader( headerName, (String) values.nextElement() );
+        }
+    }
+
+    private boolean isCredentialHeader( String headerName ) {
+        return CLIENT_CREDENTIAL_HEADERS.contains( headerName.toLowerCase() )
+               || headerName.equalsIgnoreCase( accessTokenHeaderName );
+    }
+
+    private boolean hasBody( HttpServletRequest request ) {
+        return request.getContentLength() > 0 || request.getHeader( "Transfer-Encoding" ) != null;
+    }
+
+    private HttpEntity createEntity( HttpServletRequest request )
+                    throws IOException {
+        // the content type is copied with the request headers, an unknown length is sent chunked
+        return new InputStreamEntity( request.getInputStream(), request.getContentLength() );
+    }
+
+    private void copyResponse( HttpUriRequest backendRequest, CloseableHttpResponse backendResponse,
+                               HttpServletResponse response )
+                    throws IOException {
+        boolean isContentDecoded = isContentDecoded( backendRequest, backendResponse );
+        response.setStatus( backendResponse.getStatusLine().getStatusCode() );
+        for ( Header header : retainEndToEndHeaders( backendResponse, isContentDecoded ) ) {
+            response.addHeader( header.getName(), header.getValue() );
+        }
+        HttpEntity entity = retrieveEntity( backendResponse, isContentDecoded );
+        if ( entity == null )
+            return;
+        InputStream content = entity.getContent();
+        OutputStream out = response.getOutputStream();
+        IOUtils.copyLarge( content, out );
+        out.flush();
+    }
+
+    private List<Header> retainEndToEndHeaders( CloseableHttpResponse backendResponse, boolean isContentDecoded ) {
+        List<Header> headers = new ArrayList<Header>();
+        for ( Header header : backendResponse.getAllHeaders() ) {
+            String lowerCaseName = header.getName().toLowerCase();
+            if ( HOP_BY_HOP_HEADERS.contains( lowerCaseName ) )
+                continue;
+            if ( isContentDecoded && ( "content-encoding".equals( lowerCaseName )
+                                       || "content-length".equals( lowerCaseName ) ) )
+                continue;
+            headers.add( header );
+        }
+        return headers;
+    }
+
+    // a backend service may compress the response although the request did not accept it
+    private boolean isContentDecoded( HttpUriRequest backendRequest, HttpResponse backendResponse ) {
+        if ( backendRequest.containsHeader( ACCEPT_ENCODING ) || backendResponse.getEntity() == null )
+            return false;
+        Header contentEncoding = backendResponse.getFirstHeader( "Content-Encoding" );
+        return contentEncoding != null
+               && DECODED_CONTENT_CODINGS.contains( contentEncoding.getValue().trim().toLowerCase() );
+    }
+
+    private HttpEntity retrieveEntity( HttpResponse backendResponse, boolean isContentDecoded ) {
+        HttpEntity entity = backendResponse.getEntity();
+        if ( !isContentDecoded )
+            return entity;
+        String contentCoding = backendResponse.getFirstHeader( "Content-Encoding" ).getValue().trim();
+        LOG.debug( "Decode response body with content coding " + contentCoding );
+        if ( "deflate".equalsIgnoreCase( contentCoding ) )
+            return new DeflateDecompressingEntity( entity );
+        return new GzipDecompressingEntity( entity );
+    }
+
+    private void handleBackendFailure( HttpServletResponse response, HttpUriRequest backendRequest, IOException e )
+                    throws IOException {
+        LOG.warn( "Request to backend service " + backendRequest.getURI() + " failed: " + e.getMessage() );
+        LOG.trace( "Request to backend service failed!", e );
+        if ( response.isCommitted() )
+            throw e;
+        response.sendError( retrieveStatusCode( e ), "Backend service is not available!" );
+    }
+
+    private int retrieveStatusCode( IOException e ) {
+        if ( e instanceof ConnectionPoolTimeoutException )
+            return SC_SERVICE_UNAVAILABLE;
+        if ( e instanceof ConnectTimeoutException || e instanceof SocketTimeoutException )
+            return SC_GATEWAY_TIMEOUT;
+        return SC_BAD_GATEWAY;
+    }
+
+}
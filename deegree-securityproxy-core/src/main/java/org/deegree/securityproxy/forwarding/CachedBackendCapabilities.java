@@ -0,0 +1,177 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.forwarding;
+
+import static javax.servlet.http.HttpServletResponse.SC_OK;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.http.Header;
+
+/**
+ * Unfiltered capabilities document of a backend service stored in the {@link BackendCapabilitiesCache}, including the
+ * validators required to revalidate the document: ETag, Last-Modified and the OGC updateSequence. Only the
+ * representation headers are stored, headers describing the exchange with a single client (e.g. Set-Cookie or Date)
+ * are never served from the cache.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class CachedBackendCapabilities {
+
+    private static final Set<String> REPRESENTATION_HEADERS = new HashSet<String>(
+                    Arrays.asList( "content-type", "etag", "last-modified", "content-language" ) );
+
+    private final List<Header> headers;
+
+    private final byte[] body;
+
+    private final String updateSequence;
+
+    private final long validatedAt;
+
+    /**
+     * @param headers
+     *            the end-to-end headers of the backend response, only Content-Type, ETag, Last-Modified and
+     *            Content-Language are stored, never <code>null</code>
+     * @param body
+     *            the capabilities document, must not be modified afterwards, never <code>null</code>
+     * @param updateSequence
+     *            the updateSequence of the capabilities document, may be <code>null</code> if not available
+     */
+    public CachedBackendCapabilities( List<Header> headers, byte[] body, String updateSequence ) {
+        this( retainRepresentationHeaders( headers ), body, updateSequence, 0 );
+    }
+
+    private CachedBackendCapabilities( List<Header> headers, byte[] body, String updateSequence, long validatedAt ) {
+        this.headers = headers;
+        this.body = body;
+        this.updateSequence = updateSequence;
+        this.validatedAt = validatedAt;
+    }
+
+    /**
+     * @param now
+     *            the time in milliseconds the document was received or confirmed to be unchanged by the backend
+     *            service
+     * @return a copy of this document validated at the passed time, never <code>null</code>
+     */
+    CachedBackendCapabilities validatedAt( long now ) {
+        return new CachedBackendCapabilities( headers, body, updateSequence, now );
+    }
+
+    /**
+     * Writes status (200), headers and the document to the passed response.
+     * 
+     * @param response
+     *            the response to write in, never <code>null</code>
+     * @throws IOException
+     *             if writing the document failed
+     */
+    public void writeTo( HttpServletResponse response )
+                    throws IOException {
+        response.setStatus( SC_OK );
+        for ( Header header : headers ) {
+            response.addHeader( header.getName(), header.getValue() );
+        }
+        OutputStream out = response.getOutputStream();
+        out.write( body );
+        out.flush();
+    }
+
+    /**
+     * @return the value of the ETag header, <code>null</code> if the backend service did not send one
+     */
+    public String getETag() {
+        return retrieveHeader( "ETag" );
+    }
+
+    /**
+     * @return the value of the Last-Modified header, <code>null</code> if the backend service did not send one
+     */
+    public String getLastModified() {
+        return retrieveHeader( "Last-Modified" );
+    }
+
+    /**
+     * @return the updateSequence of the capabilities document, <code>null</code> if not available
+     */
+    public String getUpdateSequence() {
+        return updateSequence;
+    }
+
+    /**
+     * @return the time in milliseconds the document was received or validated by the backend service, 0 if the
+     *         document was not stored in the {@link BackendCapabilitiesCache} yet
+     */
+    public long getValidatedAt() {
+        return validatedAt;
+    }
+
+    /**
+     * @return the capabilities document, must not be modified, never <code>null</code>
+     */
+    public byte[] getBody() {
+        return body;
+    }
+
+    private static List<Header> retainRepresentationHeaders( List<Header> headers ) {
+        List<Header> representationHeaders = new ArrayList<Header>();
+        for ( Header header : headers ) {
+            if ( REPRESENTATION_HEADERS.contains( header.getName().toLowerCase() ) )
+                representationHeaders.add( header );
+        }
+        return representationHeaders;
+    }
+
+    private String retrieveHeader( String name ) {
+        for ( Header header : headers ) {
+            if ( name.equalsIgnoreCase( header.getName() ) )
+                return header.getValue();
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,233 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.forwarding;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lets concurrent identical requests share a single backend request: The first request with a key is sent to the
+ * backend service, requests with the same key arriving before the response was received wait for this response
+ * instead of sending their own request. Requests arriving later start a new backend request. A request waits at most
+ * the configured time, afterwards it sends its own backend request.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class RequestCoalescer implements RequestCoalescerMBean {
+
+    private final ConcurrentMap<String, InFlightRequest> inFlightRequests = new ConcurrentHashMap<String, InFlightRequest>();
+
+    private final AtomicLong backendRequests = new AtomicLong();
+
+    private final AtomicLong coalescedRequests = new AtomicLong();
+
+    private final AtomicLong timedOutRequests = new AtomicLong();
+
+    private final boolean isEnabled;
+
+    private final long maxWaitTime;
+
+    /**
+     * Instantiates an enabled {@link RequestCoalescer} waiting at most 10 seconds for the response of another request.
+     */
+    public RequestCoalescer() {
+        this( true );
+    }
+
+    /**
+     * Instantiates a {@link RequestCoalescer} waiting at most 10 seconds for the response of another request.
+     * 
+     * @param isEnabled
+     *            <code>true</code> if identical requests should be coalesced, <code>false</code> if each request
+     *            should be sent to the backend service
+     */
+    public RequestCoalescer( boolean isEnabled ) {
+        this( isEnabled, 10000 );
+    }
+
+    /**
+     * @param isEnabled
+     *            <code>true</code> if identical requests should be coalesced, <code>false</code> if each request
+     *            should be sent to the backend service
+     * @param maxWaitTime
+     *            the maximum time in milliseconds to wait for the response of an identical request before sending an
+     *            own backend request, must be positive
+     */
+    public RequestCoalescer( boolean isEnabled, long maxWaitTime ) {
+        if ( maxWaitTime <= 0 )
+            throw new IllegalArgumentException( "The maximum wait time must be positive!" );
+        this.isEnabled = isEnabled;
+        this.maxWaitTime = maxWaitTime;
+    }
+
+    /**
+     * Executes the passed call or waits for the response of the call currently executed with the same key.
+     * 
+     * @param key
+     *            identifies identical requests, never <code>null</code>
+     * @param call
+     *            sends the request to the backend service if no identical request is in progress, never
+     *            <code>null</code>
+     * @return the response, referenced for the caller, which must invoke {@link SharedBackendResponse#release()}
+     *         after usage, never <code>null</code>
+     * @throws IOException
+     *             if the backend request (sent by this or another caller) failed
+     */
+    public SharedBackendResponse execute( String key, BackendCall call )
+                    throws IOException {
+        if ( !isEnabled )
+            return executeBackendCall( call );
+        while ( true ) {
+            InFlightRequest inFlightRequest = new InFlightRequest();
+            InFlightRequest runningRequest = inFlightRequests.putIfAbsent( key, inFlightRequest );
+            if ( runningRequest == null )
+                return executeAndPublish( key, call, inFlightRequest );
+            SharedBackendResponse response = runningRequest.await( maxWaitTime );
+            // the identical request takes too long, the response is not shared with other callers
+            if ( response == null ) {
+                timedOutRequests.incrementAndGet();
+                return executeBackendCall( call );
+            }
+            // the response was already released if all other callers are finished, another request is required
+            if ( response.retain() ) {
+                coalescedRequests.incrementAndGet();
+                return response;
+            }
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return isEnabled;
+    }
+
+    @Override
+    public int getInFlightRequests() {
+        return inFlightRequests.size();
+    }
+
+    @Override
+    public long getBackendRequests() {
+        return backendRequests.get();
+    }
+
+    @Override
+    public long getCoalescedRequests() {
+        return coalescedRequests.get();
+    }
+
+    @Override
+    public long getTimedOutRequests() {
+        return timedOutRequests.get();
+    }
+
+    private SharedBackendResponse executeAndPublish( String key, BackendCall call, InFlightRequest inFlightRequest )
+                    throws IOException {
+        try {
+            SharedBackendResponse response = executeBackendCall( call );
+            inFlightRequest.complete( response, null );
+            return response;
+        } catch ( IOException e ) {
+            inFlightRequest.complete( null, e );
+            throw e;
+        } catch ( RuntimeException e ) {
+            inFlightRequest.complete( null, new IOException( "Backend request failed", e ) );
+            throw e;
+        } finally {
+            inFlightRequests.remove( key, inFlightRequest );
+        }
+    }
+
+    private SharedBackendResponse executeBackendCall( BackendCall call )
+                    throws IOException {
+        backendRequests.incrementAndGet();
+        return call.execute();
+    }
+
+    /**
+     * Sends a request to a backend service.
+     */
+    public interface BackendCall {
+
+        /**
+         * @return the complete response of the backend service, never <code>null</code>
+         * @throws IOException
+         *             if the request failed
+         */
+        SharedBackendResponse execute()
+                        throws IOException;
+
+    }
+
+    private static class InFlightRequest {
+
+        private final CountDownLatch completed = new CountDownLatch( 1 );
+
+        private SharedBackendResponse response;
+
+        private IOException failure;
+
+        private void complete( SharedBackendResponse response, IOException failure ) {
+            this.response = response;
+            this.failure = failure;
+            completed.countDown();
+        }
+
+        private SharedBackendResponse await( long maxWaitTime )
+                        throws IOException {
+            try {
+                if ( !completed.await( maxWaitTime, MILLISECONDS ) )
+                    return null;
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException( "Interrupted while waiting for the backend response" );
+            }
+            if ( failure != null )
+                throw failure;
+            return response;
+        }
+
+    }
+
+}
@@ -0,0 +1,159 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.forwarding;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.http.Header;
+import org.deegree.securityproxy.filter.ResponseBodyBuffer;
+
+/**
+ * Completely received response of a backend service which can be written to the responses of multiple clients. The
+ * body is released when the last client invoked {@link #release()}. A Set-Cookie header of the backend service is
+ * never written, the cookie must not be passed to all clients sharing the response.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class SharedBackendResponse {
+
+    private final int statusCode;
+
+    private final List<Header> headers;
+
+    private final ResponseBodyBuffer body;
+
+    private int references = 1;
+
+    /**
+     * Instantiates a {@link SharedBackendResponse} referenced by the client which received it.
+     * 
+     * @param statusCode
+     *            the status code of the response
+     * @param headers
+     *            the end-to-end headers of the response, never <code>null</code>
+     * @param body
+     *            the complete body of the response, never <code>null</code>
+     */
+    public SharedBackendResponse( int statusCode, List<Header> headers, ResponseBodyBuffer body ) {
+        this.statusCode = statusCode;
+        this.headers = headers;
+        this.body = body;
+    }
+
+    /**
+     * Adds a reference of another client, each successful invocation must be followed by {@link #release()}.
+     * 
+     * @return <code>true</code> if the response can be used, <code>false</code> if it was already released by all
+     *         clients
+     */
+    public synchronized boolean retain() {
+        if ( references == 0 )
+            return false;
+        references++;
+        return true;
+    }
+
+    /**
+     * Removes the reference of a client, the body is released with the last reference.
+     */
+    public void release() {
+        synchronized ( this ) {
+            if ( references == 0 || --references > 0 )
+                return;
+        }
+        body.release();
+    }
+
+    /**
+     * Writes status, headers (except Set-Cookie) and body to the passed response.
+     * 
+     * @param response
+     *            the response to write in, never <code>null</code>
+     * @throws IOException
+     *             if writing the body failed
+     */
+    public void writeTo( HttpServletResponse response )
+                    throws IOException {
+        response.setStatus( statusCode );
+        for ( Header header : headers ) {
+            if ( !"Set-Cookie".equalsIgnoreCase( header.getName() ) )
+                response.addHeader( header.getName(), header.getValue() );
+        }
+        if ( body.size() > 0 ) {
+            OutputStream out = response.getOutputStream();
+            body.writeTo( out );
+            out.flush();
+        }
+    }
+
+    /**
+     * @return the status code of the response
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * @return all end-to-end headers of the response, including Set-Cookie, never <code>null</code>
+     */
+    public List<Header> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * @return a copy of the body, may be empty but never <code>null</code>
+     * @throws IOException
+     *             if the body could not be read
+     */
+    public byte[] getBodyAsByteArray()
+                    throws IOException {
+        return body.toByteArray();
+    }
+
+    /**
+     * @return the size of the body in bytes
+     */
+    public long getBodySize() {
+        return body.size();
+    }
+
+}
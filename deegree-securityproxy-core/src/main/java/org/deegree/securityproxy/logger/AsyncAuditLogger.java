@@ -0,0 +1,324 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.logger;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.deegree.securityproxy.logger.AuditOverflowPolicy.BLOCK;
+import static org.deegree.securityproxy.logger.AuditOverflowPolicy.SAMPLE;
+import static org.deegree.securityproxy.logger.AuditRingBuffer.FULL;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.log4j.Logger;
+import org.deegree.securityproxy.report.SecurityReport;
+import org.deegree.securityproxy.responsefilter.logging.ResponseFilterReport;
+
+/**
+ * Hands off the reports to a background thread writing them with the configured loggers, the request threads do not
+ * wait for the log output. The reports are passed through a bounded {@link AuditRingBuffer}, the
+ * {@link AuditOverflowPolicy} decides what happens if it is full. Loggers implementing {@link Flushable} are flushed
+ * whenever the buffer is drained. The background thread is parked while the buffer is empty and unparked by the request
+ * thread publishing the next record. The time of a report is taken by the request thread, loggers implementing
+ * {@link TimestampedReportLogger} write this time instead of the time the record leaves the buffer.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class AsyncAuditLogger implements SecurityRequestResponseLogger, ResponseFilterReportLogger,
+                AsyncAuditLoggerMBean {
+
+    private static final Logger LOG = Logger.getLogger( AsyncAuditLogger.class );
+
+    private static final long BLOCKED_PARK_NANOS = 50000;
+
+    private static final long CLOSE_TIMEOUT = SECONDS.toMillis( 10 );
+
+    private final SecurityRequestResponseLogger proxyReportLogger;
+
+    private final ResponseFilterReportLogger filterReportLogger;
+
+    private final AuditRingBuffer buffer;
+
+    private final AuditOverflowPolicy overflowPolicy;
+
+    private final int sampleRate;
+
+    private final AtomicLong sampleCounter = new AtomicLong();
+
+    private final AtomicLong writtenRecords = new AtomicLong();
+
+    private final AtomicLong droppedRecords = new AtomicLong();
+
+    private final AtomicLong failedRecords = new AtomicLong();
+
+    private final Thread writer;
+
+    private volatile boolean isRunning = true;
+
+    private volatile boolean isWriterParked;
+
+    /**
+     * Instantiates an {@link AsyncAuditLogger} writing both kinds of reports with the same logger, buffering 8192
+     * records and blocking the request threads if the buffer is full.
+     * 
+     * @param logger
+     *            writing the reports, never <code>null</code>
+     */
+    public <T extends SecurityRequestResponseLogger & ResponseFilterReportLogger> AsyncAuditLogger( T logger ) {
+        this( logger, logger, 8192, BLOCK, 1 );
+    }
+
+    /**
+     * @param proxyReportLogger
+     *            writing the {@link SecurityReport}s, never <code>null</code>
+     * @param filterReportLogger
+     *            writing the {@link ResponseFilterReport}s, never <code>null</code>
+     * @param capacity
+     *            the number of records buffered, rounded up to the next power of two, must be positive
+     * @param overflowPolicy
+     *            applied if the buffer is full, never <code>null</code>
+     * @param sampleRate
+     *            keep every n-th record if the policy is {@link AuditOverflowPolicy#SAMPLE} and the buffer is more
+     *            than half full, must be positive
+     * @throws IllegalArgumentException
+     *             if one of the loggers or the policy is <code>null</code> or capacity or sample rate are not positive
+     */
+    public AsyncAuditLogger( SecurityRequestResponseLogger proxyReportLogger,
+                             ResponseFilterReportLogger filterReportLogger, int capacity,
+                             AuditOverflowPolicy overflowPolicy, int sampleRate ) {
+        if ( proxyReportLogger == null || filterReportLogger == null )
+            throw new IllegalArgumentException( "Loggers must not be null!" );
+        if ( overflowPolicy == null )
+            throw new IllegalArgumentException( "Overflow policy must not be null!" );
+        if ( sampleRate <= 0 )
+            throw new IllegalArgumentException( "Sample rate must be positive!" );
+        this.proxyReportLogger = proxyReportLogger;
+        this.filterReportLogger = filterReportLogger;
+        this.buffer = new AuditRingBuffer( capacity );
+        this.overflowPolicy = overflowPolicy;
+        this.sampleRate = sampleRate;
+        this.writer = new Thread( new Runnable() {
+            @Override
+            public void run() {
+                writeRecords();
+            }
+        }, "audit-logger" );
+        this.writer.setDaemon( true );
+        this.writer.start();
+    }
+
+    @Override
+    public void logProxyReportInfo( SecurityReport report, String serialUuid )
+                            throws IllegalArgumentException {
+        if ( report == null )
+            throw new IllegalArgumentException( "ProxyReport must not be null!" );
+        long time = System.currentTimeMillis();
+        long sequence = claim();
+        if ( sequence != FULL ) {
+            buffer.get( sequence ).setProxyReport( report, serialUuid, time );
+            buffer.publish( sequence );
+            signalWriter();
+        }
+    }
+
+    @Override
+    public void logResponseFilterReport( ResponseFilterReport report, String serialUuid )
+                            throws IllegalArgumentException {
+        if ( report == null )
+            throw new IllegalArgumentException( "ResponseFilterReport must not be null!" );
+        long time = System.currentTimeMillis();
+        long sequence = claim();
+        if ( sequence != FULL ) {
+            buffer.get( sequence ).setFilterReport( report, serialUuid, time );
+            buffer.publish( sequence );
+            signalWriter();
+        }
+    }
+
+    /**
+     * Writes all buffered records, including records claimed but not yet published by a request thread, and stops the
+     * background thread. Records handed off afterwards are dropped.
+     */
+    public void close() {
+        isRunning = false;
+        LockSupport.unpark( writer );
+        try {
+            writer.join( CLOSE_TIMEOUT );
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        }
+        if ( writer.isAlive() )
+            LOG.warn( buffer.getSize() + " audit records could not be written before shutdown." );
+    }
+
+    @Override
+    public String getOverflowPolicy() {
+        return overflowPolicy.name();
+    }
+
+    @Override
+    public int getCapacity() {
+        return buffer.getCapacity();
+    }
+
+    @Override
+    public int getPendingRecords() {
+        return buffer.getSize();
+    }
+
+    @Override
+    public long getWrittenRecords() {
+        return writtenRecords.get();
+    }
+
+    @Override
+    public long getDroppedRecords() {
+        return droppedRecords.get();
+    }
+
+    @Override
+    public long getFailedRecords() {
+        return failedRecords.get();
+    }
+
+    private long claim() {
+        if ( !isRunning ) {
+            droppedRecords.incrementAndGet();
+            return FULL;
+        }
+        if ( overflowPolicy == SAMPLE && !isSampled() ) {
+            droppedRecords.incrementAndGet();
+            return FULL;
+        }
+        long sequence = buffer.tryClaim();
+        while ( sequence == FULL && overflowPolicy == BLOCK && isRunning ) {
+            LockSupport.parkNanos( this, BLOCKED_PARK_NANOS );
+            sequence = buffer.tryClaim();
+        }
+        if ( sequence == FULL )
+            droppedRecords.incrementAndGet();
+        return sequence;
+    }
+
+    private boolean isSampled() {
+        if ( buffer.getSize() <= buffer.getCapacity() / 2 )
+            return true;
+        return sampleCounter.incrementAndGet() % sampleRate == 0;
+    }
+
+    private void signalWriter() {
+        if ( isWriterParked )
+            LockSupport.unpark( writer );
+    }
+
+    private void writeRecords() {
+        boolean isFlushRequired = false;
+        // after close the records claimed before are written, the producers publish them and unpark the writer
+        while ( isRunning || !buffer.isEmpty() ) {
+            AuditRecord record = buffer.peek();
+            if ( record == null ) {
+                if ( isFlushRequired ) {
+                    flush();
+                    isFlushRequired = false;
+                }
+                awaitRecord();
+            } else {
+                write( record );
+                buffer.release();
+                isFlushRequired = true;
+            }
+        }
+        flush();
+    }
+
+    private void awaitRecord() {
+        isWriterParked = true;
+        // a record published before the flag was set did not unpark the writer
+        if ( buffer.peek() == null && ( isRunning || !buffer.isEmpty() ) )
+            LockSupport.park( this );
+        isWriterParked = false;
+    }
+
+    private void write( AuditRecord record ) {
+        try {
+            if ( record.proxyReport != null )
+                writeProxyReport( record );
+            else
+                writeFilterReport( record );
+            writtenRecords.incrementAndGet();
+        } catch ( RuntimeException e ) {
+            failedRecords.incrementAndGet();
+            LOG.error( "Audit record could not be written: " + e.getMessage() );
+        }
+    }
+
+    private void writeProxyReport( AuditRecord record ) {
+        if ( proxyReportLogger instanceof TimestampedReportLogger )
+            ( (TimestampedReportLogger) proxyReportLogger ).logProxyReportInfo( record.proxyReport, record.serialUuid,
+                                                                                record.time );
+        else
+            proxyReportLogger.logProxyReportInfo( record.proxyReport, record.serialUuid );
+    }
+
+    private void writeFilterReport( AuditRecord record ) {
+        if ( filterReportLogger instanceof TimestampedReportLogger )
+            ( (TimestampedReportLogger) filterReportLogger ).logResponseFilterReport( record.filterReport,
+                                                                                      record.serialUuid, record.time );
+        else
+            filterReportLogger.logResponseFilterReport( record.filterReport, record.serialUuid );
+    }
+
+    private void flush() {
+        flush( proxyReportLogger );
+        if ( filterReportLogger != proxyReportLogger )
+            flush( filterReportLogger );
+    }
+
+    private void flush( Object logger ) {
+        if ( logger instanceof Flushable ) {
+            try {
+                ( (Flushable) logger ).flush();
+            } catch ( IOException e ) {
+                LOG.error( "Audit records could not be flushed: " + e.getMessage() );
+            }
+        }
+    }
+
+}
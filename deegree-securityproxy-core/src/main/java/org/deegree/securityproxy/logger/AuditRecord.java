@@ -0,0 +1,80 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.logger;
+
+import org.deegree.securityproxy.report.SecurityReport;
+import org.deegree.securityproxy.responsefilter.logging.ResponseFilterReport;
+
+/**
+ * Slot of the {@link AuditRingBuffer}, reused for all records passing the slot. Contains either a
+ * {@link SecurityReport} or a {@link ResponseFilterReport} and the time it was reported.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+final class AuditRecord {
+
+    SecurityReport proxyReport;
+
+    ResponseFilterReport filterReport;
+
+    String serialUuid;
+
+    // taken by the request thread, the record may be written much later
+    long time;
+
+    void setProxyReport( SecurityReport report, String serialUuid, long time ) {
+        this.proxyReport = report;
+        this.filterReport = null;
+        this.serialUuid = serialUuid;
+        this.time = time;
+    }
+
+    void setFilterReport( ResponseFilterReport report, String serialUuid, long time ) {
+        this.proxyReport = null;
+        this.filterReport = report;
+        this.serialUuid = serialUuid;
+        this.time = time;
+    }
+
+    void clear() {
+        this.proxyReport = null;
+        this.filterReport = null;
+        this.serialUuid = null;
+    }
+
+}
@@ -0,0 +1,178 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.logger;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free buffer handing off {@link AuditRecord}s from many producers to a single consumer. The slots are
+ * allocated once and reused, each slot carries the sequence number of the record it is ready for (see the bounded
+ * MPMC queue of Dmitry Vyukov).
+ * 
+ * Producers {@link #tryClaim()} a sequence, fill the record returned by {@link #get(long)} and {@link #publish(long)}
+ * it. The consumer reads the next record with {@link #peek()} and hands the slot back with {@link #release()}.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+final class AuditRingBuffer {
+
+    static final long FULL = -1;
+
+    private final AuditRecord[] records;
+
+    private final AtomicLongArray sequences;
+
+    private final int mask;
+
+    private final AtomicLong claimSequence = new AtomicLong();
+
+    private final AtomicLong consumeSequence = new AtomicLong();
+
+    /**
+     * @param capacity
+     *            the minimal number of records the buffer can hold, rounded up to the next power of two (at least 2),
+     *            must be positive
+     * @throws IllegalArgumentException
+     *             if the capacity is not positive or too large
+     */
+    AuditRingBuffer( int capacity ) {
+        if ( capacity <= 0 || capacity > 1 << 30 )
+            throw new IllegalArgumentException( "Capacity of the audit buffer must be between 1 and 2^30!" );
+        // with a single slot the sequence of a published record equals the sequence of the free slot of the next round
+        int size = Math.max( 2, Integer.highestOneBit( capacity ) );
+        if ( size < capacity )
+            size <<= 1;
+        this.records = new AuditRecord[size];
+        this.sequences = new AtomicLongArray( size );
+        for ( int index = 0; index < size; index++ ) {
+            records[index] = new AuditRecord();
+            sequences.set( index, index );
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * @return the claimed sequence or {@link #FULL} if all slots are in use
+     */
+    long tryClaim() {
+        while ( true ) {
+            long sequence = claimSequence.get();
+            long slotSequence = sequences.get( indexOf( sequence ) );
+            if ( slotSequence < sequence )
+                return FULL;
+            if ( slotSequence == sequence && claimSequence.compareAndSet( sequence, sequence + 1 ) )
+                return sequence;
+        }
+    }
+
+    /**
+     * @param sequence
+     *            a sequence claimed with {@link #tryClaim()}
+     * @return the record to fill, never <code>null</code>
+     */
+    AuditRecord get( long sequence ) {
+        return records[indexOf( sequence )];
+    }
+
+    /**
+     * Makes the record of the claimed sequence visible to the consumer. The volatile write is ordered before any
+     * subsequent read of the producer, e.g. of a flag signalling that the consumer is parked.
+     * 
+     * @param sequence
+     *            a sequence claimed with {@link #tryClaim()}
+     */
+    void publish( long sequence ) {
+        sequences.set( indexOf( sequence ), sequence + 1 );
+    }
+
+    /**
+     * Must be invoked by the consumer thread only.
+     * 
+     * @return the next published record, <code>null</code> if there is none
+     */
+    AuditRecord peek() {
+        long sequence = consumeSequence.get();
+        int index = indexOf( sequence );
+        if ( sequences.get( index ) != sequence + 1 )
+            return null;
+        return records[index];
+    }
+
+    /**
+     * Clears the record returned by the last {@link #peek()} and hands the slot back to the producers. Must be invoked
+     * by the consumer thread only.
+     */
+    void release() {
+        long sequence = consumeSequence.get();
+        int index = indexOf( sequence );
+        records[index].clear();
+        sequences.lazySet( index, sequence + records.length );
+        consumeSequence.lazySet( sequence + 1 );
+    }
+
+    /**
+     * Must be invoked by the consumer thread only.
+     * 
+     * @return <code>true</code> if all claimed records were released, <code>false</code> if a record is published or
+     *         claimed but not yet published
+     */
+    boolean isEmpty() {
+        return claimSequence.get() == consumeSequence.get();
+    }
+
+    /**
+     * @return the number of slots, a power of two
+     */
+    int getCapacity() {
+        return records.length;
+    }
+
+    /**
+     * @return the number of claimed but not yet released records, an estimate if producers or the consumer are active
+     */
+    int getSize() {
+        long size = claimSequence.get() - consumeSequence.get();
+        return (int) Math.max( 0, Math.min( size, records.length ) );
+    }
+
+    private int indexOf( long sequence ) {
+        return (int) sequence & mask;
+    }
+
+}
@@ -0,0 +1,292 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.logger;
+
+import static java.nio.charset.CodingErrorAction.REPLACE;
+import static java.util.Calendar.DAY_OF_MONTH;
+import static java.util.Calendar.HOUR_OF_DAY;
+import static java.util.Calendar.MILLISECOND;
+import static java.util.Calendar.MINUTE;
+import static java.util.Calendar.MONTH;
+import static java.util.Calendar.SECOND;
+import static java.util.Calendar.YEAR;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+import org.apache.log4j.Logger;
+import org.deegree.securityproxy.report.SecurityReport;
+import org.deegree.securityproxy.responsefilter.logging.ResponseFilterReport;
+
+/**
+ * Writes the reports as JSON objects, one per line, UTF-8 encoded. The line, the characters and the encoded bytes are
+ * assembled in buffers reused for all records, no objects are created per record. The time of each record is the time
+ * it was reported in UTC, which is passed by the {@link AsyncAuditLogger} or taken when the record is written.
+ * 
+ * Example lines:
+ * 
+ * <pre>
+ * {"time":"2014-02-12T10:15:30.123Z","type":"proxy","id":"...","ip":"127.0.0.1","target":"...","successful":true,"message":"..."}
+ * {"time":"2014-02-12T10:15:30.125Z","type":"filter","id":"...","filtered":true,"failed":false,"message":"..."}
+ * </pre>
+ * 
+ * The output is buffered, {@link #flush()} must be invoked to write the records. Intended to be used by a single
+ * thread, e.g. the {@link AsyncAuditLogger}, the methods are synchronized nevertheless.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class JsonLinesAuditLogger implements TimestampedReportLogger, Flushable, Closeable {
+
+    private static final Logger LOG = Logger.getLogger( JsonLinesAuditLogger.class );
+
+    private static final int INITIAL_LINE_LENGTH = 1024;
+
+    private static final int OUTPUT_BUFFER_SIZE = 65536;
+
+    // valid in JSON strings but line breaks for some consumers
+    private static final char LINE_SEPARATOR = 0x2028;
+
+    private static final char PARAGRAPH_SEPARATOR = 0x2029;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final OutputStream out;
+
+    private final StringBuilder line = new StringBuilder( INITIAL_LINE_LENGTH );
+
+    private final CharsetEncoder encoder;
+
+    private final ByteBuffer encoded;
+
+    private final Calendar calendar = new GregorianCalendar( TimeZone.getTimeZone( "UTC" ) );
+
+    private char[] chars = new char[INITIAL_LINE_LENGTH];
+
+    private CharBuffer charBuffer = CharBuffer.wrap( chars );
+
+    /**
+     * @param auditLogFile
+     *            path of the file to append the records to, created if it does not exist, never <code>null</code>
+     * @throws FileNotFoundException
+     *             if the file could not be opened
+     */
+    public JsonLinesAuditLogger( String auditLogFile ) throws FileNotFoundException {
+        this( new FileOutputStream( new File( auditLogFile ), true ) );
+        LOG.info( "Audit records are written to " + auditLogFile );
+    }
+
+    /**
+     * @param out
+     *            the stream to write the records to, closed by {@link #close()}, never <code>null</code>
+     */
+    public JsonLinesAuditLogger( OutputStream out ) {
+        this.out = new BufferedOutputStream( out, OUTPUT_BUFFER_SIZE );
+        Charset utf8 = Charset.forName( "UTF-8" );
+        this.encoder = utf8.newEncoder().onMalformedInput( REPLACE ).onUnmappableCharacter( REPLACE );
+        this.encoded = ByteBuffer.allocate( INITIAL_LINE_LENGTH );
+    }
+
+    @Override
+    public void logProxyReportInfo( SecurityReport report, String serialUuid )
+                            throws IllegalArgumentException {
+        logProxyReportInfo( report, serialUuid, System.currentTimeMillis() );
+    }
+
+    @Override
+    public synchronized void logProxyReportInfo( SecurityReport report, String serialUuid, long time )
+                            throws IllegalArgumentException {
+        if ( report == null )
+            throw new IllegalArgumentException( "ProxyReport must not be null!" );
+        startLine( time, "proxy", serialUuid );
+        appendString( "ip", report.getIpAddressOfRequestingUser() );
+        appendString( "target", report.getTargetUri() );
+        appendBoolean( "successful", report.isResponseSuccessfullySent() );
+        appendString( "message", report.getMessage() );
+        writeLine();
+    }
+
+    @Override
+    public void logResponseFilterReport( ResponseFilterReport report, String serialUuid )
+                            throws IllegalArgumentException {
+        logResponseFilterReport( report, serialUuid, System.currentTimeMillis() );
+    }
+
+    @Override
+    public synchronized void logResponseFilterReport( ResponseFilterReport report, String serialUuid, long time )
+                            throws IllegalArgumentException {
+        if ( report == null )
+            throw new IllegalArgumentException( "ResponseFilterReport must not be null!" );
+        startLine( time, "filter", serialUuid );
+        appendBoolean( "filtered", report.isFiltered() );
+        appendBoolean( "failed", report.isFailed() );
+        appendString( "message", report.getMessage() );
+        writeLine();
+    }
+
+    @Override
+    public synchronized void flush()
+                            throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public synchronized void close()
+                            throws IOException {
+        out.close();
+    }
+
+    private void startLine( long time, String type, String serialUuid ) {
+        line.setLength( 0 );
+        line.append( "{\"time\":\"" );
+        appendTime( time );
+        line.append( '"' );
+        appendString( "type", type );
+        appendString( "id", serialUuid );
+    }
+
+    private void appendTime( long millis ) {
+        calendar.setTimeInMillis( millis );
+        appendDigits( calendar.get( YEAR ), 4 ).append( '-' );
+        appendDigits( calendar.get( MONTH ) + 1, 2 ).append( '-' );
+        appendDigits( calendar.get( DAY_OF_MONTH ), 2 ).append( 'T' );
+        appendDigits( calendar.get( HOUR_OF_DAY ), 2 ).append( ':' );
+        appendDigits( calendar.get( MINUTE ), 2 ).append( ':' );
+        appendDigits( calendar.get( SECOND ), 2 ).append( '.' );
+        appendDigits( calendar.get( MILLISECOND ), 3 ).append( 'Z' );
+    }
+
+    private StringBuilder appendDigits( int value, int minDigits ) {
+        for ( int limit = 10, digits = 1; digits < minDigits; limit *= 10, digits++ ) {
+            if ( value < limit )
+                line.append( '0' );
+        }
+        return line.append( value );
+    }
+
+    private void appendBoolean( String name, boolean value ) {
+        line.append( ",\"" ).append( name ).append( "\":" ).append( value );
+    }
+
+    private void appendString( String name, String value ) {
+        line.append( ",\"" ).append( name ).append( "\":" );
+        if ( value == null ) {
+            line.append( "null" );
+            return;
+        }
+        line.append( '"' );
+        for ( int index = 0; index < value.length(); index++ )
+            appendEscaped( value.charAt( index ) );
+        line.append( '"' );
+    }
+
+    private void appendEscaped( char c ) {
+        switch ( c ) {
+        case '"':
+            line.append( "\\\"" );
+            break;
+        case '\\':
+            line.append( "\\\\" );
+            break;
+        case '\n':
+            line.append( "\\n" );
+            break;
+        case '\r':
+            line.append( "\\r" );
+            break;
+        case '\t':
+            line.append( "\\t" );
+            break;
+        default:
+            if ( c < 0x20 || c == LINE_SEPARATOR || c == PARAGRAPH_SEPARATOR ) {
+                line.append( "\\u" );
+                line.append( HEX_DIGITS[( c >> 12 ) & 0xF] ).append( HEX_DIGITS[( c >> 8 ) & 0xF] );
+                line.append( HEX_DIGITS[( c >> 4 ) & 0xF] ).append( HEX_DIGITS[c & 0xF] );
+            } else {
+                line.append( c );
+            }
+        }
+    }
+
+    private void writeLine() {
+        line.append( "}\n" );
+        int length = line.length();
+        if ( chars.length < length ) {
+            chars = new char[Math.max( length, chars.length * 2 )];
+            charBuffer = CharBuffer.wrap( chars );
+        }
+        line.getChars( 0, length, chars, 0 );
+        charBuffer.clear();
+        charBuffer.limit( length );
+        encoder.reset();
+        try {
+            CoderResult result;
+            do {
+                result = encoder.encode( charBuffer, encoded, true );
+                writeEncoded();
+            } while ( result.isOverflow() );
+            do {
+                result = encoder.flush( encoded );
+                writeEncoded();
+            } while ( result.isOverflow() );
+        } catch ( IOException e ) {
+            throw new IllegalStateException( "Audit record could not be written: " + e.getMessage(), e );
+        }
+    }
+
+    private void writeEncoded()
+                            throws IOException {
+        encoded.flip();
+        out.write( encoded.array(), encoded.arrayOffset(), encoded.limit() );
+        encoded.clear();
+    }
+
+}
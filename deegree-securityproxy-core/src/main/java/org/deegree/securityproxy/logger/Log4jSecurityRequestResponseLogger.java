@@ -3,13 +3,17 @@ package org.deegree.securityproxy.logger;
 import static java.io.File.separator;
 import static java.lang.System.getenv;
 
+import static org.apache.log4j.Level.INFO;
+
 import org.apache.log4j.Logger;
 import org.apache.log4j.PropertyConfigurator;
+import org.apache.log4j.spi.LoggingEvent;
 import org.deegree.securityproxy.report.SecurityReport;
 import org.deegree.securityproxy.responsefilter.logging.ResponseFilterReport;
 
 /**
- * This implementation of {@link SecurityRequestResponseLogger} uses Apache Log4J as logging framework
+ * This implementation of {@link SecurityRequestResponseLogger} uses Apache Log4J as logging framework. The logging
+ * events carry the time the report was created, also if it is written later by the {@link AsyncAuditLogger}.
  * 
  * @author <a href="erben@lat-lon.de">Alexander Erben</a>
  * @author <a href="goltz@lat-lon.de">Lyn Goltz</a>
@@ -18,10 +22,12 @@ import org.deegree.securityproxy.responsefilter.logging.ResponseFilterReport;
  * 
  * @version $Revision: $, $Date: $
  */
-public class Log4jSecurityRequestResponseLogger implements SecurityRequestResponseLogger, ResponseFilterReportLogger {
+public class Log4jSecurityRequestResponseLogger implements TimestampedReportLogger {
 
     private static final Logger LOG = Logger.getLogger( Log4jSecurityRequestResponseLogger.class );
 
+    private static final String FQCN = Log4jSecurityRequestResponseLogger.class.getName();
+
     private static final Logger PROXY_LOG = Logger.getLogger( "ProxyLogger" );
 
     private static final Logger FILTER_REPORT_LOG = Logger.getLogger( "FilterReportLogger" );
@@ -45,17 +51,34 @@ public class Log4jSecurityRequestResponseLogger implements SecurityRequestRespon
     @Override
     public void logProxyReportInfo( SecurityReport report, String serialUuid )
                             throws IllegalArgumentException {
+        logProxyReportInfo( report, serialUuid, System.currentTimeMillis() );
+    }
+
+    @Override
+    public void logProxyReportInfo( SecurityReport report, String serialUuid, long time )
+                            throws IllegalArgumentException {
         if ( report == null )
             throw new IllegalArgumentException( "ProxyReport must not be null!" );
-        PROXY_LOG.info( serialUuid + "| " + report.toString() );
+        logInfo( PROXY_LOG, time, serialUuid + "| " + report.toString() );
     }
 
     @Override
     public void logResponseFilterReport( ResponseFilterReport report, String serialUuid )
                             throws IllegalArgumentException {
+        logResponseFilterReport( report, serialUuid, System.currentTimeMillis() );
+    }
+
+    @Override
+    public void logResponseFilterReport( ResponseFilterReport report, String serialUuid, long time )
+                            throws IllegalArgumentException {
         if ( report == null )
             throw new IllegalArgumentException( "ResponseFilterReport must not be null!" );
-        FILTER_REPORT_LOG.info( serialUuid + "| " + report.toString() );
+        logInfo( FILTER_REPORT_LOG, time, serialUuid + "| " + report.toString() );
+    }
+
+    private void logInfo( Logger logger, long time, String message ) {
+        if ( logger.isInfoEnabled() )
+            logger.callAppenders( new LoggingEvent( FQCN, logger, time, INFO, message, null ) );
     }
 
     private void configureLogging() {
@@ -0,0 +1,103 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.logger;
+
+import org.deegree.securityproxy.report.SecurityReport;
+import org.deegree.securityproxy.responsefilter.logging.ResponseFilterReport;
+
+/**
+ * Passes the reports of every n-th request to the wrapped loggers or none at all. Requests are selected by their
+ * serial uuid, so the proxy report and the response filter report of a request are either both logged or both
+ * skipped.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class SampledReportLogger implements SecurityRequestResponseLogger, ResponseFilterReportLogger {
+
+    private final SecurityRequestResponseLogger proxyReportLogger;
+
+    private final ResponseFilterReportLogger filterReportLogger;
+
+    private final int sampleRate;
+
+    /**
+     * @param proxyReportLogger
+     *            logs the selected proxy reports, never <code>null</code>
+     * @param filterReportLogger
+     *            logs the selected response filter reports, never <code>null</code>
+     * @param sampleRate
+     *            1 if all reports are logged, n if the reports of every n-th request are logged, 0 if no reports are
+     *            logged
+     * @throws IllegalArgumentException
+     *             if the sample rate is negative
+     */
+    public SampledReportLogger( SecurityRequestResponseLogger proxyReportLogger,
+                                ResponseFilterReportLogger filterReportLogger, int sampleRate ) {
+        if ( sampleRate < 0 )
+            throw new IllegalArgumentException( "Sample rate must not be negative!" );
+        this.proxyReportLogger = proxyReportLogger;
+        this.filterReportLogger = filterReportLogger;
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    public void logProxyReportInfo( SecurityReport report, String serialUuid )
+                            throws IllegalArgumentException {
+        if ( report == null )
+            throw new IllegalArgumentException( "ProxyReport must not be null!" );
+        if ( isSampled( serialUuid ) )
+            proxyReportLogger.logProxyReportInfo( report, serialUuid );
+    }
+
+    @Override
+    public void logResponseFilterReport( ResponseFilterReport report, String serialUuid )
+                            throws IllegalArgumentException {
+        if ( report == null )
+            throw new IllegalArgumentException( "ResponseFilterReport must not be null!" );
+        if ( isSampled( serialUuid ) )
+            filterReportLogger.logResponseFilterReport( report, serialUuid );
+    }
+
+    private boolean isSampled( String serialUuid ) {
+        if ( sampleRate <= 1 )
+            return sampleRate == 1;
+        int hash = serialUuid != null ? serialUuid.hashCode() : 0;
+        return ( hash & Integer.MAX_VALUE ) % sampleRate == 0;
+    }
+
+}
@@ -0,0 +1,81 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.logger;
+
+import org.deegree.securityproxy.report.SecurityReport;
+import org.deegree.securityproxy.responsefilter.logging.ResponseFilterReport;
+
+/**
+ * Logger writing the reports with the time they were reported by the request thread instead of the time they are
+ * written. Used by the {@link AsyncAuditLogger}, which writes the reports after they waited in its buffer.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public interface TimestampedReportLogger extends SecurityRequestResponseLogger, ResponseFilterReportLogger {
+
+    /**
+     * Logs a {@link SecurityReport} with the passed time.
+     * 
+     * @param report
+     *            never <code>null</code>
+     * @param serialUuid
+     *            represents id of the incoming request
+     * @param time
+     *            the time the report was created in milliseconds
+     * @throws IllegalArgumentException
+     *             if report is <code>null</code>
+     */
+    void logProxyReportInfo( SecurityReport report, String serialUuid, long time )
+                            throws IllegalArgumentException;
+
+    /**
+     * Logs a {@link ResponseFilterReport} with the passed time.
+     * 
+     * @param report
+     *            never <code>null</code>
+     * @param serialUuid
+     *            represents id of the incoming request
+     * @param time
+     *            the time the report was created in milliseconds
+     * @throws IllegalArgumentException
+     *             if report is <code>null</code>
+     */
+    void logResponseFilterReport( ResponseFilterReport report, String serialUuid, long time )
+                            throws IllegalArgumentException;
+
+}
@@ -0,0 +1,194 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.logger.binary;
+
+/**
+ * Record read from a binary audit segment, either a proxy report or a response filter report.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class AuditLogEntry {
+
+    private final boolean isProxyReport;
+
+    private final long time;
+
+    private final String serialUuid;
+
+    private final String userName;
+
+    private final String ipAddress;
+
+    private final String targetUri;
+
+    private final boolean isSuccessful;
+
+    private final String message;
+
+    private final boolean isFiltered;
+
+    private final boolean isFailed;
+
+    /**
+     * Instantiates an {@link AuditLogEntry} of a proxy report.
+     * 
+     * @param time
+     *            the time the report was created in milliseconds
+     * @param serialUuid
+     *            id of the request, may be <code>null</code>
+     * @param userName
+     *            may be <code>null</code>
+     * @param ipAddress
+     *            may be <code>null</code>
+     * @param targetUri
+     *            may be <code>null</code>
+     * @param isSuccessful
+     *            <code>true</code> if the response was sent successfully
+     * @param message
+     *            may be <code>null</code>
+     */
+    public AuditLogEntry( long time, String serialUuid, String userName, String ipAddress, String targetUri,
+                          boolean isSuccessful, String message ) {
+        this( true, time, serialUuid, userName, ipAddress, targetUri, isSuccessful, message, false, false );
+    }
+
+    /**
+     * Instantiates an {@link AuditLogEntry} of a response filter report.
+     * 
+     * @param time
+     *            the time the report was created in milliseconds
+     * @param serialUuid
+     *            id of the request, may be <code>null</code>
+     * @param isFiltered
+     *            <code>true</code> if the response was filtered
+     * @param isFailed
+     *            <code>true</code> if filtering failed
+     * @param message
+     *            may be <code>null</code>
+     */
+    public AuditLogEntry( long time, String serialUuid, boolean isFiltered, boolean isFailed, String message ) {
+        this( false, time, serialUuid, null, null, null, !isFailed, message, isFiltered, isFailed );
+    }
+
+    private AuditLogEntry( boolean isProxyReport, long time, String serialUuid, String userName, String ipAddress,
+                           String targetUri, boolean isSuccessful, String message, boolean isFiltered,
+                           boolean isFailed ) {
+        this.isProxyReport = isProxyReport;
+        this.time = time;
+        this.serialUuid = serialUuid;
+        this.userName = userName;
+        this.ipAddress = ipAddress;
+        this.targetUri = targetUri;
+        this.isSuccessful = isSuccessful;
+        this.message = message;
+        this.isFiltered = isFiltered;
+        this.isFailed = isFailed;
+    }
+
+    /**
+     * @return <code>true</code> if the entry is a proxy report, <code>false</code> if it is a response filter report
+     */
+    public boolean isProxyReport() {
+        return isProxyReport;
+    }
+
+    /**
+     * @return the time the report was created in milliseconds
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * @return the id of the request, may be <code>null</code>
+     */
+    public String getSerialUuid() {
+        return serialUuid;
+    }
+
+    /**
+     * @return the name of the authenticated user, <code>null</code> for response filter reports and unauthenticated
+     *         requests
+     */
+    public String getUserName() {
+        return userName;
+    }
+
+    /**
+     * @return the ip address the request was sent from, <code>null</code> for response filter reports
+     */
+    public String getIpAddress() {
+        return ipAddress;
+    }
+
+    /**
+     * @return the requested url, <code>null</code> for response filter reports
+     */
+    public String getTargetUri() {
+        return targetUri;
+    }
+
+    /**
+     * @return <code>true</code> if the response was sent successfully or filtering did not fail
+     */
+    public boolean isSuccessful() {
+        return isSuccessful;
+    }
+
+    /**
+     * @return the message, may be <code>null</code>
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * @return <code>true</code> if the response was filtered, always <code>false</code> for proxy reports
+     */
+    public boolean isFiltered() {
+        return isFiltered;
+    }
+
+    /**
+     * @return <code>true</code> if filtering failed, always <code>false</code> for proxy reports
+     */
+    public boolean isFailed() {
+        return isFailed;
+    }
+
+}
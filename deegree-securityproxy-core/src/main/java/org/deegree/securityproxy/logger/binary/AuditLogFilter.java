@@ -0,0 +1,104 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.logger.binary;
+
+/**
+ * Selects {@link AuditLogEntry}s by type, user, time range and outcome.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class AuditLogFilter {
+
+    private final boolean isProxyReport;
+
+    private final String userName;
+
+    private final long from;
+
+    private final long to;
+
+    private final Boolean isSuccessful;
+
+    /**
+     * @param isProxyReport
+     *            <code>true</code> if proxy reports are selected, <code>false</code> if response filter reports are
+     *            selected
+     * @param userName
+     *            the user to select, <code>null</code> if all users are selected, response filter reports do not
+     *            contain users and are never selected if a user is passed
+     * @param from
+     *            the begin of the time range in milliseconds (inclusive)
+     * @param to
+     *            the end of the time range in milliseconds (exclusive)
+     * @param isSuccessful
+     *            <code>true</code> if successful records are selected, <code>false</code> if failed records are
+     *            selected, <code>null</code> if both are selected
+     */
+    public AuditLogFilter( boolean isProxyReport, String userName, long from, long to, Boolean isSuccessful ) {
+        this.isProxyReport = isProxyReport;
+        this.userName = userName;
+        this.from = from;
+        this.to = to;
+        this.isSuccessful = isSuccessful;
+    }
+
+    /**
+     * @param entry
+     *            to check, never <code>null</code>
+     * @return <code>true</code> if the entry is selected
+     */
+    public boolean accept( AuditLogEntry entry ) {
+        if ( entry.isProxyReport() != isProxyReport )
+            return false;
+        if ( entry.getTime() < from || entry.getTime() >= to )
+            return false;
+        if ( userName != null && !userName.equals( entry.getUserName() ) )
+            return false;
+        return isSuccessful == null || isSuccessful == entry.isSuccessful();
+    }
+
+    /**
+     * @param segmentStartTime
+     *            the time the segment was started in milliseconds
+     * @return <code>false</code> if the segment contains only records after the time range
+     */
+    public boolean isAfterStart( long segmentStartTime ) {
+        return segmentStartTime < to;
+    }
+
+}
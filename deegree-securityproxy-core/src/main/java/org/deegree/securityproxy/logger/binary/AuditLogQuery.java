@@ -0,0 +1,253 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.logger.binary;
+
+import static org.deegree.securityproxy.logger.binary.AuditSegmentFormat.isSegmentName;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Command line tool exporting the records of the binary audit segments written by the {@link MappedAuditLogger} as
+ * CSV. Usage:
+ * 
+ * <pre>
+ * java -cp ... org.deegree.securityproxy.logger.binary.AuditLogQuery &lt;directory&gt; [options]
+ *   --type proxy|filter       kind of reports to export, default is proxy
+ *   --user &lt;name&gt;             export only records of this user
+ *   --from &lt;time&gt;             export only records reported at or after this time (UTC)
+ *   --to &lt;time&gt;               export only records reported before this time (UTC)
+ *   --outcome success|failure export only successful or failed records
+ *   --out &lt;file&gt;              write the CSV to this file instead of the standard output
+ * </pre>
+ * 
+ * Times are given as yyyy-MM-dd or yyyy-MM-dd'T'HH:mm:ss.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class AuditLogQuery {
+
+    private static final String CSV_HEADER = "time,type,uuid,user,ip,url,successful,filtered,failed,message";
+
+    private static final String DATE_PATTERN = "yyyy-MM-dd";
+
+    private static final String DATE_TIME_PATTERN = "yyyy-MM-dd'T'HH:mm:ss";
+
+    private static final String OUTPUT_PATTERN = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'";
+
+    private static final TimeZone UTC = TimeZone.getTimeZone( "UTC" );
+
+    private final File directory;
+
+    private final AuditLogFilter filter;
+
+    private final SimpleDateFormat timeFormat = createFormat( OUTPUT_PATTERN );
+
+    /**
+     * @param directory
+     *            the directory containing the segments, never <code>null</code>
+     * @param filter
+     *            selecting the exported records, never <code>null</code>
+     */
+    public AuditLogQuery( File directory, AuditLogFilter filter ) {
+        this.directory = directory;
+        this.filter = filter;
+    }
+
+    /**
+     * @param args
+     *            directory and options, see class description
+     * @throws Exception
+     *             if the segments could not be read or the CSV could not be written
+     */
+    public static void main( String[] args )
+                            throws Exception {
+        if ( args.length == 0 || args.length % 2 == 0 ) {
+            printUsage();
+            return;
+        }
+        String type = "proxy";
+        String user = null;
+        long from = Long.MIN_VALUE;
+        long to = Long.MAX_VALUE;
+        Boolean isSuccessful = null;
+        String out = null;
+        for ( int index = 1; index < args.length; index += 2 ) {
+            String option = args[index];
+            String value = args[index + 1];
+            if ( "--type".equals( option ) && ( "proxy".equals( value ) || "filter".equals( value ) ) ) {
+                type = value;
+            } else if ( "--user".equals( option ) ) {
+                user = value;
+            } else if ( "--from".equals( option ) ) {
+                from = parseTime( value );
+            } else if ( "--to".equals( option ) ) {
+                to = parseTime( value );
+            } else if ( "--outcome".equals( option ) && ( "success".equals( value ) || "failure".equals( value ) ) ) {
+                isSuccessful = "success".equals( value );
+            } else if ( "--out".equals( option ) ) {
+                out = value;
+            } else {
+                printUsage();
+                return;
+            }
+        }
+        AuditLogFilter filter = new AuditLogFilter( "proxy".equals( type ), user, from, to, isSuccessful );
+        AuditLogQuery query = new AuditLogQuery( new File( args[0] ), filter );
+        OutputStream stream = out != null ? new FileOutputStream( out ) : System.out;
+        Writer writer = new BufferedWriter( new OutputStreamWriter( stream, "UTF-8" ) );
+        try {
+            int exported = query.exportCsv( writer );
+            System.err.println( exported + " records exported." );
+        } finally {
+            if ( out != null )
+                writer.close();
+            else
+                writer.flush();
+        }
+    }
+
+    /**
+     * Writes the selected records of all segments in the order they were written, preceded by a header line.
+     * 
+     * @param writer
+     *            to write the CSV to, never <code>null</code>
+     * @return the number of exported records
+     * @throws IOException
+     *             if a segment could not be read or the CSV could not be written
+     */
+    public int exportCsv( Writer writer )
+                            throws IOException {
+        writer.write( CSV_HEADER );
+        writer.write( "\r\n" );
+        int exported = 0;
+        for ( File segmentFile : listSegments() ) {
+            AuditSegmentReader reader = new AuditSegmentReader( segmentFile );
+            try {
+                if ( !filter.isAfterStart( reader.getStartTime() ) )
+                    break;
+                AuditLogEntry entry;
+                while ( ( entry = reader.next() ) != null ) {
+                    if ( filter.accept( entry ) ) {
+                        writeCsvLine( writer, entry );
+                        exported++;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        return exported;
+    }
+
+    private File[] listSegments()
+                            throws IOException {
+        File[] segments = directory.listFiles( new FilenameFilter() {
+            @Override
+            public boolean accept( File dir, String name ) {
+                return isSegmentName( name );
+            }
+        } );
+        if ( segments == null )
+            throw new IOException( directory + " is not a directory!" );
+        Arrays.sort( segments );
+        return segments;
+    }
+
+    private void writeCsvLine( Writer writer, AuditLogEntry entry )
+                            throws IOException {
+        writer.write( timeFormat.format( new Date( entry.getTime() ) ) );
+        writer.write( ',' );
+        writer.write( entry.isProxyReport() ? "proxy" : "filter" );
+        writeCsvValue( writer, entry.getSerialUuid() );
+        writeCsvValue( writer, entry.getUserName() );
+        writeCsvValue( writer, entry.getIpAddress() );
+        writeCsvValue( writer, entry.getTargetUri() );
+        writeCsvValue( writer, Boolean.toString( entry.isSuccessful() ) );
+        writeCsvValue( writer, Boolean.toString( entry.isFiltered() ) );
+        writeCsvValue( writer, Boolean.toString( entry.isFailed() ) );
+        writeCsvValue( writer, entry.getMessage() );
+        writer.write( "\r\n" );
+    }
+
+    private void writeCsvValue( Writer writer, String value )
+                            throws IOException {
+        writer.write( ',' );
+        if ( value == null )
+            return;
+        if ( value.indexOf( ',' ) < 0 && value.indexOf( '"' ) < 0 && value.indexOf( '\n' ) < 0
+             && value.indexOf( '\r' ) < 0 ) {
+            writer.write( value );
+        } else {
+            writer.write( '"' );
+            writer.write( value.replace( "\"", "\"\"" ) );
+            writer.write( '"' );
+        }
+    }
+
+    private static long parseTime( String value )
+                            throws ParseException {
+        String pattern = value.length() > DATE_PATTERN.length() ? DATE_TIME_PATTERN : DATE_PATTERN;
+        return createFormat( pattern ).parse( value ).getTime();
+    }
+
+    private static SimpleDateFormat createFormat( String pattern ) {
+        SimpleDateFormat format = new SimpleDateFormat( pattern );
+        format.setTimeZone( UTC );
+        format.setLenient( false );
+        return format;
+    }
+
+    private static void printUsage() {
+        System.err.println( "Usage: AuditLogQuery <directory> [--type proxy|filter] [--user <name>] [--from <time>] "
+                            + "[--to <time>] [--outcome success|failure] [--out <file>]" );
+        System.err.println( "Times are given in UTC as yyyy-MM-dd or yyyy-MM-dd'T'HH:mm:ss" );
+    }
+
+}
@@ -0,0 +1,139 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.logger.binary;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Layout of the binary audit segments written by the {@link MappedAuditLogger}.
+ * 
+ * A segment starts with a header (magic number, version, start time in milliseconds) followed by entries, each
+ * starting with a tag byte:
+ * <ul>
+ * <li>{@link #END}: no further entries, the unused rest of a segment is filled with zeros</li>
+ * <li>{@link #DEFINITION}: a string of the dictionary (length and UTF-8 bytes), the definitions of a segment are
+ * numbered consecutively starting with {@link #FIRST_DICTIONARY_ID}</li>
+ * <li>{@link #PROXY_RECORD}: time, flags ({@link #SUCCESSFUL}) and strings uuid, user, ip address, url and message</li>
+ * <li>{@link #FILTER_RECORD}: time, flags ({@link #FILTERED}, {@link #FAILED}) and strings uuid and message</li>
+ * </ul>
+ * Strings of records are written as variable length integer, {@link #NULL_STRING}, {@link #LITERAL_STRING} followed
+ * by length and UTF-8 bytes, {@link #UUID_STRING} followed by the two longs of the uuid or the id of a definition.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+final class AuditSegmentFormat {
+
+    static final int MAGIC = 0x44535041;
+
+    static final byte VERSION = 1;
+
+    static final int HEADER_SIZE = 4 + 1 + 8;
+
+    static final byte END = 0;
+
+    static final byte DEFINITION = 1;
+
+    static final byte PROXY_RECORD = 2;
+
+    static final byte FILTER_RECORD = 3;
+
+    static final byte SUCCESSFUL = 1;
+
+    static final byte FILTERED = 1;
+
+    static final byte FAILED = 2;
+
+    static final int NULL_STRING = 0;
+
+    static final int LITERAL_STRING = 1;
+
+    static final int UUID_STRING = 2;
+
+    static final int FIRST_DICTIONARY_ID = 3;
+
+    static final int MAX_VAR_INT_SIZE = 5;
+
+    static final String SEGMENT_PREFIX = "audit-";
+
+    static final String SEGMENT_SUFFIX = ".seg";
+
+    static final Charset UTF8 = Charset.forName( "UTF-8" );
+
+    private AuditSegmentFormat() {
+    }
+
+    /**
+     * @param startTime
+     *            creation time of the segment in milliseconds
+     * @return the file name of the segment, segments sort by name in the order they were created, never
+     *         <code>null</code>
+     */
+    static String createSegmentName( long startTime ) {
+        return SEGMENT_PREFIX + String.format( "%013d", startTime ) + SEGMENT_SUFFIX;
+    }
+
+    /**
+     * @param name
+     *            file name to check, never <code>null</code>
+     * @return <code>true</code> if the name is the name of a segment
+     */
+    static boolean isSegmentName( String name ) {
+        return name.startsWith( SEGMENT_PREFIX ) && name.endsWith( SEGMENT_SUFFIX );
+    }
+
+    static void writeVarInt( ByteBuffer buffer, int value ) {
+        while ( ( value & ~0x7F ) != 0 ) {
+            buffer.put( (byte) ( ( value & 0x7F ) | 0x80 ) );
+            value >>>= 7;
+        }
+        buffer.put( (byte) value );
+    }
+
+    static int readVarInt( ByteBuffer buffer ) {
+        int value = 0;
+        for ( int shift = 0; shift < 7 * MAX_VAR_INT_SIZE; shift += 7 ) {
+            byte b = buffer.get();
+            value |= ( b & 0x7F ) << shift;
+            if ( ( b & 0x80 ) == 0 )
+                return value;
+        }
+        throw new IllegalStateException( "Variable length integer is longer than " + MAX_VAR_INT_SIZE + " bytes!" );
+    }
+
+}
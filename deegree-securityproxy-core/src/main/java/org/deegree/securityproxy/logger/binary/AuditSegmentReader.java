@@ -0,0 +1,202 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.logger.binary;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static org.deegree.securityproxy.logger.binary.AuditSegmentFormat.DEFINITION;
+import static org.deegree.securityproxy.logger.binary.AuditSegmentFormat.END;
+import static org.deegree.securityproxy.logger.binary.AuditSegmentFormat.FAILED;
+import static org.deegree.securityproxy.logger.binary.AuditSegmentFormat.FILTERED;
+import static org.deegree.securityproxy.logger.binary.AuditSegmentFormat.FILTER_RECORD;
+import static org.deegree.securityproxy.logger.binary.AuditSegmentFormat.FIRST_DICTIONARY_ID;
+import static org.deegree.securityproxy.logger.binary.AuditSegmentFormat.HEADER_SIZE;
+import static org.deegree.securityproxy.logger.binary.AuditSegmentFormat.LITERAL_STRING;
+import static org.deegree.securityproxy.logger.binary.AuditSegmentFormat.MAGIC;
+import static org.deegree.securityproxy.logger.binary.AuditSegmentFormat.NULL_STRING;
+import static org.deegree.securityproxy.logger.binary.AuditSegmentFormat.PROXY_RECORD;
+import static org.deegree.securityproxy.logger.binary.AuditSegmentFormat.SUCCESSFUL;
+import static org.deegree.securityproxy.logger.binary.AuditSegmentFormat.UTF8;
+import static org.deegree.securityproxy.logger.binary.AuditSegmentFormat.UUID_STRING;
+import static org.deegree.securityproxy.logger.binary.AuditSegmentFormat.VERSION;
+import static org.deegree.securityproxy.logger.binary.AuditSegmentFormat.readVarInt;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Reads the records of a segment written by the {@link MappedAuditLogger}. Segments currently written can be read as
+ * well, reading stops at the last complete record.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class AuditSegmentReader implements Closeable {
+
+    private final RandomAccessFile file;
+
+    private final ByteBuffer segment;
+
+    private final long startTime;
+
+    private final List<String> dictionary = new ArrayList<String>();
+
+    /**
+     * @param segmentFile
+     *            the segment to read, never <code>null</code>
+     * @throws IOException
+     *             if the segment could not be opened or is not a binary audit segment
+     */
+    public AuditSegmentReader( File segmentFile ) throws IOException {
+        this.file = new RandomAccessFile( segmentFile, "r" );
+        try {
+            long size = file.length();
+            if ( size < HEADER_SIZE )
+                throw new IOException( segmentFile + " is not a binary audit segment!" );
+            this.segment = file.getChannel().map( READ_ONLY, 0, size );
+            if ( segment.getInt() != MAGIC )
+                throw new IOException( segmentFile + " is not a binary audit segment!" );
+            byte version = segment.get();
+            if ( version != VERSION )
+                throw new IOException( "Version " + version + " of audit segment " + segmentFile
+                                       + " is not supported!" );
+            this.startTime = segment.getLong();
+        } catch ( IOException e ) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the time the segment was started in milliseconds
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * @return the next record, <code>null</code> if there are no more records
+     * @throws IOException
+     *             if the segment is corrupt
+     */
+    public AuditLogEntry next()
+                            throws IOException {
+        try {
+            while ( segment.hasRemaining() ) {
+                int start = segment.position();
+                byte tag = segment.get();
+                switch ( tag ) {
+                case END:
+                    segment.position( start );
+                    return null;
+                case DEFINITION:
+                    dictionary.add( readLiteral() );
+                    break;
+                case PROXY_RECORD:
+                    return readProxyRecord();
+                case FILTER_RECORD:
+                    return readFilterRecord();
+                default:
+                    throw new IOException( "Unknown tag " + tag + " at position " + start + " of the audit segment!" );
+                }
+            }
+        } catch ( BufferUnderflowException e ) {
+            // incomplete last record of a segment not closed properly
+        }
+        return null;
+    }
+
+    @Override
+    public void close()
+                            throws IOException {
+        file.close();
+    }
+
+    private AuditLogEntry readProxyRecord()
+                            throws IOException {
+        long time = segment.getLong();
+        byte flags = segment.get();
+        String serialUuid = readString();
+        String userName = readString();
+        String ipAddress = readString();
+        String targetUri = readString();
+        String message = readString();
+        return new AuditLogEntry( time, serialUuid, userName, ipAddress, targetUri, ( flags & SUCCESSFUL ) != 0,
+                                  message );
+    }
+
+    private AuditLogEntry readFilterRecord()
+                            throws IOException {
+        long time = segment.getLong();
+        byte flags = segment.get();
+        String serialUuid = readString();
+        String message = readString();
+        return new AuditLogEntry( time, serialUuid, ( flags & FILTERED ) != 0, ( flags & FAILED ) != 0, message );
+    }
+
+    private String readString()
+                            throws IOException {
+        int id = readVarInt( segment );
+        switch ( id ) {
+        case NULL_STRING:
+            return null;
+        case LITERAL_STRING:
+            return readLiteral();
+        case UUID_STRING:
+            return new UUID( segment.getLong(), segment.getLong() ).toString();
+        default:
+            int index = id - FIRST_DICTIONARY_ID;
+            if ( index >= dictionary.size() )
+                throw new IOException( "Reference to undefined string " + id + " in audit segment!" );
+            return dictionary.get( index );
+        }
+    }
+
+    private String readLiteral() {
+        int length = readVarInt( segment );
+        byte[] bytes = new byte[length];
+        segment.get( bytes );
+        return new String( bytes, UTF8 );
+    }
+
+}
@@ -0,0 +1,334 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.logger.binary;
+
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static org.deegree.securityproxy.logger.binary.AuditSegmentFormat.DEFINITION;
+import static org.deegree.securityproxy.logger.binary.AuditSegmentFormat.FAILED;
+import static org.deegree.securityproxy.logger.binary.AuditSegmentFormat.FILTERED;
+import static org.deegree.securityproxy.logger.binary.AuditSegmentFormat.FILTER_RECORD;
+import static org.deegree.securityproxy.logger.binary.AuditSegmentFormat.FIRST_DICTIONARY_ID;
+import static org.deegree.securityproxy.logger.binary.AuditSegmentFormat.HEADER_SIZE;
+import static org.deegree.securityproxy.logger.binary.AuditSegmentFormat.LITERAL_STRING;
+import static org.deegree.securityproxy.logger.binary.AuditSegmentFormat.MAGIC;
+import static org.deegree.securityproxy.logger.binary.AuditSegmentFormat.MAX_VAR_INT_SIZE;
+import static org.deegree.securityproxy.logger.binary.AuditSegmentFormat.NULL_STRING;
+import static org.deegree.securityproxy.logger.binary.AuditSegmentFormat.PROXY_RECORD;
+import static org.deegree.securityproxy.logger.binary.AuditSegmentFormat.SUCCESSFUL;
+import static org.deegree.securityproxy.logger.binary.AuditSegmentFormat.UTF8;
+import static org.deegree.securityproxy.logger.binary.AuditSegmentFormat.UUID_STRING;
+import static org.deegree.securityproxy.logger.binary.AuditSegmentFormat.VERSION;
+import static org.deegree.securityproxy.logger.binary.AuditSegmentFormat.createSegmentName;
+import static org.deegree.securityproxy.logger.binary.AuditSegmentFormat.writeVarInt;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.log4j.Logger;
+import org.deegree.securityproxy.logger.TimestampedReportLogger;
+import org.deegree.securityproxy.report.SecurityReport;
+import org.deegree.securityproxy.responsefilter.logging.ResponseFilterReport;
+
+/**
+ * Appends the reports as compact binary records to memory mapped segment files (see {@link AuditSegmentFormat}).
+ * Users, ip addresses, urls and messages are written once per segment and referenced by the following records. A new
+ * segment is started if the current one is full or older than the configured maximal age, the age is checked when a
+ * record is written. Each record carries the time it was reported, which is passed by the
+ * {@link org.deegree.securityproxy.logger.AsyncAuditLogger} or taken when the record is written. A segment starts with
+ * the time of its first record. The segments can be queried with the {@link AuditLogQuery}.
+ * 
+ * The records are written to the page cache of the operating system, only closed segments are forced to disk. Intended
+ * to be used by a single thread, e.g. the {@link org.deegree.securityproxy.logger.AsyncAuditLogger}, the methods are
+ * synchronized nevertheless.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class MappedAuditLogger implements TimestampedReportLogger, Closeable {
+
+    private static final Logger LOG = Logger.getLogger( MappedAuditLogger.class );
+
+    static final int MIN_SEGMENT_SIZE = 65536;
+
+    private static final int MAX_DICTIONARY_SIZE = 65536;
+
+    private static final int RECORD_HEADER_SIZE = 1 + 8 + 1;
+
+    private static final int UUID_LENGTH = 36;
+
+    private final File directory;
+
+    private final int maxSegmentSize;
+
+    private final long maxSegmentAge;
+
+    private final Map<String, Integer> dictionary = new HashMap<String, Integer>();
+
+    private RandomAccessFile segmentFile;
+
+    private MappedByteBuffer segment;
+
+    private long segmentStart;
+
+    /**
+     * @param directory
+     *            the directory to write the segments to, created if it does not exist, never <code>null</code>
+     * @param maxSegmentSize
+     *            the maximal size of a segment in bytes, at least 65536
+     * @param maxSegmentAge
+     *            the time in milliseconds after which a new segment is started, 0 if segments are only rotated by size
+     * @throws IllegalArgumentException
+     *             if the segment size is too small, the age is negative or the directory could not be created
+     */
+    public MappedAuditLogger( String directory, int maxSegmentSize, long maxSegmentAge ) {
+        if ( maxSegmentSize < MIN_SEGMENT_SIZE )
+            throw new IllegalArgumentException( "Segment size must be at least " + MIN_SEGMENT_SIZE + " bytes!" );
+        if ( maxSegmentAge < 0 )
+            throw new IllegalArgumentException( "Segment age must not be negative!" );
+        this.directory = new File( directory );
+        if ( !this.directory.isDirectory() && !this.directory.mkdirs() )
+            throw new IllegalArgumentException( "Audit log directory " + directory + " could not be created!" );
+        this.maxSegmentSize = maxSegmentSize;
+        this.maxSegmentAge = maxSegmentAge;
+        LOG.info( "Audit records are written to segments in " + this.directory.getAbsolutePath() );
+    }
+
+    @Override
+    public void logProxyReportInfo( SecurityReport report, String serialUuid )
+                            throws IllegalArgumentException {
+        logProxyReportInfo( report, serialUuid, System.currentTimeMillis() );
+    }
+
+    @Override
+    public synchronized void logProxyReportInfo( SecurityReport report, String serialUuid, long time )
+                            throws IllegalArgumentException {
+        if ( report == null )
+            throw new IllegalArgumentException( "ProxyReport must not be null!" );
+        String userName = report.getUserName();
+        String ipAddress = report.getIpAddressOfRequestingUser();
+        String targetUri = report.getTargetUri();
+        String message = report.getMessage();
+        int maxSize = RECORD_HEADER_SIZE + maxSizeOfUuid( serialUuid ) + maxSizeOf( userName ) + maxSizeOf( ipAddress )
+                      + maxSizeOf( targetUri ) + maxSizeOf( message );
+        prepareSegment( maxSize, time );
+        int userNameId = define( userName );
+        int ipAddressId = define( ipAddress );
+        int targetUriId = define( targetUri );
+        int messageId = define( message );
+        segment.put( PROXY_RECORD );
+        segment.putLong( time );
+        segment.put( report.isResponseSuccessfullySent() ? SUCCESSFUL : 0 );
+        writeUuid( serialUuid );
+        writeString( userNameId, userName );
+        writeString( ipAddressId, ipAddress );
+        writeString( targetUriId, targetUri );
+        writeString( messageId, message );
+    }
+
+    @Override
+    public void logResponseFilterReport( ResponseFilterReport report, String serialUuid )
+                            throws IllegalArgumentException {
+        logResponseFilterReport( report, serialUuid, System.currentTimeMillis() );
+    }
+
+    @Override
+    public synchronized void logResponseFilterReport( ResponseFilterReport report, String serialUuid, long time )
+                            throws IllegalArgumentException {
+        if ( report == null )
+            throw new IllegalArgumentException( "ResponseFilterReport must not be null!" );
+        String message = report.getMessage();
+        prepareSegment( RECORD_HEADER_SIZE + maxSizeOfUuid( serialUuid ) + maxSizeOf( message ), time );
+        int messageId = define( message );
+        segment.put( FILTER_RECORD );
+        segment.putLong( time );
+        byte flags = 0;
+        if ( report.isFiltered() )
+            flags |= FILTERED;
+        if ( report.isFailed() )
+            flags |= FAILED;
+        segment.put( flags );
+        writeUuid( serialUuid );
+        writeString( messageId, message );
+    }
+
+    /**
+     * Closes the current segment, the next record starts a new one.
+     */
+    @Override
+    public synchronized void close() {
+        if ( segment != null )
+            closeSegment();
+    }
+
+    private void prepareSegment( int maxRecordSize, long recordTime ) {
+        if ( HEADER_SIZE + maxRecordSize > maxSegmentSize )
+            throw new IllegalStateException( "Audit record of up to " + maxRecordSize
+                                             + " bytes exceeds the maximal segment size!" );
+        long now = System.currentTimeMillis();
+        if ( segment != null && isRotationRequired( maxRecordSize, now ) )
+            closeSegment();
+        if ( segment == null )
+            openSegment( now, recordTime );
+    }
+
+    private boolean isRotationRequired( int maxRecordSize, long now ) {
+        if ( segment.remaining() < maxRecordSize )
+            return true;
+        return maxSegmentAge > 0 && now - segmentStart >= maxSegmentAge;
+    }
+
+    // the start time written into the segment is compared with the times of the records by the AuditLogFilter, the age
+    // of the segment is measured from the time it was opened
+    private void openSegment( long now, long recordTime ) {
+        long startTime = Math.min( now, recordTime );
+        File file = new File( directory, createSegmentName( startTime ) );
+        while ( file.exists() )
+            file = new File( directory, createSegmentName( ++startTime ) );
+        try {
+            segmentFile = new RandomAccessFile( file, "rw" );
+            segment = segmentFile.getChannel().map( READ_WRITE, 0, maxSegmentSize );
+        } catch ( IOException e ) {
+            closeQuietly();
+            throw new IllegalStateException( "Audit segment " + file + " could not be created: " + e.getMessage(), e );
+        }
+        segment.putInt( MAGIC );
+        segment.put( VERSION );
+        segment.putLong( startTime );
+        segmentStart = now;
+        dictionary.clear();
+        LOG.debug( "Started audit segment " + file );
+    }
+
+    private void closeSegment() {
+        int size = segment.position();
+        segment.force();
+        segment = null;
+        try {
+            // the mapping is released by the garbage collector only, platforms not allowing to truncate mapped files
+            // keep the zero filled rest of the segment
+            FileChannel channel = segmentFile.getChannel();
+            channel.truncate( size );
+        } catch ( IOException e ) {
+            LOG.warn( "Audit segment could not be truncated to the used size: " + e.getMessage() );
+        }
+        closeQuietly();
+    }
+
+    private void closeQuietly() {
+        try {
+            if ( segmentFile != null )
+                segmentFile.close();
+        } catch ( IOException e ) {
+            LOG.warn( "Audit segment could not be closed: " + e.getMessage() );
+        }
+        segmentFile = null;
+    }
+
+    private int define( String value ) {
+        if ( value == null )
+            return NULL_STRING;
+        Integer id = dictionary.get( value );
+        if ( id != null )
+            return id;
+        if ( dictionary.size() >= MAX_DICTIONARY_SIZE )
+            return LITERAL_STRING;
+        byte[] bytes = value.getBytes( UTF8 );
+        segment.put( DEFINITION );
+        writeVarInt( segment, bytes.length );
+        segment.put( bytes );
+        id = FIRST_DICTIONARY_ID + dictionary.size();
+        dictionary.put( value, id );
+        return id;
+    }
+
+    private void writeString( int id, String value ) {
+        writeVarInt( segment, id );
+        if ( id == LITERAL_STRING )
+            writeLiteral( value );
+    }
+
+    private void writeUuid( String serialUuid ) {
+        UUID uuid = parseUuid( serialUuid );
+        if ( uuid != null ) {
+            writeVarInt( segment, UUID_STRING );
+            segment.putLong( uuid.getMostSignificantBits() );
+            segment.putLong( uuid.getLeastSignificantBits() );
+        } else if ( serialUuid == null ) {
+            writeVarInt( segment, NULL_STRING );
+        } else {
+            writeVarInt( segment, LITERAL_STRING );
+            writeLiteral( serialUuid );
+        }
+    }
+
+    private void writeLiteral( String value ) {
+        byte[] bytes = value.getBytes( UTF8 );
+        writeVarInt( segment, bytes.length );
+        segment.put( bytes );
+    }
+
+    private UUID parseUuid( String serialUuid ) {
+        if ( serialUuid == null || serialUuid.length() != UUID_LENGTH )
+            return null;
+        try {
+            UUID uuid = UUID.fromString( serialUuid );
+            // the canonical form is required to restore the original string
+            return uuid.toString().equals( serialUuid ) ? uuid : null;
+        } catch ( IllegalArgumentException e ) {
+            return null;
+        }
+    }
+
+    private int maxSizeOfUuid( String serialUuid ) {
+        return Math.max( 1 + 16, maxSizeOf( serialUuid ) );
+    }
+
+    private int maxSizeOf( String value ) {
+        if ( value == null )
+            return 1;
+        // definition (tag, length, bytes) and reference or literal (marker, length, bytes), at most 3 bytes per char
+        return 1 + MAX_VAR_INT_SIZE + 3 * value.length() + MAX_VAR_INT_SIZE;
+    }
+
+}
@@ -0,0 +1,152 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of non-negative values (e.g. durations in nanoseconds). The values are counted in logarithmic
+ * buckets with 16 linear sub-buckets per power of two, a recorded value is reported with a relative error of at most
+ * 6.25%. Recording a value does not allocate and does not block concurrent readers or writers.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private static final int NUMBER_OF_BUCKETS = ( Long.SIZE - SUB_BUCKET_BITS + 1 ) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray( NUMBER_OF_BUCKETS );
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final AtomicLong sum = new AtomicLong();
+
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param value
+     *            the value to record, negative values are recorded as 0
+     */
+    public void record( long value ) {
+        long recorded = Math.max( value, 0 );
+        buckets.incrementAndGet( indexOf( recorded ) );
+        count.incrementAndGet();
+        sum.addAndGet( recorded );
+        long currentMax;
+        while ( recorded > ( currentMax = max.get() ) && !max.compareAndSet( currentMax, recorded ) ) {
+            // retry until the maximum is updated or a greater value was recorded concurrently
+        }
+    }
+
+    /**
+     * @return the number of recorded values
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return the sum of all recorded values
+     */
+    public long getSum() {
+        return sum.get();
+    }
+
+    /**
+     * @return the greatest recorded value, 0 if no value was recorded
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @param percentile
+     *            the percentile, greater than 0 and less or equal than 100, e.g. 99.9
+     * @return the value not exceeded by the given percentage of the recorded values (the upper bound of the bucket
+     *         containing the value), 0 if no value was recorded
+     */
+    public long getPercentile( double percentile ) {
+        long total = count.get();
+        if ( total == 0 )
+            return 0;
+        long rank = Math.max( (long) Math.ceil( percentile * total / 100 ), 1 );
+        long cumulativeCount = 0;
+        for ( int index = 0; index < NUMBER_OF_BUCKETS; index++ ) {
+            cumulativeCount += buckets.get( index );
+            if ( cumulativeCount >= rank )
+                return Math.min( upperBoundOf( index ), max.get() );
+        }
+        // values were recorded concurrently, the count was increased before the bucket
+        return max.get();
+    }
+
+    /**
+     * Removes all recorded values. Values recorded concurrently may be lost partially.
+     */
+    public void reset() {
+        for ( int index = 0; index < NUMBER_OF_BUCKETS; index++ )
+            buckets.set( index, 0 );
+        count.set( 0 );
+        sum.set( 0 );
+        max.set( 0 );
+    }
+
+    static int indexOf( long value ) {
+        if ( value < SUB_BUCKETS )
+            return (int) value;
+        int shift = Long.SIZE - Long.numberOfLeadingZeros( value ) - 1 - SUB_BUCKET_BITS;
+        int subBucket = (int) ( value >>> shift ) - SUB_BUCKETS;
+        return ( shift + 1 ) * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBoundOf( int index ) {
+        if ( index < SUB_BUCKETS )
+            return index;
+        int shift = index / SUB_BUCKETS - 1;
+        long subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+        long upperBound = ( ( subBucket + 1 ) << shift ) - 1;
+        // the upper bound of the last bucket overflows
+        return upperBound < 0 ? Long.MAX_VALUE : upperBound;
+    }
+
+}
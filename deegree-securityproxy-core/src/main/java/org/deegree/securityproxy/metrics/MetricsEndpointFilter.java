@@ -0,0 +1,156 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Servlet Filter answering requests with the metrics of the proxy in the text format of Prometheus. Beside the
+ * {@link ProxyMetrics} the numeric attributes of all MBeans registered in the domain of the proxy (e.g. the hits of
+ * the capabilities caches) are written. The filter must be mapped to the url of the endpoint and precede the security
+ * filters, if it is disabled the requests are passed to the next filter.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class MetricsEndpointFilter implements Filter {
+
+    private static final Logger LOG = Logger.getLogger( MetricsEndpointFilter.class );
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=UTF-8";
+
+    private static final String MBEAN_DOMAIN = "org.deegree.securityproxy";
+
+    private static final String METRIC_PREFIX = "securityproxy_";
+
+    private final ProxyMetrics metrics;
+
+    private final boolean isEnabled;
+
+    /**
+     * @param metrics
+     *            the metrics to write, never <code>null</code>
+     * @param isEnabled
+     *            <code>true</code> if the metrics are written, <code>false</code> if requests are passed to the next
+     *            filter
+     */
+    public MetricsEndpointFilter( ProxyMetrics metrics, boolean isEnabled ) {
+        this.metrics = metrics;
+        this.isEnabled = isEnabled;
+    }
+
+    @Override
+    public void init( FilterConfig filterConfig )
+                    throws ServletException {
+    }
+
+    @Override
+    public void doFilter( ServletRequest request, ServletResponse response, FilterChain chain )
+                    throws IOException, ServletException {
+        if ( !isEnabled ) {
+            chain.doFilter( request, response );
+            return;
+        }
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+        httpResponse.setContentType( CONTENT_TYPE );
+        httpResponse.setHeader( "Cache-Control", "no-cache" );
+        Writer writer = httpResponse.getWriter();
+        metrics.writeTo( writer );
+        writeMBeanAttributes( writer );
+        writer.flush();
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    private void writeMBeanAttributes( Writer writer )
+                    throws IOException {
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        Set<ObjectName> objectNames;
+        try {
+            objectNames = new TreeSet<ObjectName>( mBeanServer.queryNames( new ObjectName( MBEAN_DOMAIN + ":*" ),
+                                                                           null ) );
+        } catch ( JMException e ) {
+            LOG.warn( "MBeans could not be queried: " + e.getMessage() );
+            return;
+        }
+        for ( ObjectName objectName : objectNames ) {
+            try {
+                writeMBeanAttributes( writer, mBeanServer, objectName );
+            } catch ( JMException e ) {
+                LOG.warn( "Attributes of " + objectName + " could not be read: " + e.getMessage() );
+            }
+        }
+    }
+
+    private void writeMBeanAttributes( Writer writer, MBeanServer mBeanServer, ObjectName objectName )
+                    throws IOException, JMException {
+        String type = objectName.getKeyProperty( "type" );
+        String name = objectName.getKeyProperty( "name" );
+        String labels = name != null ? "{name=\"" + name + "\"}" : "";
+        for ( MBeanAttributeInfo attribute : mBeanServer.getMBeanInfo( objectName ).getAttributes() ) {
+            if ( !attribute.isReadable() )
+                continue;
+            Object value = mBeanServer.getAttribute( objectName, attribute.getName() );
+            if ( value instanceof Number )
+                writer.write( METRIC_PREFIX + type + "_" + attribute.getName() + labels + " " + value + "\n" );
+            else if ( value instanceof Boolean )
+                writer.write( METRIC_PREFIX + type + "_" + attribute.getName() + labels + " "
+                              + ( (Boolean) value ? 1 : 0 ) + "\n" );
+        }
+    }
+
+}
@@ -0,0 +1,277 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects timers and counters of the proxy. A metric is identified by its name and its labels (e.g. the service type
+ * and the operation), the timers record durations in nanoseconds in a {@link LatencyHistogram}.
+ * <p>
+ * The metrics are available through JMX and in the text format of Prometheus (see {@link #writeTo(Writer)}), timers
+ * are written as summaries in seconds.
+ * </p>
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class ProxyMetrics implements ProxyMetricsMBean {
+
+    /**
+     * Name of the timer recording the duration of the stages of a request, labelled with stage, service and operation.
+     */
+    public static final String STAGE_DURATION = "securityproxy_stage_duration_seconds";
+
+    /**
+     * Name of the counter of the buffered response bytes received from the backends.
+     */
+    public static final String BUFFERED_RESPONSE_BYTES = "securityproxy_buffered_response_bytes_total";
+
+    /**
+     * Name of the counter of the clipping decisions, labelled with service, operation and decision.
+     */
+    public static final String CLIPPING_DECISIONS = "securityproxy_clipping_decisions_total";
+
+    private static final double[] QUANTILES = { 0.5, 0.99, 0.999 };
+
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    private final ConcurrentMap<String, LatencyHistogram> timers = new ConcurrentHashMap<String, LatencyHistogram>();
+
+    private final ConcurrentMap<String, AtomicLong> counters = new ConcurrentHashMap<String, AtomicLong>();
+
+    private final boolean isEnabled;
+
+    /**
+     * Instantiates enabled {@link ProxyMetrics}.
+     */
+    public ProxyMetrics() {
+        this( true );
+    }
+
+    /**
+     * @param isEnabled
+     *            <code>true</code> if metrics are recorded, <code>false</code> if recording is a no-op
+     */
+    public ProxyMetrics( boolean isEnabled ) {
+        this.isEnabled = isEnabled;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return isEnabled;
+    }
+
+    /**
+     * @param name
+     *            the name of the timer, never <code>null</code>
+     * @param duration
+     *            the duration in nanoseconds
+     * @param labels
+     *            alternating names and values of the labels, a value may be <code>null</code>
+     */
+    public void recordTime( String name, long duration, String... labels ) {
+        if ( !isEnabled )
+            return;
+        String key = createKey( name, labels );
+        LatencyHistogram timer = timers.get( key );
+        if ( timer == null ) {
+            LatencyHistogram newTimer = new LatencyHistogram();
+            timer = timers.putIfAbsent( key, newTimer );
+            if ( timer == null )
+                timer = newTimer;
+        }
+        timer.record( duration );
+    }
+
+    /**
+     * @param name
+     *            the name of the counter, never <code>null</code>
+     * @param delta
+     *            the value to add
+     * @param labels
+     *            alternating names and values of the labels, a value may be <code>null</code>
+     */
+    public void increment( String name, long delta, String... labels ) {
+        if ( !isEnabled )
+            return;
+        String key = createKey( name, labels );
+        AtomicLong counter = counters.get( key );
+        if ( counter == null ) {
+            AtomicLong newCounter = new AtomicLong();
+            counter = counters.putIfAbsent( key, newCounter );
+            if ( counter == null )
+                counter = newCounter;
+        }
+        counter.addAndGet( delta );
+    }
+
+    /**
+     * @param name
+     *            the name of the timer, never <code>null</code>
+     * @param labels
+     *            alternating names and values of the labels, a value may be <code>null</code>
+     * @return the timer, <code>null</code> if nothing was recorded
+     */
+    public LatencyHistogram getTimer( String name, String... labels ) {
+        return timers.get( createKey( name, labels ) );
+    }
+
+    /**
+     * @param name
+     *            the name of the counter, never <code>null</code>
+     * @param labels
+     *            alternating names and values of the labels, a value may be <code>null</code>
+     * @return the value of the counter, 0 if nothing was counted
+     */
+    public long getCounter( String name, String... labels ) {
+        AtomicLong counter = counters.get( createKey( name, labels ) );
+        return counter != null ? counter.get() : 0;
+    }
+
+    @Override
+    public String[] getTimers() {
+        SortedMap<String, LatencyHistogram> sortedTimers = new TreeMap<String, LatencyHistogram>( timers );
+        String[] values = new String[sortedTimers.size()];
+        int index = 0;
+        for ( Entry<String, LatencyHistogram> timer : sortedTimers.entrySet() ) {
+            LatencyHistogram histogram = timer.getValue();
+            values[index++] = String.format( Locale.ENGLISH, "%s count=%d p50=%.3fms p99=%.3fms p999=%.3fms max=%.3fms",
+                                             timer.getKey(), histogram.getCount(),
+                                             histogram.getPercentile( 50 ) / NANOS_PER_MILLI,
+                                             histogram.getPercentile( 99 ) / NANOS_PER_MILLI,
+                                             histogram.getPercentile( 99.9 ) / NANOS_PER_MILLI,
+                                             histogram.getMax() / NANOS_PER_MILLI );
+        }
+        return values;
+    }
+
+    @Override
+    public String[] getCounters() {
+        SortedMap<String, AtomicLong> sortedCounters = new TreeMap<String, AtomicLong>( counters );
+        String[] values = new String[sortedCounters.size()];
+        int index = 0;
+        for ( Entry<String, AtomicLong> counter : sortedCounters.entrySet() )
+            values[index++] = counter.getKey() + " " + counter.getValue().get();
+        return values;
+    }
+
+    @Override
+    public void reset() {
+        for ( LatencyHistogram timer : timers.values() )
+            timer.reset();
+        for ( AtomicLong counter : counters.values() )
+            counter.set( 0 );
+    }
+
+    /**
+     * Writes all metrics in the text format of Prometheus.
+     * 
+     * @param writer
+     *            the writer to write in, never <code>null</code>
+     * @throws IOException
+     *             if the metrics could not be written
+     */
+    public void writeTo( Writer writer )
+                    throws IOException {
+        for ( Entry<String, LatencyHistogram> timer : new TreeMap<String, LatencyHistogram>( timers ).entrySet() )
+            writeTimer( writer, timer.getKey(), timer.getValue() );
+        for ( Entry<String, AtomicLong> counter : new TreeMap<String, AtomicLong>( counters ).entrySet() )
+            writer.write( counter.getKey() + " " + counter.getValue().get() + "\n" );
+    }
+
+    private void writeTimer( Writer writer, String key, LatencyHistogram timer )
+                    throws IOException {
+        int labelStart = key.indexOf( '{' );
+        String name = labelStart < 0 ? key : key.substring( 0, labelStart );
+        String labels = labelStart < 0 ? "" : key.substring( labelStart + 1, key.length() - 1 );
+        String separator = labels.isEmpty() ? "" : ",";
+        for ( double quantile : QUANTILES ) {
+            writer.write( name + "{" + labels + separator + "quantile=\"" + quantile + "\"} "
+                          + toSeconds( timer.getPercentile( quantile * 100 ) ) + "\n" );
+        }
+        String labelSuffix = labels.isEmpty() ? "" : "{" + labels + "}";
+        writer.write( name + "_max" + labelSuffix + " " + toSeconds( timer.getMax() ) + "\n" );
+        writer.write( name + "_sum" + labelSuffix + " " + toSeconds( timer.getSum() ) + "\n" );
+        writer.write( name + "_count" + labelSuffix + " " + timer.getCount() + "\n" );
+    }
+
+    private String toSeconds( long nanos ) {
+        return String.format( Locale.ENGLISH, "%.6f", nanos / NANOS_PER_SECOND );
+    }
+
+    private String createKey( String name, String[] labels ) {
+        if ( labels.length == 0 )
+            return name;
+        if ( labels.length % 2 != 0 )
+            throw new IllegalArgumentException( "Labels must be pairs of names and values!" );
+        StringBuilder key = new StringBuilder( name ).append( '{' );
+        for ( int index = 0; index < labels.length; index += 2 ) {
+            if ( index > 0 )
+                key.append( ',' );
+            key.append( labels[index] ).append( "=\"" );
+            appendEscaped( key, labels[index + 1] );
+            key.append( '"' );
+        }
+        return key.append( '}' ).toString();
+    }
+
+    private void appendEscaped( StringBuilder key, String value ) {
+        if ( value == null )
+            return;
+        for ( int index = 0; index < value.length(); index++ ) {
+            char c = value.charAt( index );
+            if ( c == '"' || c == '\\' )
+                key.append( '\\' ).append( c );
+            else if ( c == '\n' )
+                key.append( "\\n" );
+            else
+                key.append( c );
+        }
+    }
+
+}
@@ -20,12 +20,32 @@ public class SecurityReport {
 
     private final String message;
 
+    private final String userName;
+
     public SecurityReport( String ipAddressOfRequestingUser, String targetUri, boolean isResponseSuccesfullySent,
                            String message ) {
+        this( ipAddressOfRequestingUser, targetUri, isResponseSuccesfullySent, message, null );
+    }
+
+    /**
+     * @param ipAddressOfRequestingUser
+     *            the ip address the request was sent from
+     * @param targetUri
+     *            the requested url including the query string
+     * @param isResponseSuccesfullySent
+     *            <code>true</code> if the response was sent with a 2xx or 3xx status code
+     * @param message
+     *            details about the authorization or error messages
+     * @param userName
+     *            the name of the authenticated user, may be <code>null</code> if the request is not authenticated
+     */
+    public SecurityReport( String ipAddressOfRequestingUser, String targetUri, boolean isResponseSuccesfullySent,
+                           String message, String userName ) {
         this.ipAddressOfRequestingUser = ipAddressOfRequestingUser;
         this.targetUri = targetUri;
         this.isResponseSuccessfullySent = isResponseSuccesfullySent;
         this.message = message;
+        this.userName = userName;
     }
 
     public String getIpAddressOfRequestingUser() {
@@ -44,6 +64,13 @@ public class SecurityReport {
         return message;
     }
 
+    /**
+     * @return the name of the authenticated user, <code>null</code> if the request is not authenticated
+     */
+    public String getUserName() {
+        return userName;
+    }
+
     @Override
     public int hashCode() {
         final int prime = 31;
@@ -51,6 +78,7 @@ public class SecurityReport {
         result = prime * result + ( ( ipAddressOfRequestingUser == null ) ? 0 : ipAddressOfRequestingUser.hashCode() );
         result = prime * result + ( isResponseSuccessfullySent ? 1231 : 1237 );
         result = prime * result + ( ( targetUri == null ) ? 0 : targetUri.hashCode() );
+        result = prime * result + ( ( userName == null ) ? 0 : userName.hashCode() );
         return result;
     }
 
@@ -75,6 +103,11 @@ public class SecurityReport {
                 return false;
         } else if ( !targetUri.equals( other.targetUri ) )
             return false;
+        if ( userName == null ) {
+            if ( other.userName != null )
+                return false;
+        } else if ( !userName.equals( other.userName ) )
+            return false;
         return true;
     }
 
@@ -0,0 +1,309 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.request;
+
+import static java.util.Collections.unmodifiableSet;
+
+import java.nio.charset.Charset;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tokenizes the raw query string of a KVP request once. Only the offsets of the keys and values are stored, keys are
+ * matched case-insensitively on the query string and values are percent-decoded (UTF-8) when they are requested.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public final class KvpTokenizer {
+
+    private static final Charset UTF8 = Charset.forName( "UTF-8" );
+
+    private static final int KEY_START = 0;
+
+    private static final int KEY_END = 1;
+
+    private static final int VALUE_START = 2;
+
+    private static final int VALUE_END = 3;
+
+    private static final int OFFSETS_PER_PAIR = 4;
+
+    private final String queryString;
+
+    private final int[] offsets;
+
+    private final int numberOfPairs;
+
+    /**
+     * @param queryString
+     *            the raw (not decoded) query string, may be <code>null</code>
+     */
+    public KvpTokenizer( String queryString ) {
+        this.queryString = queryString != null ? queryString : "";
+        this.offsets = new int[( countSeparators( this.queryString ) + 1 ) * OFFSETS_PER_PAIR];
+        this.numberOfPairs = scan();
+    }
+
+    /**
+     * @return the number of key value pairs with a non empty key, duplicated keys are counted separately
+     */
+    public int getNumberOfPairs() {
+        return numberOfPairs;
+    }
+
+    /**
+     * @param key
+     *            the key to check, case is ignored, never <code>null</code>
+     * @return <code>true</code> if the query string contains at least one pair with this key, <code>false</code>
+     *         otherwise
+     */
+    public boolean containsKey( String key ) {
+        return indexOfKey( key, 0 ) >= 0;
+    }
+
+    /**
+     * @param key
+     *            the key to retrieve the value for, case is ignored, never <code>null</code>
+     * @return the decoded value of the first pair with this key, may be empty, <code>null</code> if the key is not
+     *         contained
+     */
+    public String getFirstValue( String key ) {
+        int index = indexOfKey( key, 0 );
+        if ( index < 0 )
+            return null;
+        return decodeValue( index );
+    }
+
+    /**
+     * @param key
+     *            the key to retrieve the values for, case is ignored, never <code>null</code>
+     * @return the decoded values of all pairs with this key in the order of the query string, <code>null</code> if the
+     *         key is not contained
+     */
+    public String[] getValues( String key ) {
+        int first = indexOfKey( key, 0 );
+        if ( first < 0 )
+            return null;
+        int count = 1;
+        for ( int index = indexOfKey( key, first + 1 ); index >= 0; index = indexOfKey( key, index + 1 ) )
+            count++;
+        String[] values = new String[count];
+        values[0] = decodeValue( first );
+        int valueIndex = 1;
+        for ( int index = indexOfKey( key, first + 1 ); index >= 0; index = indexOfKey( key, index + 1 ) )
+            values[valueIndex++] = decodeValue( index );
+        return values;
+    }
+
+    /**
+     * Creates a read-only map view of the key value pairs equivalent to the map returned by
+     * {@link KvpNormalizer#normalizeKvpMap(Map)}. {@link Map#get(Object)} and {@link Map#containsKey(Object)} ignore
+     * the case of the key and decode only the values of the requested key.
+     * 
+     * @return a read-only map with lower case keys, never <code>null</code>
+     */
+    public Map<String, String[]> asMap() {
+        return new KvpMap();
+    }
+
+    /**
+     * Splits a comma separated list value like {@link String#split(String)} with "," as regular expression: leading
+     * and inner empty values are kept, trailing empty values are removed.
+     * 
+     * @param value
+     *            the value to split, never <code>null</code>
+     * @return the separated values, may be empty but never <code>null</code>
+     */
+    public static List<String> splitCommaSeparatedValue( String value ) {
+        List<String> values = new ArrayList<String>();
+        int lastNonEmpty = 0;
+        int start = 0;
+        int end;
+        do {
+            end = value.indexOf( ',', start );
+            if ( end < 0 )
+                end = value.length();
+            values.add( value.substring( start, end ) );
+            if ( end > start )
+                lastNonEmpty = values.size();
+            start = end + 1;
+        } while ( end < value.length() );
+        if ( values.size() == 1 )
+            return values;
+        return values.subList( 0, lastNonEmpty );
+    }
+
+    private int scan() {
+        int pairs = 0;
+        int start = 0;
+        int length = queryString.length();
+        while ( start < length ) {
+            int end = queryString.indexOf( '&', start );
+            if ( end < 0 )
+                end = length;
+            int separator = queryString.indexOf( '=', start );
+            int keyEnd = separator < 0 || separator > end ? end : separator;
+            if ( keyEnd > start ) {
+                int offset = pairs++ * OFFSETS_PER_PAIR;
+                offsets[offset + KEY_START] = start;
+                offsets[offset + KEY_END] = keyEnd;
+                offsets[offset + VALUE_START] = keyEnd < end ? keyEnd + 1 : end;
+                offsets[offset + VALUE_END] = end;
+            }
+            start = end + 1;
+        }
+        return pairs;
+    }
+
+    private int indexOfKey( String key, int fromPair ) {
+        for ( int pair = fromPair; pair < numberOfPairs; pair++ ) {
+            if ( isKeyMatching( pair, key ) )
+                return pair;
+        }
+        return -1;
+    }
+
+    private boolean isKeyMatching( int pair, String key ) {
+        int start = offsets[pair * OFFSETS_PER_PAIR + KEY_START];
+        int end = offsets[pair * OFFSETS_PER_PAIR + KEY_END];
+        if ( isEncoded( start, end ) )
+            return decode( start, end ).equalsIgnoreCase( key );
+        return end - start == key.length() && queryString.regionMatches( true, start, key, 0, key.length() );
+    }
+
+    private String decodeKey( int pair ) {
+        return decode( offsets[pair * OFFSETS_PER_PAIR + KEY_START], offsets[pair * OFFSETS_PER_PAIR + KEY_END] );
+    }
+
+    private String decodeValue( int pair ) {
+        return decode( offsets[pair * OFFSETS_PER_PAIR + VALUE_START], offsets[pair * OFFSETS_PER_PAIR + VALUE_END] );
+    }
+
+    private boolean isEncoded( int start, int end ) {
+        for ( int index = start; index < end; index++ ) {
+            char c = queryString.charAt( index );
+            if ( c == '%' || c == '+' )
+                return true;
+        }
+        return false;
+    }
+
+    private String decode( int start, int end ) {
+        if ( !isEncoded( start, end ) )
+            return queryString.substring( start, end );
+        StringBuilder decoded = new StringBuilder( end - start );
+        byte[] bytes = null;
+        int index = start;
+        while ( index < end ) {
+            char c = queryString.charAt( index );
+            if ( c == '+' ) {
+                decoded.append( ' ' );
+                index++;
+            } else if ( c == '%' && isEscapeSequence( index, end ) ) {
+                if ( bytes == null )
+                    bytes = new byte[( end - index ) / 3];
+                int numberOfBytes = 0;
+                while ( index < end && queryString.charAt( index ) == '%' && isEscapeSequence( index, end ) ) {
+                    bytes[numberOfBytes++] = (byte) ( hexValue( index + 1 ) << 4 | hexValue( index + 2 ) );
+                    index += 3;
+                }
+                decoded.append( new String( bytes, 0, numberOfBytes, UTF8 ) );
+            } else {
+                // malformed escape sequences are kept as they are
+                decoded.append( c );
+                index++;
+            }
+        }
+        return decoded.toString();
+    }
+
+    private boolean isEscapeSequence( int index, int end ) {
+        return index + 2 < end && hexValue( index + 1 ) >= 0 && hexValue( index + 2 ) >= 0;
+    }
+
+    private int hexValue( int index ) {
+        return Character.digit( queryString.charAt( index ), 16 );
+    }
+
+    private static int countSeparators( String queryString ) {
+        int separators = 0;
+        for ( int index = queryString.indexOf( '&' ); index >= 0; index = queryString.indexOf( '&', index + 1 ) )
+            separators++;
+        return separators;
+    }
+
+    private class KvpMap extends AbstractMap<String, String[]> {
+
+        private Set<Entry<String, String[]>> entries;
+
+        @Override
+        public String[] get( Object key ) {
+            if ( key instanceof String )
+                return getValues( (String) key );
+            return null;
+        }
+
+        @Override
+        public boolean containsKey( Object key ) {
+            return key instanceof String && KvpTokenizer.this.containsKey( (String) key );
+        }
+
+        @Override
+        public Set<Entry<String, String[]>> entrySet() {
+            if ( entries == null )
+                entries = unmodifiableSet( createEntries() );
+            return entries;
+        }
+
+        private Set<Entry<String, String[]>> createEntries() {
+            Map<String, String[]> normalizedMap = new LinkedHashMap<String, String[]>();
+            for ( int pair = 0; pair < numberOfPairs; pair++ ) {
+                String key = decodeKey( pair ).toLowerCase();
+                if ( !normalizedMap.containsKey( key ) )
+                    normalizedMap.put( key, getValues( key ) );
+            }
+            return normalizedMap.entrySet();
+        }
+
+    }
+
+}
@@ -35,6 +35,9 @@
  ----------------------------------------------------------------------------*/
 package org.deegree.securityproxy.request;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
  * Encapsulates OWS request.
  * 
@@ -88,4 +91,18 @@ public abstract class OwsRequest {
         return serviceVersion;
     }
 
+    /**
+     * @return the name of the requested service, <code>null</code> if the request does not address a named service
+     */
+    public String getServiceName() {
+        return null;
+    }
+
+    /**
+     * @return the names of the requested layers (coverages, processes, ...), may be empty but never <code>null</code>
+     */
+    public List<String> getLayerNames() {
+        return Collections.emptyList();
+    }
+
 }
\ No newline at end of file
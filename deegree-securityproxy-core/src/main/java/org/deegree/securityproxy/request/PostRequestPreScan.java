@@ -0,0 +1,135 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.request;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.unmodifiableList;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.namespace.QName;
+
+/**
+ * Contains the information of a POST request body required to detect the service and request: the name of the root
+ * element, the attributes 'service', 'version' and 'request' of the root element and the texts of the identifier
+ * elements at the beginning of the root element.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class PostRequestPreScan {
+
+    /**
+     * Name of the request attribute the {@link PostRequestPreScan} is attached to.
+     */
+    public static final String REQUEST_ATTRIBUTE = PostRequestPreScan.class.getName();
+
+    private final QName rootElementName;
+
+    private final String service;
+
+    private final String version;
+
+    private final String request;
+
+    private final Map<QName, List<String>> identifiers;
+
+    /**
+     * @param rootElementName
+     *            the name of the root element, never <code>null</code>
+     * @param service
+     *            the value of the attribute 'service' of the root element, may be <code>null</code>
+     * @param version
+     *            the value of the attribute 'version' of the root element, may be <code>null</code>
+     * @param request
+     *            the value of the attribute 'request' of the root element, may be <code>null</code>
+     * @param identifiers
+     *            the texts of the identifier elements at the beginning of the root element by element name, may be
+     *            empty but never <code>null</code>
+     */
+    public PostRequestPreScan( QName rootElementName, String service, String version, String request,
+                               Map<QName, List<String>> identifiers ) {
+        this.rootElementName = rootElementName;
+        this.service = service;
+        this.version = version;
+        this.request = request;
+        this.identifiers = identifiers;
+    }
+
+    /**
+     * @return the name of the root element, never <code>null</code>
+     */
+    public QName getRootElementName() {
+        return rootElementName;
+    }
+
+    /**
+     * @return the value of the attribute 'service' of the root element, may be <code>null</code>
+     */
+    public String getService() {
+        return service;
+    }
+
+    /**
+     * @return the value of the attribute 'version' of the root element, may be <code>null</code>
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the value of the attribute 'request' of the root element, may be <code>null</code>
+     */
+    public String getRequest() {
+        return request;
+    }
+
+    /**
+     * @param elementName
+     *            the name of the identifier elements, never <code>null</code>
+     * @return the texts of the identifier elements with the passed name at the beginning of the root element, may be
+     *         empty but never <code>null</code>
+     */
+    public List<String> getIdentifiers( QName elementName ) {
+        List<String> identifiersOfElement = identifiers.get( elementName );
+        if ( identifiersOfElement == null )
+            return emptyList();
+        return unmodifiableList( identifiersOfElement );
+    }
+
+}
@@ -0,0 +1,153 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.request.parser;
+
+import static java.util.Collections.unmodifiableMap;
+import static org.deegree.securityproxy.request.KvpNormalizer.normalizeKvpMap;
+import static org.deegree.securityproxy.request.parser.OwsRequestParserUtils.evaluateServiceName;
+
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.deegree.securityproxy.request.KvpTokenizer;
+
+/**
+ * Request scoped information derived from a {@link HttpServletRequest}: the method, the normalized key value pairs,
+ * the service name of the servlet path and the service type. Each information is derived once on first access, the
+ * context is attached to the request by {@link #retrieveContext(HttpServletRequest)} so that the filter, the parsers
+ * and the exception handler share it. Instances are not thread safe.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class OwsRequestContext {
+
+    /**
+     * Name of the request attribute the {@link OwsRequestContext} is attached to.
+     */
+    public static final String REQUEST_ATTRIBUTE = OwsRequestContext.class.getName();
+
+    private final HttpServletRequest request;
+
+    private final String method;
+
+    private Map<String, String[]> normalizedParameterMap;
+
+    private String serviceName;
+
+    private String serviceType;
+
+    private boolean isServiceTypeDetermined;
+
+    /**
+     * @param request
+     *            the request to derive the information from, never <code>null</code>
+     */
+    public OwsRequestContext( HttpServletRequest request ) {
+        this.request = request;
+        this.method = request.getMethod();
+    }
+
+    /**
+     * Retrieves the {@link OwsRequestContext} attached to the request. If none is attached a new context is created
+     * and attached to the request.
+     * 
+     * @param request
+     *            the request to retrieve the context for, never <code>null</code>
+     * @return the {@link OwsRequestContext} of the request, never <code>null</code>
+     */
+    public static OwsRequestContext retrieveContext( HttpServletRequest request ) {
+        Object attachedContext = request.getAttribute( REQUEST_ATTRIBUTE );
+        if ( attachedContext instanceof OwsRequestContext )
+            return (OwsRequestContext) attachedContext;
+        OwsRequestContext context = new OwsRequestContext( request );
+        request.setAttribute( REQUEST_ATTRIBUTE, context );
+        return context;
+    }
+
+    /**
+     * @return the http method of the request, may be <code>null</code>
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * The parameters of GET requests are tokenized from the raw query string, only the values of the requested keys are
+     * decoded.
+     * 
+     * @return the read-only parameters of the request with lower case keys, may be empty but never <code>null</code>
+     */
+    public Map<String, String[]> getNormalizedParameterMap() {
+        if ( normalizedParameterMap == null )
+            normalizedParameterMap = createNormalizedParameterMap();
+        return normalizedParameterMap;
+    }
+
+    /**
+     * @return the service name (last step of the servlet path), never <code>null</code>
+     * @throws IllegalArgumentException
+     *             - if service name is not available
+     */
+    public String getServiceName() {
+        if ( serviceName == null )
+            serviceName = evaluateServiceName( request );
+        return serviceName;
+    }
+
+    /**
+     * @return the service type of the request as determined by the {@link ServiceTypeParser}, <code>null</code> if no
+     *         service type was found
+     */
+    public String getServiceType() {
+        if ( !isServiceTypeDetermined ) {
+            serviceType = new ServiceTypeParser().determineServiceType( request );
+            isServiceTypeDetermined = true;
+        }
+        return serviceType;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, String[]> createNormalizedParameterMap() {
+        String queryString = request.getQueryString();
+        if ( "GET".equals( method ) && queryString != null )
+            return new KvpTokenizer( queryString ).asMap();
+        return unmodifiableMap( normalizeKvpMap( request.getParameterMap() ) );
+    }
+
+}
@@ -0,0 +1,141 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.request.parser;
+
+import static javax.xml.stream.XMLStreamConstants.END_DOCUMENT;
+import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+import static org.deegree.securityproxy.request.PostRequestPreScan.REQUEST_ATTRIBUTE;
+import static org.deegree.securityproxy.xml.XmlStreamUtils.createReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.deegree.securityproxy.request.PostRequestPreScan;
+
+/**
+ * Scans the body of POST requests once and attaches the {@link PostRequestPreScan} to the request, so that all
+ * filters, parsers and exception handlers processing the request share the result instead of parsing the body again.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public final class PostRequestPreScanner {
+
+    private static final String IDENTIFIER_LOCAL_NAME = "Identifier";
+
+    private PostRequestPreScanner() {
+    }
+
+    /**
+     * Retrieves the {@link PostRequestPreScan} attached to the request. If none is attached the body is scanned and the
+     * result is attached to the request.
+     * 
+     * @param request
+     *            the POST request, never <code>null</code>
+     * @return the {@link PostRequestPreScan} of the request body, never <code>null</code>
+     * @throws IOException
+     *             if the body could not be read
+     * @throws XMLStreamException
+     *             if the body is not a valid xml document
+     */
+    public static PostRequestPreScan retrievePreScan( HttpServletRequest request )
+                    throws IOException, XMLStreamException {
+        Object attachedPreScan = request.getAttribute( REQUEST_ATTRIBUTE );
+        if ( attachedPreScan instanceof PostRequestPreScan )
+            return (PostRequestPreScan) attachedPreScan;
+        PostRequestPreScan preScan = scan( request.getInputStream() );
+        request.setAttribute( REQUEST_ATTRIBUTE, preScan );
+        return preScan;
+    }
+
+    /**
+     * Scans the root element and the identifier elements at the beginning of the root element. Scanning stops at the
+     * first child element which is not an identifier, the remaining document is not read.
+     * 
+     * @param body
+     *            the request body, never <code>null</code>
+     * @return the {@link PostRequestPreScan} of the body, never <code>null</code>
+     * @throws XMLStreamException
+     *             if the body is not a valid xml document
+     */
+    public static PostRequestPreScan scan( InputStream body )
+                    throws XMLStreamException {
+        XMLStreamReader reader = createReader( body );
+        try {
+            QName rootElementName = reader.getName();
+            String service = reader.getAttributeValue( null, "service" );
+            String version = reader.getAttributeValue( null, "version" );
+            String request = reader.getAttributeValue( null, "request" );
+            Map<QName, List<String>> identifiers = scanLeadingIdentifiers( reader );
+            return new PostRequestPreScan( rootElementName, service, version, request, identifiers );
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static Map<QName, List<String>> scanLeadingIdentifiers( XMLStreamReader reader )
+                    throws XMLStreamException {
+        Map<QName, List<String>> identifiers = new LinkedHashMap<QName, List<String>>();
+        int event = reader.next();
+        while ( event != END_DOCUMENT && event != END_ELEMENT ) {
+            if ( event == START_ELEMENT ) {
+                if ( !IDENTIFIER_LOCAL_NAME.equals( reader.getLocalName() ) )
+                    break;
+                QName elementName = reader.getName();
+                List<String> identifiersOfElement = identifiers.get( elementName );
+                if ( identifiersOfElement == null ) {
+                    identifiersOfElement = new ArrayList<String>();
+                    identifiers.put( elementName, identifiersOfElement );
+                }
+                identifiersOfElement.add( reader.getElementText() );
+            }
+            event = reader.next();
+        }
+        return identifiers;
+    }
+
+}
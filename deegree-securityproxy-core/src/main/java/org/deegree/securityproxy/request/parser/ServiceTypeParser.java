@@ -1,14 +1,13 @@
 package org.deegree.securityproxy.request.parser;
 
-import static org.deegree.securityproxy.request.KvpNormalizer.normalizeKvpMap;
-import static org.deegree.securityproxy.xml.XmlStreamUtils.createReader;
+import static org.deegree.securityproxy.request.parser.OwsRequestContext.retrieveContext;
+import static org.deegree.securityproxy.request.parser.PostRequestPreScanner.retrievePreScan;
 
 import java.io.IOException;
 import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.xml.stream.XMLStreamException;
-import javax.xml.stream.XMLStreamReader;
 
 import org.apache.log4j.Logger;
 
@@ -43,8 +42,7 @@ public class ServiceTypeParser {
     }
 
     private String handleGetRequest( HttpServletRequest request ) {
-        @SuppressWarnings("unchecked")
-        Map<String, String[]> kvpMap = normalizeKvpMap( request.getParameterMap() );
+        Map<String, String[]> kvpMap = retrieveContext( request ).getNormalizedParameterMap();
         String[] serviceTypes = kvpMap.get( "service" );
         if ( serviceTypes == null || serviceTypes.length < 1 )
             return null;
@@ -53,8 +51,7 @@ public class ServiceTypeParser {
 
     private String handlePostRequest( HttpServletRequest request ) {
         try {
-            XMLStreamReader reader = createReader( request.getInputStream() );
-            return reader.getAttributeValue( null, "service" );
+            return retrievePreScan( request ).getService();
         } catch ( IOException e ) {
             return handleExceptionOfReader( e );
         } catch ( XMLStreamException e ) {
@@ -74,7 +74,9 @@ public interface ResponseFilterManager {
                             throws IllegalArgumentException, ResponseFilterException;
 
     /**
-     * Checks if the passed request can be filtered or not.
+     * Checks if the passed request can be filtered or not. The result must only depend on the class, the service type,
+     * the operation type and the service version of the request, it is remembered for further requests of the same
+     * kind (see {@link ResponseFilterRoutingTable}).
      * 
      * @param request
      *            to check if can handled by this {@link ResponseFilterManager}
@@ -0,0 +1,173 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.responsefilter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.deegree.securityproxy.filter.StatusCodeResponseBodyWrapper;
+import org.deegree.securityproxy.request.OwsRequest;
+import org.deegree.securityproxy.request.OwsServiceVersion;
+import org.deegree.securityproxy.responsefilter.logging.ResponseFilterReport;
+import org.springframework.security.core.Authentication;
+
+/**
+ * Resolves the {@link ResponseFilterManager} responsible for an {@link OwsRequest}. The first
+ * {@link ResponseFilterManager} able to filter a combination of request class, service type, operation type and
+ * service version is remembered, later requests of the same combination are resolved without invoking
+ * {@link ResponseFilterManager#canBeFiltered(OwsRequest)} again.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class ResponseFilterRoutingTable {
+
+    static final int MAX_ROUTES = 256;
+
+    private static final ResponseFilterManager NO_FILTER_MANAGER = new NoResponseFilterManager();
+
+    private final List<ResponseFilterManager> filterManagers;
+
+    private final ConcurrentMap<RouteKey, ResponseFilterManager> routes = new ConcurrentHashMap<RouteKey, ResponseFilterManager>();
+
+    /**
+     * @param filterManagers
+     *            the {@link ResponseFilterManager}s in the order they are asked, may be <code>null</code>
+     */
+    public ResponseFilterRoutingTable( List<ResponseFilterManager> filterManagers ) {
+        if ( filterManagers != null )
+            this.filterManagers = filterManagers;
+        else
+            this.filterManagers = Collections.emptyList();
+    }
+
+    /**
+     * @param owsRequest
+     *            the parsed request, never <code>null</code>
+     * @return the first {@link ResponseFilterManager} which can filter the response of the request, <code>null</code>
+     *         if the response is not filtered
+     */
+    public ResponseFilterManager resolve( OwsRequest owsRequest ) {
+        RouteKey key = new RouteKey( owsRequest );
+        ResponseFilterManager filterManager = routes.get( key );
+        if ( filterManager == null ) {
+            filterManager = detectFilterManager( owsRequest );
+            if ( routes.size() < MAX_ROUTES )
+                routes.putIfAbsent( key, filterManager );
+        }
+        if ( filterManager == NO_FILTER_MANAGER )
+            return null;
+        return filterManager;
+    }
+
+    private ResponseFilterManager detectFilterManager( OwsRequest owsRequest ) {
+        for ( ResponseFilterManager filterManager : filterManagers ) {
+            if ( filterManager.canBeFiltered( owsRequest ) )
+                return filterManager;
+        }
+        return NO_FILTER_MANAGER;
+    }
+
+    private static class RouteKey {
+
+        private final Class<?> requestClass;
+
+        private final String serviceType;
+
+        private final String operationType;
+
+        private final OwsServiceVersion serviceVersion;
+
+        private final int hashCode;
+
+        private RouteKey( OwsRequest owsRequest ) {
+            this.requestClass = owsRequest.getClass();
+            this.serviceType = owsRequest.getServiceType();
+            this.operationType = owsRequest.getOperationType();
+            this.serviceVersion = owsRequest.getServiceVersion();
+            this.hashCode = calculateHashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals( Object obj ) {
+            if ( this == obj )
+                return true;
+            if ( !( obj instanceof RouteKey ) )
+                return false;
+            RouteKey other = (RouteKey) obj;
+            return requestClass == other.requestClass && equals( serviceType, other.serviceType )
+                   && equals( operationType, other.operationType ) && equals( serviceVersion, other.serviceVersion );
+        }
+
+        private int calculateHashCode() {
+            final int prime = 31;
+            int result = requestClass.hashCode();
+            result = prime * result + ( ( serviceType == null ) ? 0 : serviceType.hashCode() );
+            result = prime * result + ( ( operationType == null ) ? 0 : operationType.hashCode() );
+            result = prime * result + ( ( serviceVersion == null ) ? 0 : serviceVersion.hashCode() );
+            return result;
+        }
+
+        private static boolean equals( Object first, Object second ) {
+            return first == null ? second == null : first.equals( second );
+        }
+
+    }
+
+    private static class NoResponseFilterManager implements ResponseFilterManager {
+
+        @Override
+        public ResponseFilterReport filterResponse( StatusCodeResponseBodyWrapper servletResponse,
+                                                    OwsRequest request, Authentication auth ) {
+            throw new IllegalArgumentException( "No response filter manager available!" );
+        }
+
+        @Override
+        public boolean canBeFiltered( OwsRequest request ) {
+            return false;
+        }
+
+    }
+
+}
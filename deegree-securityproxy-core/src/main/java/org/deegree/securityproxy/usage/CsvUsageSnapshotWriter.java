@@ -0,0 +1,121 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.usage;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TimeZone;
+
+/**
+ * Appends the snapshots to a CSV file, one line per key. The header line is written if the file is created.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class CsvUsageSnapshotWriter implements UsageSnapshotWriter {
+
+    static final String CSV_HEADER = "interval_start,interval_end,user,service_type,service_name,operation,layer,"
+                                     + "outcome,count";
+
+    private final File file;
+
+    private final SimpleDateFormat timeFormat;
+
+    /**
+     * @param file
+     *            path of the file to append the snapshots to, created with the first snapshot if it does not exist,
+     *            never <code>null</code>
+     */
+    public CsvUsageSnapshotWriter( String file ) {
+        this.file = new File( file );
+        this.timeFormat = new SimpleDateFormat( "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'" );
+        this.timeFormat.setTimeZone( TimeZone.getTimeZone( "UTC" ) );
+    }
+
+    @Override
+    public synchronized void write( long intervalStart, long intervalEnd, Map<UsageKey, Long> counts )
+                            throws IOException {
+        boolean isNewFile = !file.exists() || file.length() == 0;
+        Writer writer = new BufferedWriter( new OutputStreamWriter( new FileOutputStream( file, true ), "UTF-8" ) );
+        try {
+            if ( isNewFile )
+                writeLine( writer, CSV_HEADER );
+            String interval = timeFormat.format( new Date( intervalStart ) ) + ","
+                              + timeFormat.format( new Date( intervalEnd ) );
+            for ( Entry<UsageKey, Long> count : counts.entrySet() ) {
+                UsageKey key = count.getKey();
+                StringBuilder line = new StringBuilder( interval );
+                appendValue( line, key.getUserName() );
+                appendValue( line, key.getServiceType() );
+                appendValue( line, key.getServiceName() );
+                appendValue( line, key.getOperation() );
+                appendValue( line, key.getLayerName() );
+                appendValue( line, key.getOutcome() );
+                line.append( ',' ).append( count.getValue() );
+                writeLine( writer, line.toString() );
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    private void writeLine( Writer writer, String line )
+                            throws IOException {
+        writer.write( line );
+        writer.write( "\r\n" );
+    }
+
+    private void appendValue( StringBuilder line, String value ) {
+        line.append( ',' );
+        if ( value == null )
+            return;
+        if ( value.indexOf( ',' ) < 0 && value.indexOf( '"' ) < 0 && value.indexOf( '\n' ) < 0
+             && value.indexOf( '\r' ) < 0 )
+            line.append( value );
+        else
+            line.append( '"' ).append( value.replace( "\"", "\"\"" ) ).append( '"' );
+    }
+
+}
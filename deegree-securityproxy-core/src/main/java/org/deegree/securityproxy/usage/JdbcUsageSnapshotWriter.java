@@ -0,0 +1,135 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.usage;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.sql.DataSource;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Inserts the snapshots into a database table, one row per key, in a single transaction. The table must contain the
+ * columns interval_start and interval_end (timestamp), user_name, service_type, service_name, operation, layer and
+ * outcome (character varying) and request_count (bigint).
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class JdbcUsageSnapshotWriter implements UsageSnapshotWriter {
+
+    private static final Logger LOG = Logger.getLogger( JdbcUsageSnapshotWriter.class );
+
+    private final DataSource dataSource;
+
+    private final String insertStatement;
+
+    /**
+     * @param dataSource
+     *            the database to write to, never <code>null</code>
+     * @param tableName
+     *            the name of the table including the schema, never <code>null</code>
+     */
+    public JdbcUsageSnapshotWriter( DataSource dataSource, String tableName ) {
+        this.dataSource = dataSource;
+        this.insertStatement = "INSERT INTO " + tableName + " (interval_start, interval_end, user_name, service_type, "
+                               + "service_name, operation, layer, outcome, request_count) "
+                               + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    }
+
+    @Override
+    public void write( long intervalStart, long intervalEnd, Map<UsageKey, Long> counts )
+                            throws IOException {
+        try {
+            Connection connection = dataSource.getConnection();
+            try {
+                insert( connection, intervalStart, intervalEnd, counts );
+            } finally {
+                connection.close();
+            }
+        } catch ( SQLException e ) {
+            throw new IOException( "Usage snapshot could not be inserted: " + e.getMessage(), e );
+        }
+    }
+
+    private void insert( Connection connection, long intervalStart, long intervalEnd, Map<UsageKey, Long> counts )
+                            throws SQLException {
+        boolean isAutoCommit = connection.getAutoCommit();
+        connection.setAutoCommit( false );
+        PreparedStatement statement = connection.prepareStatement( insertStatement );
+        try {
+            Timestamp start = new Timestamp( intervalStart );
+            Timestamp end = new Timestamp( intervalEnd );
+            for ( Entry<UsageKey, Long> count : counts.entrySet() ) {
+                UsageKey key = count.getKey();
+                statement.setTimestamp( 1, start );
+                statement.setTimestamp( 2, end );
+                statement.setString( 3, key.getUserName() );
+                statement.setString( 4, key.getServiceType() );
+                statement.setString( 5, key.getServiceName() );
+                statement.setString( 6, key.getOperation() );
+                statement.setString( 7, key.getLayerName() );
+                statement.setString( 8, key.getOutcome() );
+                statement.setLong( 9, count.getValue() );
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            connection.commit();
+        } catch ( SQLException e ) {
+            rollback( connection );
+            throw e;
+        } finally {
+            statement.close();
+            connection.setAutoCommit( isAutoCommit );
+        }
+    }
+
+    private void rollback( Connection connection ) {
+        try {
+            connection.rollback();
+        } catch ( SQLException e ) {
+            LOG.warn( "Usage snapshot could not be rolled back: " + e.getMessage() );
+        }
+    }
+
+}
@@ -0,0 +1,139 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.usage;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free counter for frequent concurrent increments and rare reads (in the style of the LongAdder of Java 8). The
+ * value is counted in a single base cell until threads contend, then the increments are spread over cells selected by
+ * thread. Each cell is placed on its own cache line.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+final class StripedCounter {
+
+    // longs per cache line of 64 bytes
+    private static final int PADDING = 8;
+
+    private static final int CELLS = cellCount();
+
+    private final AtomicLong base = new AtomicLong();
+
+    private volatile AtomicLongArray cells;
+
+    private volatile boolean isRetired;
+
+    /**
+     * @param delta
+     *            to add, may be negative
+     */
+    void add( long delta ) {
+        AtomicLongArray currentCells = cells;
+        if ( currentCells == null ) {
+            long value = base.get();
+            if ( base.compareAndSet( value, value + delta ) )
+                return;
+            currentCells = inflate();
+        }
+        currentCells.getAndAdd( indexOfCurrentThread(), delta );
+    }
+
+    /**
+     * @return the current sum, an estimate if the counter is incremented concurrently
+     */
+    long sum() {
+        long sum = base.get();
+        AtomicLongArray currentCells = cells;
+        if ( currentCells != null ) {
+            for ( int index = 0; index < currentCells.length(); index += PADDING )
+                sum += currentCells.get( index );
+        }
+        return sum;
+    }
+
+    /**
+     * Resets the counter and returns the sum before. Each increment is returned by exactly one invocation, even if the
+     * counter is incremented concurrently.
+     * 
+     * @return the sum counted since the last reset
+     */
+    long sumThenReset() {
+        long sum = base.getAndSet( 0 );
+        AtomicLongArray currentCells = cells;
+        if ( currentCells != null ) {
+            for ( int index = 0; index < currentCells.length(); index += PADDING )
+                sum += currentCells.getAndSet( index, 0 );
+        }
+        return sum;
+    }
+
+    /**
+     * Marks the counter as removed, increments added afterwards must be moved to a new counter.
+     */
+    void retire() {
+        isRetired = true;
+    }
+
+    /**
+     * @return <code>true</code> if the counter was removed
+     */
+    boolean isRetired() {
+        return isRetired;
+    }
+
+    private synchronized AtomicLongArray inflate() {
+        if ( cells == null )
+            cells = new AtomicLongArray( CELLS * PADDING );
+        return cells;
+    }
+
+    private int indexOfCurrentThread() {
+        long id = Thread.currentThread().getId();
+        int hash = (int) ( id ^ ( id >>> 32 ) ) * 0x9E3779B9;
+        return ( ( hash >>> 16 ) & ( CELLS - 1 ) ) * PADDING;
+    }
+
+    private static int cellCount() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        int cells = Integer.highestOneBit( processors );
+        return cells < processors ? cells << 1 : cells;
+    }
+
+}
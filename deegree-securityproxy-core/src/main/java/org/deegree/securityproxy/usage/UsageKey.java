@@ -0,0 +1,151 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.usage;
+
+/**
+ * Identifies a counter of the {@link UsageStatistics}. All values may be <code>null</code> if they are unknown, e.g.
+ * if the request could not be parsed.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class UsageKey {
+
+    private final String userName;
+
+    private final String serviceType;
+
+    private final String serviceName;
+
+    private final String operation;
+
+    private final String layerName;
+
+    private final String outcome;
+
+    private final int hashCode;
+
+    /**
+     * @param userName
+     *            the name of the authenticated user, may be <code>null</code>
+     * @param serviceType
+     *            the type of the service (wms, wcs, ...), may be <code>null</code>
+     * @param serviceName
+     *            the name of the requested service, may be <code>null</code>
+     * @param operation
+     *            the requested operation, may be <code>null</code>
+     * @param layerName
+     *            the requested layer, may be <code>null</code>
+     * @param outcome
+     *            the outcome of the request or the response filtering, may be <code>null</code>
+     */
+    public UsageKey( String userName, String serviceType, String serviceName, String operation, String layerName,
+                     String outcome ) {
+        this.userName = userName;
+        this.serviceType = serviceType;
+        this.serviceName = serviceName;
+        this.operation = operation;
+        this.layerName = layerName;
+        this.outcome = outcome;
+        this.hashCode = calculateHashCode();
+    }
+
+    public String getUserName() {
+        return userName;
+    }
+
+    public String getServiceType() {
+        return serviceType;
+    }
+
+    public String getServiceName() {
+        return serviceName;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public String getLayerName() {
+        return layerName;
+    }
+
+    public String getOutcome() {
+        return outcome;
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public boolean equals( Object obj ) {
+        if ( this == obj )
+            return true;
+        if ( obj == null || getClass() != obj.getClass() )
+            return false;
+        UsageKey other = (UsageKey) obj;
+        return hashCode == other.hashCode && isEqual( userName, other.userName )
+               && isEqual( serviceType, other.serviceType ) && isEqual( serviceName, other.serviceName )
+               && isEqual( operation, other.operation ) && isEqual( layerName, other.layerName )
+               && isEqual( outcome, other.outcome );
+    }
+
+    @Override
+    public String toString() {
+        return "UsageKey [userName=" + userName + ", serviceType=" + serviceType + ", serviceName=" + serviceName
+               + ", operation=" + operation + ", layerName=" + layerName + ", outcome=" + outcome + "]";
+    }
+
+    private int calculateHashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + ( ( userName == null ) ? 0 : userName.hashCode() );
+        result = prime * result + ( ( serviceType == null ) ? 0 : serviceType.hashCode() );
+        result = prime * result + ( ( serviceName == null ) ? 0 : serviceName.hashCode() );
+        result = prime * result + ( ( operation == null ) ? 0 : operation.hashCode() );
+        result = prime * result + ( ( layerName == null ) ? 0 : layerName.hashCode() );
+        result = prime * result + ( ( outcome == null ) ? 0 : outcome.hashCode() );
+        return result;
+    }
+
+    private static boolean isEqual( String value, String other ) {
+        return value == null ? other == null : value.equals( other );
+    }
+
+}
@@ -0,0 +1,333 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.usage;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.deegree.securityproxy.request.OwsRequest;
+import org.deegree.securityproxy.responsefilter.logging.ResponseFilterReport;
+
+/**
+ * Counts the requests and response filter results by user, service, operation, layer and outcome. Requests addressing
+ * several layers are counted once per layer. The counters are lock-free and striped, so concurrent requests do not
+ * contend.
+ * 
+ * The counts are written periodically by an {@link UsageSnapshotWriter} and reset afterwards, each snapshot contains
+ * the counts of one interval. Keys not counted during an interval are removed.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class UsageStatistics implements UsageStatisticsMBean {
+
+    private static final Logger LOG = Logger.getLogger( UsageStatistics.class );
+
+    /**
+     * Outcome of a request sent to the backend service and answered with a 2xx or 3xx status code.
+     */
+    public static final String SUCCESS = "success";
+
+    /**
+     * Outcome of a request which was rejected or answered with an error.
+     */
+    public static final String FAILURE = "failure";
+
+    /**
+     * Outcome of a request which was not authorized.
+     */
+    public static final String DENIED = "denied";
+
+    /**
+     * Outcome of the response filtering if the response was filtered.
+     */
+    public static final String FILTERED = "filtered";
+
+    /**
+     * Outcome of the response filtering if the response was not changed.
+     */
+    public static final String NOT_FILTERED = "not_filtered";
+
+    /**
+     * Outcome of the response filtering if filtering failed.
+     */
+    public static final String FILTER_FAILED = "filter_failed";
+
+    private static final long CLOSE_TIMEOUT = SECONDS.toMillis( 10 );
+
+    private final ConcurrentMap<UsageKey, StripedCounter> counters = new ConcurrentHashMap<UsageKey, StripedCounter>();
+
+    private final UsageSnapshotWriter snapshotWriter;
+
+    private final boolean isEnabled;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final AtomicLong writtenSnapshots = new AtomicLong();
+
+    private final AtomicLong failedSnapshots = new AtomicLong();
+
+    private long intervalStart = System.currentTimeMillis();
+
+    /**
+     * Instantiates disabled {@link UsageStatistics}, nothing is counted.
+     */
+    public UsageStatistics() {
+        this( null, 0, false );
+    }
+
+    /**
+     * @param snapshotWriter
+     *            writes the snapshots, may be <code>null</code> if disabled
+     * @param flushInterval
+     *            the time in milliseconds between two snapshots, 0 if snapshots are written only with {@link #flush()}
+     *            and {@link #close()}
+     * @param isEnabled
+     *            <code>true</code> if requests should be counted, <code>false</code> otherwise
+     * @throws IllegalArgumentException
+     *             if enabled and the writer is <code>null</code> or the interval is negative
+     */
+    public UsageStatistics( UsageSnapshotWriter snapshotWriter, long flushInterval, boolean isEnabled ) {
+        if ( isEnabled && snapshotWriter == null )
+            throw new IllegalArgumentException( "Snapshot writer must not be null!" );
+        if ( flushInterval < 0 )
+            throw new IllegalArgumentException( "Flush interval must not be negative!" );
+        this.snapshotWriter = snapshotWriter;
+        this.isEnabled = isEnabled;
+        if ( isEnabled && flushInterval > 0 ) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor( new ThreadFactory() {
+                @Override
+                public Thread newThread( Runnable runnable ) {
+                    Thread thread = new Thread( runnable, "usage-statistics" );
+                    thread.setDaemon( true );
+                    return thread;
+                }
+            } );
+            this.scheduler.scheduleAtFixedRate( new Runnable() {
+                @Override
+                public void run() {
+                    flush();
+                }
+            }, flushInterval, flushInterval, MILLISECONDS );
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    /**
+     * Counts a request.
+     * 
+     * @param userName
+     *            the name of the authenticated user, may be <code>null</code>
+     * @param owsRequest
+     *            the parsed request, may be <code>null</code> if the request could not be parsed
+     * @param outcome
+     *            {@link #SUCCESS}, {@link #FAILURE} or {@link #DENIED}, never <code>null</code>
+     */
+    public void countRequest( String userName, OwsRequest owsRequest, String outcome ) {
+        if ( isEnabled )
+            count( userName, owsRequest, outcome );
+    }
+
+    /**
+     * Counts the result of the response filtering.
+     * 
+     * @param userName
+     *            the name of the authenticated user, may be <code>null</code>
+     * @param owsRequest
+     *            the parsed request, never <code>null</code>
+     * @param filterReport
+     *            the report of the response filtering, never <code>null</code>
+     */
+    public void countFilterReport( String userName, OwsRequest owsRequest, ResponseFilterReport filterReport ) {
+        if ( !isEnabled )
+            return;
+        if ( filterReport.isFailed() )
+            count( userName, owsRequest, FILTER_FAILED );
+        else
+            count( userName, owsRequest, filterReport.isFiltered() ? FILTERED : NOT_FILTERED );
+    }
+
+    /**
+     * @return the current counts by key, the counters are not reset, never <code>null</code>
+     */
+    public Map<UsageKey, Long> getCounts() {
+        Map<UsageKey, Long> counts = new HashMap<UsageKey, Long>();
+        for ( Entry<UsageKey, StripedCounter> counter : counters.entrySet() ) {
+            long sum = counter.getValue().sum();
+            if ( sum > 0 )
+                counts.put( counter.getKey(), sum );
+        }
+        return counts;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return isEnabled;
+    }
+
+    @Override
+    public int getCounters() {
+        return counters.size();
+    }
+
+    @Override
+    public long getWrittenSnapshots() {
+        return writtenSnapshots.get();
+    }
+
+    @Override
+    public long getFailedSnapshots() {
+        return failedSnapshots.get();
+    }
+
+    @Override
+    public synchronized void flush() {
+        if ( !isEnabled )
+            return;
+        long intervalEnd = System.currentTimeMillis();
+        Map<UsageKey, Long> snapshot = takeSnapshot();
+        if ( snapshot.isEmpty() ) {
+            intervalStart = intervalEnd;
+            return;
+        }
+        try {
+            snapshotWriter.write( intervalStart, intervalEnd, snapshot );
+            writtenSnapshots.incrementAndGet();
+            intervalStart = intervalEnd;
+        } catch ( IOException e ) {
+            restoreSnapshot( snapshot, e );
+        } catch ( RuntimeException e ) {
+            restoreSnapshot( snapshot, e );
+        }
+    }
+
+    /**
+     * Stops the periodic snapshots and writes the counts collected since the last snapshot.
+     */
+    public void close() {
+        if ( scheduler != null ) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination( CLOSE_TIMEOUT, MILLISECONDS );
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+    }
+
+    private void count( String userName, OwsRequest owsRequest, String outcome ) {
+        if ( owsRequest == null ) {
+            add( new UsageKey( userName, null, null, null, null, outcome ), 1 );
+            return;
+        }
+        String serviceType = owsRequest.getServiceType();
+        String serviceName = owsRequest.getServiceName();
+        String operation = owsRequest.getOperationType();
+        List<String> layerNames = owsRequest.getLayerNames();
+        if ( layerNames.isEmpty() ) {
+            add( new UsageKey( userName, serviceType, serviceName, operation, null, outcome ), 1 );
+        } else {
+            for ( String layerName : layerNames )
+                add( new UsageKey( userName, serviceType, serviceName, operation, layerName, outcome ), 1 );
+        }
+    }
+
+    private void add( UsageKey key, long delta ) {
+        StripedCounter counter = retrieveCounter( key );
+        counter.add( delta );
+        // the counter was removed concurrently, the increment would be lost if it was added after the final reset
+        if ( counter.isRetired() ) {
+            long moved = counter.sumThenReset();
+            if ( moved != 0 )
+                retrieveCounter( key ).add( moved );
+        }
+    }
+
+    private StripedCounter retrieveCounter( UsageKey key ) {
+        StripedCounter counter = counters.get( key );
+        while ( counter == null || counter.isRetired() ) {
+            if ( counter != null )
+                counters.remove( key, counter );
+            StripedCounter newCounter = new StripedCounter();
+            counter = counters.putIfAbsent( key, newCounter );
+            if ( counter == null )
+                counter = newCounter;
+        }
+        return counter;
+    }
+
+    private void restoreSnapshot( Map<UsageKey, Long> snapshot, Exception e ) {
+        failedSnapshots.incrementAndGet();
+        LOG.error( "Usage snapshot could not be written, the counts are kept for the next snapshot: "
+                   + e.getMessage() );
+        for ( Entry<UsageKey, Long> count : snapshot.entrySet() )
+            add( count.getKey(), count.getValue() );
+    }
+
+    private Map<UsageKey, Long> takeSnapshot() {
+        Map<UsageKey, Long> snapshot = new HashMap<UsageKey, Long>();
+        for ( Entry<UsageKey, StripedCounter> entry : counters.entrySet() ) {
+            StripedCounter counter = entry.getValue();
+            long sum = counter.sumThenReset();
+            if ( sum == 0 ) {
+                counter.retire();
+                counters.remove( entry.getKey(), counter );
+                // increments between the reset and the retirement
+                sum = counter.sumThenReset();
+            }
+            if ( sum != 0 )
+                snapshot.put( entry.getKey(), sum );
+        }
+        return snapshot;
+    }
+
+}
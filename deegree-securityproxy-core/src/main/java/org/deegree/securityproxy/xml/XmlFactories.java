@@ -0,0 +1,169 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.xml;
+
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Provides the StAX factories shared by all components reading or writing xml. The factories are created and
+ * configured once, as the lookup of the implementation is expensive. The implementations can be selected with the
+ * system properties {@value #INPUT_FACTORY_PROPERTY}, {@value #OUTPUT_FACTORY_PROPERTY} and
+ * {@value #EVENT_FACTORY_PROPERTY} containing the class name of the factory (e.g.
+ * <code>com.ctc.wstx.stax.WstxInputFactory</code> for Woodstox or
+ * <code>com.fasterxml.aalto.stax.InputFactoryImpl</code> for Aalto). If not set, the implementation is looked up as
+ * defined by StAX.
+ * <p>
+ * The {@link XMLInputFactory} does not support DTDs and external entities, neither the requests nor the responses
+ * forwarded by the proxy require them. Element names are interned if the implementation supports it. Coalescing is
+ * disabled by default, as it would turn CDATA sections of filtered documents into text, and can be enabled with the
+ * system property {@value #COALESCING_PROPERTY}.
+ * </p>
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public final class XmlFactories {
+
+    /**
+     * System property containing the class name of the {@link XMLInputFactory} implementation.
+     */
+    public static final String INPUT_FACTORY_PROPERTY = "deegree.securityproxy.xml.XMLInputFactory";
+
+    /**
+     * System property containing the class name of the {@link XMLOutputFactory} implementation.
+     */
+    public static final String OUTPUT_FACTORY_PROPERTY = "deegree.securityproxy.xml.XMLOutputFactory";
+
+    /**
+     * System property containing the class name of the {@link XMLEventFactory} implementation.
+     */
+    public static final String EVENT_FACTORY_PROPERTY = "deegree.securityproxy.xml.XMLEventFactory";
+
+    /**
+     * System property enabling coalescing of the {@link XMLInputFactory} if set to <code>true</code>.
+     */
+    public static final String COALESCING_PROPERTY = "deegree.securityproxy.xml.coalescing";
+
+    static final String INTERN_NAMES = "org.codehaus.stax2.internNames";
+
+    static final String INTERN_NS_URIS = "org.codehaus.stax2.internNsUris";
+
+    private static final Logger LOG = Logger.getLogger( XmlFactories.class );
+
+    private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
+    private static final XMLOutputFactory OUTPUT_FACTORY = createOutputFactory();
+
+    private static final XMLEventFactory EVENT_FACTORY = createEventFactory();
+
+    private XmlFactories() {
+    }
+
+    /**
+     * @return the shared {@link XMLInputFactory}, must not be reconfigured, never <code>null</code>
+     */
+    public static XMLInputFactory getInputFactory() {
+        return INPUT_FACTORY;
+    }
+
+    /**
+     * @return the shared {@link XMLOutputFactory}, must not be reconfigured, never <code>null</code>
+     */
+    public static XMLOutputFactory getOutputFactory() {
+        return OUTPUT_FACTORY;
+    }
+
+    /**
+     * @return the shared {@link XMLEventFactory}, {@link XMLEventFactory#setLocation(javax.xml.stream.Location)} must
+     *         not be invoked, never <code>null</code>
+     */
+    public static XMLEventFactory getEventFactory() {
+        return EVENT_FACTORY;
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory inputFactory = instantiate( INPUT_FACTORY_PROPERTY, XMLInputFactory.class );
+        if ( inputFactory == null )
+            inputFactory = XMLInputFactory.newFactory();
+        inputFactory.setProperty( XMLInputFactory.SUPPORT_DTD, false );
+        inputFactory.setProperty( XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false );
+        inputFactory.setProperty( XMLInputFactory.IS_COALESCING, Boolean.getBoolean( COALESCING_PROPERTY ) );
+        setPropertyIfSupported( inputFactory, INTERN_NAMES, true );
+        setPropertyIfSupported( inputFactory, INTERN_NS_URIS, true );
+        LOG.info( "Using XMLInputFactory " + inputFactory.getClass().getName() );
+        return inputFactory;
+    }
+
+    private static XMLOutputFactory createOutputFactory() {
+        XMLOutputFactory outputFactory = instantiate( OUTPUT_FACTORY_PROPERTY, XMLOutputFactory.class );
+        if ( outputFactory == null )
+            outputFactory = XMLOutputFactory.newFactory();
+        LOG.info( "Using XMLOutputFactory " + outputFactory.getClass().getName() );
+        return outputFactory;
+    }
+
+    private static XMLEventFactory createEventFactory() {
+        XMLEventFactory eventFactory = instantiate( EVENT_FACTORY_PROPERTY, XMLEventFactory.class );
+        if ( eventFactory == null )
+            eventFactory = XMLEventFactory.newFactory();
+        return eventFactory;
+    }
+
+    private static void setPropertyIfSupported( XMLInputFactory inputFactory, String name, Object value ) {
+        if ( inputFactory.isPropertySupported( name ) )
+            inputFactory.setProperty( name, value );
+    }
+
+    private static <T> T instantiate( String property, Class<T> factoryType ) {
+        String className = System.getProperty( property );
+        if ( className == null || className.trim().isEmpty() )
+            return null;
+        try {
+            Class<?> factoryClass = Class.forName( className.trim(), true, XmlFactories.class.getClassLoader() );
+            return factoryType.cast( factoryClass.newInstance() );
+        } catch ( Exception e ) {
+            LOG.warn( "Could not instantiate " + factoryType.getSimpleName() + " " + className
+                      + ", the default implementation is used: " + e.getMessage() );
+            return null;
+        }
+    }
+
+}
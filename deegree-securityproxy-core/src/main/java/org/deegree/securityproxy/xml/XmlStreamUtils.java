@@ -37,7 +37,6 @@ package org.deegree.securityproxy.xml;
 
 import java.io.InputStream;
 
-import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 
@@ -65,8 +64,7 @@ public final class XmlStreamUtils {
      */
     public static XMLStreamReader createReader( InputStream inputStream )
                     throws XMLStreamException {
-        XMLInputFactory factory = XMLInputFactory.newInstance();
-        XMLStreamReader reader = factory.createXMLStreamReader( inputStream );
+        XMLStreamReader reader = XmlFactories.getInputFactory().createXMLStreamReader( inputStream );
         skipStartDocument( reader );
         return reader;
     }
@@ -0,0 +1,114 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.filter;
+
+import static org.deegree.securityproxy.filter.AcceptEncodingParser.isDeflateAccepted;
+import static org.deegree.securityproxy.filter.AcceptEncodingParser.isGzipAccepted;
+import static org.deegree.securityproxy.filter.AcceptEncodingParser.selectContentEncoding;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+/**
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class AcceptEncodingParserTest {
+
+    @Test
+    public void testIsGzipAcceptedWithNullShouldReturnFalse() {
+        assertThat( isGzipAccepted( null ), is( false ) );
+    }
+
+    @Test
+    public void testIsGzipAcceptedWithGzipShouldReturnTrue() {
+        assertThat( isGzipAccepted( "deflate, gzip" ), is( true ) );
+    }
+
+    @Test
+    public void testIsGzipAcceptedWithXGzipAndQualityShouldReturnTrue() {
+        assertThat( isGzipAccepted( "x-gzip;q=0.5" ), is( true ) );
+    }
+
+    @Test
+    public void testIsGzipAcceptedWithQualityZeroShouldReturnFalse() {
+        assertThat( isGzipAccepted( "gzip;q=0, deflate" ), is( false ) );
+    }
+
+    @Test
+    public void testIsGzipAcceptedWithWildcardShouldReturnTrue() {
+        assertThat( isGzipAccepted( "*" ), is( true ) );
+    }
+
+    @Test
+    public void testIsGzipAcceptedWithWildcardAndExcludedGzipShouldReturnFalse() {
+        assertThat( isGzipAccepted( "gzip; q=0.0, *;q=1" ), is( false ) );
+    }
+
+    @Test
+    public void testIsGzipAcceptedWithIdentityOnlyShouldReturnFalse() {
+        assertThat( isGzipAccepted( "identity" ), is( false ) );
+    }
+
+    @Test
+    public void testIsDeflateAcceptedWithDeflateShouldReturnTrue() {
+        assertThat( isDeflateAccepted( "deflate;q=0.5" ), is( true ) );
+    }
+
+    @Test
+    public void testIsDeflateAcceptedWithGzipOnlyShouldReturnFalse() {
+        assertThat( isDeflateAccepted( "gzip" ), is( false ) );
+    }
+
+    @Test
+    public void testSelectContentEncodingShouldPreferGzip() {
+        assertThat( selectContentEncoding( "deflate, gzip" ), is( "gzip" ) );
+    }
+
+    @Test
+    public void testSelectContentEncodingWithDeflateOnlyShouldReturnDeflate() {
+        assertThat( selectContentEncoding( "deflate, gzip;q=0" ), is( "deflate" ) );
+    }
+
+    @Test
+    public void testSelectContentEncodingWithIdentityOnlyShouldReturnNull() {
+        assertThat( selectContentEncoding( "identity" ), is( nullValue() ) );
+    }
+
+}
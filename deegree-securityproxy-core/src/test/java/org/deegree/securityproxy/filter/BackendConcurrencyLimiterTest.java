@@ -0,0 +1,129 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.filter;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+/**
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class BackendConcurrencyLimiterTest {
+
+    @Test
+    public void testAcquireUnlimitedShouldAlwaysSucceed()
+                    throws Exception {
+        BackendConcurrencyLimiter limiter = new BackendConcurrencyLimiter();
+
+        for ( int i = 0; i < 100; i++ )
+            assertThat( limiter.acquire( "wms" ), is( true ) );
+        assertThat( limiter.getAvailablePermits( "wms" ), is( Integer.MAX_VALUE ) );
+    }
+
+    @Test
+    public void testAcquireExceedingLimitShouldFail()
+                    throws Exception {
+        BackendConcurrencyLimiter limiter = new BackendConcurrencyLimiter( 2, 0 );
+
+        assertThat( limiter.acquire( "wms" ), is( true ) );
+        assertThat( limiter.acquire( "wms" ), is( true ) );
+        assertThat( limiter.acquire( "wms" ), is( false ) );
+    }
+
+    @Test
+    public void testAcquireShouldLimitPerServiceType()
+                    throws Exception {
+        BackendConcurrencyLimiter limiter = new BackendConcurrencyLimiter( 1, 0 );
+
+        assertThat( limiter.acquire( "wms" ), is( true ) );
+        assertThat( limiter.acquire( "wms" ), is( false ) );
+        assertThat( limiter.acquire( "wcs" ), is( true ) );
+    }
+
+    @Test
+    public void testAcquireAfterReleaseShouldSucceed()
+                    throws Exception {
+        BackendConcurrencyLimiter limiter = new BackendConcurrencyLimiter( 1, 0 );
+
+        limiter.acquire( "wms" );
+        limiter.release( "wms" );
+
+        assertThat( limiter.acquire( "wms" ), is( true ) );
+    }
+
+    @Test
+    public void testAcquireShouldWaitForRelease()
+                    throws Exception {
+        final BackendConcurrencyLimiter limiter = new BackendConcurrencyLimiter( 1, 5000 );
+        limiter.acquire( "wms" );
+        Thread releasingThread = new Thread() {
+            @Override
+            public void run() {
+                limiter.release( "wms" );
+            }
+        };
+        releasingThread.start();
+
+        assertThat( limiter.acquire( "wms" ), is( true ) );
+        releasingThread.join();
+    }
+
+    @Test
+    public void testAcquireInterruptedShouldFail()
+                    throws Exception {
+        BackendConcurrencyLimiter limiter = new BackendConcurrencyLimiter( 1, 5000 );
+        limiter.acquire( "wms" );
+        Thread.currentThread().interrupt();
+
+        assertThat( limiter.acquire( "wms" ), is( false ) );
+        assertThat( Thread.interrupted(), is( true ) );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorWithNegativeMaxConcurrentRequestsShouldFail() {
+        new BackendConcurrencyLimiter( -1, 0 );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorWithNegativeTimeoutShouldFail() {
+        new BackendConcurrencyLimiter( 1, -1 );
+    }
+
+}
@@ -4,9 +4,12 @@ import static java.util.Collections.emptyMap;
 import static org.hamcrest.CoreMatchers.hasItem;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 import java.util.ArrayList;
 import java.util.Enumeration;
@@ -219,6 +222,42 @@ public class KvpRequestWrapperTest {
         assertThat( parameterNamesList, hasItem( "additionalKey3" ) );
     }
 
+    @Test
+    public void testGetParameterMapShouldBeComputedOnce()
+                            throws Exception {
+        KvpRequestWrapper kvpRequestWrapper = new KvpRequestWrapper( request, additionalKeyValuePair );
+        Map<String, String[]> parameterMap = kvpRequestWrapper.getParameterMap();
+        kvpRequestWrapper.getParameter( "existingKey" );
+        kvpRequestWrapper.getParameterValues( "additionalKey" );
+        kvpRequestWrapper.getParameterNames();
+
+        assertThat( kvpRequestWrapper.getParameterMap(), is( sameInstance( parameterMap ) ) );
+        verify( request, times( 1 ) ).getParameterMap();
+    }
+
+    @Test
+    public void testGetQueryStringShouldBeComputedOnce()
+                            throws Exception {
+        KvpRequestWrapper kvpRequestWrapper = new KvpRequestWrapper( request, additionalKeyValuePair );
+        String queryString = kvpRequestWrapper.getQueryString();
+
+        assertThat( kvpRequestWrapper.getQueryString(), is( sameInstance( queryString ) ) );
+        verify( request, times( 1 ) ).getQueryString();
+    }
+
+    @Test
+    public void testAddParameterShouldInvalidateParameterMapAndQueryString()
+                            throws Exception {
+        KvpRequestWrapper kvpRequestWrapper = new KvpRequestWrapper( request, additionalKeyValuePair );
+        kvpRequestWrapper.getParameterMap();
+        kvpRequestWrapper.getQueryString();
+        kvpRequestWrapper.addParameter( "addedKey", "addedValue" );
+
+        assertThat( kvpRequestWrapper.getParameter( "addedKey" ), is( "addedValue" ) );
+        assertThat( kvpRequestWrapper.getQueryString(),
+                    is( "?existingKey=existingValue&addedKey=addedValue&additionalKey=additionalValue" ) );
+    }
+
     private Map<String, String[]> createAdditionalKeyValuePair() {
         Map<String, String[]> additionalKeyValuePair = new HashMap<String, String[]>();
         additionalKeyValuePair.put( "additionalKey", new String[] { "additionalValue" } );
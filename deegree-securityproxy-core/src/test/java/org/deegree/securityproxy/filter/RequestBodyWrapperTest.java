@@ -37,7 +37,10 @@ package org.deegree.securityproxy.filter;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.BufferedReader;
@@ -48,6 +51,7 @@ import javax.servlet.ServletInputStream;
 import javax.servlet.http.HttpServletRequest;
 
 import org.apache.commons.io.IOUtils;
+import org.deegree.securityproxy.request.RequestBodyTooLargeException;
 import org.junit.Test;
 
 /**
@@ -91,6 +95,79 @@ public class RequestBodyWrapperTest {
         assertThat( contentSecond.trim(), is( TEST_CONTENT ) );
     }
 
+    @Test
+    public void testConstructorShouldNotReadBody()
+                    throws Exception {
+        HttpServletRequest request = mockRequest();
+        RequestBodyWrapper requestBodyWrapper = new RequestBodyWrapper( request );
+
+        verify( request, never() ).getInputStream();
+        assertThat( requestBodyWrapper.isBodyBuffered(), is( false ) );
+    }
+
+    @Test
+    public void testGetInputStreamBulkReadAndAvailable()
+                    throws Exception {
+        RequestBodyWrapper requestBodyWrapper = new RequestBodyWrapper( mockRequest() );
+
+        ServletInputStream inputStream = requestBodyWrapper.getInputStream();
+        assertThat( inputStream.available(), is( TEST_CONTENT.length() ) );
+        byte[] buffer = new byte[4];
+        assertThat( inputStream.read( buffer, 0, 4 ), is( 4 ) );
+        assertThat( inputStream.available(), is( TEST_CONTENT.length() - 4 ) );
+        assertThat( new String( buffer ), is( TEST_CONTENT.substring( 0, 4 ) ) );
+        assertThat( requestBodyWrapper.isBodyBuffered(), is( true ) );
+    }
+
+    @Test(expected = RequestBodyTooLargeException.class)
+    public void testGetInputStreamWithBodyExceedingMaxSizeShouldFail()
+                    throws Exception {
+        RequestBodyWrapper requestBodyWrapper = new RequestBodyWrapper( mockRequest(),
+                        new ResponseBodyBufferFactory(), TEST_CONTENT.length() - 1 );
+
+        requestBodyWrapper.getInputStream();
+    }
+
+    @Test
+    public void testGetInputStreamWithContentLengthExceedingMaxSizeShouldFailWithoutReadingBody()
+                    throws Exception {
+        HttpServletRequest request = mockRequest();
+        doReturn( 100 ).when( request ).getContentLength();
+        RequestBodyWrapper requestBodyWrapper = new RequestBodyWrapper( request, new ResponseBodyBufferFactory(), 10 );
+
+        try {
+            requestBodyWrapper.getInputStream();
+        } catch ( RequestBodyTooLargeException e ) {
+            verify( request, never() ).getInputStream();
+            return;
+        }
+        throw new AssertionError( "RequestBodyTooLargeException expected" );
+    }
+
+    @Test(expected = RequestBodyTooLargeException.class)
+    public void testCheckBodySizeAfterBodyExceedingMaxSizeShouldFail()
+                    throws Exception {
+        RequestBodyWrapper requestBodyWrapper = new RequestBodyWrapper( mockRequest(),
+                        new ResponseBodyBufferFactory(), TEST_CONTENT.length() - 1 );
+        try {
+            requestBodyWrapper.getReader();
+        } catch ( RequestBodyTooLargeException e ) {
+            // expected, checked afterwards
+        }
+
+        requestBodyWrapper.checkBodySize();
+    }
+
+    @Test
+    public void testGetInputStreamWithBodyOfMaxSize()
+                    throws Exception {
+        RequestBodyWrapper requestBodyWrapper = new RequestBodyWrapper( mockRequest(),
+                        new ResponseBodyBufferFactory(), TEST_CONTENT.length() );
+
+        assertThat( IOUtils.toString( requestBodyWrapper.getInputStream() ), is( TEST_CONTENT ) );
+        requestBodyWrapper.checkBodySize();
+    }
+
     private HttpServletRequest mockRequest()
                     throws IOException {
         HttpServletRequest mockRequest = mock( HttpServletRequest.class );
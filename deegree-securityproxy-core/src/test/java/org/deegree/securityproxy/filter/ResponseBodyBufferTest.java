@@ -0,0 +1,246 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.filter;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class ResponseBodyBufferTest {
+
+    private static final byte[] CONTENT = "ABCDEFGHIJKLMNOPQRSTUVWXYZ".getBytes();
+
+    @Rule
+    public TemporaryFolder spillDirectory = new TemporaryFolder();
+
+    @Test
+    public void testToByteArrayWithBulkWriteAcrossChunks()
+                    throws Exception {
+        ResponseBodyBuffer buffer = new ResponseBodyBuffer( new ByteChunkPool( 4, 10 ) );
+        buffer.write( CONTENT, 0, CONTENT.length );
+
+        assertThat( buffer.size(), is( (long) CONTENT.length ) );
+        assertThat( buffer.toByteArray(), is( CONTENT ) );
+    }
+
+    @Test
+    public void testToByteArrayWithSingleByteWrites()
+                    throws Exception {
+        ResponseBodyBuffer buffer = new ResponseBodyBuffer( new ByteChunkPool( 4, 10 ) );
+        for ( byte b : CONTENT )
+            buffer.write( b );
+
+        assertThat( buffer.toByteArray(), is( CONTENT ) );
+    }
+
+    @Test
+    public void testToByteArrayOfEmptyBuffer()
+                    throws Exception {
+        ResponseBodyBuffer buffer = new ResponseBodyBuffer( new ByteChunkPool( 4, 10 ) );
+
+        assertThat( buffer.toByteArray().length, is( 0 ) );
+    }
+
+    @Test
+    public void testAsInputStreamCanBeReadMultipleTimes()
+                    throws Exception {
+        ResponseBodyBuffer buffer = new ResponseBodyBuffer( new ByteChunkPool( 4, 10 ) );
+        buffer.write( CONTENT, 0, CONTENT.length );
+
+        assertThat( IOUtils.toByteArray( buffer.asInputStream() ), is( CONTENT ) );
+        assertThat( IOUtils.toByteArray( buffer.asInputStream() ), is( CONTENT ) );
+    }
+
+    @Test
+    public void testAsInputStreamSingleByteRead()
+                    throws Exception {
+        ResponseBodyBuffer buffer = new ResponseBodyBuffer( new ByteChunkPool( 4, 10 ) );
+        buffer.write( CONTENT, 0, CONTENT.length );
+
+        InputStream stream = buffer.asInputStream();
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        int b;
+        while ( ( b = stream.read() ) != -1 )
+            read.write( b );
+        assertThat( read.toByteArray(), is( CONTENT ) );
+    }
+
+    @Test
+    public void testWriteTo()
+                    throws Exception {
+        ResponseBodyBuffer buffer = new ResponseBodyBuffer( new ByteChunkPool( 4, 10 ) );
+        buffer.write( CONTENT, 0, CONTENT.length );
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        buffer.writeTo( out );
+        assertThat( out.toByteArray(), is( CONTENT ) );
+    }
+
+    @Test
+    public void testReleaseShouldReturnChunksToPool()
+                    throws Exception {
+        ByteChunkPool pool = new ByteChunkPool( 4, 10 );
+        ResponseBodyBuffer buffer = new ResponseBodyBuffer( pool );
+        buffer.write( CONTENT, 0, CONTENT.length );
+        buffer.release();
+
+        assertThat( pool.getNumberOfPooledChunks(), is( 7 ) );
+        assertThat( buffer.size(), is( 0l ) );
+    }
+
+    @Test
+    public void testReleaseShouldNotPoolMoreThanMaxChunks()
+                    throws Exception {
+        ByteChunkPool pool = new ByteChunkPool( 4, 2 );
+        ResponseBodyBuffer buffer = new ResponseBodyBuffer( pool );
+        buffer.write( CONTENT, 0, CONTENT.length );
+        buffer.release();
+
+        assertThat( pool.getNumberOfPooledChunks(), is( 2 ) );
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testWriteAfterReleaseShouldFail()
+                    throws Exception {
+        ResponseBodyBuffer buffer = new ResponseBodyBuffer( new ByteChunkPool( 4, 10 ) );
+        buffer.release();
+        buffer.write( 1 );
+    }
+
+    @Test
+    public void testWriteBelowSpillThresholdShouldNotSpill()
+                    throws Exception {
+        ResponseBodyBuffer buffer = createSpillingBuffer( 32 );
+        buffer.write( CONTENT, 0, CONTENT.length );
+
+        assertThat( buffer.isSpilled(), is( false ) );
+        assertThat( numberOfSpillFiles(), is( 0 ) );
+    }
+
+    @Test
+    public void testWriteAboveSpillThresholdShouldSpill()
+                    throws Exception {
+        ResponseBodyBuffer buffer = createSpillingBuffer( 8 );
+        buffer.write( CONTENT, 0, CONTENT.length );
+
+        assertThat( buffer.isSpilled(), is( true ) );
+        assertThat( numberOfSpillFiles(), is( 1 ) );
+        assertThat( buffer.size(), is( (long) CONTENT.length ) );
+    }
+
+    @Test
+    public void testToByteArrayOfSpilledBufferWithSingleByteWrites()
+                    throws Exception {
+        ResponseBodyBuffer buffer = createSpillingBuffer( 8 );
+        for ( byte b : CONTENT )
+            buffer.write( b );
+
+        assertThat( buffer.toByteArray(), is( CONTENT ) );
+    }
+
+    @Test
+    public void testAsInputStreamOfSpilledBuffer()
+                    throws Exception {
+        ResponseBodyBuffer buffer = createSpillingBuffer( 8 );
+        buffer.write( CONTENT, 0, 3 );
+        buffer.write( CONTENT, 3, CONTENT.length - 3 );
+
+        assertThat( IOUtils.toByteArray( buffer.asInputStream() ), is( CONTENT ) );
+        assertThat( IOUtils.toByteArray( buffer.asInputStream() ), is( CONTENT ) );
+    }
+
+    @Test
+    public void testAsInputStreamSingleByteReadOfSpilledBuffer()
+                    throws Exception {
+        ResponseBodyBuffer buffer = createSpillingBuffer( 0 );
+        buffer.write( CONTENT, 0, CONTENT.length );
+
+        InputStream stream = buffer.asInputStream();
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        int b;
+        while ( ( b = stream.read() ) != -1 )
+            read.write( b );
+        assertThat( read.toByteArray(), is( CONTENT ) );
+    }
+
+    @Test
+    public void testWriteToOfSpilledBuffer()
+                    throws Exception {
+        ResponseBodyBuffer buffer = createSpillingBuffer( 8 );
+        buffer.write( CONTENT, 0, CONTENT.length );
+        buffer.write( 'a' );
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        buffer.writeTo( out );
+        assertThat( out.toByteArray(), is( ( new String( CONTENT ) + "a" ).getBytes() ) );
+    }
+
+    @Test
+    public void testReleaseOfSpilledBufferShouldDeleteSpillFileAndReturnChunksToPool()
+                    throws Exception {
+        ByteChunkPool pool = new ByteChunkPool( 4, 10 );
+        ResponseBodyBuffer buffer = new ResponseBodyBuffer( pool, 8, spillDirectory.getRoot() );
+        buffer.write( CONTENT, 0, CONTENT.length );
+        buffer.release();
+
+        assertThat( numberOfSpillFiles(), is( 0 ) );
+        assertThat( pool.getNumberOfPooledChunks(), is( 2 ) );
+        assertThat( buffer.isSpilled(), is( false ) );
+    }
+
+    private ResponseBodyBuffer createSpillingBuffer( long spillThreshold ) {
+        return new ResponseBodyBuffer( new ByteChunkPool( 4, 10 ), spillThreshold, spillDirectory.getRoot() );
+    }
+
+    private int numberOfSpillFiles() {
+        File[] files = spillDirectory.getRoot().listFiles();
+        return files != null ? files.length : 0;
+    }
+
+}
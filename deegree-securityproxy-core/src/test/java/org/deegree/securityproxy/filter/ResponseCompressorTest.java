@@ -0,0 +1,165 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.filter;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+/**
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class ResponseCompressorTest {
+
+    private static final String CONTENT = "<WMS_Capabilities><Layer/><Layer/><Layer/></WMS_Capabilities>";
+
+    @Test
+    public void testNegotiateContentEncodingWithDisabledCompressorShouldReturnNull() {
+        assertThat( new ResponseCompressor().negotiateContentEncoding( "gzip" ), is( nullValue() ) );
+    }
+
+    @Test
+    public void testNegotiateContentEncodingShouldSelectAcceptedCoding() {
+        ResponseCompressor compressor = new ResponseCompressor( 6, 0 );
+
+        assertThat( compressor.negotiateContentEncoding( "gzip, deflate" ), is( "gzip" ) );
+        assertThat( compressor.negotiateContentEncoding( "deflate" ), is( "deflate" ) );
+        assertThat( compressor.negotiateContentEncoding( null ), is( nullValue() ) );
+    }
+
+    @Test
+    public void testCreateCompressingStreamWithoutContentEncodingShouldReturnPassedStream() {
+        OutputStream out = new ByteArrayOutputStream();
+        OutputStream compressingStream = new ResponseCompressor( 6, 0 ).createCompressingStream( mockResponse(), out,
+                                                                                                 null );
+
+        assertThat( compressingStream, is( sameInstance( out ) ) );
+    }
+
+    @Test
+    public void testCreateCompressingStreamWithGzipShouldCompress()
+                    throws Exception {
+        HttpServletResponse response = mockResponse();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        write( new ResponseCompressor( 9, 10 ).createCompressingStream( response, out, "gzip" ) );
+
+        verify( response ).setHeader( "Content-Encoding", "gzip" );
+        verify( response ).addHeader( "Vary", "Accept-Encoding" );
+        verify( response, never() ).setContentLength( anyInt() );
+        assertThat( decode( new GZIPInputStream( new ByteArrayInputStream( out.toByteArray() ) ) ), is( CONTENT ) );
+    }
+
+    @Test
+    public void testCreateCompressingStreamWithDeflateShouldCompress()
+                    throws Exception {
+        HttpServletResponse response = mockResponse();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        write( new ResponseCompressor( 1, 0 ).createCompressingStream( response, out, "deflate" ) );
+
+        verify( response ).setHeader( "Content-Encoding", "deflate" );
+        assertThat( decode( new InflaterInputStream( new ByteArrayInputStream( out.toByteArray() ) ) ), is( CONTENT ) );
+    }
+
+    @Test
+    public void testCreateCompressingStreamBelowMinimumSizeShouldNotCompress()
+                    throws Exception {
+        HttpServletResponse response = mockResponse();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        OutputStream compressingStream = new ResponseCompressor( 6, 1024 ).createCompressingStream( response, out,
+                                                                                                    "gzip" );
+        write( compressingStream );
+
+        assertThat( compressingStream, is( instanceOf( CompressingOutputStream.class ) ) );
+        verify( response, never() ).setHeader( anyString(), anyString() );
+        verify( response ).setContentLength( CONTENT.length() );
+        assertThat( out.toString( "UTF-8" ), is( CONTENT ) );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorWithInvalidCompressionLevelShouldFail() {
+        new ResponseCompressor( 10, 0 );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorWithNegativeMinimumSizeShouldFail() {
+        new ResponseCompressor( 6, -1 );
+    }
+
+    private void write( OutputStream compressingStream )
+                    throws Exception {
+        byte[] content = CONTENT.getBytes( "UTF-8" );
+        // written in parts, the minimum size is exceeded during writing
+        compressingStream.write( content, 0, 5 );
+        compressingStream.write( content[5] );
+        compressingStream.write( content, 6, content.length - 6 );
+        compressingStream.close();
+    }
+
+    private String decode( InputStream decodingStream )
+                    throws Exception {
+        try {
+            return IOUtils.toString( decodingStream, "UTF-8" );
+        } finally {
+            decodingStream.close();
+        }
+    }
+
+    private HttpServletResponse mockResponse() {
+        return mock( HttpServletResponse.class );
+    }
+
+}
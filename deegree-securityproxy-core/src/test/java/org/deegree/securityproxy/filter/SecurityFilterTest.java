@@ -1,12 +1,19 @@
 package org.deegree.securityproxy.filter;
 
 import static javax.servlet.http.HttpServletResponse.SC_BAD_REQUEST;
+import static javax.servlet.http.HttpServletResponse.SC_NOT_MODIFIED;
 import static javax.servlet.http.HttpServletResponse.SC_OK;
+import static javax.servlet.http.HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE;
+import static javax.servlet.http.HttpServletResponse.SC_SERVICE_UNAVAILABLE;
 import static javax.servlet.http.HttpServletResponse.SC_UNAUTHORIZED;
 import static org.deegree.securityproxy.authorization.TestRequestAuthorizationManager.SERVICE_URL;
 import static org.deegree.securityproxy.exception.OwsCommonException.INVALID_PARAMETER;
 import static org.deegree.securityproxy.exception.OwsCommonException.MISSING_PARAMETER;
 import static org.deegree.securityproxy.filter.SecurityFilter.REQUEST_ATTRIBUTE_SERVICE_URL;
+import static org.deegree.securityproxy.metrics.ProxyMetrics.CLIPPING_DECISIONS;
+import static org.deegree.securityproxy.metrics.ProxyMetrics.STAGE_DURATION;
+import static org.deegree.securityproxy.usage.UsageStatistics.DENIED;
+import static org.deegree.securityproxy.usage.UsageStatistics.SUCCESS;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.not;
 import static org.junit.Assert.assertThat;
@@ -21,6 +28,8 @@ import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.security.core.context.SecurityContextHolder.clearContext;
+import static org.springframework.security.core.context.SecurityContextHolder.getContext;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
@@ -30,9 +39,11 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import javax.servlet.ServletInputStream;
 import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
@@ -40,9 +51,12 @@ import org.deegree.securityproxy.authorization.logging.AuthorizationReport;
 import org.deegree.securityproxy.exception.OwsServiceExceptionHandler;
 import org.deegree.securityproxy.logger.ResponseFilterReportLogger;
 import org.deegree.securityproxy.logger.SecurityRequestResponseLogger;
+import org.deegree.securityproxy.metrics.ProxyMetrics;
 import org.deegree.securityproxy.report.SecurityReport;
 import org.deegree.securityproxy.request.OwsRequest;
+import org.deegree.securityproxy.responsefilter.logging.ResponseClippingReport;
 import org.deegree.securityproxy.responsefilter.logging.ResponseFilterReport;
+import org.deegree.securityproxy.usage.UsageStatistics;
 import org.hamcrest.BaseMatcher;
 import org.hamcrest.Description;
 import org.hamcrest.Matcher;
@@ -50,6 +64,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.TestingAuthenticationToken;
 import org.springframework.security.core.Authentication;
 
 /**
@@ -130,6 +145,21 @@ public class SecurityFilterTest {
         verify( logger ).logProxyReportInfo( argThat( hasResponse( SC_OK ) ), (String) anyObject() );
     }
 
+    @Test
+    public void testLoggingShouldGenerateReportWithUserNameOfAuthenticatedUser()
+                    throws IOException, ServletException {
+        getContext().setAuthentication( new TestingAuthenticationToken( "user", "password" ) );
+        try {
+            filterAuthorized.doFilter( generateMockRequest(), generateMockResponse(),
+                                       new FilterChainTestImpl( SC_OK ) );
+        } finally {
+            clearContext();
+        }
+        ArgumentCaptor<SecurityReport> report = ArgumentCaptor.forClass( SecurityReport.class );
+        verify( logger ).logProxyReportInfo( report.capture(), anyString() );
+        assertThat( report.getValue().getUserName(), is( "user" ) );
+    }
+
     @Test
     public void testLoggingOfResponseFilterReportShouldNeInvoked()
                     throws IOException, ServletException {
@@ -203,6 +233,141 @@ public class SecurityFilterTest {
                                                  (Authentication) anyObject(), (OwsRequest) anyObject() );
     }
 
+    @Test
+    public void testResponseWithoutResponseFilterShouldBePassedThrough()
+                    throws Exception {
+        ServiceManager serviceManager = mockSupportedServiceManager( true );
+        doReturn( false ).when( serviceManager ).isResponseFilterEnabled( any( OwsRequest.class ) );
+        SecurityFilter filter = createSecurityFilterWithServiceManagers( serviceManager );
+        PassThroughCheckingFilterChain chain = new PassThroughCheckingFilterChain();
+        filter.doFilter( generateMockRequest(), generateMockResponse(), chain );
+
+        assertThat( chain.isPassThrough, is( true ) );
+        verify( serviceManager, never() ).filterResponse( any( StatusCodeResponseBodyWrapper.class ),
+                                                          any( Authentication.class ), any( OwsRequest.class ) );
+    }
+
+    @Test
+    public void testResponseWithResponseFilterShouldBeBuffered()
+                    throws Exception {
+        ServiceManager serviceManager = mockSupportedServiceManager( true );
+        SecurityFilter filter = createSecurityFilterWithServiceManagers( serviceManager );
+        PassThroughCheckingFilterChain chain = new PassThroughCheckingFilterChain();
+        filter.doFilter( generateMockRequest(), generateMockResponse(), chain );
+
+        assertThat( chain.isPassThrough, is( false ) );
+    }
+
+    @Test
+    public void testGetRequestShouldNotReadRequestBody()
+                    throws Exception {
+        HttpServletRequest request = generateMockRequest();
+        filterAuthorized.doFilter( request, generateMockResponse(), new FilterChainTestImpl( SC_OK ) );
+
+        verify( request, never() ).getInputStream();
+    }
+
+    @Test
+    public void testPostRequestExceedingMaxBodySizeShouldBeRejected()
+                    throws Exception {
+        ServiceManager serviceManager = mockSupportedServiceManager( true );
+        List<ServiceManager> serviceManagers = createServiceManagersWithThreeServiceManagers( serviceManager );
+        SecurityFilter filter = new SecurityFilter( serviceManagers, logger, loggerResponseFilterReportMock,
+                        exceptionHandler );
+        filter.setRequestBodyWrapperFactory( new RequestBodyWrapperFactory( new ResponseBodyBufferFactory(), 10 ) );
+        HttpServletRequest request = generateMockRequest();
+        doReturn( "POST" ).when( request ).getMethod();
+        doReturn( 11 ).when( request ).getContentLength();
+        HttpServletResponse response = generateMockResponse();
+        filter.doFilter( request, response, new FilterChainTestImpl( SC_OK ) );
+
+        verify( response ).sendError( eq( SC_REQUEST_ENTITY_TOO_LARGE ), anyString() );
+        verify( request, never() ).getInputStream();
+        verify( serviceManager, never() ).parse( any( HttpServletRequest.class ) );
+    }
+
+    @Test
+    public void testRequestExceedingConcurrentBackendRequestsShouldBeRejected()
+                    throws Exception {
+        ServiceManager serviceManager = mockSupportedServiceManager( true );
+        List<ServiceManager> serviceManagers = createServiceManagersWithThreeServiceManagers( serviceManager );
+        BackendConcurrencyLimiter limiter = mock( BackendConcurrencyLimiter.class );
+        doReturn( false ).when( limiter ).acquire( anyString() );
+        SecurityFilter filter = new SecurityFilter( serviceManagers, logger, loggerResponseFilterReportMock,
+                        exceptionHandler );
+        filter.setBackendConcurrencyLimiter( limiter );
+        HttpServletResponse response = generateMockResponse();
+        FilterChain chain = mock( FilterChain.class );
+        filter.doFilter( generateMockRequest(), response, chain );
+
+        verify( response ).sendError( eq( SC_SERVICE_UNAVAILABLE ), anyString() );
+        verify( chain, never() ).doFilter( any( ServletRequest.class ), any( ServletResponse.class ) );
+        verify( limiter, never() ).release( anyString() );
+    }
+
+    @Test
+    public void testRequestWithinConcurrentBackendRequestsShouldReleasePermit()
+                    throws Exception {
+        ServiceManager serviceManager = mockSupportedServiceManager( true );
+        List<ServiceManager> serviceManagers = createServiceManagersWithThreeServiceManagers( serviceManager );
+        BackendConcurrencyLimiter limiter = mock( BackendConcurrencyLimiter.class );
+        doReturn( true ).when( limiter ).acquire( anyString() );
+        SecurityFilter filter = new SecurityFilter( serviceManagers, logger, loggerResponseFilterReportMock,
+                        exceptionHandler );
+        filter.setBackendConcurrencyLimiter( limiter );
+        filter.doFilter( generateMockRequest(), generateMockResponse(), new FilterChainTestImpl( SC_OK ) );
+
+        verify( limiter ).release( anyString() );
+        verify( serviceManager ).filterResponse( any( StatusCodeResponseBodyWrapper.class ),
+                                                 any( Authentication.class ), any( OwsRequest.class ) );
+    }
+
+    @Test
+    public void testDoFilterShouldRecordDurationOfEachStage()
+                    throws Exception {
+        ServiceManager serviceManager = mockSupportedServiceManager( true );
+        ProxyMetrics metrics = new ProxyMetrics();
+        SecurityFilter filter = createSecurityFilterWithMetrics( serviceManager, metrics );
+        filter.doFilter( generateMockRequest(), generateMockResponse(), new FilterChainTestImpl( SC_OK ) );
+
+        assertThat( metrics.getTimer( STAGE_DURATION, "stage", "parse", "service", "wms", "operation",
+                                      "GetCapabilities" ).getCount(), is( 1L ) );
+        assertThat( metrics.getTimer( STAGE_DURATION, "stage", "authorize", "service", "wms", "operation",
+                                      "GetCapabilities" ).getCount(), is( 1L ) );
+        assertThat( metrics.getTimer( STAGE_DURATION, "stage", "backend", "service", "wms", "operation",
+                                      "GetCapabilities" ).getCount(), is( 1L ) );
+        assertThat( metrics.getTimer( STAGE_DURATION, "stage", "filter", "service", "wms", "operation",
+                                      "GetCapabilities", "filter", "capabilities" ).getCount(), is( 1L ) );
+    }
+
+    @Test
+    public void testDoFilterShouldCountClippingDecision()
+                    throws Exception {
+        ResponseClippingReport clippingReport = mock( ResponseClippingReport.class );
+        doReturn( true ).when( clippingReport ).isFiltered();
+        ServiceManager serviceManager = mockServiceManager();
+        createDoReturnsForServiceManager( true, true, serviceManager, clippingReport );
+        ProxyMetrics metrics = new ProxyMetrics();
+        SecurityFilter filter = createSecurityFilterWithMetrics( serviceManager, metrics );
+        filter.doFilter( generateMockRequest(), generateMockResponse(), new FilterChainTestImpl( SC_OK ) );
+
+        assertThat( metrics.getCounter( CLIPPING_DECISIONS, "service", "wms", "operation", "GetCapabilities",
+                                        "decision", "clipped" ), is( 1L ) );
+        assertThat( metrics.getTimer( STAGE_DURATION, "stage", "filter", "service", "wms", "operation",
+                                      "GetCapabilities", "filter", "clipping" ).getCount(), is( 1L ) );
+    }
+
+    @Test
+    public void testDoFilterWithDisabledMetricsShouldNotRecordDurations()
+                    throws Exception {
+        ServiceManager serviceManager = mockSupportedServiceManager( true );
+        ProxyMetrics metrics = new ProxyMetrics( false );
+        SecurityFilter filter = createSecurityFilterWithMetrics( serviceManager, metrics );
+        filter.doFilter( generateMockRequest(), generateMockResponse(), new FilterChainTestImpl( SC_OK ) );
+
+        assertThat( metrics.getTimers().length, is( 0 ) );
+    }
+
     @Test
     public void testRequestShouldContainServiceNameAttribute()
                     throws IOException, ServletException {
@@ -277,6 +442,67 @@ public class SecurityFilterTest {
         verify( serviceManager3, times( 1 ) ).isServiceTypeSupported( anyString(), any( HttpServletRequest.class ) );
     }
 
+    @Test
+    public void testDoFilterShouldCountSuccessfulRequestAndFilterReport()
+                    throws Exception {
+        UsageStatistics usageStatistics = mock( UsageStatistics.class );
+        SecurityFilter filter = createSecurityFilterWithUsageStatistics( mockSupportedServiceManager( true ),
+                                                                         usageStatistics );
+        filter.doFilter( generateMockRequest(), generateMockResponse(), new FilterChainTestImpl( SC_OK ) );
+
+        verify( usageStatistics ).countRequest( anyString(), any( OwsRequest.class ), eq( SUCCESS ) );
+        verify( usageStatistics ).countFilterReport( anyString(), any( OwsRequest.class ),
+                                                     any( ResponseFilterReport.class ) );
+    }
+
+    @Test
+    public void testDoFilterShouldCountNotModifiedResponseAsSuccessful()
+                    throws Exception {
+        UsageStatistics usageStatistics = mock( UsageStatistics.class );
+        SecurityFilter filter = createSecurityFilterWithUsageStatistics( mockSupportedServiceManager( true ),
+                                                                         usageStatistics );
+        filter.doFilter( generateMockRequest(), generateMockResponse(), new FilterChainTestImpl( SC_NOT_MODIFIED ) );
+
+        verify( usageStatistics ).countRequest( anyString(), any( OwsRequest.class ), eq( SUCCESS ) );
+        ArgumentCaptor<SecurityReport> report = ArgumentCaptor.forClass( SecurityReport.class );
+        verify( logger ).logProxyReportInfo( report.capture(), anyString() );
+        assertThat( report.getValue().isResponseSuccessfullySent(), is( true ) );
+    }
+
+    @Test
+    public void testDoFilterShouldCountDeniedRequest()
+                    throws Exception {
+        UsageStatistics usageStatistics = mock( UsageStatistics.class );
+        SecurityFilter filter = createSecurityFilterWithUsageStatistics( mockSupportedServiceManager( false ),
+                                                                         usageStatistics );
+        try {
+            filter.doFilter( generateMockRequest(), generateMockResponse(), new FilterChainTestImpl( SC_OK ) );
+        } catch ( AccessDeniedException e ) {
+            // expected
+        }
+
+        verify( usageStatistics ).countRequest( anyString(), any( OwsRequest.class ), eq( DENIED ) );
+        verify( usageStatistics, never() ).countFilterReport( anyString(), any( OwsRequest.class ),
+                                                              any( ResponseFilterReport.class ) );
+    }
+
+    private class PassThroughCheckingFilterChain extends FilterChainTestImpl {
+
+        private boolean isPassThrough;
+
+        public PassThroughCheckingFilterChain() {
+            super( SC_OK );
+        }
+
+        @Override
+        public void doFilter( ServletRequest request, ServletResponse response )
+                        throws IOException, ServletException {
+            isPassThrough = ( (StatusCodeResponseBodyWrapper) response ).isPassThrough();
+            super.doFilter( request, response );
+        }
+
+    }
+
     private ServletRequest generateMockRequestNullQueryString()
                     throws IOException {
         HttpServletRequest mockRequest = mock( HttpServletRequest.class );
@@ -419,6 +645,23 @@ public class SecurityFilterTest {
         return new SecurityFilter( serviceManagers, logger, loggerResponseFilterReportMock, exceptionHandler );
     }
 
+    private SecurityFilter createSecurityFilterWithMetrics( ServiceManager serviceManager, ProxyMetrics metrics ) {
+        List<ServiceManager> serviceManagers = createServiceManagersWithThreeServiceManagers( serviceManager );
+        SecurityFilter filter = new SecurityFilter( serviceManagers, logger, loggerResponseFilterReportMock,
+                        exceptionHandler );
+        filter.setMetrics( metrics );
+        return filter;
+    }
+
+    private SecurityFilter createSecurityFilterWithUsageStatistics( ServiceManager serviceManager,
+                                                                    UsageStatistics usageStatistics ) {
+        List<ServiceManager> serviceManagers = createServiceManagersWithThreeServiceManagers( serviceManager );
+        SecurityFilter filter = new SecurityFilter( serviceManagers, logger, loggerResponseFilterReportMock,
+                        exceptionHandler );
+        filter.setUsageStatistics( usageStatistics );
+        return filter;
+    }
+
     private List<ServiceManager> createServiceManagersWithOneServiceManager( boolean isAuthorized )
                     throws Exception {
         List<ServiceManager> serviceManagers = new ArrayList<ServiceManager>();
@@ -492,7 +735,10 @@ public class SecurityFilterTest {
     }
 
     private OwsRequest mockOwsRequest() {
-        return mock( OwsRequest.class );
+        OwsRequest owsRequest = mock( OwsRequest.class );
+        doReturn( "wms" ).when( owsRequest ).getServiceType();
+        doReturn( "GetCapabilities" ).when( owsRequest ).getOperationType();
+        return owsRequest;
     }
 
     private Map<String, String[]> createAdditionalKeyValuePairs() {
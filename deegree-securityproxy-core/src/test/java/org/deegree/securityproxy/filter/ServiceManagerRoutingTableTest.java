@@ -0,0 +1,156 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.filter;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.Arrays;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.deegree.securityproxy.request.UnsupportedRequestTypeException;
+import org.junit.Test;
+
+/**
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class ServiceManagerRoutingTableTest {
+
+    private final HttpServletRequest request = mock( HttpServletRequest.class );
+
+    @Test
+    public void testRouteShouldReturnFirstSupportingServiceManager()
+                    throws Exception {
+        ServiceManager wcsServiceManager = mockServiceManager( "wcs" );
+        ServiceManager wmsServiceManager = mockServiceManager( "wms" );
+        ServiceManager secondWmsServiceManager = mockServiceManager( "wms" );
+        ServiceManagerRoutingTable routingTable = createRoutingTable( wcsServiceManager, wmsServiceManager,
+                                                                      secondWmsServiceManager );
+
+        assertThat( routingTable.route( "wms", request ), is( wmsServiceManager ) );
+        verify( secondWmsServiceManager, never() ).isServiceTypeSupported( anyString(),
+                                                                           any( HttpServletRequest.class ) );
+    }
+
+    @Test
+    public void testRouteShouldAskServiceManagersOnlyOncePerServiceType()
+                    throws Exception {
+        ServiceManager wcsServiceManager = mockServiceManager( "wcs" );
+        ServiceManager wmsServiceManager = mockServiceManager( "wms" );
+        ServiceManagerRoutingTable routingTable = createRoutingTable( wcsServiceManager, wmsServiceManager );
+
+        routingTable.route( "wms", request );
+        routingTable.route( "wms", request );
+        ServiceManager serviceManager = routingTable.route( "wms", request );
+
+        assertThat( serviceManager, is( wmsServiceManager ) );
+        verify( wcsServiceManager, times( 1 ) ).isServiceTypeSupported( "wms", request );
+        verify( wmsServiceManager, times( 1 ) ).isServiceTypeSupported( "wms", request );
+    }
+
+    @Test
+    public void testRouteWithoutServiceTypeShouldAskServiceManagersEveryTime()
+                    throws Exception {
+        ServiceManager serviceManager = mockServiceManager( "wps" );
+        doReturn( true ).when( serviceManager ).isServiceTypeSupported( (String) isNull(), eq( request ) );
+        ServiceManagerRoutingTable routingTable = createRoutingTable( serviceManager );
+
+        routingTable.route( null, request );
+        routingTable.route( null, request );
+
+        verify( serviceManager, times( 2 ) ).isServiceTypeSupported( null, request );
+    }
+
+    @Test(expected = UnsupportedRequestTypeException.class)
+    public void testRouteUnsupportedServiceTypeShouldFail()
+                    throws Exception {
+        ServiceManagerRoutingTable routingTable = createRoutingTable( mockServiceManager( "wms" ) );
+
+        routingTable.route( "wfs", request );
+    }
+
+    @Test
+    public void testRouteUnsupportedServiceTypeShouldNotBeRemembered()
+                    throws Exception {
+        ServiceManager serviceManager = mockServiceManager( "wms" );
+        ServiceManagerRoutingTable routingTable = createRoutingTable( serviceManager );
+
+        routeUnsupported( routingTable, "wfs" );
+        routeUnsupported( routingTable, "wfs" );
+
+        verify( serviceManager, times( 2 ) ).isServiceTypeSupported( "wfs", request );
+    }
+
+    @Test(expected = UnsupportedRequestTypeException.class)
+    public void testRouteWithNullServiceManagersShouldFail()
+                    throws Exception {
+        ServiceManagerRoutingTable routingTable = new ServiceManagerRoutingTable( null );
+
+        routingTable.route( "wms", request );
+    }
+
+    private void routeUnsupported( ServiceManagerRoutingTable routingTable, String serviceType ) {
+        try {
+            routingTable.route( serviceType, request );
+        } catch ( UnsupportedRequestTypeException e ) {
+            // expected
+        }
+    }
+
+    private ServiceManagerRoutingTable createRoutingTable( ServiceManager... serviceManagers ) {
+        return new ServiceManagerRoutingTable( Arrays.asList( serviceManagers ) );
+    }
+
+    private ServiceManager mockServiceManager( String supportedServiceType ) {
+        ServiceManager serviceManager = mock( ServiceManager.class );
+        doReturn( true ).when( serviceManager ).isServiceTypeSupported( eq( supportedServiceType ),
+                                                                        any( HttpServletRequest.class ) );
+        return serviceManager;
+    }
+
+}
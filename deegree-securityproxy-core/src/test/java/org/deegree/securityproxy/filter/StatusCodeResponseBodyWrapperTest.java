@@ -1,18 +1,24 @@
 package org.deegree.securityproxy.filter;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.util.zip.GZIPInputStream;
 
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.commons.io.IOUtils;
 import org.junit.Test;
 
 /**
@@ -93,6 +99,130 @@ public class StatusCodeResponseBodyWrapperTest {
         assertThat( writtenTextToRealStream, is( "" ) );
     }
 
+    @Test
+    public void testGetBufferedBodyForWriterShouldUseCharacterEncodingOfResponse()
+                            throws Exception {
+        HttpServletResponse mockResponse = mockResponse();
+        when( mockResponse.getCharacterEncoding() ).thenReturn( "UTF-8" );
+        StatusCodeResponseBodyWrapper wrapper = new StatusCodeResponseBodyWrapper( mockResponse );
+        PrintWriter writer = wrapper.getWriter();
+        writer.write( "Gr\u00fc\u00dfe".toCharArray(), 2, 3 );
+        assertThat( wrapper.getBufferedBody(), is( "\u00fc\u00dfe".getBytes( "UTF-8" ) ) );
+    }
+
+    @Test
+    public void testGetBufferedStreamForBulkWriteToOutputStream()
+                            throws Exception {
+        byte[] content = new byte[100000];
+        for ( int i = 0; i < content.length; i++ )
+            content[i] = (byte) i;
+        StatusCodeResponseBodyWrapper wrapper = new StatusCodeResponseBodyWrapper( mockResponse() );
+        wrapper.getOutputStream().write( content );
+        assertThat( IOUtils.toByteArray( wrapper.getBufferedStream() ), is( content ) );
+    }
+
+    @Test
+    public void testPassThroughWithStreamShouldWriteToRealStream()
+                            throws Exception {
+        String textToWrite = "TEXT";
+        ByteArrayOutputStream realStream = new ByteArrayOutputStream();
+        HttpServletResponse mockResponse = mockResponse( realStream );
+
+        StatusCodeResponseBodyWrapper wrapper = new StatusCodeResponseBodyWrapper( mockResponse );
+        wrapper.enablePassThrough();
+        ServletOutputStream writer = wrapper.getOutputStream();
+        writer.print( textToWrite );
+
+        assertThat( realStream.toString(), is( textToWrite ) );
+        assertThat( wrapper.getBufferedBody().length, is( 0 ) );
+    }
+
+    @Test
+    public void testPassThroughCopyBufferedStreamToRealStreamShouldNotWriteTwice()
+                            throws Exception {
+        String textToWrite = "TEXT";
+        ByteArrayOutputStream realStream = new ByteArrayOutputStream();
+        HttpServletResponse mockResponse = mockResponse( realStream );
+
+        StatusCodeResponseBodyWrapper wrapper = new StatusCodeResponseBodyWrapper( mockResponse );
+        wrapper.enablePassThrough();
+        wrapper.getOutputStream().print( textToWrite );
+        wrapper.copyBufferedStreamToRealStream();
+
+        assertThat( realStream.toString(), is( textToWrite ) );
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testEnablePassThroughAfterStreamIsUsedShouldFail()
+                            throws Exception {
+        StatusCodeResponseBodyWrapper wrapper = new StatusCodeResponseBodyWrapper( mockResponse() );
+        wrapper.getOutputStream();
+        wrapper.enablePassThrough();
+    }
+
+    @Test
+    public void testAddContentLengthHeaderShouldNotBeForwardedIfBuffered()
+                            throws Exception {
+        HttpServletResponse mockResponse = mockResponse();
+        StatusCodeResponseBodyWrapper wrapper = new StatusCodeResponseBodyWrapper( mockResponse );
+        wrapper.addHeader( "Content-Length", "4" );
+
+        verify( mockResponse, never() ).addHeader( "Content-Length", "4" );
+    }
+
+    @Test
+    public void testAddContentLengthHeaderShouldBeForwardedInPassThrough()
+                            throws Exception {
+        HttpServletResponse mockResponse = mockResponse();
+        StatusCodeResponseBodyWrapper wrapper = new StatusCodeResponseBodyWrapper( mockResponse );
+        wrapper.enablePassThrough();
+        wrapper.addHeader( "Content-Length", "4" );
+
+        verify( mockResponse ).addHeader( "Content-Length", "4" );
+    }
+
+    @Test
+    public void testCopyBufferedStreamToRealStreamShouldSetContentLength()
+                            throws Exception {
+        HttpServletResponse mockResponse = mockResponse( new ByteArrayOutputStream() );
+        StatusCodeResponseBodyWrapper wrapper = new StatusCodeResponseBodyWrapper( mockResponse );
+        wrapper.getOutputStream().print( "TEXT" );
+
+        wrapper.copyBufferedStreamToRealStream();
+
+        verify( mockResponse ).setContentLength( 4 );
+    }
+
+    @Test
+    public void testGetCompressingOutputStreamWithGzipAcceptedShouldCompress()
+                            throws Exception {
+        ByteArrayOutputStream realStream = new ByteArrayOutputStream();
+        HttpServletResponse mockResponse = mockResponse( realStream );
+        StatusCodeResponseBodyWrapper wrapper = new StatusCodeResponseBodyWrapper( mockResponse );
+        wrapper.enableCompression( new ResponseCompressor( 6, 0 ), "gzip" );
+        OutputStream compressingStream = wrapper.getCompressingOutputStream();
+        compressingStream.write( "TEXT".getBytes( "UTF-8" ) );
+        compressingStream.close();
+
+        verify( mockResponse ).setHeader( "Content-Encoding", "gzip" );
+        GZIPInputStream gzipStream = new GZIPInputStream( new ByteArrayInputStream( realStream.toByteArray() ) );
+        assertThat( IOUtils.toString( gzipStream, "UTF-8" ), is( "TEXT" ) );
+    }
+
+    @Test
+    public void testGetCompressingOutputStreamWithoutCompressionShouldWriteToRealStream()
+                            throws Exception {
+        ByteArrayOutputStream realStream = new ByteArrayOutputStream();
+        StatusCodeResponseBodyWrapper wrapper = new StatusCodeResponseBodyWrapper( mockResponse( realStream ) );
+        wrapper.enableCompression( new ResponseCompressor(), "gzip" );
+        OutputStream compressingStream = wrapper.getCompressingOutputStream();
+        compressingStream.write( "TEXT".getBytes( "UTF-8" ) );
+        compressingStream.close();
+
+        assertThat( wrapper.getContentEncoding(), is( nullValue() ) );
+        assertThat( realStream.toString(), is( "TEXT" ) );
+    }
+
     private HttpServletResponse mockResponse()
                             throws IOException {
         HttpServletResponse mock = mock( HttpServletResponse.class );
@@ -0,0 +1,222 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.forwarding;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.http.Header;
+import org.deegree.securityproxy.forwarding.BackendCapabilitiesCache.Revalidation;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class BackendCapabilitiesCacheTest {
+
+    private static final String KEY = "key";
+
+    private ControlledTimeCache cache = new ControlledTimeCache( 2, 1000, 5000 );
+
+    @After
+    public void closeCache() {
+        cache.close();
+    }
+
+    @Test
+    public void testGetWithoutEntryShouldReturnNull() {
+        assertThat( cache.get( KEY ), is( nullValue() ) );
+        assertThat( cache.getMisses(), is( 1L ) );
+    }
+
+    @Test
+    public void testGetWithinTimeToLiveShouldReturnFreshEntry() {
+        cache.put( KEY, createCapabilities() );
+        cache.now = 999;
+        CachedBackendCapabilities cached = cache.get( KEY );
+
+        assertThat( cached, is( notNullValue() ) );
+        assertThat( cache.isFresh( cached ), is( true ) );
+        assertThat( cache.getHits(), is( 1L ) );
+    }
+
+    @Test
+    public void testGetAfterTimeToLiveShouldReturnStaleEntry() {
+        cache.put( KEY, createCapabilities() );
+        cache.now = 1000;
+        CachedBackendCapabilities cached = cache.get( KEY );
+
+        assertThat( cached, is( notNullValue() ) );
+        assertThat( cache.isFresh( cached ), is( false ) );
+        assertThat( cache.getStaleHits(), is( 1L ) );
+    }
+
+    @Test
+    public void testGetAfterMaxStaleTimeShouldReturnNull() {
+        cache.put( KEY, createCapabilities() );
+        cache.now = 6000;
+
+        assertThat( cache.get( KEY ), is( nullValue() ) );
+        assertThat( cache.getCachedDocuments(), is( 0 ) );
+    }
+
+    @Test
+    public void testPutMoreThanMaxEntriesShouldEvictLeastRecentlyUsedEntry() {
+        cache.put( "first", createCapabilities() );
+        cache.put( "second", createCapabilities() );
+        cache.get( "first" );
+        cache.put( "third", createCapabilities() );
+
+        assertThat( cache.getCachedDocuments(), is( 2 ) );
+        assertThat( cache.get( "second" ), is( nullValue() ) );
+    }
+
+    @Test
+    public void testPutWithDisabledCacheShouldNotStoreEntry() {
+        BackendCapabilitiesCache disabledCache = new BackendCapabilitiesCache();
+        disabledCache.put( KEY, createCapabilities() );
+
+        assertThat( disabledCache.isEnabled(), is( false ) );
+        assertThat( disabledCache.get( KEY ), is( nullValue() ) );
+    }
+
+    @Test
+    public void testRevalidateNotModifiedShouldRenewEntry() {
+        CachedBackendCapabilities capabilities = createCapabilities();
+        cache.put( KEY, capabilities );
+        cache.now = 1500;
+        CachedBackendCapabilities stale = cache.get( KEY );
+        cache.revalidate( KEY, stale, returning( stale ) );
+        CachedBackendCapabilities renewed = cache.get( KEY );
+
+        assertThat( cache.isFresh( renewed ), is( true ) );
+        assertThat( renewed.getBody(), is( sameInstance( capabilities.getBody() ) ) );
+        assertThat( cache.getNotModifiedRevalidations(), is( 1L ) );
+    }
+
+    @Test
+    public void testRevalidateModifiedShouldReplaceEntry() {
+        cache.put( KEY, createCapabilities() );
+        cache.now = 1500;
+        CachedBackendCapabilities modified = createCapabilities();
+        cache.revalidate( KEY, cache.get( KEY ), returning( modified ) );
+
+        assertThat( cache.get( KEY ).getBody(), is( sameInstance( modified.getBody() ) ) );
+        assertThat( cache.getModifiedRevalidations(), is( 1L ) );
+    }
+
+    @Test
+    public void testRevalidateFailedShouldKeepStaleEntry() {
+        cache.put( KEY, createCapabilities() );
+        cache.now = 1500;
+        CachedBackendCapabilities stale = cache.get( KEY );
+        cache.revalidate( KEY, stale, new Revalidation() {
+            @Override
+            public CachedBackendCapabilities revalidate( CachedBackendCapabilities cached )
+                            throws IOException {
+                throw new IOException( "backend not available" );
+            }
+        } );
+
+        assertThat( cache.get( KEY ), is( sameInstance( stale ) ) );
+    }
+
+    @Test
+    public void testRevalidateInBackgroundShouldRenewEntry()
+                    throws Exception {
+        cache.put( KEY, createCapabilities() );
+        cache.now = 1500;
+        final CachedBackendCapabilities stale = cache.get( KEY );
+        final CountDownLatch revalidated = new CountDownLatch( 1 );
+        cache.revalidateInBackground( KEY, stale, new Revalidation() {
+            @Override
+            public CachedBackendCapabilities revalidate( CachedBackendCapabilities cached ) {
+                revalidated.countDown();
+                return cached;
+            }
+        } );
+
+        assertThat( revalidated.await( 5, SECONDS ), is( true ) );
+        waitForNotModifiedRevalidation();
+        assertThat( cache.isFresh( cache.get( KEY ) ), is( true ) );
+    }
+
+    private void waitForNotModifiedRevalidation()
+                    throws InterruptedException {
+        for ( int attempt = 0; attempt < 100 && cache.getNotModifiedRevalidations() == 0; attempt++ )
+            Thread.sleep( 50 );
+    }
+
+    private Revalidation returning( final CachedBackendCapabilities revalidated ) {
+        return new Revalidation() {
+            @Override
+            public CachedBackendCapabilities revalidate( CachedBackendCapabilities cached ) {
+                return revalidated;
+            }
+        };
+    }
+
+    private CachedBackendCapabilities createCapabilities() {
+        return new CachedBackendCapabilities( Collections.<Header> emptyList(), new byte[] { 1, 2, 3 }, null );
+    }
+
+    private static class ControlledTimeCache extends BackendCapabilitiesCache {
+
+        private volatile long now = 0;
+
+        private ControlledTimeCache( int maxEntries, long timeToLive, long maxStaleTime ) {
+            super( maxEntries, timeToLive, maxStaleTime );
+        }
+
+        @Override
+        protected long currentTimeMillis() {
+            return now;
+        }
+
+    }
+
+}
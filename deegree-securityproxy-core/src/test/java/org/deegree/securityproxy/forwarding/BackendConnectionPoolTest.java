@@ -0,0 +1,74 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.forwarding;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+/**
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class BackendConnectionPoolTest {
+
+    @Test
+    public void testConnectionLimits()
+                    throws Exception {
+        BackendConnectionPool connectionPool = new BackendConnectionPool( 20, 5, 1000, 1000, 1000, 1000 );
+        try {
+            assertThat( connectionPool.getMaxConnections(), is( 20 ) );
+            assertThat( connectionPool.getMaxConnectionsPerRoute(), is( 5 ) );
+            assertThat( connectionPool.getLeasedConnections(), is( 0 ) );
+            assertThat( connectionPool.getRouteStatistics().length, is( 0 ) );
+        } finally {
+            connectionPool.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorWithoutConnectionsShouldFail() {
+        new BackendConnectionPool( 0, 5, 1000, 1000, 1000, 1000 );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorWithNegativeTimeoutShouldFail() {
+        new BackendConnectionPool( 20, 5, -1, 1000, 1000, 1000 );
+    }
+
+}
@@ -0,0 +1,674 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.forwarding;
+
+import static java.lang.Boolean.TRUE;
+import static java.util.Arrays.asList;
+import static javax.servlet.http.HttpServletResponse.SC_BAD_GATEWAY;
+import static javax.servlet.http.HttpServletResponse.SC_CREATED;
+import static javax.servlet.http.HttpServletResponse.SC_NOT_MODIFIED;
+import static javax.servlet.http.HttpServletResponse.SC_OK;
+import static org.deegree.securityproxy.filter.SecurityFilter.REQUEST_ATTRIBUTE_PASS_THROUGH;
+import static org.deegree.securityproxy.filter.SecurityFilter.REQUEST_ATTRIBUTE_SERVICE_URL;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.FilterChain;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.Header;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.message.BasicHeader;
+import org.deegree.securityproxy.filter.ResponseBodyBuffer;
+import org.deegree.securityproxy.filter.ResponseBodyBufferFactory;
+import org.deegree.securityproxy.forwarding.RequestCoalescer.BackendCall;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class BackendForwardingFilterTest {
+
+    private static final String CAPABILITIES = "<WMS_Capabilities version=\"1.3.0\" updateSequence=\"5\"/>";
+
+    private HttpServer backend;
+
+    private RecordingHandler handler;
+
+    private BackendConnectionPool connectionPool;
+
+    private BackendForwardingFilter filter;
+
+    @Before
+    public void startBackend()
+                    throws Exception {
+        handler = new RecordingHandler();
+        backend = HttpServer.create( new InetSocketAddress( "127.0.0.1", 0 ), 0 );
+        backend.createContext( "/", handler );
+        backend.start();
+        connectionPool = new BackendConnectionPool( 10, 5, 5000, 5000, 5000, 0 );
+        filter = new BackendForwardingFilter( connectionPool );
+    }
+
+    @After
+    public void stopBackend() {
+        connectionPool.close();
+        backend.stop( 0 );
+    }
+
+    @Test
+    public void testDoFilterShouldForwardGetRequestWithQueryString()
+                    throws Exception {
+        MockHttpServletRequest request = createRequest( "GET", "/wms" );
+        request.setQueryString( "SERVICE=WMS&REQUEST=GetMap" );
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter( request, response, mock( FilterChain.class ) );
+
+        assertThat( handler.method, is( "GET" ) );
+        assertThat( handler.query, is( "SERVICE=WMS&REQUEST=GetMap" ) );
+        assertThat( response.getStatus(), is( SC_OK ) );
+        assertThat( response.getContentAsString(), is( "response" ) );
+        assertThat( response.getHeader( "X-Backend" ), is( "test" ) );
+    }
+
+    @Test
+    public void testDoFilterShouldStripLeadingQuestionMarkOfQueryString()
+                    throws Exception {
+        MockHttpServletRequest request = createRequest( "GET", "/wms" );
+        request.setQueryString( "?contract_id=1" );
+        filter.doFilter( request, new MockHttpServletResponse(), mock( FilterChain.class ) );
+
+        assertThat( handler.query, is( "contract_id=1" ) );
+    }
+
+    @Test
+    public void testDoFilterShouldForwardPostBodyAndHeaders()
+                    throws Exception {
+        MockHttpServletRequest request = createRequest( "POST", "/wps" );
+        request.setContent( "<Execute/>".getBytes( "UTF-8" ) );
+        request.setContentType( "text/xml" );
+        request.addHeader( "Content-Type", "text/xml" );
+        request.addHeader( "X-Client", "client" );
+        request.addHeader( "Connection", "close" );
+        handler.status = SC_CREATED;
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter( request, response, mock( FilterChain.class ) );
+
+        assertThat( handler.method, is( "POST" ) );
+        assertThat( handler.body, is( "<Execute/>" ) );
+        assertThat( handler.contentType, is( "text/xml" ) );
+        assertThat( handler.clientHeader, is( "client" ) );
+        assertThat( response.getStatus(), is( SC_CREATED ) );
+    }
+
+    @Test
+    public void testDoFilterShouldReuseConnections()
+                    throws Exception {
+        for ( int i = 0; i < 3; i++ )
+            filter.doFilter( createRequest( "GET", "/wms" ), new MockHttpServletResponse(), mock( FilterChain.class ) );
+
+        assertThat( connectionPool.getLeasedConnections(), is( 0 ) );
+        assertThat( connectionPool.getAvailableConnections(), is( 1 ) );
+        assertThat( connectionPool.getRouteCount(), is( 1 ) );
+    }
+
+    @Test
+    public void testDoFilterWithoutServiceUrlShouldRespondBadGateway()
+                    throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest( "GET", "/wms" );
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = mock( FilterChain.class );
+        filter.doFilter( request, response, chain );
+
+        assertThat( response.getStatus(), is( SC_BAD_GATEWAY ) );
+        assertThat( handler.method, is( nullValue() ) );
+        verifyZeroInteractions( chain );
+    }
+
+    @Test
+    public void testDoFilterWithUnreachableBackendShouldRespondBadGateway()
+                    throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest( "GET", "/wms" );
+        int port = backend.getAddress().getPort();
+        backend.stop( 0 );
+        request.setAttribute( REQUEST_ATTRIBUTE_SERVICE_URL, "http://127.0.0.1:" + port + "/wms" );
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter( request, response, mock( FilterChain.class ) );
+
+        assertThat( response.getStatus(), is( SC_BAD_GATEWAY ) );
+    }
+
+    @Test
+    public void testDoFilterCoalescedShouldForwardGetRequest()
+                    throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        BackendForwardingFilter coalescingFilter = new BackendForwardingFilter( connectionPool, coalescer,
+                                                                                new ResponseBodyBufferFactory() );
+        MockHttpServletRequest request = createRequest( "GET", "/wms" );
+        request.setQueryString( "SERVICE=WMS&REQUEST=GetCapabilities" );
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        coalescingFilter.doFilter( request, response, mock( FilterChain.class ) );
+
+        assertThat( handler.query, is( "SERVICE=WMS&REQUEST=GetCapabilities" ) );
+        assertThat( response.getStatus(), is( SC_OK ) );
+        assertThat( response.getContentAsString(), is( "response" ) );
+        assertThat( response.getHeader( "X-Backend" ), is( "test" ) );
+        assertThat( coalescer.getBackendRequests(), is( 1L ) );
+        assertThat( connectionPool.getLeasedConnections(), is( 0 ) );
+    }
+
+    @Test
+    public void testDoFilterCoalescedShouldNotCoalescePostRequest()
+                    throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        BackendForwardingFilter coalescingFilter = new BackendForwardingFilter( connectionPool, coalescer,
+                                                                                new ResponseBodyBufferFactory() );
+        MockHttpServletRequest request = createRequest( "POST", "/wps" );
+        request.setContent( "<Execute/>".getBytes( "UTF-8" ) );
+        coalescingFilter.doFilter( request, new MockHttpServletResponse(), mock( FilterChain.class ) );
+
+        assertThat( handler.body, is( "<Execute/>" ) );
+        assertThat( coalescer.getBackendRequests(), is( 0L ) );
+    }
+
+    @Test
+    public void testDoFilterCoalescedShouldCoalesceGetMapRequest()
+                    throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        BackendForwardingFilter coalescingFilter = new BackendForwardingFilter( connectionPool, coalescer,
+                                                                                new ResponseBodyBufferFactory() );
+        MockHttpServletRequest request = createRequest( "GET", "/wms" );
+        request.setQueryString( "SERVICE=WMS&REQUEST=GetMap" );
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        coalescingFilter.doFilter( request, response, mock( FilterChain.class ) );
+
+        assertThat( response.getContentAsString(), is( "response" ) );
+        assertThat( coalescer.getBackendRequests(), is( 1L ) );
+    }
+
+    @Test
+    public void testDoFilterShouldNotForwardCredentialsOfClient()
+                    throws Exception {
+        filter.setAccessTokenHeaderName( "access_token" );
+        MockHttpServletRequest request = createRequest( "GET", "/wms" );
+        request.addHeader( "Authorization", "Basic dXNlcjE6cHc=" );
+        request.addHeader( "Cookie", "session=1" );
+        request.addHeader( "access_token", "token" );
+        request.addHeader( "X-Client", "client" );
+        filter.doFilter( request, new MockHttpServletResponse(), mock( FilterChain.class ) );
+
+        assertThat( handler.clientHeader, is( "client" ) );
+        assertThat( handler.credentialHeaders.isEmpty(), is( true ) );
+    }
+
+    @Test
+    public void testDoFilterCoalescedWithOtherCredentialsShouldShareKey()
+                    throws Exception {
+        RequestCoalescer coalescer = mock( RequestCoalescer.class );
+        when( coalescer.isEnabled() ).thenReturn( true );
+        when( coalescer.execute( anyString(), any( BackendCall.class ) ) ).thenReturn( createSharedResponse(),
+                                                                                     createSharedResponse() );
+        BackendForwardingFilter coalescingFilter = new BackendForwardingFilter( connectionPool, coalescer,
+                                                                                new ResponseBodyBufferFactory() );
+        MockHttpServletRequest request = createRequest( "GET", "/wms" );
+        request.setQueryString( "SERVICE=WMS&REQUEST=GetMap" );
+        request.addHeader( "Authorization", "Basic dXNlcjE6cHc=" );
+        MockHttpServletRequest otherUserRequest = createRequest( "GET", "/wms" );
+        otherUserRequest.setQueryString( "SERVICE=WMS&REQUEST=GetMap" );
+        otherUserRequest.addHeader( "Cookie", "session=2" );
+        coalescingFilter.doFilter( request, new MockHttpServletResponse(), mock( FilterChain.class ) );
+        coalescingFilter.doFilter( otherUserRequest, new MockHttpServletResponse(), mock( FilterChain.class ) );
+
+        String expectedKey = coalescingFilter.createCoalescingKey( request.getAttribute( REQUEST_ATTRIBUTE_SERVICE_URL )
+                                                                          .toString(), "SERVICE=WMS&REQUEST=GetMap" );
+        verify( coalescer, times( 2 ) ).execute( eq( expectedKey ), any( BackendCall.class ) );
+    }
+
+    @Test
+    public void testDoFilterCoalescedShouldNotCoalesceConditionalRequest()
+                    throws Exception {
+        handler.eTag = "\"v1\"";
+        RequestCoalescer coalescer = new RequestCoalescer();
+        BackendForwardingFilter coalescingFilter = new BackendForwardingFilter( connectionPool, coalescer,
+                                                                                new ResponseBodyBufferFactory() );
+        MockHttpServletRequest request = createRequest( "GET", "/wms" );
+        request.setQueryString( "SERVICE=WMS&REQUEST=DescribeLayer" );
+        request.addHeader( "If-None-Match", "\"v1\"" );
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        coalescingFilter.doFilter( request, response, mock( FilterChain.class ) );
+
+        assertThat( handler.ifNoneMatch, is( "\"v1\"" ) );
+        assertThat( response.getStatus(), is( 304 ) );
+        assertThat( coalescer.getBackendRequests(), is( 0L ) );
+    }
+
+    @Test
+    public void testDoFilterShouldNotForwardAcceptEncodingOfFilteredRequest()
+                    throws Exception {
+        MockHttpServletRequest request = createRequest( "GET", "/wms" );
+        request.addHeader( "Accept-Encoding", "gzip" );
+        filter.doFilter( request, new MockHttpServletResponse(), mock( FilterChain.class ) );
+
+        assertThat( handler.acceptEncoding, is( nullValue() ) );
+    }
+
+    @Test
+    public void testDoFilterShouldDecodeCompressedResponseOfFilteredRequest()
+                    throws Exception {
+        handler.isGzipResponse = true;
+        MockHttpServletRequest request = createRequest( "GET", "/wms" );
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter( request, response, mock( FilterChain.class ) );
+
+        assertThat( response.getHeader( "Content-Encoding" ), is( nullValue() ) );
+        assertThat( response.getContentAsString(), is( "response" ) );
+    }
+
+    @Test
+    public void testDoFilterPassThroughShouldForwardAcceptEncodingAndCompressedResponse()
+                    throws Exception {
+        handler.isGzipResponse = true;
+        MockHttpServletRequest request = createRequest( "GET", "/wms" );
+        request.setAttribute( REQUEST_ATTRIBUTE_PASS_THROUGH, TRUE );
+        request.addHeader( "Accept-Encoding", "gzip" );
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter( request, response, mock( FilterChain.class ) );
+
+        assertThat( handler.acceptEncoding, is( "gzip" ) );
+        assertThat( response.getHeader( "Content-Encoding" ), is( "gzip" ) );
+        assertThat( gunzip( response.getContentAsByteArray() ), is( "response" ) );
+    }
+
+    @Test
+    public void testDoFilterCapabilitiesShouldServeCachedDocument()
+                    throws Exception {
+        handler.responseBody = CAPABILITIES;
+        BackendCapabilitiesCache cache = new BackendCapabilitiesCache( 10, 60000, 60000 );
+        BackendForwardingFilter cachingFilter = createCachingFilter( cache );
+        MockHttpServletRequest request = createRequest( "GET", "/wms" );
+        request.setQueryString( "SERVICE=WMS&REQUEST=GetCapabilities" );
+        MockHttpServletRequest sameRequest = createRequest( "GET", "/wms" );
+        sameRequest.setQueryString( "request=GetCapabilities&service=WMS" );
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockHttpServletResponse cachedResponse = new MockHttpServletResponse();
+        cachingFilter.doFilter( request, response, mock( FilterChain.class ) );
+        cachingFilter.doFilter( sameRequest, cachedResponse, mock( FilterChain.class ) );
+
+        assertThat( handler.requests, is( 1 ) );
+        assertThat( response.getContentAsString(), is( CAPABILITIES ) );
+        assertThat( cachedResponse.getStatus(), is( SC_OK ) );
+        assertThat( cachedResponse.getContentAsString(), is( CAPABILITIES ) );
+        assertThat( cache.getHits(), is( 1L ) );
+    }
+
+    @Test
+    public void testDoFilterCapabilitiesShouldServeOnlyRepresentationHeadersFromCache()
+                    throws Exception {
+        handler.responseBody = CAPABILITIES;
+        handler.eTag = "\"1\"";
+        BackendForwardingFilter cachingFilter = createCachingFilter( new BackendCapabilitiesCache( 10, 60000, 60000 ) );
+        MockHttpServletRequest request = createRequest( "GET", "/wms" );
+        request.setQueryString( "SERVICE=WMS&REQUEST=GetCapabilities" );
+        MockHttpServletResponse cachedResponse = new MockHttpServletResponse();
+        cachingFilter.doFilter( request, new MockHttpServletResponse(), mock( FilterChain.class ) );
+        cachingFilter.doFilter( request, cachedResponse, mock( FilterChain.class ) );
+
+        assertThat( handler.requests, is( 1 ) );
+        assertThat( cachedResponse.getHeader( "ETag" ), is( "\"1\"" ) );
+        assertThat( cachedResponse.getHeader( "X-Backend" ), is( nullValue() ) );
+        assertThat( cachedResponse.getHeader( "Date" ), is( nullValue() ) );
+    }
+
+    @Test
+    public void testDoFilterCapabilitiesSettingCookieShouldNotBeCached()
+                    throws Exception {
+        handler.responseBody = CAPABILITIES;
+        handler.cookie = "session=1";
+        BackendCapabilitiesCache cache = new BackendCapabilitiesCache( 10, 60000, 60000 );
+        BackendForwardingFilter cachingFilter = createCachingFilter( cache );
+        MockHttpServletRequest request = createRequest( "GET", "/wms" );
+        request.setQueryString( "SERVICE=WMS&REQUEST=GetCapabilities" );
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        cachingFilter.doFilter( request, response, mock( FilterChain.class ) );
+
+        assertThat( response.getContentAsString(), is( CAPABILITIES ) );
+        assertThat( cache.getCachedDocuments(), is( 0 ) );
+    }
+
+    @Test
+    public void testDoFilterCapabilitiesWithOtherCredentialsShouldServeCachedDocument()
+                    throws Exception {
+        handler.responseBody = CAPABILITIES;
+        BackendCapabilitiesCache cache = new BackendCapabilitiesCache( 10, 60000, 60000 );
+        BackendForwardingFilter cachingFilter = createCachingFilter( cache );
+        MockHttpServletRequest request = createRequest( "GET", "/wms" );
+        request.setQueryString( "SERVICE=WMS&REQUEST=GetCapabilities" );
+        request.addHeader( "Authorization", "Basic dXNlcjE6cHc=" );
+        MockHttpServletRequest otherUserRequest = createRequest( "GET", "/wms" );
+        otherUserRequest.setQueryString( "SERVICE=WMS&REQUEST=GetCapabilities" );
+        otherUserRequest.addHeader( "Authorization", "Basic dXNlcjI6cHc=" );
+        cachingFilter.doFilter( request, new MockHttpServletResponse(), mock( FilterChain.class ) );
+        cachingFilter.doFilter( otherUserRequest, new MockHttpServletResponse(), mock( FilterChain.class ) );
+        cachingFilter.doFilter( request, new MockHttpServletResponse(), mock( FilterChain.class ) );
+
+        assertThat( handler.requests, is( 1 ) );
+        assertThat( cache.getCachedDocuments(), is( 1 ) );
+        assertThat( cache.getHits(), is( 2L ) );
+    }
+
+    @Test
+    public void testDoFilterCoalescedShouldNotPassCookieOfBackend()
+                    throws Exception {
+        handler.cookie = "session=1";
+        BackendForwardingFilter coalescingFilter = new BackendForwardingFilter( connectionPool, new RequestCoalescer(),
+                                                                                new ResponseBodyBufferFactory() );
+        MockHttpServletRequest request = createRequest( "GET", "/wms" );
+        request.setQueryString( "SERVICE=WMS&REQUEST=DescribeLayer" );
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        coalescingFilter.doFilter( request, response, mock( FilterChain.class ) );
+
+        assertThat( response.getContentAsString(), is( "response" ) );
+        assertThat( response.getHeader( "X-Backend" ), is( "test" ) );
+        assertThat( response.getHeader( "Set-Cookie" ), is( nullValue() ) );
+    }
+
+    @Test
+    public void testDoFilterCapabilitiesShouldNotCacheExceptionReport()
+                    throws Exception {
+        handler.responseBody = "<ServiceExceptionReport/>";
+        BackendCapabilitiesCache cache = new BackendCapabilitiesCache( 10, 60000, 60000 );
+        BackendForwardingFilter cachingFilter = createCachingFilter( cache );
+        MockHttpServletRequest request = createRequest( "GET", "/wms" );
+        request.setQueryString( "SERVICE=WMS&REQUEST=GetCapabilities" );
+        cachingFilter.doFilter( request, new MockHttpServletResponse(), mock( FilterChain.class ) );
+
+        assertThat( cache.getCachedDocuments(), is( 0 ) );
+    }
+
+    @Test
+    public void testDoFilterCapabilitiesWithUpdateSequenceShouldNotBeCached()
+                    throws Exception {
+        handler.responseBody = CAPABILITIES;
+        BackendCapabilitiesCache cache = new BackendCapabilitiesCache( 10, 60000, 60000 );
+        BackendForwardingFilter cachingFilter = createCachingFilter( cache );
+        MockHttpServletRequest request = createRequest( "GET", "/wms" );
+        request.setQueryString( "SERVICE=WMS&REQUEST=GetCapabilities&UPDATESEQUENCE=4" );
+        cachingFilter.doFilter( request, new MockHttpServletResponse(), mock( FilterChain.class ) );
+
+        assertThat( cache.getCachedDocuments(), is( 0 ) );
+        assertThat( cache.getMisses(), is( 0L ) );
+    }
+
+    @Test
+    public void testDoFilterCapabilitiesShouldNotForwardConditionalHeadersOfClient()
+                    throws Exception {
+        handler.responseBody = CAPABILITIES;
+        BackendForwardingFilter cachingFilter = createCachingFilter( new BackendCapabilitiesCache( 10, 60000, 60000 ) );
+        MockHttpServletRequest request = createRequest( "GET", "/wms" );
+        request.setQueryString( "SERVICE=WMS&REQUEST=GetCapabilities" );
+        request.addHeader( "If-None-Match", "\"client\"" );
+        cachingFilter.doFilter( request, new MockHttpServletResponse(), mock( FilterChain.class ) );
+
+        assertThat( handler.ifNoneMatch, is( nullValue() ) );
+    }
+
+    @Test
+    public void testRevalidateCapabilitiesWithETagShouldReturnStaleDocumentIfNotModified()
+                    throws Exception {
+        handler.eTag = "\"1\"";
+        CachedBackendCapabilities stale = createCachedCapabilities( "ETag", "\"1\"", null );
+        CachedBackendCapabilities revalidated = filter.revalidateCapabilities( createCapabilitiesRequest(), stale );
+
+        assertThat( handler.ifNoneMatch, is( "\"1\"" ) );
+        assertThat( revalidated, is( sameInstance( stale ) ) );
+    }
+
+    @Test
+    public void testRevalidateCapabilitiesWithETagShouldReturnModifiedDocument()
+                    throws Exception {
+        handler.eTag = "\"2\"";
+        handler.responseBody = CAPABILITIES;
+        CachedBackendCapabilities stale = createCachedCapabilities( "ETag", "\"1\"", null );
+        CachedBackendCapabilities revalidated = filter.revalidateCapabilities( createCapabilitiesRequest(), stale );
+
+        assertThat( new String( revalidated.getBody(), "UTF-8" ), is( CAPABILITIES ) );
+        assertThat( revalidated.getETag(), is( "\"2\"" ) );
+        assertThat( revalidated.getUpdateSequence(), is( "5" ) );
+    }
+
+    @Test
+    public void testRevalidateCapabilitiesWithUpdateSequenceShouldReturnStaleDocumentIfCurrent()
+                    throws Exception {
+        handler.updateSequenceResponseBody = "<ServiceExceptionReport><ServiceException code=\"CurrentUpdateSequence\"/>"
+                                             + "</ServiceExceptionReport>";
+        CachedBackendCapabilities stale = createCachedCapabilities( "X-Backend", "test", "5" );
+        CachedBackendCapabilities revalidated = filter.revalidateCapabilities( createCapabilitiesRequest(), stale );
+
+        assertThat( handler.query, is( "SERVICE=WMS&REQUEST=GetCapabilities&updateSequence=5" ) );
+        assertThat( revalidated, is( sameInstance( stale ) ) );
+    }
+
+    @Test
+    public void testRevalidateCapabilitiesWithoutValidatorsShouldRequestDocument()
+                    throws Exception {
+        handler.responseBody = CAPABILITIES;
+        CachedBackendCapabilities stale = createCachedCapabilities( "X-Backend", "test", null );
+        CachedBackendCapabilities revalidated = filter.revalidateCapabilities( createCapabilitiesRequest(), stale );
+
+        assertThat( handler.query, is( "SERVICE=WMS&REQUEST=GetCapabilities" ) );
+        assertThat( new String( revalidated.getBody(), "UTF-8" ), is( CAPABILITIES ) );
+    }
+
+    @Test
+    public void testCreateCoalescingKeyShouldIgnoreParameterOrderAndNameCase()
+                    throws Exception {
+        String key = filter.createCoalescingKey( "http://host/wms", "SERVICE=WMS&REQUEST=GetMap&LAYERS=a,b" );
+        String sameKey = filter.createCoalescingKey( "http://host/wms", "layers=a,b&request=GetMap&service=WMS" );
+        String otherValueKey = filter.createCoalescingKey( "http://host/wms", "layers=b,a&request=GetMap&service=WMS" );
+        String otherServiceKey = filter.createCoalescingKey( "http://host/wms2", "SERVICE=WMS&REQUEST=GetMap&LAYERS=a,b" );
+
+        assertThat( sameKey, is( key ) );
+        assertThat( otherValueKey.equals( key ), is( false ) );
+        assertThat( otherServiceKey.equals( key ), is( false ) );
+    }
+
+    @Test
+    public void testCreateBackendUri()
+                    throws Exception {
+        assertThat( filter.createBackendUri( "http://host/wms", null ), is( "http://host/wms" ) );
+        assertThat( filter.createBackendUri( "http://host/wms", "?" ), is( "http://host/wms" ) );
+        assertThat( filter.createBackendUri( "http://host/wms", "a=b" ), is( "http://host/wms?a=b" ) );
+        assertThat( filter.createBackendUri( "http://host/wms?map=x", "a=b" ), is( "http://host/wms?map=x&a=b" ) );
+        assertThat( filter.createBackendUri( "http://host/wms?", "a=b" ), is( "http://host/wms?a=b" ) );
+    }
+
+    private SharedBackendResponse createSharedResponse() {
+        return new SharedBackendResponse( SC_OK, Collections.<Header> emptyList(), new ResponseBodyBuffer() );
+    }
+
+    private BackendForwardingFilter createCachingFilter( BackendCapabilitiesCache cache ) {
+        return new BackendForwardingFilter( connectionPool, new RequestCoalescer(), new ResponseBodyBufferFactory(),
+                                            cache );
+    }
+
+    private HttpUriRequest createCapabilitiesRequest() {
+        return RequestBuilder.get( "http://127.0.0.1:" + backend.getAddress().getPort()
+                                           + "/wms?SERVICE=WMS&REQUEST=GetCapabilities" ).build();
+    }
+
+    private CachedBackendCapabilities createCachedCapabilities( String headerName, String headerValue,
+                                                                String updateSequence )
+                    throws Exception {
+        List<Header> headers = Collections.<Header> singletonList( new BasicHeader( headerName, headerValue ) );
+        return new CachedBackendCapabilities( headers, "<WMS_Capabilities/>".getBytes( "UTF-8" ), updateSequence );
+    }
+
+    private static byte[] gzip( byte[] content )
+                    throws IOException {
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        GZIPOutputStream gzipStream = new GZIPOutputStream( gzipped );
+        gzipStream.write( content );
+        gzipStream.close();
+        return gzipped.toByteArray();
+    }
+
+    private static String gunzip( byte[] gzipped )
+                    throws IOException {
+        GZIPInputStream gzipStream = new GZIPInputStream( new ByteArrayInputStream( gzipped ) );
+        try {
+            return IOUtils.toString( gzipStream, "UTF-8" );
+        } finally {
+            gzipStream.close();
+        }
+    }
+
+    private MockHttpServletRequest createRequest( String method, String path ) {
+        MockHttpServletRequest request = new MockHttpServletRequest( method, path );
+        String serviceUrl = "http://127.0.0.1:" + backend.getAddress().getPort() + path;
+        request.setAttribute( REQUEST_ATTRIBUTE_SERVICE_URL, serviceUrl );
+        return request;
+    }
+
+    private static class RecordingHandler implements HttpHandler {
+
+        private int status = SC_OK;
+
+        private String method;
+
+        private String query;
+
+        private String body;
+
+        private String contentType;
+
+        private String clientHeader;
+
+        private String ifNoneMatch;
+
+        private String eTag;
+
+        private String responseBody = "response";
+
+        private String updateSequenceResponseBody;
+
+        private int requests;
+
+        private String acceptEncoding;
+
+        private boolean isGzipResponse;
+
+        private String cookie;
+
+        private final List<String> credentialHeaders = new ArrayList<String>();
+
+        @Override
+        public void handle( HttpExchange exchange )
+                        throws IOException {
+            for ( String credentialHeader : asList( "Authorization", "Cookie", "access_token" ) ) {
+                if ( exchange.getRequestHeaders().containsKey( credentialHeader ) )
+                    credentialHeaders.add( credentialHeader );
+            }
+            method = exchange.getRequestMethod();
+            query = exchange.getRequestURI().getRawQuery();
+            contentType = exchange.getRequestHeaders().getFirst( "Content-Type" );
+            clientHeader = exchange.getRequestHeaders().getFirst( "X-Client" );
+            ifNoneMatch = exchange.getRequestHeaders().getFirst( "If-None-Match" );
+            acceptEncoding = exchange.getRequestHeaders().getFirst( "Accept-Encoding" );
+            requests++;
+            InputStream requestBody = exchange.getRequestBody();
+            body = IOUtils.toString( requestBody, "UTF-8" );
+            requestBody.close();
+            exchange.getResponseHeaders().add( "X-Backend", "test" );
+            if ( cookie != null )
+                exchange.getResponseHeaders().add( "Set-Cookie", cookie );
+            if ( eTag != null ) {
+                exchange.getResponseHeaders().add( "ETag", eTag );
+                if ( eTag.equals( ifNoneMatch ) ) {
+                    exchange.sendResponseHeaders( SC_NOT_MODIFIED, -1 );
+                    exchange.close();
+                    return;
+                }
+            }
+            String responseContent = responseBody;
+            if ( updateSequenceResponseBody != null && query.contains( "updateSequence=" ) )
+                responseContent = updateSequenceResponseBody;
+            byte[] response = responseContent.getBytes( "UTF-8" );
+            if ( isGzipResponse ) {
+                response = gzip( response );
+                exchange.getResponseHeaders().add( "Content-Encoding", "gzip" );
+            }
+            exchange.sendResponseHeaders( status, response.length );
+            OutputStream responseBody = exchange.getResponseBody();
+            responseBody.write( response );
+            responseBody.close();
+        }
+
+    }
+
+}
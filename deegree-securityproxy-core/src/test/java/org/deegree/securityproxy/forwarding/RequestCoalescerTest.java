@@ -0,0 +1,280 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.forwarding;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.Header;
+import org.deegree.securityproxy.filter.ResponseBodyBuffer;
+import org.junit.Test;
+
+/**
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class RequestCoalescerTest {
+
+    private static final String KEY = "http://backend/wms\nrequest=GetCapabilities&";
+
+    @Test
+    public void testExecuteConcurrentRequestsShouldShareOneBackendCall()
+                    throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        BlockingCall call = new BlockingCall();
+        List<ExecutingThread> threads = startThreads( coalescer, call, 5 );
+        call.awaitExecution();
+        awaitWaiting( threads );
+        call.complete();
+        joinAll( threads );
+
+        assertThat( call.executions.get(), is( 1 ) );
+        for ( ExecutingThread thread : threads )
+            assertThat( thread.response, sameInstance( threads.get( 0 ).response ) );
+        assertThat( coalescer.getBackendRequests(), is( 1L ) );
+        assertThat( coalescer.getCoalescedRequests(), is( 4L ) );
+        assertThat( coalescer.getInFlightRequests(), is( 0 ) );
+    }
+
+    @Test
+    public void testExecuteConcurrentRequestsShouldReleaseBodyWithLastCaller()
+                    throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        BlockingCall call = new BlockingCall();
+        List<ExecutingThread> threads = startThreads( coalescer, call, 3 );
+        call.awaitExecution();
+        awaitWaiting( threads );
+        call.complete();
+        joinAll( threads );
+
+        SharedBackendResponse response = threads.get( 0 ).response;
+        response.release();
+        response.release();
+        assertThat( response.getBodySize(), is( 4L ) );
+        response.release();
+        assertThat( response.getBodySize(), is( 0L ) );
+        assertThat( response.retain(), is( false ) );
+    }
+
+    @Test
+    public void testExecuteFailingCallShouldFailAllWaitingRequests()
+                    throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        BlockingCall call = new BlockingCall();
+        call.failure = new IOException( "backend not available" );
+        List<ExecutingThread> threads = startThreads( coalescer, call, 3 );
+        call.awaitExecution();
+        awaitWaiting( threads );
+        call.complete();
+        joinAll( threads );
+
+        for ( ExecutingThread thread : threads )
+            assertThat( thread.failure, sameInstance( call.failure ) );
+        assertThat( coalescer.getInFlightRequests(), is( 0 ) );
+    }
+
+    @Test
+    public void testExecuteWaitingTooLongShouldExecuteOwnCall()
+                    throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer( true, 50 );
+        BlockingCall call = new BlockingCall();
+        List<ExecutingThread> threads = startThreads( coalescer, call, 1 );
+        call.awaitExecution();
+        CountingCall ownCall = new CountingCall();
+        SharedBackendResponse response = coalescer.execute( KEY, ownCall );
+        call.complete();
+        joinAll( threads );
+
+        assertThat( response, is( not( sameInstance( threads.get( 0 ).response ) ) ) );
+        assertThat( ownCall.executions, is( 1 ) );
+        assertThat( coalescer.getBackendRequests(), is( 2L ) );
+        assertThat( coalescer.getCoalescedRequests(), is( 0L ) );
+        assertThat( coalescer.getTimedOutRequests(), is( 1L ) );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorWithoutMaxWaitTimeShouldFail() {
+        new RequestCoalescer( true, 0 );
+    }
+
+    @Test
+    public void testExecuteSequentialRequestsShouldNotBeCoalesced()
+                    throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        CountingCall call = new CountingCall();
+        coalescer.execute( KEY, call ).release();
+        coalescer.execute( KEY, call ).release();
+
+        assertThat( call.executions, is( 2 ) );
+        assertThat( coalescer.getCoalescedRequests(), is( 0L ) );
+    }
+
+    @Test
+    public void testExecuteDisabledShouldExecuteEachCall()
+                    throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer( false );
+        BlockingCall call = new BlockingCall();
+        List<ExecutingThread> threads = startThreads( coalescer, call, 3 );
+        call.complete();
+        joinAll( threads );
+
+        assertThat( call.executions.get(), is( 3 ) );
+        assertThat( coalescer.isEnabled(), is( false ) );
+    }
+
+    private List<ExecutingThread> startThreads( RequestCoalescer coalescer, BlockingCall call, int numberOfThreads ) {
+        List<ExecutingThread> threads = new ArrayList<ExecutingThread>();
+        for ( int i = 0; i < numberOfThreads; i++ ) {
+            ExecutingThread thread = new ExecutingThread( coalescer, call );
+            threads.add( thread );
+            thread.start();
+        }
+        return threads;
+    }
+
+    private void awaitWaiting( List<ExecutingThread> threads )
+                    throws InterruptedException {
+        for ( ExecutingThread thread : threads ) {
+            long timeout = System.currentTimeMillis() + 10000;
+            // the executing thread waits for the backend call, all other threads for its response with a timeout
+            while ( thread.getState() != Thread.State.WAITING && thread.getState() != Thread.State.TIMED_WAITING ) {
+                if ( System.currentTimeMillis() > timeout )
+                    fail( "Thread is not waiting for the backend response" );
+                Thread.sleep( 5 );
+            }
+        }
+    }
+
+    private void joinAll( List<ExecutingThread> threads )
+                    throws InterruptedException {
+        for ( ExecutingThread thread : threads )
+            thread.join( 10000 );
+    }
+
+    private static SharedBackendResponse createResponse()
+                    throws IOException {
+        ResponseBodyBuffer body = new ResponseBodyBuffer();
+        body.write( "body".getBytes( "UTF-8" ) );
+        return new SharedBackendResponse( 200, Collections.<Header> emptyList(), body );
+    }
+
+    private static class ExecutingThread extends Thread {
+
+        private final RequestCoalescer coalescer;
+
+        private final RequestCoalescer.BackendCall call;
+
+        private SharedBackendResponse response;
+
+        private IOException failure;
+
+        private ExecutingThread( RequestCoalescer coalescer, RequestCoalescer.BackendCall call ) {
+            this.coalescer = coalescer;
+            this.call = call;
+        }
+
+        @Override
+        public void run() {
+            try {
+                response = coalescer.execute( KEY, call );
+            } catch ( IOException e ) {
+                failure = e;
+            }
+        }
+
+    }
+
+    private static class BlockingCall implements RequestCoalescer.BackendCall {
+
+        private final AtomicInteger executions = new AtomicInteger();
+
+        private final CountDownLatch executing = new CountDownLatch( 1 );
+
+        private final CountDownLatch completed = new CountDownLatch( 1 );
+
+        private IOException failure;
+
+        @Override
+        public SharedBackendResponse execute()
+                        throws IOException {
+            executions.incrementAndGet();
+            executing.countDown();
+            try {
+                completed.await();
+            } catch ( InterruptedException e ) {
+                throw new IOException( e.getMessage() );
+            }
+            if ( failure != null )
+                throw failure;
+            return createResponse();
+        }
+
+        private void awaitExecution()
+                        throws InterruptedException {
+            executing.await();
+        }
+
+        private void complete() {
+            completed.countDown();
+        }
+
+    }
+
+    private static class CountingCall implements RequestCoalescer.BackendCall {
+
+        private int executions;
+
+        @Override
+        public SharedBackendResponse execute()
+                        throws IOException {
+            executions++;
+            return createResponse();
+        }
+
+    }
+
+}
@@ -0,0 +1,296 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.logger;
+
+import static org.deegree.securityproxy.logger.AuditOverflowPolicy.BLOCK;
+import static org.deegree.securityproxy.logger.AuditOverflowPolicy.DROP;
+import static org.deegree.securityproxy.logger.AuditOverflowPolicy.SAMPLE;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.deegree.securityproxy.report.SecurityReport;
+import org.deegree.securityproxy.responsefilter.logging.DefaultResponseFilterReport;
+import org.deegree.securityproxy.responsefilter.logging.ResponseFilterReport;
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * Tests for {@link AsyncAuditLogger}.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class AsyncAuditLoggerTest {
+
+    private static final int TIMEOUT = 5000;
+
+    private final SecurityRequestResponseLogger proxyReportLogger = mock( SecurityRequestResponseLogger.class );
+
+    private final ResponseFilterReportLogger filterReportLogger = mock( ResponseFilterReportLogger.class );
+
+    private final CountDownLatch writerReleased = new CountDownLatch( 1 );
+
+    private AsyncAuditLogger asyncLogger;
+
+    @After
+    public void closeLogger() {
+        writerReleased.countDown();
+        if ( asyncLogger != null )
+            asyncLogger.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLogProxyReportInfoWithNullReportShouldFail() {
+        asyncLogger = createAsyncLogger( 4, DROP, 1 );
+        asyncLogger.logProxyReportInfo( null, "uuid" );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLogResponseFilterReportWithNullReportShouldFail() {
+        asyncLogger = createAsyncLogger( 4, DROP, 1 );
+        asyncLogger.logResponseFilterReport( null, "uuid" );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorWithNullPolicyShouldFail() {
+        new AsyncAuditLogger( proxyReportLogger, filterReportLogger, 4, null, 1 );
+    }
+
+    @Test
+    public void testReportsAreWrittenByDelegates() {
+        asyncLogger = createAsyncLogger( 4, BLOCK, 1 );
+        SecurityReport proxyReport = createProxyReport();
+        ResponseFilterReport filterReport = new DefaultResponseFilterReport( "filtered", true );
+
+        asyncLogger.logProxyReportInfo( proxyReport, "uuid1" );
+        asyncLogger.logResponseFilterReport( filterReport, "uuid2" );
+
+        verify( proxyReportLogger, timeout( TIMEOUT ) ).logProxyReportInfo( proxyReport, "uuid1" );
+        verify( filterReportLogger, timeout( TIMEOUT ) ).logResponseFilterReport( filterReport, "uuid2" );
+    }
+
+    @Test
+    public void testCloseWritesPendingReports() {
+        asyncLogger = createAsyncLogger( 64, BLOCK, 1 );
+        for ( int index = 0; index < 50; index++ )
+            asyncLogger.logProxyReportInfo( createProxyReport(), "uuid" );
+
+        asyncLogger.close();
+
+        verify( proxyReportLogger, times( 50 ) ).logProxyReportInfo( any( SecurityReport.class ), anyString() );
+        assertThat( asyncLogger.getWrittenRecords(), is( 50L ) );
+        assertThat( asyncLogger.getPendingRecords(), is( 0 ) );
+    }
+
+    @Test
+    public void testReportsAfterCloseAreDropped() {
+        asyncLogger = createAsyncLogger( 4, BLOCK, 1 );
+        asyncLogger.close();
+
+        asyncLogger.logProxyReportInfo( createProxyReport(), "uuid" );
+
+        assertThat( asyncLogger.getDroppedRecords(), is( 1L ) );
+        assertThat( asyncLogger.getWrittenRecords(), is( 0L ) );
+    }
+
+    @Test
+    public void testDropPolicyDropsReportsIfBufferIsFull()
+                            throws Exception {
+        blockWriter();
+        asyncLogger = createAsyncLogger( 2, DROP, 1 );
+
+        for ( int index = 0; index < 5; index++ )
+            asyncLogger.logProxyReportInfo( createProxyReport(), "uuid" + index );
+
+        assertThat( asyncLogger.getDroppedRecords(), is( 3L ) );
+        writerReleased.countDown();
+        asyncLogger.close();
+        verify( proxyReportLogger, times( 2 ) ).logProxyReportInfo( any( SecurityReport.class ), anyString() );
+    }
+
+    @Test
+    public void testBlockPolicyWaitsForFreeSlot()
+                            throws Exception {
+        blockWriter();
+        asyncLogger = createAsyncLogger( 2, BLOCK, 1 );
+        asyncLogger.logProxyReportInfo( createProxyReport(), "uuid0" );
+        asyncLogger.logProxyReportInfo( createProxyReport(), "uuid1" );
+
+        Thread blocked = new Thread( new Runnable() {
+            @Override
+            public void run() {
+                asyncLogger.logProxyReportInfo( createProxyReport(), "uuid2" );
+            }
+        } );
+        blocked.start();
+        blocked.join( 200 );
+        assertThat( blocked.isAlive(), is( true ) );
+
+        writerReleased.countDown();
+        blocked.join( TIMEOUT );
+        assertThat( blocked.isAlive(), is( false ) );
+        asyncLogger.close();
+        verify( proxyReportLogger ).logProxyReportInfo( any( SecurityReport.class ), eq( "uuid2" ) );
+        assertThat( asyncLogger.getDroppedRecords(), is( 0L ) );
+    }
+
+    @Test
+    public void testSamplePolicyKeepsEveryNthReportIfBufferIsMoreThanHalfFull()
+                            throws Exception {
+        blockWriter();
+        asyncLogger = createAsyncLogger( 4, SAMPLE, 2 );
+
+        for ( int index = 0; index < 7; index++ )
+            asyncLogger.logProxyReportInfo( createProxyReport(), "uuid" + index );
+
+        // 0, 1 and 2 fill the buffer up to three records, 3 and 5 are not sampled, 4 fills the buffer, 6 is dropped
+        assertThat( asyncLogger.getDroppedRecords(), is( 3L ) );
+        assertThat( asyncLogger.getPendingRecords(), is( 4 ) );
+    }
+
+    @Test
+    public void testFailingDelegateIsCounted() {
+        IllegalStateException exception = new IllegalStateException( "disk full" );
+        doThrow( exception ).when( filterReportLogger ).logResponseFilterReport( any( ResponseFilterReport.class ),
+                                                                                 anyString() );
+        asyncLogger = createAsyncLogger( 4, BLOCK, 1 );
+
+        asyncLogger.logResponseFilterReport( new DefaultResponseFilterReport( "failed" ), "uuid" );
+        asyncLogger.close();
+
+        assertThat( asyncLogger.getFailedRecords(), is( 1L ) );
+        assertThat( asyncLogger.getWrittenRecords(), is( 0L ) );
+    }
+
+    @Test
+    public void testFlushableDelegateIsFlushedWhenBufferIsDrained()
+                            throws Exception {
+        JsonLinesAuditLogger jsonLogger = mock( JsonLinesAuditLogger.class );
+        asyncLogger = new AsyncAuditLogger( jsonLogger );
+
+        asyncLogger.logProxyReportInfo( createProxyReport(), "uuid" );
+
+        verify( jsonLogger, timeout( TIMEOUT ) ).flush();
+    }
+
+    @Test
+    public void testIdleWriterIsParkedUntilNextReport()
+                            throws Exception {
+        asyncLogger = createAsyncLogger( 4, BLOCK, 1 );
+        asyncLogger.logProxyReportInfo( createProxyReport(), "uuid1" );
+        verify( proxyReportLogger, timeout( TIMEOUT ) ).logProxyReportInfo( any( SecurityReport.class ),
+                                                                             eq( "uuid1" ) );
+        Thread writer = retrieveWriterThread();
+        long timeout = System.currentTimeMillis() + TIMEOUT;
+        while ( writer.getState() != Thread.State.WAITING && System.currentTimeMillis() < timeout )
+            Thread.sleep( 5 );
+        assertThat( writer.getState(), is( Thread.State.WAITING ) );
+
+        asyncLogger.logProxyReportInfo( createProxyReport(), "uuid2" );
+        verify( proxyReportLogger, timeout( TIMEOUT ) ).logProxyReportInfo( any( SecurityReport.class ),
+                                                                             eq( "uuid2" ) );
+    }
+
+    @Test
+    public void testTimestampedDelegateReceivesTimeOfReport()
+                            throws Exception {
+        TimestampedReportLogger timestampedLogger = mock( TimestampedReportLogger.class );
+        doAnswer( new Answer<Void>() {
+            @Override
+            public Void answer( InvocationOnMock invocation )
+                                    throws Throwable {
+                writerReleased.await();
+                return null;
+            }
+        } ).when( timestampedLogger ).logProxyReportInfo( any( SecurityReport.class ), eq( "uuid1" ), anyLong() );
+        asyncLogger = new AsyncAuditLogger( timestampedLogger, timestampedLogger, 4, BLOCK, 1 );
+        asyncLogger.logProxyReportInfo( createProxyReport(), "uuid1" );
+        long before = System.currentTimeMillis();
+        asyncLogger.logResponseFilterReport( new DefaultResponseFilterReport( "filtered", true ), "uuid2" );
+        long after = System.currentTimeMillis();
+        Thread.sleep( 50 );
+        writerReleased.countDown();
+
+        ArgumentCaptor<Long> time = ArgumentCaptor.forClass( Long.class );
+        verify( timestampedLogger, timeout( TIMEOUT ) ).logResponseFilterReport( any( ResponseFilterReport.class ),
+                                                                                  eq( "uuid2" ), time.capture() );
+        assertThat( time.getValue() >= before && time.getValue() <= after, is( true ) );
+    }
+
+    private AsyncAuditLogger createAsyncLogger( int capacity, AuditOverflowPolicy policy, int sampleRate ) {
+        return new AsyncAuditLogger( proxyReportLogger, filterReportLogger, capacity, policy, sampleRate );
+    }
+
+    private void blockWriter() {
+        doAnswer( new Answer<Void>() {
+            @Override
+            public Void answer( InvocationOnMock invocation )
+                                    throws Throwable {
+                writerReleased.await();
+                return null;
+            }
+        } ).when( proxyReportLogger ).logProxyReportInfo( any( SecurityReport.class ), anyString() );
+    }
+
+    private Thread retrieveWriterThread() {
+        for ( Thread thread : Thread.getAllStackTraces().keySet() ) {
+            if ( "audit-logger".equals( thread.getName() ) && thread.getState() != Thread.State.TERMINATED )
+                return thread;
+        }
+        throw new IllegalStateException( "Writer thread is not running" );
+    }
+
+    private SecurityReport createProxyReport() {
+        return new SecurityReport( "127.0.0.1", "http://target", true, "message" );
+    }
+
+}
@@ -0,0 +1,204 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.logger;
+
+import static org.deegree.securityproxy.logger.AuditRingBuffer.FULL;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.deegree.securityproxy.report.SecurityReport;
+import org.junit.Test;
+
+/**
+ * Tests for {@link AuditRingBuffer}.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class AuditRingBufferTest {
+
+    @Test
+    public void testCapacityIsRoundedUpToPowerOfTwo() {
+        assertThat( new AuditRingBuffer( 1 ).getCapacity(), is( 2 ) );
+        assertThat( new AuditRingBuffer( 5 ).getCapacity(), is( 8 ) );
+        assertThat( new AuditRingBuffer( 8 ).getCapacity(), is( 8 ) );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorWithZeroCapacityShouldFail() {
+        new AuditRingBuffer( 0 );
+    }
+
+    @Test
+    public void testPeekOnEmptyBuffer() {
+        AuditRingBuffer buffer = new AuditRingBuffer( 4 );
+
+        assertThat( buffer.peek(), is( nullValue() ) );
+        assertThat( buffer.getSize(), is( 0 ) );
+    }
+
+    @Test
+    public void testClaimedButUnpublishedRecordIsNotVisible() {
+        AuditRingBuffer buffer = new AuditRingBuffer( 4 );
+        buffer.tryClaim();
+
+        assertThat( buffer.peek(), is( nullValue() ) );
+        assertThat( buffer.getSize(), is( 1 ) );
+    }
+
+    @Test
+    public void testBufferWithClaimedButUnpublishedRecordIsNotEmpty() {
+        AuditRingBuffer buffer = new AuditRingBuffer( 4 );
+        assertThat( buffer.isEmpty(), is( true ) );
+        long sequence = buffer.tryClaim();
+        assertThat( buffer.isEmpty(), is( false ) );
+
+        buffer.publish( sequence );
+        buffer.peek();
+        buffer.release();
+        assertThat( buffer.isEmpty(), is( true ) );
+    }
+
+    @Test
+    public void testPublishedRecordsAreConsumedInOrder() {
+        AuditRingBuffer buffer = new AuditRingBuffer( 4 );
+        SecurityReport first = publish( buffer, "first" );
+        SecurityReport second = publish( buffer, "second" );
+
+        assertThat( buffer.peek().proxyReport, is( sameInstance( first ) ) );
+        buffer.release();
+        assertThat( buffer.peek().proxyReport, is( sameInstance( second ) ) );
+        assertThat( buffer.peek().serialUuid, is( "second" ) );
+        buffer.release();
+        assertThat( buffer.peek(), is( nullValue() ) );
+    }
+
+    @Test
+    public void testReleaseClearsRecord() {
+        AuditRingBuffer buffer = new AuditRingBuffer( 2 );
+        publish( buffer, "first" );
+        AuditRecord record = buffer.peek();
+        buffer.release();
+
+        assertThat( record.proxyReport, is( nullValue() ) );
+        assertThat( record.serialUuid, is( nullValue() ) );
+    }
+
+    @Test
+    public void testTryClaimOnFullBuffer() {
+        AuditRingBuffer buffer = new AuditRingBuffer( 2 );
+        publish( buffer, "first" );
+        publish( buffer, "second" );
+
+        assertThat( buffer.tryClaim(), is( FULL ) );
+        assertThat( buffer.getSize(), is( 2 ) );
+    }
+
+    @Test
+    public void testSlotsAreReusedAfterRelease() {
+        AuditRingBuffer buffer = new AuditRingBuffer( 2 );
+        for ( int index = 0; index < 10; index++ ) {
+            SecurityReport report = publish( buffer, "record" + index );
+            assertThat( buffer.peek().proxyReport, is( sameInstance( report ) ) );
+            buffer.release();
+        }
+        assertThat( buffer.getSize(), is( 0 ) );
+    }
+
+    @Test
+    public void testConcurrentProducersLoseNoRecord()
+                            throws Exception {
+        final AuditRingBuffer buffer = new AuditRingBuffer( 16 );
+        final int producers = 4;
+        final int recordsPerProducer = 10000;
+        final CountDownLatch start = new CountDownLatch( 1 );
+        for ( int producer = 0; producer < producers; producer++ ) {
+            new Thread( new Runnable() {
+                @Override
+                public void run() {
+                    awaitQuietly( start );
+                    for ( int index = 0; index < recordsPerProducer; index++ ) {
+                        long sequence;
+                        while ( ( sequence = buffer.tryClaim() ) == FULL )
+                            Thread.yield();
+                        buffer.get( sequence ).setProxyReport( new SecurityReport( null, null, true, null ), null, 0 );
+                        buffer.publish( sequence );
+                    }
+                }
+            } ).start();
+        }
+        start.countDown();
+
+        int consumed = 0;
+        long deadline = System.currentTimeMillis() + 30000;
+        while ( consumed < producers * recordsPerProducer && System.currentTimeMillis() < deadline ) {
+            AuditRecord record = buffer.peek();
+            if ( record == null ) {
+                Thread.yield();
+            } else {
+                assertThat( record.proxyReport, is( notNullValue() ) );
+                buffer.release();
+                consumed++;
+            }
+        }
+
+        assertThat( consumed, is( producers * recordsPerProducer ) );
+        assertThat( buffer.peek(), is( nullValue() ) );
+    }
+
+    private SecurityReport publish( AuditRingBuffer buffer, String serialUuid ) {
+        SecurityReport report = new SecurityReport( "127.0.0.1", "http://target", true, "message" );
+        long sequence = buffer.tryClaim();
+        buffer.get( sequence ).setProxyReport( report, serialUuid, 0 );
+        buffer.publish( sequence );
+        return report;
+    }
+
+    private void awaitQuietly( CountDownLatch latch ) {
+        try {
+            latch.await();
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,173 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.logger;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.deegree.securityproxy.report.SecurityReport;
+import org.deegree.securityproxy.responsefilter.logging.DefaultResponseFilterReport;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link JsonLinesAuditLogger}.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class JsonLinesAuditLoggerTest {
+
+    private static final String TIME_PATTERN = "\\{\"time\":\"\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}\\.\\d{3}Z\"";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    private final JsonLinesAuditLogger logger = new JsonLinesAuditLogger( out );
+
+    @Test
+    public void testLogProxyReportInfo()
+                            throws Exception {
+        logger.logProxyReportInfo( new SecurityReport( "127.0.0.1", "http://target?a=b", true, "ok" ), "uuid" );
+
+        String line = flushAndRead();
+        assertThat( line.matches( TIME_PATTERN + ".*\n" ), is( true ) );
+        assertThat( line, containsString( ",\"type\":\"proxy\",\"id\":\"uuid\",\"ip\":\"127.0.0.1\","
+                                          + "\"target\":\"http://target?a=b\",\"successful\":true,"
+                                          + "\"message\":\"ok\"}\n" ) );
+    }
+
+    @Test
+    public void testLogResponseFilterReport()
+                            throws Exception {
+        logger.logResponseFilterReport( new DefaultResponseFilterReport( "clipped", true ), "uuid" );
+
+        String line = flushAndRead();
+        assertThat( line.matches( TIME_PATTERN + ".*\n" ), is( true ) );
+        assertThat( line, containsString( ",\"type\":\"filter\",\"id\":\"uuid\",\"filtered\":true,\"failed\":false,"
+                                          + "\"message\":\"clipped\"}\n" ) );
+    }
+
+    @Test
+    public void testLogProxyReportInfoWithTimeShouldWritePassedTime()
+                            throws Exception {
+        logger.logProxyReportInfo( new SecurityReport( "127.0.0.1", "http://target", true, "ok" ), "uuid",
+                                   1392200130123L );
+
+        assertThat( flushAndRead(), containsString( "{\"time\":\"2014-02-12T10:15:30.123Z\",\"type\":\"proxy\"" ) );
+    }
+
+    @Test
+    public void testLogResponseFilterReportWithTimeShouldWritePassedTime()
+                            throws Exception {
+        logger.logResponseFilterReport( new DefaultResponseFilterReport( "clipped", true ), "uuid", 1392200130125L );
+
+        assertThat( flushAndRead(), containsString( "{\"time\":\"2014-02-12T10:15:30.125Z\",\"type\":\"filter\"" ) );
+    }
+
+    @Test
+    public void testNullValuesAreWrittenAsJsonNull()
+                            throws Exception {
+        logger.logProxyReportInfo( new SecurityReport( null, null, false, null ), null );
+
+        assertThat( flushAndRead(), containsString( ",\"id\":null,\"ip\":null,\"target\":null,\"successful\":false,"
+                                                    + "\"message\":null}" ) );
+    }
+
+    @Test
+    public void testSpecialCharactersAreEscaped()
+                            throws Exception {
+        String message = "quote \" backslash \\ newline \n tab \t control \u0001 separator \u2028 umlaut \u00fc";
+        logger.logResponseFilterReport( new DefaultResponseFilterReport( message ), "uuid" );
+
+        String line = flushAndRead();
+        assertThat( line, containsString( "\"message\":\"quote \\\" backslash \\\\ newline \\n tab \\t control "
+                                          + "\\u0001 separator \\u2028 umlaut \u00fc\"}\n" ) );
+        assertThat( line.indexOf( '\n' ), is( line.length() - 1 ) );
+    }
+
+    @Test
+    public void testLongMessagesAreWrittenCompletely()
+                            throws Exception {
+        StringBuilder message = new StringBuilder();
+        for ( int index = 0; index < 10000; index++ )
+            message.append( "\u00e4" );
+        logger.logResponseFilterReport( new DefaultResponseFilterReport( message.toString() ), "uuid" );
+        logger.logResponseFilterReport( new DefaultResponseFilterReport( "short" ), "uuid" );
+
+        String lines = flushAndRead();
+        assertThat( lines, containsString( message + "\"}\n" ) );
+        assertThat( lines, containsString( "\"short\"}\n" ) );
+        assertThat( lines.split( "\n" ).length, is( 2 ) );
+    }
+
+    @Test
+    public void testRecordsAreAppendedToFile()
+                            throws Exception {
+        File auditLog = new File( folder.getRoot(), "audit.log" );
+        FileUtils.writeStringToFile( auditLog, "existing\n", "UTF-8" );
+        JsonLinesAuditLogger fileLogger = new JsonLinesAuditLogger( auditLog.getAbsolutePath() );
+
+        fileLogger.logProxyReportInfo( new SecurityReport( "127.0.0.1", "http://target", true, "ok" ), "uuid" );
+        fileLogger.close();
+
+        String content = FileUtils.readFileToString( auditLog, "UTF-8" );
+        assertThat( content.startsWith( "existing\n{\"time\":" ), is( true ) );
+        assertThat( content.endsWith( "\"message\":\"ok\"}\n" ), is( true ) );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLogProxyReportInfoWithNullReportShouldFail() {
+        logger.logProxyReportInfo( null, "uuid" );
+    }
+
+    private String flushAndRead()
+                            throws IOException {
+        logger.flush();
+        return out.toString( "UTF-8" );
+    }
+
+}
@@ -0,0 +1,126 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.logger;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import org.deegree.securityproxy.report.SecurityReport;
+import org.deegree.securityproxy.responsefilter.logging.DefaultResponseFilterReport;
+import org.deegree.securityproxy.responsefilter.logging.ResponseFilterReport;
+import org.junit.Test;
+
+/**
+ * Tests for {@link SampledReportLogger}.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class SampledReportLoggerTest {
+
+    private static final int REQUESTS = 100;
+
+    private final SecurityRequestResponseLogger proxyReportLogger = mock( SecurityRequestResponseLogger.class );
+
+    private final ResponseFilterReportLogger filterReportLogger = mock( ResponseFilterReportLogger.class );
+
+    private final SecurityReport proxyReport = new SecurityReport( "127.0.0.1", "http://target", true, "message" );
+
+    private final ResponseFilterReport filterReport = new DefaultResponseFilterReport( "filtered", true );
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorWithNegativeSampleRateShouldFail() {
+        new SampledReportLogger( proxyReportLogger, filterReportLogger, -1 );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLogProxyReportInfoWithNullReportShouldFail() {
+        new SampledReportLogger( proxyReportLogger, filterReportLogger, 1 ).logProxyReportInfo( null, "uuid" );
+    }
+
+    @Test
+    public void testSampleRateOneLogsAllReports() {
+        SampledReportLogger logger = new SampledReportLogger( proxyReportLogger, filterReportLogger, 1 );
+
+        logReports( logger );
+
+        verify( proxyReportLogger, times( REQUESTS ) ).logProxyReportInfo( any( SecurityReport.class ), anyString() );
+        verify( filterReportLogger, times( REQUESTS ) ).logResponseFilterReport( any( ResponseFilterReport.class ),
+                                                                                 anyString() );
+    }
+
+    @Test
+    public void testSampleRateZeroLogsNoReport() {
+        SampledReportLogger logger = new SampledReportLogger( proxyReportLogger, filterReportLogger, 0 );
+
+        logReports( logger );
+
+        verify( proxyReportLogger, never() ).logProxyReportInfo( any( SecurityReport.class ), anyString() );
+        verify( filterReportLogger, never() ).logResponseFilterReport( any( ResponseFilterReport.class ),
+                                                                       anyString() );
+    }
+
+    @Test
+    public void testSampledRequestsKeepBothReports() {
+        SampledReportLogger logger = new SampledReportLogger( proxyReportLogger, filterReportLogger, 10 );
+
+        for ( int i = 0; i < REQUESTS; i++ ) {
+            String uuid = Integer.toString( i * 10 );
+            logger.logProxyReportInfo( proxyReport, uuid );
+            logger.logResponseFilterReport( filterReport, uuid );
+        }
+
+        for ( int i = 0; i < REQUESTS; i++ ) {
+            String uuid = Integer.toString( i * 10 );
+            int expected = ( uuid.hashCode() & Integer.MAX_VALUE ) % 10 == 0 ? 1 : 0;
+            verify( proxyReportLogger, times( expected ) ).logProxyReportInfo( proxyReport, uuid );
+            verify( filterReportLogger, times( expected ) ).logResponseFilterReport( filterReport, uuid );
+        }
+    }
+
+    private void logReports( SampledReportLogger logger ) {
+        for ( int i = 0; i < REQUESTS; i++ ) {
+            logger.logProxyReportInfo( proxyReport, "uuid" + i );
+            logger.logResponseFilterReport( filterReport, "uuid" + i );
+        }
+    }
+
+}
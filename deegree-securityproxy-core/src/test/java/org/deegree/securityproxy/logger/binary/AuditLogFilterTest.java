@@ -0,0 +1,94 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.logger.binary;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link AuditLogFilter}.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class AuditLogFilterTest {
+
+    private static final AuditLogEntry SUCCESSFUL_PROXY_ENTRY = new AuditLogEntry( 1000, "uuid", "user", "127.0.0.1",
+                                                                                   "http://url", true, "message" );
+
+    private static final AuditLogEntry FAILED_FILTER_ENTRY = new AuditLogEntry( 1000, "uuid", false, true, "failed" );
+
+    @Test
+    public void testAcceptWithoutRestrictions() {
+        AuditLogFilter filter = new AuditLogFilter( true, null, Long.MIN_VALUE, Long.MAX_VALUE, null );
+
+        assertThat( filter.accept( SUCCESSFUL_PROXY_ENTRY ), is( true ) );
+        assertThat( filter.accept( FAILED_FILTER_ENTRY ), is( false ) );
+    }
+
+    @Test
+    public void testAcceptByUser() {
+        assertThat( new AuditLogFilter( true, "user", 0, 2000, null ).accept( SUCCESSFUL_PROXY_ENTRY ), is( true ) );
+        assertThat( new AuditLogFilter( true, "other", 0, 2000, null ).accept( SUCCESSFUL_PROXY_ENTRY ), is( false ) );
+        assertThat( new AuditLogFilter( false, "user", 0, 2000, null ).accept( FAILED_FILTER_ENTRY ), is( false ) );
+    }
+
+    @Test
+    public void testAcceptByTimeRange() {
+        assertThat( new AuditLogFilter( true, null, 1000, 1001, null ).accept( SUCCESSFUL_PROXY_ENTRY ), is( true ) );
+        assertThat( new AuditLogFilter( true, null, 1001, 2000, null ).accept( SUCCESSFUL_PROXY_ENTRY ), is( false ) );
+        assertThat( new AuditLogFilter( true, null, 0, 1000, null ).accept( SUCCESSFUL_PROXY_ENTRY ), is( false ) );
+    }
+
+    @Test
+    public void testAcceptByOutcome() {
+        assertThat( new AuditLogFilter( true, null, 0, 2000, true ).accept( SUCCESSFUL_PROXY_ENTRY ), is( true ) );
+        assertThat( new AuditLogFilter( true, null, 0, 2000, false ).accept( SUCCESSFUL_PROXY_ENTRY ), is( false ) );
+        assertThat( new AuditLogFilter( false, null, 0, 2000, false ).accept( FAILED_FILTER_ENTRY ), is( true ) );
+    }
+
+    @Test
+    public void testIsAfterStart() {
+        AuditLogFilter filter = new AuditLogFilter( true, null, 0, 2000, null );
+
+        assertThat( filter.isAfterStart( 1999 ), is( true ) );
+        assertThat( filter.isAfterStart( 2000 ), is( false ) );
+    }
+
+}
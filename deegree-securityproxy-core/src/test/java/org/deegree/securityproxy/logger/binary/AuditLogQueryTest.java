@@ -0,0 +1,125 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.logger.binary;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.StringWriter;
+
+import org.deegree.securityproxy.report.SecurityReport;
+import org.deegree.securityproxy.responsefilter.logging.DefaultResponseFilterReport;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link AuditLogQuery}.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class AuditLogQueryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void writeSegments() {
+        MappedAuditLogger logger = new MappedAuditLogger( folder.getRoot().getAbsolutePath(), 65536, 0 );
+        logger.logProxyReportInfo( new SecurityReport( "127.0.0.1", "http://url?a=1,2", true, "ok", "alice" ), "id1" );
+        logger.logProxyReportInfo( new SecurityReport( "127.0.0.2", "http://url", false, "say \"no\"", "bob" ), "id2" );
+        logger.close();
+        logger.logResponseFilterReport( new DefaultResponseFilterReport( "clipped", true ), "id1" );
+        logger.close();
+    }
+
+    @Test
+    public void testExportAllProxyReports()
+                            throws Exception {
+        String[] lines = export( new AuditLogFilter( true, null, Long.MIN_VALUE, Long.MAX_VALUE, null ), 2 );
+
+        assertThat( lines[0], is( "time,type,uuid,user,ip,url,successful,filtered,failed,message" ) );
+        assertThat( lines[1].matches( "\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}\\.\\d{3}Z,.*" ), is( true ) );
+        assertThat( lines[1].substring( 25 ),
+                    is( "proxy,id1,alice,127.0.0.1,\"http://url?a=1,2\",true,false,false,ok" ) );
+        assertThat( lines[2].substring( 25 ),
+                    is( "proxy,id2,bob,127.0.0.2,http://url,false,false,false,\"say \"\"no\"\"\"" ) );
+    }
+
+    @Test
+    public void testExportByUser()
+                            throws Exception {
+        String[] lines = export( new AuditLogFilter( true, "bob", Long.MIN_VALUE, Long.MAX_VALUE, null ), 1 );
+
+        assertThat( lines[1].contains( ",id2,bob," ), is( true ) );
+    }
+
+    @Test
+    public void testExportByOutcome()
+                            throws Exception {
+        String[] lines = export( new AuditLogFilter( true, null, Long.MIN_VALUE, Long.MAX_VALUE, true ), 1 );
+
+        assertThat( lines[1].contains( ",id1,alice," ), is( true ) );
+    }
+
+    @Test
+    public void testExportFilterReportsFromSecondSegment()
+                            throws Exception {
+        String[] lines = export( new AuditLogFilter( false, null, Long.MIN_VALUE, Long.MAX_VALUE, null ), 1 );
+
+        assertThat( lines[1].substring( 25 ), is( "filter,id1,,,,true,true,false,clipped" ) );
+    }
+
+    @Test
+    public void testExportOfTimeRangeBeforeSegmentsIsEmpty()
+                            throws Exception {
+        export( new AuditLogFilter( true, null, 0, 1000, null ), 0 );
+    }
+
+    private String[] export( AuditLogFilter filter, int expectedRecords )
+                            throws Exception {
+        StringWriter writer = new StringWriter();
+        int exported = new AuditLogQuery( folder.getRoot(), filter ).exportCsv( writer );
+        assertThat( exported, is( expectedRecords ) );
+        String[] lines = writer.toString().split( "\r\n" );
+        assertThat( lines.length, is( expectedRecords + 1 ) );
+        return lines;
+    }
+
+}
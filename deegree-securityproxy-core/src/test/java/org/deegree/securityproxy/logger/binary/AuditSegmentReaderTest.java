@@ -0,0 +1,117 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.logger.binary;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.apache.commons.io.FileUtils;
+import org.deegree.securityproxy.report.SecurityReport;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link AuditSegmentReader}.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class AuditSegmentReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testStartTimeIsRead()
+                            throws Exception {
+        long before = System.currentTimeMillis();
+        File segment = writeSegment( 1 );
+
+        AuditSegmentReader reader = new AuditSegmentReader( segment );
+        try {
+            assertThat( reader.getStartTime() >= before, is( true ) );
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testIncompleteLastRecordIsSkipped()
+                            throws Exception {
+        File segment = writeSegment( 2 );
+        RandomAccessFile file = new RandomAccessFile( segment, "rw" );
+        file.setLength( file.length() - 3 );
+        file.close();
+
+        AuditSegmentReader reader = new AuditSegmentReader( segment );
+        try {
+            assertThat( reader.next().getMessage(), is( "message" ) );
+            assertThat( reader.next(), is( nullValue() ) );
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadingOtherFileShouldFail()
+                            throws Exception {
+        File other = new File( folder.getRoot(), "other.seg" );
+        FileUtils.writeStringToFile( other, "this is not an audit segment" );
+        new AuditSegmentReader( other );
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadingEmptyFileShouldFail()
+                            throws Exception {
+        new AuditSegmentReader( folder.newFile( "empty.seg" ) );
+    }
+
+    private File writeSegment( int numberOfReports ) {
+        MappedAuditLogger logger = new MappedAuditLogger( folder.getRoot().getAbsolutePath(), 65536, 0 );
+        for ( int index = 0; index < numberOfReports; index++ )
+            logger.logProxyReportInfo( new SecurityReport( "127.0.0.1", "http://url", true, "message" ), "uuid" );
+        logger.close();
+        return folder.getRoot().listFiles()[0];
+    }
+
+}
@@ -0,0 +1,261 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.logger.binary;
+
+import static org.deegree.securityproxy.logger.binary.MappedAuditLogger.MIN_SEGMENT_SIZE;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import org.deegree.securityproxy.report.SecurityReport;
+import org.deegree.securityproxy.responsefilter.logging.DefaultResponseFilterReport;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link MappedAuditLogger}.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class MappedAuditLoggerTest {
+
+    private static final String TARGET_URL = "http://proxy/services/wms?SERVICE=WMS&REQUEST=GetCapabilities";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testProxyReportIsReadBack()
+                            throws Exception {
+        MappedAuditLogger logger = createLogger( MIN_SEGMENT_SIZE, 0 );
+        String uuid = UUID.randomUUID().toString();
+        long before = System.currentTimeMillis();
+        logger.logProxyReportInfo( new SecurityReport( "127.0.0.1", TARGET_URL, true, "authorized", "user" ), uuid );
+        logger.close();
+
+        List<AuditLogEntry> entries = readAll();
+        assertThat( entries.size(), is( 1 ) );
+        AuditLogEntry entry = entries.get( 0 );
+        assertThat( entry.isProxyReport(), is( true ) );
+        assertThat( entry.getTime() >= before, is( true ) );
+        assertThat( entry.getSerialUuid(), is( uuid ) );
+        assertThat( entry.getUserName(), is( "user" ) );
+        assertThat( entry.getIpAddress(), is( "127.0.0.1" ) );
+        assertThat( entry.getTargetUri(), is( TARGET_URL ) );
+        assertThat( entry.isSuccessful(), is( true ) );
+        assertThat( entry.getMessage(), is( "authorized" ) );
+    }
+
+    @Test
+    public void testFilterReportIsReadBack()
+                            throws Exception {
+        MappedAuditLogger logger = createLogger( MIN_SEGMENT_SIZE, 0 );
+        logger.logResponseFilterReport( new DefaultResponseFilterReport( "clipping failed" ), "not a uuid" );
+        logger.close();
+
+        AuditLogEntry entry = readAll().get( 0 );
+        assertThat( entry.isProxyReport(), is( false ) );
+        assertThat( entry.getSerialUuid(), is( "not a uuid" ) );
+        assertThat( entry.isFiltered(), is( false ) );
+        assertThat( entry.isFailed(), is( true ) );
+        assertThat( entry.isSuccessful(), is( false ) );
+        assertThat( entry.getMessage(), is( "clipping failed" ) );
+    }
+
+    @Test
+    public void testPassedTimeIsReadBack()
+                            throws Exception {
+        MappedAuditLogger logger = createLogger( MIN_SEGMENT_SIZE, 0 );
+        logger.logProxyReportInfo( new SecurityReport( "127.0.0.1", TARGET_URL, true, "authorized" ), "uuid1",
+                                   1392200130123L );
+        logger.logResponseFilterReport( new DefaultResponseFilterReport( "clipped", true ), "uuid1", 1392200130125L );
+        logger.close();
+
+        List<AuditLogEntry> entries = readAll();
+        assertThat( entries.get( 0 ).getTime(), is( 1392200130123L ) );
+        assertThat( entries.get( 1 ).getTime(), is( 1392200130125L ) );
+    }
+
+    @Test
+    public void testSegmentStartsWithTimeOfFirstRecord()
+                            throws Exception {
+        MappedAuditLogger logger = createLogger( MIN_SEGMENT_SIZE, 0 );
+        logger.logProxyReportInfo( new SecurityReport( "127.0.0.1", TARGET_URL, true, "authorized" ), "uuid1",
+                                   1392200130123L );
+        logger.close();
+
+        AuditSegmentReader reader = new AuditSegmentReader( listSegments()[0] );
+        try {
+            assertThat( reader.getStartTime(), is( 1392200130123L ) );
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testNullValuesAreReadBack()
+                            throws Exception {
+        MappedAuditLogger logger = createLogger( MIN_SEGMENT_SIZE, 0 );
+        logger.logProxyReportInfo( new SecurityReport( null, null, false, null ), null );
+        logger.close();
+
+        AuditLogEntry entry = readAll().get( 0 );
+        assertThat( entry.getSerialUuid(), is( nullValue() ) );
+        assertThat( entry.getUserName(), is( nullValue() ) );
+        assertThat( entry.getTargetUri(), is( nullValue() ) );
+        assertThat( entry.isSuccessful(), is( false ) );
+    }
+
+    @Test
+    public void testRepeatedStringsAreWrittenOnce()
+                            throws Exception {
+        MappedAuditLogger logger = createLogger( MIN_SEGMENT_SIZE, 0 );
+        logReports( logger, 1 );
+        logger.close();
+        long sizeOfOneRecord = listSegments()[0].length();
+        logger = createLogger( MIN_SEGMENT_SIZE, 0 );
+        logReports( logger, 101 );
+        logger.close();
+
+        File[] segments = listSegments();
+        long sizeOfRepeatedRecord = ( segments[1].length() - sizeOfOneRecord ) / 100;
+        // time, flags, uuid and four references
+        assertThat( sizeOfRepeatedRecord, is( 1L + 8 + 1 + 17 + 4 ) );
+        assertThat( readAll().size(), is( 102 ) );
+    }
+
+    @Test
+    public void testSegmentIsRotatedIfFull()
+                            throws Exception {
+        MappedAuditLogger logger = createLogger( MIN_SEGMENT_SIZE, 0 );
+        logReports( logger, 5000 );
+        logger.close();
+
+        File[] segments = listSegments();
+        assertThat( segments.length > 1, is( true ) );
+        for ( File segment : segments )
+            assertThat( segment.length() <= MIN_SEGMENT_SIZE, is( true ) );
+        List<AuditLogEntry> entries = readAll();
+        assertThat( entries.size(), is( 5000 ) );
+        assertThat( entries.get( 4999 ).getTargetUri(), is( TARGET_URL ) );
+    }
+
+    @Test
+    public void testSegmentIsRotatedIfTooOld()
+                            throws Exception {
+        MappedAuditLogger logger = createLogger( MIN_SEGMENT_SIZE, 1 );
+        logReports( logger, 1 );
+        Thread.sleep( 10 );
+        logReports( logger, 1 );
+        logger.close();
+
+        assertThat( listSegments().length, is( 2 ) );
+        assertThat( readAll().size(), is( 2 ) );
+    }
+
+    @Test
+    public void testRecordsOfOpenSegmentCanBeRead()
+                            throws Exception {
+        MappedAuditLogger logger = createLogger( MIN_SEGMENT_SIZE, 0 );
+        logReports( logger, 3 );
+
+        assertThat( listSegments()[0].length(), is( (long) MIN_SEGMENT_SIZE ) );
+        assertThat( readAll().size(), is( 3 ) );
+        logger.close();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRecordLargerThanSegmentShouldFail() {
+        char[] message = new char[MIN_SEGMENT_SIZE];
+        Arrays.fill( message, 'm' );
+        MappedAuditLogger logger = createLogger( MIN_SEGMENT_SIZE, 0 );
+        logger.logResponseFilterReport( new DefaultResponseFilterReport( new String( message ) ), "uuid" );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorWithTooSmallSegmentSizeShouldFail() {
+        createLogger( MIN_SEGMENT_SIZE - 1, 0 );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLogProxyReportInfoWithNullReportShouldFail() {
+        createLogger( MIN_SEGMENT_SIZE, 0 ).logProxyReportInfo( null, "uuid" );
+    }
+
+    private MappedAuditLogger createLogger( int maxSegmentSize, long maxSegmentAge ) {
+        return new MappedAuditLogger( folder.getRoot().getAbsolutePath(), maxSegmentSize, maxSegmentAge );
+    }
+
+    private void logReports( MappedAuditLogger logger, int numberOfReports ) {
+        for ( int index = 0; index < numberOfReports; index++ ) {
+            SecurityReport report = new SecurityReport( "127.0.0.1", TARGET_URL, true, "authorized", "user" );
+            logger.logProxyReportInfo( report, UUID.randomUUID().toString() );
+        }
+    }
+
+    private File[] listSegments() {
+        File[] segments = folder.getRoot().listFiles();
+        Arrays.sort( segments );
+        return segments;
+    }
+
+    private List<AuditLogEntry> readAll()
+                            throws IOException {
+        List<AuditLogEntry> entries = new ArrayList<AuditLogEntry>();
+        for ( File segment : listSegments() ) {
+            AuditSegmentReader reader = new AuditSegmentReader( segment );
+            try {
+                AuditLogEntry entry;
+                while ( ( entry = reader.next() ) != null )
+                    entries.add( entry );
+            } finally {
+                reader.close();
+            }
+        }
+        return entries;
+    }
+
+}
@@ -1,7 +1,17 @@
 package org.deegree.securityproxy.logging;
 
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
 import org.deegree.securityproxy.logger.Log4jSecurityRequestResponseLogger;
 import org.deegree.securityproxy.logger.SecurityRequestResponseLogger;
+import org.deegree.securityproxy.report.SecurityReport;
 import org.junit.Test;
 
 /**
@@ -21,4 +31,41 @@ public class Log4JReportLoggerTest {
         SecurityRequestResponseLogger logger = new Log4jSecurityRequestResponseLogger();
         logger.logProxyReportInfo( null, null );
     }
+
+    @Test
+    public void testReportLoggerLogInfoWithTimeShouldLogEventWithPassedTime() {
+        Logger proxyLog = Logger.getLogger( "ProxyLogger" );
+        RecordingAppender appender = new RecordingAppender();
+        proxyLog.addAppender( appender );
+        try {
+            Log4jSecurityRequestResponseLogger logger = new Log4jSecurityRequestResponseLogger();
+            logger.logProxyReportInfo( new SecurityReport( "127.0.0.1", "http://target", true, "ok" ), "uuid",
+                                       1392200130123L );
+        } finally {
+            proxyLog.removeAppender( appender );
+        }
+        assertThat( appender.events.size(), is( 1 ) );
+        assertThat( appender.events.get( 0 ).getTimeStamp(), is( 1392200130123L ) );
+    }
+
+    private static class RecordingAppender extends AppenderSkeleton {
+
+        private final List<LoggingEvent> events = new ArrayList<LoggingEvent>();
+
+        @Override
+        protected void append( LoggingEvent event ) {
+            events.add( event );
+        }
+
+        @Override
+        public boolean requiresLayout() {
+            return false;
+        }
+
+        @Override
+        public void close() {
+        }
+
+    }
+
 }
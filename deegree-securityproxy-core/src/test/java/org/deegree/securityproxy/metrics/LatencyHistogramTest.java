@@ -0,0 +1,122 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.metrics;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link LatencyHistogram}.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void testRecord() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record( 5 );
+        histogram.record( 1000 );
+
+        assertThat( histogram.getCount(), is( 2L ) );
+        assertThat( histogram.getSum(), is( 1005L ) );
+        assertThat( histogram.getMax(), is( 1000L ) );
+    }
+
+    @Test
+    public void testRecordNegativeValueShouldRecordZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record( -5 );
+
+        assertThat( histogram.getCount(), is( 1L ) );
+        assertThat( histogram.getPercentile( 100 ), is( 0L ) );
+    }
+
+    @Test
+    public void testGetPercentileOfSmallValuesShouldBeExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for ( int value = 1; value <= 10; value++ )
+            histogram.record( value );
+
+        assertThat( histogram.getPercentile( 50 ), is( 5L ) );
+        assertThat( histogram.getPercentile( 100 ), is( 10L ) );
+    }
+
+    @Test
+    public void testGetPercentileShouldBeWithinRelativeError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for ( int value = 1; value <= 100000; value++ )
+            histogram.record( value * 1000L );
+
+        assertWithinRelativeError( histogram.getPercentile( 50 ), 50000000L );
+        assertWithinRelativeError( histogram.getPercentile( 99 ), 99000000L );
+        assertWithinRelativeError( histogram.getPercentile( 99.9 ), 99900000L );
+        assertThat( histogram.getPercentile( 100 ), is( 100000000L ) );
+    }
+
+    @Test
+    public void testGetPercentileWithoutValues() {
+        assertThat( new LatencyHistogram().getPercentile( 99 ), is( 0L ) );
+    }
+
+    @Test
+    public void testReset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record( 1000 );
+        histogram.reset();
+
+        assertThat( histogram.getCount(), is( 0L ) );
+        assertThat( histogram.getMax(), is( 0L ) );
+        assertThat( histogram.getPercentile( 50 ), is( 0L ) );
+    }
+
+    @Test
+    public void testIndexOfShouldBeWithinBounds() {
+        assertThat( LatencyHistogram.upperBoundOf( LatencyHistogram.indexOf( Long.MAX_VALUE ) ), is( Long.MAX_VALUE ) );
+        assertThat( LatencyHistogram.upperBoundOf( LatencyHistogram.indexOf( 16 ) ), is( 16L ) );
+        assertThat( LatencyHistogram.upperBoundOf( LatencyHistogram.indexOf( 1000 ) ) >= 1000, is( true ) );
+    }
+
+    private void assertWithinRelativeError( long actual, long expected ) {
+        double relativeError = Math.abs( actual - expected ) / (double) expected;
+        assertThat( "relative error of " + actual, relativeError <= 0.0625, is( true ) );
+    }
+
+}
@@ -0,0 +1,120 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.metrics;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link MetricsEndpointFilter}.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class MetricsEndpointFilterTest {
+
+    @Test
+    public void testDoFilterShouldWriteMetrics()
+                    throws Exception {
+        ProxyMetrics metrics = new ProxyMetrics();
+        metrics.increment( "counter", 3 );
+        StringWriter body = new StringWriter();
+        FilterChain chain = mock( FilterChain.class );
+        new MetricsEndpointFilter( metrics, true ).doFilter( mock( HttpServletRequest.class ), mockResponse( body ),
+                                                             chain );
+
+        assertThat( body.toString(), containsString( "counter 3\n" ) );
+        verify( chain, never() ).doFilter( any( ServletRequest.class ), any( ServletResponse.class ) );
+    }
+
+    @Test
+    public void testDoFilterShouldWriteNumericAttributesOfMBeans()
+                    throws Exception {
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = new ObjectName( "org.deegree.securityproxy:type=ProxyMetrics,name=test" );
+        mBeanServer.registerMBean( new ProxyMetrics(), objectName );
+        try {
+            StringWriter body = new StringWriter();
+            new MetricsEndpointFilter( new ProxyMetrics(), true ).doFilter( mock( HttpServletRequest.class ),
+                                                                            mockResponse( body ),
+                                                                            mock( FilterChain.class ) );
+
+            assertThat( body.toString(), containsString( "securityproxy_ProxyMetrics_Enabled{name=\"test\"} 1\n" ) );
+        } finally {
+            mBeanServer.unregisterMBean( objectName );
+        }
+    }
+
+    @Test
+    public void testDoFilterWhenDisabledShouldPassRequest()
+                    throws Exception {
+        HttpServletRequest request = mock( HttpServletRequest.class );
+        HttpServletResponse response = mock( HttpServletResponse.class );
+        FilterChain chain = mock( FilterChain.class );
+        new MetricsEndpointFilter( new ProxyMetrics(), false ).doFilter( request, response, chain );
+
+        verify( chain ).doFilter( request, response );
+        verify( response, never() ).getWriter();
+    }
+
+    private HttpServletResponse mockResponse( StringWriter body )
+                    throws Exception {
+        HttpServletResponse response = mock( HttpServletResponse.class );
+        doReturn( new PrintWriter( body ) ).when( response ).getWriter();
+        return response;
+    }
+
+}
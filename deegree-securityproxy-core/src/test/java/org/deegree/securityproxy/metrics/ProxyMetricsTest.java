@@ -0,0 +1,128 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.metrics;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link ProxyMetrics}.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class ProxyMetricsTest {
+
+    @Test
+    public void testRecordTimeShouldDistinguishLabels() {
+        ProxyMetrics metrics = new ProxyMetrics();
+        metrics.recordTime( "timer", 10, "service", "wms" );
+        metrics.recordTime( "timer", 20, "service", "wms" );
+        metrics.recordTime( "timer", 30, "service", "wcs" );
+
+        assertThat( metrics.getTimer( "timer", "service", "wms" ).getCount(), is( 2L ) );
+        assertThat( metrics.getTimer( "timer", "service", "wcs" ).getCount(), is( 1L ) );
+        assertThat( metrics.getTimer( "timer" ), is( nullValue() ) );
+    }
+
+    @Test
+    public void testIncrement() {
+        ProxyMetrics metrics = new ProxyMetrics();
+        metrics.increment( "counter", 2, "decision", "clipped" );
+        metrics.increment( "counter", 3, "decision", "clipped" );
+
+        assertThat( metrics.getCounter( "counter", "decision", "clipped" ), is( 5L ) );
+        assertThat( metrics.getCounter( "counter", "decision", "failed" ), is( 0L ) );
+    }
+
+    @Test
+    public void testDisabledMetricsShouldNotRecord() {
+        ProxyMetrics metrics = new ProxyMetrics( false );
+        metrics.recordTime( "timer", 10 );
+        metrics.increment( "counter", 1 );
+
+        assertThat( metrics.getTimers().length, is( 0 ) );
+        assertThat( metrics.getCounters().length, is( 0 ) );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRecordTimeWithIncompleteLabelShouldFail() {
+        new ProxyMetrics().recordTime( "timer", 10, "service" );
+    }
+
+    @Test
+    public void testGetCounters() {
+        ProxyMetrics metrics = new ProxyMetrics();
+        metrics.increment( "counter", 1, "service", "wms", "operation", null );
+
+        assertThat( metrics.getCounters()[0], is( "counter{service=\"wms\",operation=\"\"} 1" ) );
+    }
+
+    @Test
+    public void testWriteTo()
+                    throws Exception {
+        ProxyMetrics metrics = new ProxyMetrics();
+        metrics.recordTime( "duration_seconds", 2000000, "stage", "parse" );
+        metrics.increment( "bytes_total", 512, "service", "w\"ms" );
+        StringWriter writer = new StringWriter();
+        metrics.writeTo( writer );
+
+        String exposition = writer.toString();
+        assertThat( exposition, containsString( "duration_seconds{stage=\"parse\",quantile=\"0.5\"} 0.002" ) );
+        assertThat( exposition, containsString( "duration_seconds_count{stage=\"parse\"} 1\n" ) );
+        assertThat( exposition, containsString( "duration_seconds_sum{stage=\"parse\"} 0.002000\n" ) );
+        assertThat( exposition, containsString( "bytes_total{service=\"w\\\"ms\"} 512\n" ) );
+    }
+
+    @Test
+    public void testReset() {
+        ProxyMetrics metrics = new ProxyMetrics();
+        metrics.recordTime( "timer", 10 );
+        metrics.increment( "counter", 1 );
+        metrics.reset();
+
+        assertThat( metrics.getTimer( "timer" ).getCount(), is( 0L ) );
+        assertThat( metrics.getCounter( "counter" ), is( 0L ) );
+    }
+
+}
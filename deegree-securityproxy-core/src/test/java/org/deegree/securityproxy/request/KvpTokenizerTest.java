@@ -0,0 +1,180 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.request;
+
+import static java.util.Arrays.asList;
+import static org.deegree.securityproxy.request.KvpTokenizer.splitCommaSeparatedValue;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link KvpTokenizer}.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class KvpTokenizerTest {
+
+    private static final String GETMAP = "SERVICE=WMS&VERSION=1.3.0&REQUEST=GetMap&LAYERS=roads,rivers&STYLES="
+                                         + "&CRS=EPSG:4326&BBOX=-90,-180,90,180&WIDTH=256&HEIGHT=256&FORMAT=image%2Fpng";
+
+    @Test
+    public void testGetFirstValueShouldIgnoreCaseOfKey() {
+        KvpTokenizer tokenizer = new KvpTokenizer( GETMAP );
+
+        assertThat( tokenizer.getFirstValue( "request" ), is( "GetMap" ) );
+        assertThat( tokenizer.getFirstValue( "Layers" ), is( "roads,rivers" ) );
+    }
+
+    @Test
+    public void testGetFirstValueShouldDecodeValue() {
+        KvpTokenizer tokenizer = new KvpTokenizer( GETMAP );
+
+        assertThat( tokenizer.getFirstValue( "format" ), is( "image/png" ) );
+    }
+
+    @Test
+    public void testGetFirstValueShouldDecodeUtf8AndPlus() {
+        KvpTokenizer tokenizer = new KvpTokenizer( "layers=Stra%C3%9Fen+und+Wege" );
+
+        assertThat( tokenizer.getFirstValue( "layers" ), is( "Straßen und Wege" ) );
+    }
+
+    @Test
+    public void testGetFirstValueShouldKeepMalformedEscapeSequence() {
+        KvpTokenizer tokenizer = new KvpTokenizer( "layers=100%&format=%zz" );
+
+        assertThat( tokenizer.getFirstValue( "layers" ), is( "100%" ) );
+        assertThat( tokenizer.getFirstValue( "format" ), is( "%zz" ) );
+    }
+
+    @Test
+    public void testGetFirstValueWithEmptyValue() {
+        KvpTokenizer tokenizer = new KvpTokenizer( GETMAP );
+
+        assertThat( tokenizer.getFirstValue( "styles" ), is( "" ) );
+    }
+
+    @Test
+    public void testGetFirstValueWithoutSeparatorShouldReturnEmptyValue() {
+        KvpTokenizer tokenizer = new KvpTokenizer( "transparent&service=wms" );
+
+        assertThat( tokenizer.getFirstValue( "transparent" ), is( "" ) );
+        assertThat( tokenizer.getFirstValue( "service" ), is( "wms" ) );
+    }
+
+    @Test
+    public void testGetFirstValueWithUnknownKeyShouldReturnNull() {
+        KvpTokenizer tokenizer = new KvpTokenizer( GETMAP );
+
+        assertThat( tokenizer.getFirstValue( "time" ), nullValue() );
+        assertThat( tokenizer.getFirstValue( "layer" ), nullValue() );
+    }
+
+    @Test
+    public void testGetFirstValueWithEncodedKey() {
+        KvpTokenizer tokenizer = new KvpTokenizer( "%4Cayers=roads" );
+
+        assertThat( tokenizer.getFirstValue( "layers" ), is( "roads" ) );
+    }
+
+    @Test
+    public void testGetValuesShouldMergeDuplicatedKeys() {
+        KvpTokenizer tokenizer = new KvpTokenizer( "LAYERS=roads&service=wms&layers=rivers" );
+
+        assertThat( tokenizer.getValues( "layers" ), is( new String[] { "roads", "rivers" } ) );
+    }
+
+    @Test
+    public void testGetNumberOfPairsShouldSkipEmptyPairsAndKeys() {
+        KvpTokenizer tokenizer = new KvpTokenizer( "&service=wms&&=value&request=GetMap&" );
+
+        assertThat( tokenizer.getNumberOfPairs(), is( 2 ) );
+    }
+
+    @Test
+    public void testTokenizerWithNullQueryString() {
+        KvpTokenizer tokenizer = new KvpTokenizer( null );
+
+        assertThat( tokenizer.getNumberOfPairs(), is( 0 ) );
+        assertThat( tokenizer.containsKey( "service" ), is( false ) );
+    }
+
+    @Test
+    public void testAsMapShouldBeEqualToNormalizedParameterMap() {
+        Map<String, String[]> map = new KvpTokenizer( "SERVICE=WMS&Request=GetMap&format=image%2Fpng" ).asMap();
+
+        assertThat( map.size(), is( 3 ) );
+        Set<String> expectedKeys = new HashSet<String>( asList( "service", "request", "format" ) );
+        assertThat( map.keySet(), is( expectedKeys ) );
+        assertThat( map.get( "format" ), is( new String[] { "image/png" } ) );
+        assertThat( map.containsKey( "request" ), is( true ) );
+        assertThat( map.containsKey( "version" ), is( false ) );
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testAsMapShouldBeReadOnly() {
+        new KvpTokenizer( "service=wms" ).asMap().put( "request", new String[] { "GetMap" } );
+    }
+
+    @Test
+    public void testSplitCommaSeparatedValue() {
+        assertThat( splitCommaSeparatedValue( "roads,rivers" ), is( asList( "roads", "rivers" ) ) );
+        assertThat( splitCommaSeparatedValue( "roads" ), is( asList( "roads" ) ) );
+    }
+
+    @Test
+    public void testSplitCommaSeparatedValueShouldBehaveLikeStringSplit() {
+        String[] values = { "", ",", "a,,b", ",a", "a,", "a,,", ",,a,,b,,", "-90,-180,90,180" };
+        for ( String value : values )
+            assertThat( value, splitCommaSeparatedValue( value ), is( asList( value.split( "," ) ) ) );
+    }
+
+    @Test
+    public void testSplitCommaSeparatedValueWithOnlySeparatorsShouldReturnEmptyList() {
+        assertThat( splitCommaSeparatedValue( ",," ), is( Collections.<String> emptyList() ) );
+    }
+
+}
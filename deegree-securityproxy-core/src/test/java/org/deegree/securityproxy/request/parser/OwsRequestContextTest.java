@@ -0,0 +1,168 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.request.parser;
+
+import static org.deegree.securityproxy.request.parser.OwsRequestContext.REQUEST_ATTRIBUTE;
+import static org.deegree.securityproxy.request.parser.OwsRequestContext.retrieveContext;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+/**
+ * Tests for {@link OwsRequestContext}.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class OwsRequestContextTest {
+
+    @Test
+    public void testRetrieveContextShouldAttachContextToRequest() {
+        MockHttpServletRequest request = createGetRequest();
+        OwsRequestContext context = retrieveContext( request );
+
+        assertThat( request.getAttribute( REQUEST_ATTRIBUTE ), is( (Object) context ) );
+    }
+
+    @Test
+    public void testRetrieveContextShouldReturnAttachedContext() {
+        MockHttpServletRequest request = createGetRequest();
+        OwsRequestContext context = retrieveContext( request );
+
+        assertThat( retrieveContext( request ), sameInstance( context ) );
+    }
+
+    @Test
+    public void testGetMethod() {
+        OwsRequestContext context = retrieveContext( createGetRequest() );
+
+        assertThat( context.getMethod(), is( "GET" ) );
+    }
+
+    @Test
+    public void testGetNormalizedParameterMapShouldContainLowerCaseKeys() {
+        OwsRequestContext context = retrieveContext( createGetRequest() );
+        Map<String, String[]> normalizedParameterMap = context.getNormalizedParameterMap();
+
+        assertThat( normalizedParameterMap.get( "service" )[0], is( "WMS" ) );
+        assertThat( normalizedParameterMap.get( "request" )[0], is( "GetMap" ) );
+        assertThat( normalizedParameterMap.containsKey( "SERVICE" ), is( false ) );
+    }
+
+    @Test
+    public void testGetNormalizedParameterMapShouldNormalizeOnce() {
+        HttpServletRequest request = spy( createGetRequest() );
+        OwsRequestContext context = retrieveContext( request );
+        context.getNormalizedParameterMap();
+        context.getServiceType();
+        new ServiceTypeParser().determineServiceType( request );
+
+        verify( request, times( 1 ) ).getParameterMap();
+    }
+
+    @Test
+    public void testGetNormalizedParameterMapOfGetRequestShouldBeTokenizedFromQueryString() {
+        HttpServletRequest request = spy( createGetRequest() );
+        when( request.getQueryString() ).thenReturn( "SERVICE=WMS&Request=GetMap&LAYERS=a%2Cb" );
+        OwsRequestContext context = retrieveContext( request );
+        Map<String, String[]> normalizedParameterMap = context.getNormalizedParameterMap();
+
+        assertThat( normalizedParameterMap.get( "service" )[0], is( "WMS" ) );
+        assertThat( normalizedParameterMap.get( "layers" )[0], is( "a,b" ) );
+        assertThat( context.getServiceType(), is( "WMS" ) );
+        verify( request, never() ).getParameterMap();
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testGetNormalizedParameterMapShouldBeUnmodifiable() {
+        OwsRequestContext context = retrieveContext( createGetRequest() );
+
+        context.getNormalizedParameterMap().remove( "service" );
+    }
+
+    @Test
+    public void testGetServiceName() {
+        OwsRequestContext context = retrieveContext( createGetRequest() );
+
+        assertThat( context.getServiceName(), is( "serviceName" ) );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetServiceNameWithoutServletPathShouldFail() {
+        MockHttpServletRequest request = createGetRequest();
+        request.setServletPath( null );
+
+        retrieveContext( request ).getServiceName();
+    }
+
+    @Test
+    public void testGetServiceType() {
+        OwsRequestContext context = retrieveContext( createGetRequest() );
+
+        assertThat( context.getServiceType(), is( "WMS" ) );
+    }
+
+    @Test
+    public void testGetServiceTypeWithMissingServiceParameterShouldReturnNull() {
+        MockHttpServletRequest request = new MockHttpServletRequest( "GET", "/services/serviceName" );
+        request.addParameter( "REQUEST", "GetMap" );
+
+        assertThat( retrieveContext( request ).getServiceType(), nullValue() );
+    }
+
+    private MockHttpServletRequest createGetRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest( "GET", "/services/serviceName" );
+        request.setServletPath( "/services/serviceName" );
+        request.addParameter( "SERVICE", "WMS" );
+        request.addParameter( "Request", "GetMap" );
+        return request;
+    }
+
+}
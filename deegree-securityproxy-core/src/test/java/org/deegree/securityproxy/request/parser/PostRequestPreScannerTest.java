@@ -0,0 +1,153 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.request.parser;
+
+import static org.deegree.securityproxy.request.PostRequestPreScan.REQUEST_ATTRIBUTE;
+import static org.deegree.securityproxy.request.parser.PostRequestPreScanner.retrievePreScan;
+import static org.deegree.securityproxy.request.parser.PostRequestPreScanner.scan;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+
+import org.deegree.securityproxy.request.PostRequestPreScan;
+import org.junit.Test;
+
+/**
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class PostRequestPreScannerTest {
+
+    private static final String WPS_NS = "http://www.opengis.net/wps/1.0.0";
+
+    private static final QName IDENTIFIER_NAME = new QName( "http://www.opengis.net/ows/1.1", "Identifier" );
+
+    @Test
+    public void testScanGetCapabilities()
+                    throws Exception {
+        PostRequestPreScan preScan = scan( resource( "GetCapabilities.xml" ) );
+
+        assertThat( preScan.getRootElementName(), is( new QName( WPS_NS, "GetCapabilities" ) ) );
+        assertThat( preScan.getService(), is( "WPS" ) );
+        assertThat( preScan.getVersion(), nullValue() );
+        assertThat( preScan.getRequest(), nullValue() );
+        assertThat( preScan.getIdentifiers( IDENTIFIER_NAME ).isEmpty(), is( true ) );
+    }
+
+    @Test
+    public void testScanDescribeProcessWithMultipleIdentifiers()
+                    throws Exception {
+        PostRequestPreScan preScan = scan( resource( "DescribeProcess.xml" ) );
+
+        assertThat( preScan.getRootElementName(), is( new QName( WPS_NS, "DescribeProcess" ) ) );
+        assertThat( preScan.getVersion(), is( "1.0.0" ) );
+        assertThat( preScan.getRequest(), is( "DescribeProcess" ) );
+        assertThat( preScan.getIdentifiers( IDENTIFIER_NAME ), is( Arrays.asList( "Buffer", "Centroid" ) ) );
+    }
+
+    @Test
+    public void testScanExecuteShouldOnlyScanLeadingIdentifiers()
+                    throws Exception {
+        PostRequestPreScan preScan = scan( resource( "Execute.xml" ) );
+
+        assertThat( preScan.getIdentifiers( IDENTIFIER_NAME ), is( Collections.singletonList( "Buffer" ) ) );
+    }
+
+    @Test(expected = XMLStreamException.class)
+    public void testScanInvalidXmlShouldFail()
+                    throws Exception {
+        scan( new ByteArrayInputStream( "no xml".getBytes() ) );
+    }
+
+    @Test
+    public void testRetrievePreScanShouldAttachPreScanToRequest()
+                    throws Exception {
+        HttpServletRequest request = mockPostRequest( "Execute.xml" );
+        PostRequestPreScan preScan = retrievePreScan( request );
+
+        verify( request ).setAttribute( REQUEST_ATTRIBUTE, preScan );
+    }
+
+    @Test
+    public void testRetrievePreScanShouldReuseAttachedPreScan()
+                    throws Exception {
+        HttpServletRequest request = mockPostRequest( "Execute.xml" );
+        PostRequestPreScan attachedPreScan = scan( resource( "Execute.xml" ) );
+        doReturn( attachedPreScan ).when( request ).getAttribute( REQUEST_ATTRIBUTE );
+
+        assertThat( retrievePreScan( request ), is( sameInstance( attachedPreScan ) ) );
+        verify( request, never() ).getInputStream();
+    }
+
+    private InputStream resource( String name ) {
+        return PostRequestPreScannerTest.class.getResourceAsStream( name );
+    }
+
+    private HttpServletRequest mockPostRequest( String requestResource )
+                    throws IOException {
+        HttpServletRequest request = mock( HttpServletRequest.class );
+        final InputStream requestStream = resource( requestResource );
+        ServletInputStream servletInputStream = new ServletInputStream() {
+            @Override
+            public int read()
+                            throws IOException {
+                return requestStream.read();
+            }
+        };
+        when( request.getInputStream() ).thenReturn( servletInputStream );
+        doReturn( "POST" ).when( request ).getMethod();
+        return request;
+    }
+
+}
@@ -0,0 +1,158 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.responsefilter;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.Arrays;
+
+import org.deegree.securityproxy.request.OwsRequest;
+import org.deegree.securityproxy.request.OwsServiceVersion;
+import org.junit.Test;
+
+/**
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class ResponseFilterRoutingTableTest {
+
+    @Test
+    public void testResolveShouldReturnFirstFilterManager()
+                    throws Exception {
+        ResponseFilterManager disabledFilterManager = mockFilterManager( false );
+        ResponseFilterManager enabledFilterManager = mockFilterManager( true );
+        ResponseFilterManager secondEnabledFilterManager = mockFilterManager( true );
+        ResponseFilterRoutingTable routingTable = createRoutingTable( disabledFilterManager, enabledFilterManager,
+                                                                      secondEnabledFilterManager );
+
+        ResponseFilterManager filterManager = routingTable.resolve( createRequest( "GetMap", "1.1.1" ) );
+
+        assertThat( filterManager, is( enabledFilterManager ) );
+        verify( secondEnabledFilterManager, never() ).canBeFiltered( any( OwsRequest.class ) );
+    }
+
+    @Test
+    public void testResolveWithoutFilterManagerShouldReturnNull()
+                    throws Exception {
+        ResponseFilterRoutingTable routingTable = createRoutingTable( mockFilterManager( false ) );
+
+        ResponseFilterManager filterManager = routingTable.resolve( createRequest( "GetMap", "1.1.1" ) );
+
+        assertThat( filterManager, is( nullValue() ) );
+    }
+
+    @Test
+    public void testResolveWithNullFilterManagersShouldReturnNull()
+                    throws Exception {
+        ResponseFilterRoutingTable routingTable = new ResponseFilterRoutingTable( null );
+
+        ResponseFilterManager filterManager = routingTable.resolve( createRequest( "GetMap", "1.1.1" ) );
+
+        assertThat( filterManager, is( nullValue() ) );
+    }
+
+    @Test
+    public void testResolveSameKindOfRequestShouldAskFilterManagersOnce()
+                    throws Exception {
+        ResponseFilterManager disabledFilterManager = mockFilterManager( false );
+        ResponseFilterManager enabledFilterManager = mockFilterManager( true );
+        ResponseFilterRoutingTable routingTable = createRoutingTable( disabledFilterManager, enabledFilterManager );
+
+        routingTable.resolve( createRequest( "GetMap", "1.1.1" ) );
+        ResponseFilterManager filterManager = routingTable.resolve( createRequest( "GetMap", "1.1.1" ) );
+
+        assertThat( filterManager, is( enabledFilterManager ) );
+        verify( disabledFilterManager, times( 1 ) ).canBeFiltered( any( OwsRequest.class ) );
+        verify( enabledFilterManager, times( 1 ) ).canBeFiltered( any( OwsRequest.class ) );
+    }
+
+    @Test
+    public void testResolveRequestWithoutFilterManagerShouldAskFilterManagersOnce()
+                    throws Exception {
+        ResponseFilterManager disabledFilterManager = mockFilterManager( false );
+        ResponseFilterRoutingTable routingTable = createRoutingTable( disabledFilterManager );
+
+        routingTable.resolve( createRequest( "GetMap", "1.1.1" ) );
+        routingTable.resolve( createRequest( "GetMap", "1.1.1" ) );
+
+        verify( disabledFilterManager, times( 1 ) ).canBeFiltered( any( OwsRequest.class ) );
+    }
+
+    @Test
+    public void testResolveDifferentOperationTypesShouldAskFilterManagersPerOperationType()
+                    throws Exception {
+        ResponseFilterManager filterManager = mockFilterManager( true );
+        ResponseFilterRoutingTable routingTable = createRoutingTable( filterManager );
+
+        routingTable.resolve( createRequest( "GetMap", "1.1.1" ) );
+        routingTable.resolve( createRequest( "GetCapabilities", "1.1.1" ) );
+        routingTable.resolve( createRequest( "GetMap", "1.3.0" ) );
+
+        verify( filterManager, times( 3 ) ).canBeFiltered( any( OwsRequest.class ) );
+    }
+
+    private ResponseFilterRoutingTable createRoutingTable( ResponseFilterManager... filterManagers ) {
+        return new ResponseFilterRoutingTable( Arrays.asList( filterManagers ) );
+    }
+
+    private ResponseFilterManager mockFilterManager( boolean canBeFiltered ) {
+        ResponseFilterManager filterManager = mock( ResponseFilterManager.class );
+        doReturn( canBeFiltered ).when( filterManager ).canBeFiltered( any( OwsRequest.class ) );
+        return filterManager;
+    }
+
+    private OwsRequest createRequest( String operationType, String version ) {
+        return new TestOwsRequest( operationType, new OwsServiceVersion( version ) );
+    }
+
+    private static class TestOwsRequest extends OwsRequest {
+
+        public TestOwsRequest( String operationType, OwsServiceVersion serviceVersion ) {
+            super( "wms", operationType, serviceVersion );
+        }
+
+    }
+
+}
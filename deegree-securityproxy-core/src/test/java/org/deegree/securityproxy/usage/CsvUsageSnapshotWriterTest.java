@@ -0,0 +1,121 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.usage;
+
+import static org.deegree.securityproxy.usage.CsvUsageSnapshotWriter.CSV_HEADER;
+import static org.deegree.securityproxy.usage.UsageStatistics.SUCCESS;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link CsvUsageSnapshotWriter}.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class CsvUsageSnapshotWriterTest {
+
+    private File file;
+
+    @Before
+    public void createFile()
+                            throws Exception {
+        file = File.createTempFile( "usage", ".csv" );
+        file.delete();
+    }
+
+    @After
+    public void deleteFile() {
+        file.delete();
+    }
+
+    @Test
+    public void testWriteCreatesFileWithHeader()
+                            throws Exception {
+        CsvUsageSnapshotWriter writer = new CsvUsageSnapshotWriter( file.getAbsolutePath() );
+
+        writer.write( 0, 1000, createCounts( new UsageKey( "user", "wms", "service", "GetMap", "layer", SUCCESS ) ) );
+
+        List<String> lines = FileUtils.readLines( file, "UTF-8" );
+        assertThat( lines.size(), is( 2 ) );
+        assertThat( lines.get( 0 ), is( CSV_HEADER ) );
+        assertThat( lines.get( 1 ),
+                    is( "1970-01-01T00:00:00.000Z,1970-01-01T00:00:01.000Z,user,wms,service,GetMap,layer,success,3" ) );
+    }
+
+    @Test
+    public void testWriteAppendsWithoutHeader()
+                            throws Exception {
+        CsvUsageSnapshotWriter writer = new CsvUsageSnapshotWriter( file.getAbsolutePath() );
+        Map<UsageKey, Long> counts = createCounts( new UsageKey( "user", "wms", "service", "GetMap", "layer",
+                                                                 SUCCESS ) );
+
+        writer.write( 0, 1000, counts );
+        writer.write( 1000, 2000, counts );
+
+        List<String> lines = FileUtils.readLines( file, "UTF-8" );
+        assertThat( lines.size(), is( 3 ) );
+        assertThat( lines.get( 2 ).startsWith( "1970-01-01T00:00:01.000Z,1970-01-01T00:00:02.000Z," ), is( true ) );
+    }
+
+    @Test
+    public void testWriteQuotesValuesAndLeavesNullEmpty()
+                            throws Exception {
+        CsvUsageSnapshotWriter writer = new CsvUsageSnapshotWriter( file.getAbsolutePath() );
+
+        writer.write( 0, 0, createCounts( new UsageKey( null, "wms", null, "GetMap", "a,\"b\"", SUCCESS ) ) );
+
+        List<String> lines = FileUtils.readLines( file, "UTF-8" );
+        assertThat( lines.get( 1 ),
+                    is( "1970-01-01T00:00:00.000Z,1970-01-01T00:00:00.000Z,,wms,,GetMap,\"a,\"\"b\"\"\",success,3" ) );
+    }
+
+    private Map<UsageKey, Long> createCounts( UsageKey key ) {
+        return Collections.singletonMap( key, 3L );
+    }
+
+}
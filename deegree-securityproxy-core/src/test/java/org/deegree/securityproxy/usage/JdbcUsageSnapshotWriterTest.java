@@ -0,0 +1,138 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.usage;
+
+import static org.deegree.securityproxy.usage.UsageStatistics.DENIED;
+import static org.deegree.securityproxy.usage.UsageStatistics.SUCCESS;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.dbcp.BasicDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link JdbcUsageSnapshotWriter}.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class JdbcUsageSnapshotWriterTest {
+
+    private BasicDataSource dataSource;
+
+    @Before
+    public void createTable()
+                            throws Exception {
+        dataSource = new BasicDataSource();
+        dataSource.setDriverClassName( "org.hsqldb.jdbcDriver" );
+        dataSource.setUrl( "jdbc:hsqldb:mem:usage" );
+        dataSource.setUsername( "sa" );
+        dataSource.setPassword( "" );
+        execute( "CREATE TABLE usage_statistics (interval_start TIMESTAMP, interval_end TIMESTAMP, "
+                 + "user_name VARCHAR(255), service_type VARCHAR(255), service_name VARCHAR(255), "
+                 + "operation VARCHAR(255), layer VARCHAR(255), outcome VARCHAR(255), request_count BIGINT)" );
+    }
+
+    @After
+    public void dropTable()
+                            throws Exception {
+        execute( "DROP TABLE usage_statistics" );
+        dataSource.close();
+    }
+
+    @Test
+    public void testWriteInsertsOneRowPerKey()
+                            throws Exception {
+        JdbcUsageSnapshotWriter writer = new JdbcUsageSnapshotWriter( dataSource, "usage_statistics" );
+        Map<UsageKey, Long> counts = new HashMap<UsageKey, Long>();
+        counts.put( new UsageKey( "user", "wms", "service", "GetMap", "layer", SUCCESS ), 5L );
+        counts.put( new UsageKey( "user", "wms", "service", "GetMap", null, DENIED ), 2L );
+
+        writer.write( 0, 1000, counts );
+
+        assertThat( queryLong( "SELECT COUNT(*) FROM usage_statistics" ), is( 2L ) );
+        assertThat( queryLong( "SELECT request_count FROM usage_statistics WHERE layer = 'layer'" ), is( 5L ) );
+        assertThat( queryLong( "SELECT request_count FROM usage_statistics WHERE outcome = 'denied'" ), is( 2L ) );
+    }
+
+    @Test(expected = IOException.class)
+    public void testWriteIntoMissingTableShouldFail()
+                            throws Exception {
+        JdbcUsageSnapshotWriter writer = new JdbcUsageSnapshotWriter( dataSource, "missing" );
+        Map<UsageKey, Long> counts = new HashMap<UsageKey, Long>();
+        counts.put( new UsageKey( "user", "wms", "service", "GetMap", "layer", SUCCESS ), 5L );
+
+        writer.write( 0, 1000, counts );
+    }
+
+    private void execute( String sql )
+                            throws Exception {
+        Connection connection = dataSource.getConnection();
+        try {
+            Statement statement = connection.createStatement();
+            statement.execute( sql );
+            statement.close();
+        } finally {
+            connection.close();
+        }
+    }
+
+    private long queryLong( String sql )
+                            throws Exception {
+        Connection connection = dataSource.getConnection();
+        try {
+            Statement statement = connection.createStatement();
+            ResultSet resultSet = statement.executeQuery( sql );
+            resultSet.next();
+            long value = resultSet.getLong( 1 );
+            statement.close();
+            return value;
+        } finally {
+            connection.close();
+        }
+    }
+
+}
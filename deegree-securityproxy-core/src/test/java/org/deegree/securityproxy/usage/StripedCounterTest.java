@@ -0,0 +1,128 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.usage;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link StripedCounter}.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class StripedCounterTest {
+
+    private static final int THREADS = 8;
+
+    private static final int INCREMENTS = 10000;
+
+    @Test
+    public void testSumOfNewCounter() {
+        assertThat( new StripedCounter().sum(), is( 0L ) );
+    }
+
+    @Test
+    public void testAdd() {
+        StripedCounter counter = new StripedCounter();
+        counter.add( 3 );
+        counter.add( 4 );
+
+        assertThat( counter.sum(), is( 7L ) );
+    }
+
+    @Test
+    public void testSumThenResetResetsCounter() {
+        StripedCounter counter = new StripedCounter();
+        counter.add( 5 );
+
+        assertThat( counter.sumThenReset(), is( 5L ) );
+        assertThat( counter.sum(), is( 0L ) );
+    }
+
+    @Test
+    public void testRetire() {
+        StripedCounter counter = new StripedCounter();
+        assertThat( counter.isRetired(), is( false ) );
+
+        counter.retire();
+
+        assertThat( counter.isRetired(), is( true ) );
+    }
+
+    @Test
+    public void testConcurrentAddAndSumThenResetLosesNoIncrement()
+                            throws Exception {
+        final StripedCounter counter = new StripedCounter();
+        final CountDownLatch start = new CountDownLatch( 1 );
+        Thread[] threads = new Thread[THREADS];
+        for ( int i = 0; i < THREADS; i++ ) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    awaitQuietly( start );
+                    for ( int j = 0; j < INCREMENTS; j++ )
+                        counter.add( 1 );
+                }
+            };
+            threads[i].start();
+        }
+        start.countDown();
+        long sum = 0;
+        for ( Thread thread : threads ) {
+            while ( thread.isAlive() )
+                sum += counter.sumThenReset();
+            thread.join();
+        }
+        sum += counter.sumThenReset();
+
+        assertThat( sum, is( (long) THREADS * INCREMENTS ) );
+    }
+
+    private static void awaitQuietly( CountDownLatch latch ) {
+        try {
+            latch.await();
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,245 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.usage;
+
+import static java.util.Arrays.asList;
+import static org.deegree.securityproxy.usage.UsageStatistics.DENIED;
+import static org.deegree.securityproxy.usage.UsageStatistics.FAILURE;
+import static org.deegree.securityproxy.usage.UsageStatistics.FILTERED;
+import static org.deegree.securityproxy.usage.UsageStatistics.FILTER_FAILED;
+import static org.deegree.securityproxy.usage.UsageStatistics.NOT_FILTERED;
+import static org.deegree.securityproxy.usage.UsageStatistics.SUCCESS;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.deegree.securityproxy.request.OwsRequest;
+import org.deegree.securityproxy.responsefilter.logging.DefaultResponseFilterReport;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests for {@link UsageStatistics}.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class UsageStatisticsTest {
+
+    private final UsageSnapshotWriter snapshotWriter = mock( UsageSnapshotWriter.class );
+
+    private UsageStatistics usageStatistics;
+
+    @After
+    public void closeStatistics() {
+        if ( usageStatistics != null )
+            usageStatistics.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorEnabledWithoutWriterShouldFail() {
+        new UsageStatistics( null, 0, true );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorWithNegativeIntervalShouldFail() {
+        new UsageStatistics( snapshotWriter, -1, true );
+    }
+
+    @Test
+    public void testDisabledStatisticsCountNothing()
+                            throws Exception {
+        usageStatistics = new UsageStatistics( snapshotWriter, 0, false );
+
+        usageStatistics.countRequest( "user", createRequest( "layer" ), SUCCESS );
+        usageStatistics.flush();
+
+        assertThat( usageStatistics.getCounts().isEmpty(), is( true ) );
+        verify( snapshotWriter, never() ).write( anyLong(), anyLong(), anyMapOf( UsageKey.class, Long.class ) );
+    }
+
+    @Test
+    public void testCountRequestCountsEachLayer() {
+        usageStatistics = new UsageStatistics( snapshotWriter, 0, true );
+
+        usageStatistics.countRequest( "user", createRequest( "layer1", "layer2" ), SUCCESS );
+        usageStatistics.countRequest( "user", createRequest( "layer1" ), SUCCESS );
+
+        Map<UsageKey, Long> counts = usageStatistics.getCounts();
+        assertThat( counts.size(), is( 2 ) );
+        assertThat( counts.get( createKey( "user", "layer1", SUCCESS ) ), is( 2L ) );
+        assertThat( counts.get( createKey( "user", "layer2", SUCCESS ) ), is( 1L ) );
+    }
+
+    @Test
+    public void testCountRequestWithoutLayer() {
+        usageStatistics = new UsageStatistics( snapshotWriter, 0, true );
+
+        usageStatistics.countRequest( "user", createRequest(), DENIED );
+
+        assertThat( usageStatistics.getCounts().get( createKey( "user", null, DENIED ) ), is( 1L ) );
+    }
+
+    @Test
+    public void testCountRequestWithoutParsedRequest() {
+        usageStatistics = new UsageStatistics( snapshotWriter, 0, true );
+
+        usageStatistics.countRequest( null, null, FAILURE );
+
+        UsageKey key = new UsageKey( null, null, null, null, null, FAILURE );
+        assertThat( usageStatistics.getCounts().get( key ), is( 1L ) );
+    }
+
+    @Test
+    public void testCountFilterReport() {
+        usageStatistics = new UsageStatistics( snapshotWriter, 0, true );
+        OwsRequest request = createRequest( "layer" );
+
+        usageStatistics.countFilterReport( "user", request, new DefaultResponseFilterReport( "filtered", true ) );
+        usageStatistics.countFilterReport( "user", request, new DefaultResponseFilterReport( "not filtered", false ) );
+        usageStatistics.countFilterReport( "user", request, new DefaultResponseFilterReport( "failed" ) );
+
+        Map<UsageKey, Long> counts = usageStatistics.getCounts();
+        assertThat( counts.get( createKey( "user", "layer", FILTERED ) ), is( 1L ) );
+        assertThat( counts.get( createKey( "user", "layer", NOT_FILTERED ) ), is( 1L ) );
+        assertThat( counts.get( createKey( "user", "layer", FILTER_FAILED ) ), is( 1L ) );
+    }
+
+    @Test
+    public void testFlushWritesSnapshotAndResetsCounts()
+                            throws Exception {
+        usageStatistics = new UsageStatistics( snapshotWriter, 0, true );
+        usageStatistics.countRequest( "user", createRequest( "layer" ), SUCCESS );
+
+        usageStatistics.flush();
+
+        Map<UsageKey, Long> expected = new HashMap<UsageKey, Long>();
+        expected.put( createKey( "user", "layer", SUCCESS ), 1L );
+        verify( snapshotWriter ).write( anyLong(), anyLong(), eq( expected ) );
+        assertThat( usageStatistics.getCounts().isEmpty(), is( true ) );
+        assertThat( usageStatistics.getWrittenSnapshots(), is( 1L ) );
+    }
+
+    @Test
+    public void testFlushRemovesIdleCounters() {
+        usageStatistics = new UsageStatistics( snapshotWriter, 0, true );
+        usageStatistics.countRequest( "user", createRequest( "layer" ), SUCCESS );
+
+        usageStatistics.flush();
+        assertThat( usageStatistics.getCounters(), is( 1 ) );
+        usageStatistics.flush();
+
+        assertThat( usageStatistics.getCounters(), is( 0 ) );
+    }
+
+    @Test
+    public void testFlushWithoutCountsWritesNoSnapshot()
+                            throws Exception {
+        usageStatistics = new UsageStatistics( snapshotWriter, 0, true );
+
+        usageStatistics.flush();
+
+        verify( snapshotWriter, never() ).write( anyLong(), anyLong(), anyMapOf( UsageKey.class, Long.class ) );
+    }
+
+    @Test
+    public void testFailedFlushKeepsCounts()
+                            throws Exception {
+        usageStatistics = new UsageStatistics( snapshotWriter, 0, true );
+        doThrow( new IOException( "failed" ) ).when( snapshotWriter ).write( anyLong(), anyLong(),
+                                                                              anyMapOf( UsageKey.class, Long.class ) );
+        usageStatistics.countRequest( "user", createRequest( "layer" ), SUCCESS );
+
+        usageStatistics.flush();
+
+        assertThat( usageStatistics.getCounts().get( createKey( "user", "layer", SUCCESS ) ), is( 1L ) );
+        assertThat( usageStatistics.getFailedSnapshots(), is( 1L ) );
+        assertThat( usageStatistics.getWrittenSnapshots(), is( 0L ) );
+    }
+
+    @Test
+    public void testCountAfterFlushIsNotLost() {
+        usageStatistics = new UsageStatistics( snapshotWriter, 0, true );
+        OwsRequest request = createRequest( "layer" );
+        usageStatistics.countRequest( "user", request, SUCCESS );
+        usageStatistics.flush();
+        usageStatistics.flush();
+
+        usageStatistics.countRequest( "user", request, SUCCESS );
+
+        assertThat( usageStatistics.getCounts().get( createKey( "user", "layer", SUCCESS ) ), is( 1L ) );
+    }
+
+    @Test
+    public void testCloseWritesPendingCounts()
+                            throws Exception {
+        usageStatistics = new UsageStatistics( snapshotWriter, 60000, true );
+        usageStatistics.countRequest( "user", createRequest( "layer" ), SUCCESS );
+
+        usageStatistics.close();
+
+        verify( snapshotWriter ).write( anyLong(), anyLong(), anyMapOf( UsageKey.class, Long.class ) );
+    }
+
+    private OwsRequest createRequest( String... layerNames ) {
+        List<String> layers = layerNames.length > 0 ? asList( layerNames ) : Collections.<String> emptyList();
+        OwsRequest request = mock( OwsRequest.class );
+        when( request.getServiceType() ).thenReturn( "wms" );
+        when( request.getServiceName() ).thenReturn( "service" );
+        when( request.getOperationType() ).thenReturn( "GetMap" );
+        when( request.getLayerNames() ).thenReturn( layers );
+        return request;
+    }
+
+    private UsageKey createKey( String userName, String layerName, String outcome ) {
+        return new UsageKey( userName, "wms", "service", "GetMap", layerName, outcome );
+    }
+
+}
@@ -0,0 +1,127 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.xml;
+
+import static org.deegree.securityproxy.xml.XmlFactories.getEventFactory;
+import static org.deegree.securityproxy.xml.XmlFactories.getInputFactory;
+import static org.deegree.securityproxy.xml.XmlFactories.getOutputFactory;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.StringWriter;
+
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class XmlFactoriesTest {
+
+    private static final String DOCUMENT_WITH_DOCTYPE = "<!DOCTYPE WMT_MS_Capabilities SYSTEM "
+                                                        + "\"http://schemas.opengis.net/wms/1.1.1/WMS_MS_Capabilities.dtd\">"
+                                                        + "<WMT_MS_Capabilities version=\"1.1.1\"><Service/>"
+                                                        + "</WMT_MS_Capabilities>";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testFactoriesAreShared() {
+        assertThat( getInputFactory(), is( sameInstance( getInputFactory() ) ) );
+        assertThat( getOutputFactory(), is( sameInstance( getOutputFactory() ) ) );
+        assertThat( getEventFactory(), is( sameInstance( getEventFactory() ) ) );
+    }
+
+    @Test
+    public void testInputFactoryDoesNotSupportDtdAndExternalEntities() {
+        assertThat( (Boolean) getInputFactory().getProperty( XMLInputFactory.SUPPORT_DTD ), is( false ) );
+        assertThat( (Boolean) getInputFactory().getProperty( XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES ),
+                    is( false ) );
+    }
+
+    @Test
+    public void testInputFactoryShouldNotResolveExternalEntities()
+                    throws Exception {
+        File secret = folder.newFile( "secret.txt" );
+        FileUtils.writeStringToFile( secret, "secret content" );
+        String document = "<!DOCTYPE a [<!ENTITY x SYSTEM \"" + secret.toURI() + "\">]><a>&x;</a>";
+
+        String text;
+        try {
+            XMLStreamReader reader = getInputFactory().createXMLStreamReader( new ByteArrayInputStream(
+                                                                                document.getBytes() ) );
+            while ( !reader.isStartElement() )
+                reader.next();
+            text = reader.getElementText();
+        } catch ( XMLStreamException e ) {
+            // rejecting the entity is fine as well
+            text = "";
+        }
+        assertThat( text, not( containsString( "secret content" ) ) );
+    }
+
+    @Test
+    public void testCopyOfDocumentWithDoctypeShouldKeepDoctype()
+                    throws Exception {
+        XMLEventReader reader = getInputFactory().createXMLEventReader( new ByteArrayInputStream(
+                                                                            DOCUMENT_WITH_DOCTYPE.getBytes() ) );
+        StringWriter copy = new StringWriter();
+        XMLEventWriter writer = getOutputFactory().createXMLEventWriter( copy );
+        while ( reader.hasNext() )
+            writer.add( reader.nextEvent() );
+        writer.close();
+
+        assertThat( copy.toString(), containsString( "<!DOCTYPE WMT_MS_Capabilities" ) );
+        assertThat( copy.toString(), containsString( "<Service" ) );
+    }
+
+}
@@ -0,0 +1,117 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.loadtest;
+
+import java.util.EnumSet;
+
+import org.eclipse.jetty.server.DispatcherType;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.servlet.DefaultServlet;
+import org.eclipse.jetty.servlet.FilterHolder;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.springframework.web.context.ContextLoaderListener;
+import org.springframework.web.filter.DelegatingFilterProxy;
+
+/**
+ * Runs the proxy in an embedded servlet container, configured as in the web.xml of the webservice module. The
+ * configuration is read from the directory referenced by the system property PROXY_CONFIG.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+final class EmbeddedProxy {
+
+    private static final String CONTEXT_CONFIG_LOCATION = "classpath*:applicationContext.xml,"
+                                                          + "classpath*:authenticationContext.xml,"
+                                                          + "classpath*:wmsContext.xml,classpath*:wcsContext.xml,"
+                                                          + "classpath*:wpsContext.xml,classpath*:wfsContext.xml";
+
+    private static final String[] FILTER_NAMES = { "springSecurityFilterChain", "backendForwardingFilter" };
+
+    private final Server server;
+
+    /**
+     * @param port
+     *            the port to listen on, 0 to choose a free port
+     */
+    EmbeddedProxy( int port ) {
+        server = new Server( port );
+        ServletContextHandler context = new ServletContextHandler( ServletContextHandler.NO_SESSIONS );
+        context.setContextPath( "/" );
+        context.setInitParameter( "contextConfigLocation", CONTEXT_CONFIG_LOCATION );
+        context.addEventListener( new ContextLoaderListener() );
+        addFilter( context, "metricsEndpointFilter", "/metrics" );
+        for ( String filterName : FILTER_NAMES )
+            addFilter( context, filterName, "/*" );
+        context.addServlet( DefaultServlet.class, "/" );
+        server.setHandler( context );
+    }
+
+    /**
+     * Starts the servlet container and the application context of the proxy.
+     * 
+     * @throws Exception
+     *             if the proxy could not be started
+     */
+    void start()
+                    throws Exception {
+        server.start();
+    }
+
+    /**
+     * @throws Exception
+     *             if the proxy could not be stopped
+     */
+    void stop()
+                    throws Exception {
+        server.stop();
+    }
+
+    /**
+     * @return the url of the services, e.g. http://localhost:8080/services, never <code>null</code>
+     */
+    String getServicesUrl() {
+        return "http://localhost:" + server.getConnectors()[0].getLocalPort() + "/services";
+    }
+
+    private void addFilter( ServletContextHandler context, String filterName, String pathSpec ) {
+        FilterHolder filter = new FilterHolder( DelegatingFilterProxy.class );
+        filter.setName( filterName );
+        context.addFilter( filter, pathSpec, EnumSet.of( DispatcherType.REQUEST ) );
+    }
+
+}
@@ -0,0 +1,149 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.loadtest;
+
+import static java.util.Arrays.copyOf;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+/**
+ * Records the latencies of the responses per label. A recorder is used by a single thread, the recorders of all
+ * threads are merged when the measurement is finished.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+final class LatencyRecorder {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final Map<String, Latencies> latenciesByLabel = new TreeMap<String, Latencies>();
+
+    /**
+     * @param label
+     *            the label of the request, never <code>null</code>
+     * @param latency
+     *            the latency of the response in nanoseconds
+     * @param isSuccessful
+     *            <code>false</code> if the request failed
+     */
+    void record( String label, long latency, boolean isSuccessful ) {
+        Latencies latencies = latenciesByLabel.get( label );
+        if ( latencies == null ) {
+            latencies = new Latencies();
+            latenciesByLabel.put( label, latencies );
+        }
+        latencies.add( latency, isSuccessful );
+    }
+
+    /**
+     * Adds the latencies recorded by another recorder to this recorder.
+     * 
+     * @param recorder
+     *            the recorder to merge, never <code>null</code>
+     */
+    void merge( LatencyRecorder recorder ) {
+        for ( Entry<String, Latencies> latencies : recorder.latenciesByLabel.entrySet() ) {
+            Latencies mergedLatencies = latenciesByLabel.get( latencies.getKey() );
+            if ( mergedLatencies == null ) {
+                mergedLatencies = new Latencies();
+                latenciesByLabel.put( latencies.getKey(), mergedLatencies );
+            }
+            mergedLatencies.addAll( latencies.getValue() );
+        }
+    }
+
+    /**
+     * @return the statistics of each label sorted by label, may be empty but never <code>null</code>
+     */
+    List<LatencyStatistics> createStatistics() {
+        List<LatencyStatistics> statistics = new ArrayList<LatencyStatistics>();
+        for ( Entry<String, Latencies> latencies : latenciesByLabel.entrySet() ) {
+            Latencies values = latencies.getValue();
+            statistics.add( new LatencyStatistics( latencies.getKey(), copyOf( values.values, values.size ),
+                            values.failures ) );
+        }
+        return Collections.unmodifiableList( statistics );
+    }
+
+    /**
+     * @param label
+     *            the label of the statistics, never <code>null</code>
+     * @return the statistics of all labels, never <code>null</code>
+     */
+    LatencyStatistics createTotalStatistics( String label ) {
+        Latencies total = new Latencies();
+        for ( Latencies latencies : latenciesByLabel.values() )
+            total.addAll( latencies );
+        return new LatencyStatistics( label, copyOf( total.values, total.size ), total.failures );
+    }
+
+    private static class Latencies {
+
+        private long[] values = new long[INITIAL_CAPACITY];
+
+        private int size;
+
+        private int failures;
+
+        private void add( long latency, boolean isSuccessful ) {
+            ensureCapacity( size + 1 );
+            values[size++] = latency;
+            if ( !isSuccessful )
+                failures++;
+        }
+
+        private void addAll( Latencies latencies ) {
+            ensureCapacity( size + latencies.size );
+            System.arraycopy( latencies.values, 0, values, size, latencies.size );
+            size += latencies.size;
+            failures += latencies.failures;
+        }
+
+        private void ensureCapacity( int capacity ) {
+            if ( capacity > values.length )
+                values = copyOf( values, Math.max( capacity, values.length * 2 ) );
+        }
+
+    }
+
+}
@@ -0,0 +1,111 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.loadtest;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * Prints throughput and latency percentiles of each service and operation and of all requests.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+final class LatencyReport {
+
+    private static final String FORMAT = "%-28s %10s %8s %12s %10s %10s %10s%n";
+
+    private static final double NANOS_PER_MILLI = MILLISECONDS.toNanos( 1 );
+
+    private final List<LatencyStatistics> statistics;
+
+    private final LatencyStatistics totalStatistics;
+
+    private final long duration;
+
+    /**
+     * @param recorder
+     *            contains the latencies of all threads, never <code>null</code>
+     * @param duration
+     *            duration of the measurement in nanoseconds, greater than 0
+     */
+    LatencyReport( LatencyRecorder recorder, long duration ) {
+        this.statistics = recorder.createStatistics();
+        this.totalStatistics = recorder.createTotalStatistics( "all" );
+        this.duration = duration;
+    }
+
+    /**
+     * @return the statistics of each service and operation, may be empty but never <code>null</code>
+     */
+    List<LatencyStatistics> getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * @return the statistics of all requests, never <code>null</code>
+     */
+    LatencyStatistics getTotalStatistics() {
+        return totalStatistics;
+    }
+
+    /**
+     * @param out
+     *            the stream to print the report in, never <code>null</code>
+     */
+    void print( PrintStream out ) {
+        out.printf( FORMAT, "service operation", "requests", "failed", "requests/s", "p50 ms", "p99 ms", "p999 ms" );
+        for ( LatencyStatistics labelStatistics : statistics )
+            print( out, labelStatistics );
+        print( out, totalStatistics );
+    }
+
+    private void print( PrintStream out, LatencyStatistics labelStatistics ) {
+        out.printf( FORMAT, labelStatistics.getLabel(), labelStatistics.getNumberOfRequests(),
+                    labelStatistics.getNumberOfFailures(),
+                    String.format( "%.1f", labelStatistics.getThroughput( duration ) ),
+                    asMillis( labelStatistics.getPercentile( 50 ) ), asMillis( labelStatistics.getPercentile( 99 ) ),
+                    asMillis( labelStatistics.getPercentile( 99.9 ) ) );
+    }
+
+    private String asMillis( long nanos ) {
+        return String.format( "%.2f", nanos / NANOS_PER_MILLI );
+    }
+
+}
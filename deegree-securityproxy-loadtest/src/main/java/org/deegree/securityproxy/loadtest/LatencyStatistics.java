@@ -0,0 +1,117 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.loadtest;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.util.Arrays;
+
+/**
+ * Number of requests, failures and latency percentiles of the responses recorded for a label.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+final class LatencyStatistics {
+
+    private final String label;
+
+    private final long[] sortedLatencies;
+
+    private final int failures;
+
+    /**
+     * @param label
+     *            the label, never <code>null</code>
+     * @param latencies
+     *            the latencies in nanoseconds, the array is sorted, never <code>null</code>
+     * @param failures
+     *            the number of failed requests
+     */
+    LatencyStatistics( String label, long[] latencies, int failures ) {
+        this.label = label;
+        this.sortedLatencies = latencies;
+        this.failures = failures;
+        Arrays.sort( sortedLatencies );
+    }
+
+    /**
+     * @return the label, never <code>null</code>
+     */
+    String getLabel() {
+        return label;
+    }
+
+    /**
+     * @return the number of requests
+     */
+    int getNumberOfRequests() {
+        return sortedLatencies.length;
+    }
+
+    /**
+     * @return the number of failed requests
+     */
+    int getNumberOfFailures() {
+        return failures;
+    }
+
+    /**
+     * @param duration
+     *            duration of the measurement in nanoseconds, greater than 0
+     * @return the number of requests per second
+     */
+    double getThroughput( long duration ) {
+        return (double) sortedLatencies.length * SECONDS.toNanos( 1 ) / duration;
+    }
+
+    /**
+     * Calculates a percentile with the nearest rank method.
+     * 
+     * @param percentile
+     *            the percentile, greater than 0 and less or equal than 100, e.g. 99.9
+     * @return the latency in nanoseconds not exceeded by the given percentage of the requests, 0 if no request was
+     *         recorded
+     */
+    long getPercentile( double percentile ) {
+        if ( sortedLatencies.length == 0 )
+            return 0;
+        int rank = (int) Math.ceil( percentile * sortedLatencies.length / 100 );
+        return sortedLatencies[Math.max( rank, 1 ) - 1];
+    }
+
+}
@@ -0,0 +1,199 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.loadtest;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.apache.commons.io.IOUtils.closeQuietly;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+import org.apache.log4j.Logger;
+
+/**
+ * Sends the requests of a {@link RequestMix} with a fixed number of concurrent clients to the proxy and records the
+ * latency of each response. Responses received during the warmup are not recorded.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+final class LoadGenerator {
+
+    private static final Logger LOG = Logger.getLogger( LoadGenerator.class );
+
+    private final String servicesUrl;
+
+    private final String accessTokenHeader;
+
+    private final String accessToken;
+
+    private final RequestMix requestMix;
+
+    private final int numberOfThreads;
+
+    /**
+     * @param servicesUrl
+     *            the url of the services of the proxy, e.g. http://localhost:8080/services, never <code>null</code>
+     * @param accessTokenHeader
+     *            the name of the header containing the access token, never <code>null</code>
+     * @param accessToken
+     *            the access token sent with each request, never <code>null</code>
+     * @param requestMix
+     *            the requests to send, never <code>null</code>
+     * @param numberOfThreads
+     *            the number of concurrent clients, greater than 0
+     */
+    LoadGenerator( String servicesUrl, String accessTokenHeader, String accessToken, RequestMix requestMix,
+                   int numberOfThreads ) {
+        this.servicesUrl = servicesUrl;
+        this.accessTokenHeader = accessTokenHeader;
+        this.accessToken = accessToken;
+        this.requestMix = requestMix;
+        this.numberOfThreads = numberOfThreads;
+    }
+
+    /**
+     * Sends requests until warmup and measurement are finished.
+     * 
+     * @param warmup
+     *            duration of the warmup in milliseconds, 0 if no warmup is required
+     * @param duration
+     *            duration of the measurement in milliseconds, greater than 0
+     * @return the report of the measurement, never <code>null</code>
+     * @throws InterruptedException
+     *             if the thread was interrupted while waiting for the clients
+     */
+    LatencyReport run( long warmup, long duration )
+                    throws InterruptedException {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal( numberOfThreads );
+        connectionManager.setDefaultMaxPerRoute( numberOfThreads );
+        CloseableHttpClient client = HttpClients.custom().setConnectionManager( connectionManager ).build();
+        ExecutorService executor = Executors.newFixedThreadPool( numberOfThreads );
+        try {
+            long start = System.nanoTime();
+            long measurementStart = start + MILLISECONDS.toNanos( warmup );
+            long measurementEnd = measurementStart + MILLISECONDS.toNanos( duration );
+            List<Future<LatencyRecorder>> results = new ArrayList<Future<LatencyRecorder>>();
+            for ( int thread = 0; thread < numberOfThreads; thread++ )
+                results.add( executor.submit( new Client( client, new Random( start + thread ), measurementStart,
+                                                          measurementEnd ) ) );
+            LatencyRecorder recorder = new LatencyRecorder();
+            for ( Future<LatencyRecorder> result : results )
+                recorder.merge( retrieve( result ) );
+            return new LatencyReport( recorder, MILLISECONDS.toNanos( duration ) );
+        } finally {
+            executor.shutdownNow();
+            closeQuietly( client );
+        }
+    }
+
+    private LatencyRecorder retrieve( Future<LatencyRecorder> result )
+                    throws InterruptedException {
+        try {
+            return result.get();
+        } catch ( ExecutionException e ) {
+            throw new IllegalStateException( "Client failed: " + e.getCause().getMessage(), e.getCause() );
+        }
+    }
+
+    private class Client implements Callable<LatencyRecorder> {
+
+        private final CloseableHttpClient client;
+
+        private final Random random;
+
+        private final long measurementStart;
+
+        private final long measurementEnd;
+
+        private Client( CloseableHttpClient client, Random random, long measurementStart, long measurementEnd ) {
+            this.client = client;
+            this.random = random;
+            this.measurementStart = measurementStart;
+            this.measurementEnd = measurementEnd;
+        }
+
+        @Override
+        public LatencyRecorder call() {
+            LatencyRecorder recorder = new LatencyRecorder();
+            long requestStart;
+            while ( ( requestStart = System.nanoTime() ) < measurementEnd && !Thread.currentThread().isInterrupted() ) {
+                LoadTestRequest request = requestMix.select( random );
+                boolean isSuccessful = send( request );
+                if ( requestStart >= measurementStart )
+                    recorder.record( request.getLabel(), System.nanoTime() - requestStart, isSuccessful );
+            }
+            return recorder;
+        }
+
+        private boolean send( LoadTestRequest request ) {
+            HttpUriRequest httpRequest = request.createHttpRequest( servicesUrl );
+            httpRequest.setHeader( accessTokenHeader, accessToken );
+            CloseableHttpResponse response = null;
+            try {
+                response = client.execute( httpRequest );
+                EntityUtils.consume( response.getEntity() );
+                int statusCode = response.getStatusLine().getStatusCode();
+                if ( statusCode != HttpStatus.SC_OK )
+                    LOG.debug( request.getLabel() + " failed with status " + statusCode );
+                return statusCode == HttpStatus.SC_OK;
+            } catch ( IOException e ) {
+                LOG.debug( request.getLabel() + " failed: " + e.getMessage() );
+                return false;
+            } finally {
+                closeQuietly( response );
+            }
+        }
+
+    }
+
+}
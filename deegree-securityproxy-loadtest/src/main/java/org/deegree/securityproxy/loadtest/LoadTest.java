@@ -0,0 +1,209 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.loadtest;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.apache.commons.io.IOUtils.closeQuietly;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.util.Properties;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Measures throughput and latency of the proxy end to end: the proxy runs in an embedded servlet container, the
+ * permissions are read from an in-memory database and all services are answered by a stub backend. The clients send
+ * the requests of a weighted request mix and the throughput and latency percentiles are printed per service and
+ * operation.
+ * <p>
+ * The defaults of the load test are read from loadtest.properties, a properties file passed as first argument
+ * overrides them. Entries prefixed with 'proxy.' override the configuration of the proxy.
+ * </p>
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public final class LoadTest {
+
+    private static final String DEFAULTS = "loadtest.properties";
+
+    private static final String BACKEND_RESPONSES = "backend_responses.properties";
+
+    private static final String PROXY_CONFIG_TEMPLATE = "proxy_config.properties";
+
+    private static final String PROXY_CONFIG_PREFIX = "proxy.";
+
+    private static final String ACCESS_TOKEN_HEADER = "access_token_header_field_name";
+
+    private LoadTest() {
+    }
+
+    /**
+     * @param args
+     *            optional path of a properties file overriding the defaults
+     * @throws Exception
+     *             if the load test failed
+     */
+    public static void main( String[] args )
+                    throws Exception {
+        Properties settings = readResource( DEFAULTS );
+        if ( args.length > 0 )
+            settings.putAll( readFile( new File( args[0] ) ) );
+        RequestMix requestMix = readRequestMix( settings.getProperty( "request_mix" ) );
+
+        StubBackendServer backend = new StubBackendServer( getInt( settings, "backend_port" ),
+                                                           readResource( BACKEND_RESPONSES ),
+                                                           getInt( settings, "backend_latency" ) );
+        PermissionDatabase permissionDatabase = new PermissionDatabase();
+        File configDirectory = createTempDirectory();
+        EmbeddedProxy proxy = new EmbeddedProxy( getInt( settings, "proxy_port" ) );
+        try {
+            backend.start();
+            permissionDatabase.open( backend.getUrl() );
+            Properties proxyConfig = writeProxyConfig( configDirectory, settings, backend.getUrl() );
+            System.setProperty( "PROXY_CONFIG", configDirectory.getAbsolutePath() );
+            proxy.start();
+
+            LoadGenerator loadGenerator = new LoadGenerator( proxy.getServicesUrl(),
+                                                             proxyConfig.getProperty( ACCESS_TOKEN_HEADER ),
+                                                             settings.getProperty( "access_token" ), requestMix,
+                                                             getInt( settings, "threads" ) );
+            System.out.println( "Sending requests with " + settings.getProperty( "threads" ) + " clients to "
+                                + proxy.getServicesUrl() + ": " + settings.getProperty( "warmup" )
+                                + " s warmup, " + settings.getProperty( "duration" ) + " s measurement" );
+            LatencyReport report = loadGenerator.run( SECONDS.toMillis( getInt( settings, "warmup" ) ),
+                                                      SECONDS.toMillis( getInt( settings, "duration" ) ) );
+            report.print( System.out );
+        } finally {
+            proxy.stop();
+            permissionDatabase.close();
+            backend.stop();
+            FileUtils.deleteQuietly( configDirectory );
+        }
+    }
+
+    private static Properties writeProxyConfig( File configDirectory, Properties settings, String backendUrl )
+                    throws IOException {
+        InputStream template = LoadTest.class.getResourceAsStream( PROXY_CONFIG_TEMPLATE );
+        String config;
+        try {
+            config = IOUtils.toString( template, "ISO-8859-1" );
+        } finally {
+            closeQuietly( template );
+        }
+        config = config.replace( "${backend_url}", backendUrl );
+        config = config.replace( "${jdbc_driver}", PermissionDatabase.DRIVER );
+        config = config.replace( "${jdbc_url}", PermissionDatabase.JDBC_URL );
+        config = config.replace( "${jdbc_username}", PermissionDatabase.USER_NAME );
+        config = config.replace( "${jdbc_validation_query}", PermissionDatabase.VALIDATION_QUERY );
+        Properties proxyConfig = new Properties();
+        proxyConfig.load( new StringReader( config ) );
+        for ( String key : settings.stringPropertyNames() ) {
+            if ( key.startsWith( PROXY_CONFIG_PREFIX ) )
+                proxyConfig.setProperty( key.substring( PROXY_CONFIG_PREFIX.length() ), settings.getProperty( key ) );
+        }
+        OutputStream out = new FileOutputStream( new File( configDirectory, "config.properties" ) );
+        try {
+            proxyConfig.store( out, "configuration of the proxy under test" );
+        } finally {
+            closeQuietly( out );
+        }
+        return proxyConfig;
+    }
+
+    private static RequestMix readRequestMix( String requestMix )
+                    throws IOException {
+        InputStream stream = LoadTest.class.getResourceAsStream( requestMix );
+        if ( stream == null )
+            stream = new FileInputStream( requestMix );
+        BufferedReader reader = new BufferedReader( new InputStreamReader( stream, "UTF-8" ) );
+        try {
+            return RequestMix.parse( reader );
+        } finally {
+            closeQuietly( reader );
+        }
+    }
+
+    private static File createTempDirectory()
+                    throws IOException {
+        File directory = File.createTempFile( "securityproxy-loadtest", "" );
+        if ( !directory.delete() || !directory.mkdir() )
+            throw new IOException( "Could not create configuration directory " + directory );
+        return directory;
+    }
+
+    private static Properties readResource( String resource )
+                    throws IOException {
+        InputStream stream = LoadTest.class.getResourceAsStream( resource );
+        try {
+            return read( stream );
+        } finally {
+            closeQuietly( stream );
+        }
+    }
+
+    private static Properties readFile( File file )
+                    throws IOException {
+        InputStream stream = new FileInputStream( file );
+        try {
+            return read( stream );
+        } finally {
+            closeQuietly( stream );
+        }
+    }
+
+    private static Properties read( InputStream stream )
+                    throws IOException {
+        Properties properties = new Properties();
+        properties.load( stream );
+        return properties;
+    }
+
+    private static int getInt( Properties settings, String key ) {
+        return Integer.parseInt( settings.getProperty( key ).trim() );
+    }
+
+}
@@ -0,0 +1,139 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.loadtest;
+
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+
+/**
+ * Request of a {@link RequestMix}, sent to the service with the given name. GET requests have a query string, POST
+ * requests an xml body.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+final class LoadTestRequest {
+
+    private final String serviceName;
+
+    private final String operation;
+
+    private final String queryString;
+
+    private final byte[] body;
+
+    private LoadTestRequest( String serviceName, String operation, String queryString, byte[] body ) {
+        this.serviceName = serviceName;
+        this.operation = operation;
+        this.queryString = queryString;
+        this.body = body;
+    }
+
+    /**
+     * @param serviceName
+     *            name of the service, never <code>null</code>
+     * @param operation
+     *            label of the operation used in the report, never <code>null</code>
+     * @param queryString
+     *            the encoded query string, never <code>null</code>
+     * @return a GET request, never <code>null</code>
+     */
+    static LoadTestRequest createGetRequest( String serviceName, String operation, String queryString ) {
+        return new LoadTestRequest( serviceName, operation, queryString, null );
+    }
+
+    /**
+     * @param serviceName
+     *            name of the service, never <code>null</code>
+     * @param operation
+     *            label of the operation used in the report, never <code>null</code>
+     * @param body
+     *            the xml body, never <code>null</code>
+     * @return a POST request, never <code>null</code>
+     */
+    static LoadTestRequest createPostRequest( String serviceName, String operation, byte[] body ) {
+        return new LoadTestRequest( serviceName, operation, null, body );
+    }
+
+    /**
+     * @return the name of the service, never <code>null</code>
+     */
+    String getServiceName() {
+        return serviceName;
+    }
+
+    /**
+     * @return the label of the operation, never <code>null</code>
+     */
+    String getOperation() {
+        return operation;
+    }
+
+    /**
+     * @return the label the latencies of this request are reported with, never <code>null</code>
+     */
+    String getLabel() {
+        return serviceName + " " + operation;
+    }
+
+    /**
+     * @return <code>true</code> if this is a POST request, <code>false</code> if it is a GET request
+     */
+    boolean isPost() {
+        return body != null;
+    }
+
+    /**
+     * @param servicesUrl
+     *            url of the services the service name is appended to, e.g. http://localhost:8080/services, never
+     *            <code>null</code>
+     * @return a new http request, never <code>null</code>
+     */
+    HttpUriRequest createHttpRequest( String servicesUrl ) {
+        String serviceUrl = servicesUrl + "/" + serviceName;
+        if ( isPost() ) {
+            HttpPost post = new HttpPost( serviceUrl );
+            post.setEntity( new ByteArrayEntity( body, ContentType.TEXT_XML ) );
+            return post;
+        }
+        return new HttpGet( serviceUrl + "?" + queryString );
+    }
+
+}
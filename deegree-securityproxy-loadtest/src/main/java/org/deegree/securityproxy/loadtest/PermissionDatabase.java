@@ -0,0 +1,133 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.loadtest;
+
+import static org.apache.commons.io.IOUtils.closeQuietly;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * In-memory HSQL database containing the permissions of the load test user. The database lives as long as it is
+ * opened.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+final class PermissionDatabase {
+
+    static final String DRIVER = "org.hsqldb.jdbcDriver";
+
+    static final String JDBC_URL = "jdbc:hsqldb:mem:permissions";
+
+    static final String USER_NAME = "sa";
+
+    static final String VALIDATION_QUERY = "SELECT COUNT(*) FROM INFORMATION_SCHEMA.SYSTEM_USERS";
+
+    private static final String SCRIPT = "permissions.sql";
+
+    private static final String BACKEND_URL_PLACEHOLDER = "${backend_url}";
+
+    private Connection connection;
+
+    /**
+     * Creates the database and inserts the permissions.
+     * 
+     * @param backendUrl
+     *            the url of the backend used as internal service url of the permissions, never <code>null</code>
+     * @throws SQLException
+     *             if the permissions could not be inserted
+     * @throws IOException
+     *             if the script could not be read
+     */
+    void open( String backendUrl )
+                    throws SQLException, IOException {
+        try {
+            Class.forName( DRIVER );
+        } catch ( ClassNotFoundException e ) {
+            throw new SQLException( "JDBC driver " + DRIVER + " is not available." );
+        }
+        connection = DriverManager.getConnection( JDBC_URL, USER_NAME, "" );
+        String script = readScript().replace( BACKEND_URL_PLACEHOLDER, backendUrl );
+        Statement statement = connection.createStatement();
+        try {
+            for ( String sql : script.split( ";" ) ) {
+                if ( !sql.trim().isEmpty() )
+                    statement.execute( sql );
+            }
+        } finally {
+            statement.close();
+        }
+    }
+
+    /**
+     * Shuts the database down.
+     * 
+     * @throws SQLException
+     *             if the database could not be shut down
+     */
+    void close()
+                    throws SQLException {
+        if ( connection == null )
+            return;
+        Statement statement = connection.createStatement();
+        try {
+            statement.execute( "SHUTDOWN" );
+        } finally {
+            statement.close();
+            connection.close();
+            connection = null;
+        }
+    }
+
+    private String readScript()
+                    throws IOException {
+        InputStream script = PermissionDatabase.class.getResourceAsStream( SCRIPT );
+        try {
+            return IOUtils.toString( script, "UTF-8" );
+        } finally {
+            closeQuietly( script );
+        }
+    }
+
+}
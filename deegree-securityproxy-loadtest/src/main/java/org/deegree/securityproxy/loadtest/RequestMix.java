@@ -0,0 +1,176 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.loadtest;
+
+import static java.util.Arrays.binarySearch;
+import static org.apache.commons.io.IOUtils.closeQuietly;
+import static org.apache.commons.io.IOUtils.toByteArray;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Weighted mix of the requests sent by the {@link LoadGenerator}. Each line of a request mix describes one request by
+ * its weight, the name of the service, the label of the operation, the method and either the query string of a GET
+ * request or the body of a POST request:
+ * 
+ * <pre>
+ * 40 wms GetMap GET SERVICE=WMS&amp;VERSION=1.3.0&amp;REQUEST=GetMap&amp;...
+ * 5 wps Execute POST /org/deegree/securityproxy/wps/request/parser/Execute.xml
+ * </pre>
+ * 
+ * The body is read from the classpath or, if there is no such resource, from the file system. Empty lines and lines
+ * starting with '#' are ignored.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+final class RequestMix {
+
+    private final List<LoadTestRequest> requests;
+
+    private final int[] cumulativeWeights;
+
+    private RequestMix( List<LoadTestRequest> requests, List<Integer> weights ) {
+        this.requests = Collections.unmodifiableList( requests );
+        this.cumulativeWeights = new int[weights.size()];
+        int totalWeight = 0;
+        for ( int index = 0; index < weights.size(); index++ ) {
+            totalWeight += weights.get( index );
+            cumulativeWeights[index] = totalWeight;
+        }
+    }
+
+    /**
+     * @param reader
+     *            the request mix, never <code>null</code>
+     * @return the parsed request mix, never <code>null</code>
+     * @throws IOException
+     *             if the request mix could not be read
+     * @throws IllegalArgumentException
+     *             if a line is invalid or the request mix does not contain a request
+     */
+    static RequestMix parse( BufferedReader reader )
+                    throws IOException {
+        List<LoadTestRequest> requests = new ArrayList<LoadTestRequest>();
+        List<Integer> weights = new ArrayList<Integer>();
+        String line;
+        int lineNumber = 0;
+        while ( ( line = reader.readLine() ) != null ) {
+            lineNumber++;
+            line = line.trim();
+            if ( line.isEmpty() || line.startsWith( "#" ) )
+                continue;
+            String[] fields = line.split( "\\s+", 5 );
+            if ( fields.length != 5 )
+                throw new IllegalArgumentException( "Line " + lineNumber + " of the request mix must contain "
+                                                    + "weight, service, operation, method and request: " + line );
+            weights.add( parseWeight( fields[0], lineNumber ) );
+            requests.add( createRequest( fields, lineNumber ) );
+        }
+        if ( requests.isEmpty() )
+            throw new IllegalArgumentException( "The request mix does not contain a request!" );
+        return new RequestMix( requests, weights );
+    }
+
+    /**
+     * @return the requests of this mix, never <code>null</code>
+     */
+    List<LoadTestRequest> getRequests() {
+        return requests;
+    }
+
+    /**
+     * Selects a request with a probability proportional to its weight.
+     * 
+     * @param random
+     *            source of the randomness, never <code>null</code>
+     * @return the selected request, never <code>null</code>
+     */
+    LoadTestRequest select( Random random ) {
+        int value = random.nextInt( cumulativeWeights[cumulativeWeights.length - 1] );
+        int index = binarySearch( cumulativeWeights, value + 1 );
+        if ( index < 0 )
+            index = -index - 1;
+        return requests.get( index );
+    }
+
+    private static int parseWeight( String weight, int lineNumber ) {
+        try {
+            int parsedWeight = Integer.parseInt( weight );
+            if ( parsedWeight > 0 )
+                return parsedWeight;
+        } catch ( NumberFormatException e ) {
+            // handled below
+        }
+        throw new IllegalArgumentException( "Weight in line " + lineNumber + " of the request mix must be a "
+                                            + "positive integer: " + weight );
+    }
+
+    private static LoadTestRequest createRequest( String[] fields, int lineNumber )
+                    throws IOException {
+        String serviceName = fields[1];
+        String operation = fields[2];
+        String method = fields[3];
+        if ( "GET".equalsIgnoreCase( method ) )
+            return LoadTestRequest.createGetRequest( serviceName, operation, fields[4] );
+        if ( "POST".equalsIgnoreCase( method ) )
+            return LoadTestRequest.createPostRequest( serviceName, operation, readBody( fields[4] ) );
+        throw new IllegalArgumentException( "Method in line " + lineNumber + " of the request mix must be GET or "
+                                            + "POST: " + method );
+    }
+
+    private static byte[] readBody( String location )
+                    throws IOException {
+        InputStream body = RequestMix.class.getResourceAsStream( location );
+        if ( body == null )
+            body = new FileInputStream( new File( location ) );
+        try {
+            return toByteArray( body );
+        } finally {
+            closeQuietly( body );
+        }
+    }
+
+}
@@ -0,0 +1,101 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.loadtest;
+
+import java.io.IOException;
+import java.util.Properties;
+
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+
+/**
+ * Servlet container running the {@link StubBackendServlet} used as backend of all services.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+final class StubBackendServer {
+
+    private final Server server;
+
+    /**
+     * @param port
+     *            the port to listen on, 0 to choose a free port
+     * @param responseConfiguration
+     *            the configured responses, never <code>null</code>
+     * @param latency
+     *            the time in milliseconds the backend waits before a response is written, 0 if the response is
+     *            written immediately
+     * @throws IOException
+     *             if a configured response could not be read
+     */
+    StubBackendServer( int port, Properties responseConfiguration, long latency ) throws IOException {
+        server = new Server( port );
+        ServletContextHandler context = new ServletContextHandler( ServletContextHandler.NO_SESSIONS );
+        context.setContextPath( "/backend" );
+        context.addServlet( new ServletHolder( new StubBackendServlet( responseConfiguration, latency ) ), "/*" );
+        server.setHandler( context );
+    }
+
+    /**
+     * @throws Exception
+     *             if the server could not be started
+     */
+    void start()
+                    throws Exception {
+        server.start();
+    }
+
+    /**
+     * @throws Exception
+     *             if the server could not be stopped
+     */
+    void stop()
+                    throws Exception {
+        server.stop();
+    }
+
+    /**
+     * @return the url of the backend, the name of the service is appended to request a service, never
+     *         <code>null</code>
+     */
+    String getUrl() {
+        return "http://localhost:" + server.getConnectors()[0].getLocalPort() + "/backend";
+    }
+
+}
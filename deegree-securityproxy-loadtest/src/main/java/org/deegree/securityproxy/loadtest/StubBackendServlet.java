@@ -0,0 +1,208 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.loadtest;
+
+import static javax.servlet.http.HttpServletResponse.SC_BAD_REQUEST;
+import static javax.servlet.http.HttpServletResponse.SC_NOT_FOUND;
+import static org.apache.commons.io.IOUtils.closeQuietly;
+import static org.apache.commons.io.IOUtils.toByteArray;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.deegree.securityproxy.xml.XmlFactories;
+
+/**
+ * Stub of an OGC service answering each operation with a fixed response. The service is identified by the path info
+ * of the request (e.g. /backend/wms), the operation by the REQUEST parameter of GET requests or by the root element
+ * of the body of POST requests. The responses are configured in a properties file with entries like
+ * 
+ * <pre>
+ * wms.getmap=image/png /org/deegree/securityproxy/wms/responsefilter/clipping/overview.png
+ * </pre>
+ * 
+ * where the key is the lower case name of the service and the operation and the value is the content type and the
+ * classpath resource of the response.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+final class StubBackendServlet extends HttpServlet {
+
+    private static final long serialVersionUID = -2357620118624934766L;
+
+    private static final String REQUEST_PARAMETER = "request";
+
+    private final Map<String, StubResponse> responses;
+
+    private final long latency;
+
+    /**
+     * @param responseConfiguration
+     *            the configured responses, never <code>null</code>
+     * @param latency
+     *            the time in milliseconds to wait before a response is written, 0 if the response is written
+     *            immediately
+     * @throws IOException
+     *             if a configured response could not be read
+     */
+    StubBackendServlet( Properties responseConfiguration, long latency ) throws IOException {
+        this.responses = readResponses( responseConfiguration );
+        this.latency = latency;
+    }
+
+    @Override
+    protected void doGet( HttpServletRequest request, HttpServletResponse response )
+                    throws ServletException, IOException {
+        respond( request.getPathInfo(), retrieveRequestParameter( request ), response );
+    }
+
+    @Override
+    protected void doPost( HttpServletRequest request, HttpServletResponse response )
+                    throws ServletException, IOException {
+        String operation;
+        try {
+            operation = parseRootElementName( request.getInputStream() );
+        } catch ( XMLStreamException e ) {
+            response.sendError( SC_BAD_REQUEST, "Body could not be parsed: " + e.getMessage() );
+            return;
+        }
+        respond( request.getPathInfo(), operation, response );
+    }
+
+    private void respond( String pathInfo, String operation, HttpServletResponse response )
+                    throws IOException {
+        StubResponse stubResponse = responses.get( createKey( pathInfo, operation ) );
+        if ( stubResponse == null ) {
+            response.sendError( SC_NOT_FOUND, "No response configured for " + operation + " at " + pathInfo );
+            return;
+        }
+        waitForLatency();
+        response.setContentType( stubResponse.contentType );
+        response.setContentLength( stubResponse.body.length );
+        response.getOutputStream().write( stubResponse.body );
+    }
+
+    private String createKey( String pathInfo, String operation ) {
+        if ( pathInfo == null || operation == null )
+            return null;
+        String service = pathInfo.startsWith( "/" ) ? pathInfo.substring( 1 ) : pathInfo;
+        return ( service + "." + operation ).toLowerCase( Locale.ENGLISH );
+    }
+
+    private String retrieveRequestParameter( HttpServletRequest request ) {
+        Map<?, ?> parameters = request.getParameterMap();
+        for ( Map.Entry<?, ?> parameter : parameters.entrySet() ) {
+            if ( REQUEST_PARAMETER.equalsIgnoreCase( (String) parameter.getKey() ) )
+                return ( (String[]) parameter.getValue() )[0];
+        }
+        return null;
+    }
+
+    private String parseRootElementName( InputStream body )
+                    throws XMLStreamException {
+        XMLStreamReader reader = XmlFactories.getInputFactory().createXMLStreamReader( body );
+        try {
+            reader.nextTag();
+            return reader.getLocalName();
+        } finally {
+            reader.close();
+        }
+    }
+
+    private void waitForLatency() {
+        if ( latency <= 0 )
+            return;
+        try {
+            TimeUnit.MILLISECONDS.sleep( latency );
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Map<String, StubResponse> readResponses( Properties responseConfiguration )
+                    throws IOException {
+        Map<String, StubResponse> responses = new HashMap<String, StubResponse>();
+        for ( String key : responseConfiguration.stringPropertyNames() ) {
+            String[] contentTypeAndResource = responseConfiguration.getProperty( key ).trim().split( "\\s+" );
+            if ( contentTypeAndResource.length != 2 )
+                throw new IllegalArgumentException( "Invalid response configuration of " + key
+                                                    + ", expected content type and resource." );
+            byte[] body = readResource( contentTypeAndResource[1] );
+            responses.put( key.toLowerCase( Locale.ENGLISH ), new StubResponse( contentTypeAndResource[0], body ) );
+        }
+        return responses;
+    }
+
+    private static byte[] readResource( String resource )
+                    throws IOException {
+        InputStream stream = StubBackendServlet.class.getResourceAsStream( resource );
+        if ( stream == null )
+            throw new IllegalArgumentException( "Response " + resource + " does not exist." );
+        try {
+            return toByteArray( stream );
+        } finally {
+            closeQuietly( stream );
+        }
+    }
+
+    private static class StubResponse {
+
+        private final String contentType;
+
+        private final byte[] body;
+
+        private StubResponse( String contentType, byte[] body ) {
+            this.contentType = contentType;
+            this.body = body;
+        }
+
+    }
+
+}
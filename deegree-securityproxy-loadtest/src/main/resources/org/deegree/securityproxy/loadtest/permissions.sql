@@ -0,0 +1,27 @@
+CREATE SCHEMA ows_system_admin AUTHORIZATION DBA;
+
+CREATE TABLE ows_system_admin.user_access_info (
+  access_token VARCHAR(255),
+  user_name VARCHAR(255),
+  password VARCHAR(255),
+  layer_service_type_name VARCHAR(255),
+  layer_service_type_version_hint VARCHAR(255),
+  ogc_layer_service_operation_type_name VARCHAR(255),
+  service_name VARCHAR(255),
+  internal_service_url VARCHAR(255),
+  service_layer_name VARCHAR(255),
+  subscription_start_date DATE,
+  subscription_end_date DATE,
+  user_layer_limited_to VARCHAR(4096),
+  contract_id VARCHAR(255)
+);
+
+INSERT INTO ows_system_admin.user_access_info VALUES ('loadtest', 'loadtest', 'loadtest', 'WMS', '<= 1.3.0', 'GetCapabilities', 'wms', '${backend_url}/wms', NULL, '2000-01-01', '2999-12-31', NULL, 'load');
+INSERT INTO ows_system_admin.user_access_info VALUES ('loadtest', 'loadtest', 'loadtest', 'WMS', '<= 1.3.0', 'GetMap', 'wms', '${backend_url}/wms', 'testdata_view', '2000-01-01', '2999-12-31', NULL, 'load');
+INSERT INTO ows_system_admin.user_access_info VALUES ('loadtest', 'loadtest', 'loadtest', 'WMS', '<= 1.3.0', 'GetMap', 'wms', '${backend_url}/wms', 'footprints', '2000-01-01', '2999-12-31', 'POLYGON((8.5 51.5, 9.5 51.5, 9.5 52.5, 8.5 52.5, 8.5 51.5))', 'load');
+INSERT INTO ows_system_admin.user_access_info VALUES ('loadtest', 'loadtest', 'loadtest', 'WCS', '<= 1.0.0', 'GetCapabilities', 'wcs', '${backend_url}/wcs', NULL, '2000-01-01', '2999-12-31', NULL, 'load');
+INSERT INTO ows_system_admin.user_access_info VALUES ('loadtest', 'loadtest', 'loadtest', 'WCS', '<= 1.0.0', 'DescribeCoverage', 'wcs', '${backend_url}/wcs', 'testdata_raw', '2000-01-01', '2999-12-31', NULL, 'load');
+INSERT INTO ows_system_admin.user_access_info VALUES ('loadtest', 'loadtest', 'loadtest', 'WCS', '<= 1.0.0', 'GetCoverage', 'wcs', '${backend_url}/wcs', 'testdata_raw', '2000-01-01', '2999-12-31', NULL, 'load');
+INSERT INTO ows_system_admin.user_access_info VALUES ('loadtest', 'loadtest', 'loadtest', 'WPS', '<= 1.0.0', 'GetCapabilities', 'wps', '${backend_url}/wps', NULL, '2000-01-01', '2999-12-31', NULL, 'load');
+INSERT INTO ows_system_admin.user_access_info VALUES ('loadtest', 'loadtest', 'loadtest', 'WPS', '<= 1.0.0', 'DescribeProcess', 'wps', '${backend_url}/wps', 'Buffer', '2000-01-01', '2999-12-31', NULL, 'load');
+INSERT INTO ows_system_admin.user_access_info VALUES ('loadtest', 'loadtest', 'loadtest', 'WPS', '<= 1.0.0', 'Execute', 'wps', '${backend_url}/wps', 'Buffer', '2000-01-01', '2999-12-31', NULL, 'load');
@@ -0,0 +1,119 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.loadtest;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link LatencyStatistics} created by a {@link LatencyRecorder}.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class LatencyStatisticsTest {
+
+    @Test
+    public void testGetPercentile() {
+        LatencyStatistics statistics = new LatencyStatistics( "wms GetMap", createLatencies( 1000 ), 0 );
+
+        assertThat( statistics.getPercentile( 50 ), is( 500L ) );
+        assertThat( statistics.getPercentile( 99 ), is( 990L ) );
+        assertThat( statistics.getPercentile( 99.9 ), is( 999L ) );
+        assertThat( statistics.getPercentile( 100 ), is( 1000L ) );
+    }
+
+    @Test
+    public void testGetPercentileOfUnsortedLatencies() {
+        LatencyStatistics statistics = new LatencyStatistics( "wms GetMap", new long[] { 30, 10, 20 }, 0 );
+
+        assertThat( statistics.getPercentile( 50 ), is( 20L ) );
+        assertThat( statistics.getPercentile( 99.9 ), is( 30L ) );
+    }
+
+    @Test
+    public void testGetPercentileWithoutLatencies() {
+        LatencyStatistics statistics = new LatencyStatistics( "wms GetMap", new long[0], 0 );
+
+        assertThat( statistics.getPercentile( 99 ), is( 0L ) );
+    }
+
+    @Test
+    public void testGetThroughput() {
+        LatencyStatistics statistics = new LatencyStatistics( "wms GetMap", createLatencies( 1000 ), 0 );
+
+        assertThat( statistics.getThroughput( SECONDS.toNanos( 4 ) ), is( 250.0 ) );
+    }
+
+    @Test
+    public void testMergedRecorders() {
+        LatencyRecorder recorder = new LatencyRecorder();
+        recorder.record( "wms GetMap", 10, true );
+        recorder.record( "wcs GetCoverage", 20, false );
+        LatencyRecorder otherRecorder = new LatencyRecorder();
+        for ( int latency = 1; latency <= 2000; latency++ )
+            otherRecorder.record( "wms GetMap", latency, latency % 2 == 0 );
+        recorder.merge( otherRecorder );
+
+        List<LatencyStatistics> statistics = recorder.createStatistics();
+        LatencyStatistics total = recorder.createTotalStatistics( "all" );
+
+        assertThat( statistics.size(), is( 2 ) );
+        assertThat( statistics.get( 0 ).getLabel(), is( "wcs GetCoverage" ) );
+        assertThat( statistics.get( 0 ).getNumberOfRequests(), is( 1 ) );
+        assertThat( statistics.get( 0 ).getNumberOfFailures(), is( 1 ) );
+        assertThat( statistics.get( 1 ).getLabel(), is( "wms GetMap" ) );
+        assertThat( statistics.get( 1 ).getNumberOfRequests(), is( 2001 ) );
+        assertThat( statistics.get( 1 ).getNumberOfFailures(), is( 1000 ) );
+        assertThat( total.getNumberOfRequests(), is( 2002 ) );
+        assertThat( total.getNumberOfFailures(), is( 1001 ) );
+        assertThat( total.getPercentile( 100 ), is( 2000L ) );
+    }
+
+    private long[] createLatencies( int numberOfLatencies ) {
+        long[] latencies = new long[numberOfLatencies];
+        for ( int index = 0; index < numberOfLatencies; index++ )
+            latencies[index] = index + 1;
+        return latencies;
+    }
+
+}
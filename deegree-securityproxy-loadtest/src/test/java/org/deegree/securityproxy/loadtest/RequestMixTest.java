@@ -0,0 +1,133 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.loadtest;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.http.client.methods.HttpUriRequest;
+import org.junit.Test;
+
+/**
+ * Tests for {@link RequestMix}.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class RequestMixTest {
+
+    private static final String EXECUTE = "/org/deegree/securityproxy/loadtest/backend/wps_execute_response.xml";
+
+    @Test
+    public void testParse()
+                    throws Exception {
+        RequestMix requestMix = parse( "# comment", "", "3 wms GetMap GET SERVICE=WMS&REQUEST=GetMap",
+                                       "1 wps Execute POST " + EXECUTE );
+        List<LoadTestRequest> requests = requestMix.getRequests();
+
+        assertThat( requests.size(), is( 2 ) );
+        assertThat( requests.get( 0 ).getLabel(), is( "wms GetMap" ) );
+        assertThat( requests.get( 0 ).isPost(), is( false ) );
+        assertThat( requests.get( 1 ).getLabel(), is( "wps Execute" ) );
+        assertThat( requests.get( 1 ).isPost(), is( true ) );
+    }
+
+    @Test
+    public void testCreateHttpRequest()
+                    throws Exception {
+        RequestMix requestMix = parse( "1 wfs GetFeature GET REQUEST=GetFeature&TYPENAME=ad:Address" );
+        HttpUriRequest request = requestMix.getRequests().get( 0 ).createHttpRequest( "http://localhost/services" );
+
+        assertThat( request.getMethod(), is( "GET" ) );
+        assertThat( request.getURI().toString(),
+                    is( "http://localhost/services/wfs?REQUEST=GetFeature&TYPENAME=ad:Address" ) );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseMissingRequest()
+                    throws Exception {
+        parse( "1 wms GetMap GET" );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseInvalidWeight()
+                    throws Exception {
+        parse( "0 wms GetMap GET REQUEST=GetMap" );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseInvalidMethod()
+                    throws Exception {
+        parse( "1 wms GetMap PUT REQUEST=GetMap" );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseEmptyMix()
+                    throws Exception {
+        parse( "# only a comment" );
+    }
+
+    @Test
+    public void testSelectIsProportionalToWeight()
+                    throws Exception {
+        RequestMix requestMix = parse( "3 wms GetMap GET REQUEST=GetMap",
+                                       "1 wms GetCapabilities GET REQUEST=GetCapabilities" );
+        Random random = new Random( 42 );
+        int numberOfGetMaps = 0;
+        for ( int i = 0; i < 10000; i++ ) {
+            if ( "GetMap".equals( requestMix.select( random ).getOperation() ) )
+                numberOfGetMaps++;
+        }
+
+        assertThat( numberOfGetMaps > 7300 && numberOfGetMaps < 7700, is( true ) );
+    }
+
+    private RequestMix parse( String... lines )
+                    throws IOException {
+        StringBuilder requestMix = new StringBuilder();
+        for ( String line : lines )
+            requestMix.append( line ).append( '\n' );
+        return RequestMix.parse( new BufferedReader( new StringReader( requestMix.toString() ) ) );
+    }
+
+}
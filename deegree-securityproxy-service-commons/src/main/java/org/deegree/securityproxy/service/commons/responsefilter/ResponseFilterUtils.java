@@ -39,8 +39,8 @@ import static org.apache.commons.io.IOUtils.closeQuietly;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.Charset;
 
-import org.apache.commons.io.IOUtils;
 import org.deegree.securityproxy.filter.StatusCodeResponseBodyWrapper;
 import org.deegree.securityproxy.responsefilter.ResponseFilterException;
 
@@ -54,12 +54,17 @@ import org.deegree.securityproxy.responsefilter.ResponseFilterException;
  */
 public final class ResponseFilterUtils {
 
+    // contained in 'ServiceExceptionReport' as well
+    private static final byte[] EXCEPTION_REPORT = "ExceptionReport".getBytes( Charset.forName( "US-ASCII" ) );
+
+    private static final int SCAN_BUFFER_SIZE = 8192;
+
     private ResponseFilterUtils() {
     }
 
     /**
      * Checks if the response is an exception (if the status code is not 200 or the body contains the string
-     * 'ServiceExceptionReport')
+     * 'ServiceExceptionReport' or 'ExceptionReport'). The body is scanned as stream, it is not copied into memory.
      * 
      * @param servletResponse
      *            to check, never <code>null</code>
@@ -73,8 +78,7 @@ public final class ResponseFilterUtils {
             return true;
         InputStream bufferedStream = servletResponse.getBufferedStream();
         try {
-            String bodyAsString = IOUtils.toString( bufferedStream );
-            return bodyAsString.contains( "ServiceExceptionReport" ) || bodyAsString.contains( "ExceptionReport" );
+            return containsExceptionReport( bufferedStream );
         } finally {
             closeQuietly( bufferedStream );
         }
@@ -97,4 +101,32 @@ public final class ResponseFilterUtils {
         }
     }
 
-}
\ No newline at end of file
+    private static boolean containsExceptionReport( InputStream stream )
+                    throws IOException {
+        byte[] buffer = new byte[SCAN_BUFFER_SIZE];
+        int carriedOver = 0;
+        int read;
+        while ( ( read = stream.read( buffer, carriedOver, buffer.length - carriedOver ) ) > 0 ) {
+            int available = carriedOver + read;
+            if ( contains( buffer, available, EXCEPTION_REPORT ) )
+                return true;
+            // keep the tail, the searched bytes may be split between two reads
+            carriedOver = Math.min( available, EXCEPTION_REPORT.length - 1 );
+            System.arraycopy( buffer, available - carriedOver, buffer, 0, carriedOver );
+        }
+        return false;
+    }
+
+    private static boolean contains( byte[] buffer, int length, byte[] searched ) {
+        int lastStart = length - searched.length;
+        for ( int start = 0; start <= lastStart; start++ ) {
+            int index = 0;
+            while ( index < searched.length && buffer[start + index] == searched[index] )
+                index++;
+            if ( index == searched.length )
+                return true;
+        }
+        return false;
+    }
+
+}
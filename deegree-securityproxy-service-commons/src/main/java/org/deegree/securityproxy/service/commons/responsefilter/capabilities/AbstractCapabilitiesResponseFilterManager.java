@@ -35,12 +35,19 @@
  ----------------------------------------------------------------------------*/
 package org.deegree.securityproxy.service.commons.responsefilter.capabilities;
 
+import static javax.servlet.http.HttpServletResponse.SC_NOT_MODIFIED;
+import static org.deegree.securityproxy.filter.EntityTagMatcher.isMatching;
 import static org.deegree.securityproxy.service.commons.responsefilter.ResponseFilterUtils.copyBufferedStream;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
 
 import javax.xml.stream.XMLStreamException;
 
+import org.apache.log4j.Logger;
 import org.deegree.securityproxy.filter.StatusCodeResponseBodyWrapper;
 import org.deegree.securityproxy.request.OwsRequest;
 import org.deegree.securityproxy.responsefilter.ResponseFilterException;
@@ -48,6 +55,8 @@ import org.deegree.securityproxy.responsefilter.ResponseFilterManager;
 import org.deegree.securityproxy.responsefilter.logging.DefaultResponseFilterReport;
 import org.deegree.securityproxy.responsefilter.logging.ResponseFilterReport;
 import org.deegree.securityproxy.service.commons.responsefilter.AbstractResponseFilterManager;
+import org.deegree.securityproxy.service.commons.responsefilter.capabilities.FilteredCapabilitiesCache.CachedCapabilities;
+import org.deegree.securityproxy.service.commons.responsefilter.capabilities.blacklist.BlackListDecisionMaker;
 import org.springframework.security.core.Authentication;
 
 /**
@@ -65,11 +74,21 @@ public abstract class AbstractCapabilitiesResponseFilterManager extends Abstract
 
     public static final String FILTERING_NOT_REQUIRED_MESSAGE = "Capabilities of request must not be filtered.";
 
+    public static final String NOT_MODIFIED_MESSAGE = "Capabilities of request were not modified, filtering was not required.";
+
+    private static final Logger LOG = Logger.getLogger( AbstractCapabilitiesResponseFilterManager.class );
+
+    private static final String GZIP = "gzip";
+
     private final XmlFilter capabilitiesFilter;
 
     private final XmlModificationManagerCreator xmlModificationManagerCreator;
 
+    private final FilteredCapabilitiesCache filteredCapabilitiesCache;
+
     /**
+     * Instantiates an {@link AbstractCapabilitiesResponseFilterManager} filtering each capabilities document.
+     * 
      * @param capabilitiesFilter
      *            never <code>null</code>
      * @param xmlModificationManagerCreator
@@ -77,8 +96,24 @@ public abstract class AbstractCapabilitiesResponseFilterManager extends Abstract
      */
     public AbstractCapabilitiesResponseFilterManager( XmlFilter capabilitiesFilter,
                                                       XmlModificationManagerCreator xmlModificationManagerCreator ) {
+        this( capabilitiesFilter, xmlModificationManagerCreator, null );
+    }
+
+    /**
+     * @param capabilitiesFilter
+     *            never <code>null</code>
+     * @param xmlModificationManagerCreator
+     *            never <code>null</code>
+     * @param filteredCapabilitiesCache
+     *            caches the filtered capabilities of users with identical blacklist permissions, may be
+     *            <code>null</code> if the capabilities should not be cached
+     */
+    public AbstractCapabilitiesResponseFilterManager( XmlFilter capabilitiesFilter,
+                                                      XmlModificationManagerCreator xmlModificationManagerCreator,
+                                                      FilteredCapabilitiesCache filteredCapabilitiesCache ) {
         this.capabilitiesFilter = capabilitiesFilter;
         this.xmlModificationManagerCreator = xmlModificationManagerCreator;
+        this.filteredCapabilitiesCache = filteredCapabilitiesCache;
     }
 
     @Override
@@ -89,7 +124,13 @@ public abstract class AbstractCapabilitiesResponseFilterManager extends Abstract
                                                                                                                     auth );
         if ( xmlModificationManager.isModificationRequired() ) {
             try {
-                capabilitiesFilter.filterXml( servletResponse, xmlModificationManager );
+                boolean isModified;
+                if ( xmlModificationManager.getDecisionMaker() instanceof BlackListDecisionMaker )
+                    isModified = filterByBlackList( servletResponse, owsRequest, xmlModificationManager );
+                else
+                    isModified = filter( servletResponse, owsRequest, xmlModificationManager );
+                if ( !isModified )
+                    return new DefaultResponseFilterReport( NOT_MODIFIED_MESSAGE );
                 return createResponseAfterModification( xmlModificationManager );
             } catch ( XMLStreamException e ) {
                 throw new ResponseFilterException( e );
@@ -113,6 +154,16 @@ public abstract class AbstractCapabilitiesResponseFilterManager extends Abstract
         return xmlModificationManagerCreator;
     }
 
+    /**
+     * @param owsRequest
+     *            the capabilities request, never <code>null</code>
+     * @return the name of the requested service, used to identify cached capabilities, may be <code>null</code> if
+     *         the request does not contain a service name
+     */
+    protected String retrieveServiceName( OwsRequest owsRequest ) {
+        return null;
+    }
+
     /**
      * @param xmlModificationManager
      *            used for modification, never <code>null</code>
@@ -122,4 +173,139 @@ public abstract class AbstractCapabilitiesResponseFilterManager extends Abstract
         return new DefaultResponseFilterReport( SUCCESSFUL_FILTERING_MESSAGE, true );
     }
 
-}
\ No newline at end of file
+    private boolean isCacheEnabled() {
+        return filteredCapabilitiesCache != null && filteredCapabilitiesCache.isEnabled();
+    }
+
+    /**
+     * The filtered capabilities depend on the blacklist values only: the entity tag is derived from the blacklist
+     * values, the original document and the content coding, a matching If-None-Match is answered before the document
+     * is filtered.
+     */
+    private boolean filterByBlackList( StatusCodeResponseBodyWrapper servletResponse, OwsRequest owsRequest,
+                                       XmlModificationManager xmlModificationManager )
+                    throws IOException, XMLStreamException {
+        BlackListDecisionMaker decisionMaker = (BlackListDecisionMaker) xmlModificationManager.getDecisionMaker();
+        String key = FilteredCapabilitiesCache.createKey( owsRequest.getServiceType(),
+                                                          retrieveServiceName( owsRequest ),
+                                                          String.valueOf( owsRequest.getServiceVersion() ),
+                                                          decisionMaker.getBlackListTextValues() );
+        String sourceDigest = createSourceDigest( servletResponse );
+        // cached capabilities are available gzip encoded, otherwise the capabilities are compressed while written
+        boolean isCachedGzipServed = isCacheEnabled() && servletResponse.isGzipAccepted();
+        String contentEncoding = isCachedGzipServed ? GZIP : servletResponse.getContentEncoding();
+        String eTag = FilteredCapabilitiesCache.createETag( key, sourceDigest, contentEncoding );
+        if ( isMatching( servletResponse.getIfNoneMatch(), eTag ) ) {
+            writeNotModified( servletResponse, eTag );
+            return false;
+        }
+        if ( !isCacheEnabled() ) {
+            filterIntoResponse( servletResponse, xmlModificationManager, eTag );
+            return true;
+        }
+        CachedCapabilities cachedCapabilities = filteredCapabilitiesCache.get( key, sourceDigest );
+        if ( cachedCapabilities == null ) {
+            LOG.debug( "Filtered capabilities with key " + key + " are not cached." );
+            byte[] filteredCapabilities = filterIntoByteArray( servletResponse, xmlModificationManager );
+            cachedCapabilities = filteredCapabilitiesCache.put( key, sourceDigest, filteredCapabilities );
+        } else {
+            LOG.debug( "Filtered capabilities with key " + key + " are retrieved from cache." );
+        }
+        if ( isCachedGzipServed ) {
+            writeGzippedCapabilities( servletResponse, cachedCapabilities.getGzippedCapabilities(), eTag );
+        } else {
+            // the gzip encoded variant is served to other clients
+            if ( contentEncoding == null )
+                servletResponse.addHeader( "Vary", "Accept-Encoding" );
+            writeCapabilities( servletResponse, cachedCapabilities.getFilteredCapabilities(), eTag );
+        }
+        return true;
+    }
+
+    /**
+     * Without blacklist the filtered capabilities depend on the original document and the static configuration of the
+     * service only: the entity tag is derived from the service and the original document, a matching If-None-Match is
+     * answered before the document is filtered.
+     */
+    private boolean filter( StatusCodeResponseBodyWrapper servletResponse, OwsRequest owsRequest,
+                            XmlModificationManager xmlModificationManager )
+                    throws IOException, XMLStreamException {
+        String key = FilteredCapabilitiesCache.createKey( owsRequest.getServiceType(),
+                                                          retrieveServiceName( owsRequest ),
+                                                          String.valueOf( owsRequest.getServiceVersion() ),
+                                                          Collections.<String> emptyList() );
+        String eTag = FilteredCapabilitiesCache.createETag( key, createSourceDigest( servletResponse ),
+                                                            servletResponse.getContentEncoding() );
+        if ( isMatching( servletResponse.getIfNoneMatch(), eTag ) ) {
+            writeNotModified( servletResponse, eTag );
+            return false;
+        }
+        filterIntoResponse( servletResponse, xmlModificationManager, eTag );
+        return true;
+    }
+
+    private void filterIntoResponse( StatusCodeResponseBodyWrapper servletResponse,
+                                     XmlModificationManager xmlModificationManager, String eTag )
+                    throws IOException, XMLStreamException {
+        // the entity tag of the backend service is not valid for the filtered document
+        servletResponse.setHeader( "ETag", eTag );
+        OutputStream filteredCapabilities = servletResponse.getCompressingOutputStream();
+        InputStream originalCapabilities = servletResponse.getBufferedStream();
+        try {
+            capabilitiesFilter.filterXml( originalCapabilities, filteredCapabilities, xmlModificationManager );
+        } finally {
+            originalCapabilities.close();
+        }
+        filteredCapabilities.close();
+    }
+
+    private byte[] filterIntoByteArray( StatusCodeResponseBodyWrapper servletResponse,
+                                        XmlModificationManager xmlModificationManager )
+                    throws IOException, XMLStreamException {
+        ByteArrayOutputStream filteredCapabilities = new ByteArrayOutputStream();
+        InputStream originalCapabilities = servletResponse.getBufferedStream();
+        try {
+            capabilitiesFilter.filterXml( originalCapabilities, filteredCapabilities, xmlModificationManager );
+        } finally {
+            originalCapabilities.close();
+        }
+        return filteredCapabilities.toByteArray();
+    }
+
+    private String createSourceDigest( StatusCodeResponseBodyWrapper servletResponse )
+                    throws IOException {
+        InputStream originalCapabilities = servletResponse.getBufferedStream();
+        try {
+            return FilteredCapabilitiesCache.createDigest( originalCapabilities );
+        } finally {
+            originalCapabilities.close();
+        }
+    }
+
+    private void writeGzippedCapabilities( StatusCodeResponseBodyWrapper servletResponse, byte[] body, String eTag )
+                    throws IOException {
+        servletResponse.setHeader( "ETag", eTag );
+        servletResponse.setHeader( "Content-Encoding", GZIP );
+        servletResponse.addHeader( "Vary", "Accept-Encoding" );
+        servletResponse.setContentLength( body.length );
+        servletResponse.getRealOutputStream().write( body );
+    }
+
+    private void writeCapabilities( StatusCodeResponseBodyWrapper servletResponse, byte[] body, String eTag )
+                    throws IOException {
+        // the entity tag of the backend service is not valid for the filtered document
+        servletResponse.setHeader( "ETag", eTag );
+        if ( servletResponse.getContentEncoding() == null )
+            servletResponse.setContentLength( body.length );
+        OutputStream out = servletResponse.getCompressingOutputStream();
+        out.write( body );
+        out.close();
+    }
+
+    private void writeNotModified( StatusCodeResponseBodyWrapper servletResponse, String eTag ) {
+        LOG.debug( "Capabilities with ETag " + eTag + " are not modified." );
+        servletResponse.setStatus( SC_NOT_MODIFIED );
+        servletResponse.setHeader( "ETag", eTag );
+    }
+
+}
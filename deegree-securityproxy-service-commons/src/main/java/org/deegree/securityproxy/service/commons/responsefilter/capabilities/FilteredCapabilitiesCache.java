@@ -0,0 +1,459 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.service.commons.responsefilter.capabilities;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Caches filtered capabilities documents. Users with identical permissions receive identical filtered capabilities,
+ * the entries are identified by the service and a fingerprint of the permissions relevant for the filtering (see
+ * {@link #createKey(String, String, String, Collection)}). Each entry stores the filtered document and a gzip encoded
+ * variant.
+ * <p>
+ * An entry is only valid for the capabilities document it was created from: the digest of the original document
+ * (see {@link #createDigest(InputStream)}) must match the digest the entry was stored with. Entries are evicted when
+ * the time to live has expired or if the maximal number of entries or the maximal size is exceeded (least recently
+ * used first). The size of an entry is the length of the filtered document plus the length of the gzip encoded
+ * variant, the memory required by the cache is bounded by the maximal size.
+ * </p>
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class FilteredCapabilitiesCache implements FilteredCapabilitiesCacheMBean {
+
+    private static final Logger LOG = Logger.getLogger( FilteredCapabilitiesCache.class );
+
+    private static final String DIGEST_ALGORITHM = "SHA-1";
+
+    private static final String FINGERPRINT_ENCODING = "UTF-8";
+
+    private static final char KEY_SEPARATOR = '|';
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static final int DIGEST_BUFFER_SIZE = 8192;
+
+    private static final long DEFAULT_MAX_SIZE = 32 * 1024 * 1024;
+
+    private final int maxEntries;
+
+    private final long maxSize;
+
+    private final long timeToLive;
+
+    private final Map<String, CachedCapabilities> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    // guarded by entries
+    private long cachedBytes;
+
+    /**
+     * Instantiates a {@link FilteredCapabilitiesCache} storing at most 32 MiB.
+     * 
+     * @param maxEntries
+     *            the maximal number of cached documents, 0 disables the cache
+     * @param timeToLive
+     *            the time in milliseconds an entry is valid after it was stored, must be greater than 0
+     * @throws IllegalArgumentException
+     *             - maxEntries is negative or timeToLive is not greater than 0
+     */
+    public FilteredCapabilitiesCache( int maxEntries, long timeToLive ) {
+        this( maxEntries, DEFAULT_MAX_SIZE, timeToLive );
+    }
+
+    /**
+     * @param maxEntries
+     *            the maximal number of cached documents, 0 disables the cache
+     * @param maxSize
+     *            the maximal size of all cached documents (filtered and gzip encoded) in bytes, 0 disables the cache
+     * @param timeToLive
+     *            the time in milliseconds an entry is valid after it was stored, must be greater than 0
+     * @throws IllegalArgumentException
+     *             - maxEntries or maxSize is negative or timeToLive is not greater than 0
+     */
+    public FilteredCapabilitiesCache( int maxEntries, long maxSize, long timeToLive ) {
+        if ( maxEntries < 0 )
+            throw new IllegalArgumentException( "maxEntries must not be negative!" );
+        if ( maxSize < 0 )
+            throw new IllegalArgumentException( "maxSize must not be negative!" );
+        if ( timeToLive <= 0 )
+            throw new IllegalArgumentException( "timeToLive must be greater than 0!" );
+        this.maxEntries = maxEntries;
+        this.maxSize = maxSize;
+        this.timeToLive = timeToLive;
+        this.entries = new LinkedHashMap<String, CachedCapabilities>( 16, 0.75f, true );
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return maxEntries > 0 && maxSize > 0;
+    }
+
+    /**
+     * @param key
+     *            the key of the entry, never <code>null</code>
+     * @param sourceDigest
+     *            the digest of the original capabilities document, never <code>null</code>
+     * @return the cached capabilities, <code>null</code> if no entry exists, the entry is expired or was created from
+     *         another capabilities document
+     */
+    public CachedCapabilities get( String key, String sourceDigest ) {
+        CachedCapabilities cached = retrieve( key, sourceDigest );
+        if ( isEnabled() )
+            ( cached != null ? hits : misses ).incrementAndGet();
+        return cached;
+    }
+
+    /**
+     * Stores the filtered capabilities, the gzip encoded variant is created. Documents larger than the maximal size
+     * are not stored.
+     * 
+     * @param key
+     *            the key of the entry, never <code>null</code>
+     * @param sourceDigest
+     *            the digest of the original capabilities document, never <code>null</code>
+     * @param filteredCapabilities
+     *            the filtered capabilities document, never <code>null</code>
+     * @return the stored entry, never <code>null</code>
+     * @throws IOException
+     *             if the gzip encoded variant could not be created
+     */
+    public CachedCapabilities put( String key, String sourceDigest, byte[] filteredCapabilities )
+                    throws IOException {
+        byte[] gzippedCapabilities = gzip( filteredCapabilities );
+        CachedCapabilities cached = new CachedCapabilities( sourceDigest, filteredCapabilities, gzippedCapabilities,
+                                                            currentTimeMillis() + timeToLive );
+        if ( !isEnabled() )
+            return cached;
+        if ( cached.getSize() > maxSize ) {
+            LOG.debug( "Filtered capabilities with key " + key + " exceed the maximal size and are not cached." );
+            return cached;
+        }
+        synchronized ( entries ) {
+            remove( key );
+            entries.put( key, cached );
+            cachedBytes += cached.getSize();
+            evict();
+        }
+        return cached;
+    }
+
+    /**
+     * @return the number of cached documents (including expired entries not evicted yet)
+     */
+    public int size() {
+        synchronized ( entries ) {
+            return entries.size();
+        }
+    }
+
+    @Override
+    public int getCachedDocuments() {
+        return size();
+    }
+
+    @Override
+    public long getCachedBytes() {
+        synchronized ( entries ) {
+            return cachedBytes;
+        }
+    }
+
+    @Override
+    public long getHits() {
+        return hits.get();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public void clear() {
+        synchronized ( entries ) {
+            entries.clear();
+            cachedBytes = 0;
+        }
+    }
+
+    /**
+     * Creates the key of a cache entry. The fingerprint of the permissions does not depend on the order of the values.
+     * 
+     * @param serviceType
+     *            the type of the requested service, may be <code>null</code>
+     * @param serviceName
+     *            the name of the requested service, may be <code>null</code>
+     * @param serviceVersion
+     *            the version of the requested service, may be <code>null</code>
+     * @param permissionValues
+     *            the values of the permissions relevant for the filtering (e.g. the blacklist values), never
+     *            <code>null</code>
+     * @return the key, never <code>null</code>
+     */
+    public static String createKey( String serviceType, String serviceName, String serviceVersion,
+                                    Collection<String> permissionValues ) {
+        StringBuilder key = new StringBuilder();
+        key.append( serviceType ).append( KEY_SEPARATOR );
+        key.append( serviceName ).append( KEY_SEPARATOR );
+        key.append( serviceVersion ).append( KEY_SEPARATOR );
+        key.append( createFingerprint( permissionValues ) );
+        return key.toString();
+    }
+
+    /**
+     * @param document
+     *            the stream to read the document from, is not closed, never <code>null</code>
+     * @return the hex encoded digest of the document, never <code>null</code>
+     * @throws IOException
+     *             if the document could not be read
+     */
+    public static String createDigest( InputStream document )
+                    throws IOException {
+        MessageDigest digest = createMessageDigest();
+        byte[] buffer = new byte[DIGEST_BUFFER_SIZE];
+        int read;
+        while ( ( read = document.read( buffer ) ) != -1 )
+            digest.update( buffer, 0, read );
+        return toHex( digest.digest() );
+    }
+
+    /**
+     * Creates a strong entity tag of filtered capabilities, derived from the key and the digest of the original
+     * document. The entity tag is available before the document is filtered.
+     * 
+     * @param key
+     *            the key of the filtered capabilities, never <code>null</code>
+     * @param sourceDigest
+     *            the digest of the original capabilities document, never <code>null</code>
+     * @param contentEncoding
+     *            the content coding of the response, may be <code>null</code> if the response is not compressed
+     * @return the quoted entity tag, never <code>null</code>
+     */
+    public static String createETag( String key, String sourceDigest, String contentEncoding ) {
+        MessageDigest digest = createMessageDigest();
+        digest.update( encode( key ) );
+        digest.update( (byte) KEY_SEPARATOR );
+        digest.update( encode( sourceDigest ) );
+        return quote( toHex( digest.digest() ), contentEncoding );
+    }
+
+    /**
+     * Creates a strong entity tag over the filtered capabilities document.
+     * 
+     * @param filteredCapabilities
+     *            the filtered capabilities document, never <code>null</code>
+     * @param contentEncoding
+     *            the content coding of the response, may be <code>null</code> if the response is not compressed
+     * @return the quoted entity tag, never <code>null</code>
+     */
+    public static String createETag( byte[] filteredCapabilities, String contentEncoding ) {
+        return quote( toHex( createMessageDigest().digest( filteredCapabilities ) ), contentEncoding );
+    }
+
+    /**
+     * @return the current time in milliseconds, may be overwritten for testing
+     */
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    private CachedCapabilities retrieve( String key, String sourceDigest ) {
+        synchronized ( entries ) {
+            CachedCapabilities cached = entries.get( key );
+            if ( cached == null )
+                return null;
+            if ( cached.isExpired( currentTimeMillis() ) || !cached.getSourceDigest().equals( sourceDigest ) ) {
+                LOG.debug( "Cached capabilities with key " + key + " are outdated." );
+                remove( key );
+                return null;
+            }
+            return cached;
+        }
+    }
+
+    // must be invoked while holding the lock of entries
+    private void remove( String key ) {
+        CachedCapabilities removed = entries.remove( key );
+        if ( removed != null )
+            cachedBytes -= removed.getSize();
+    }
+
+    // must be invoked while holding the lock of entries, removes the least recently used entries first
+    private void evict() {
+        Iterator<CachedCapabilities> leastRecentlyUsed = entries.values().iterator();
+        while ( ( entries.size() > maxEntries || cachedBytes > maxSize ) && leastRecentlyUsed.hasNext() ) {
+            cachedBytes -= leastRecentlyUsed.next().getSize();
+            leastRecentlyUsed.remove();
+        }
+    }
+
+    private static String createFingerprint( Collection<String> permissionValues ) {
+        List<String> sortedValues = new ArrayList<String>( permissionValues );
+        Collections.sort( sortedValues );
+        MessageDigest digest = createMessageDigest();
+        String previousValue = null;
+        for ( String value : sortedValues ) {
+            if ( value != null && !value.equals( previousValue ) ) {
+                digest.update( encode( value ) );
+                // separates the values, 0 is not allowed in xml text
+                digest.update( (byte) 0 );
+            }
+            previousValue = value;
+        }
+        return toHex( digest.digest() );
+    }
+
+    // each content coding is a different representation with an own entity tag
+    private static String quote( String entityTag, String contentEncoding ) {
+        if ( contentEncoding != null )
+            return '"' + entityTag + '-' + contentEncoding + '"';
+        return '"' + entityTag + '"';
+    }
+
+    private static byte[] gzip( byte[] document )
+                    throws IOException {
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream( Math.max( 64, document.length / 4 ) );
+        GZIPOutputStream gzipStream = new GZIPOutputStream( gzipped );
+        try {
+            gzipStream.write( document );
+        } finally {
+            gzipStream.close();
+        }
+        return gzipped.toByteArray();
+    }
+
+    private static MessageDigest createMessageDigest() {
+        try {
+            return MessageDigest.getInstance( DIGEST_ALGORITHM );
+        } catch ( NoSuchAlgorithmException e ) {
+            // SHA-1 must be supported by every java platform
+            throw new IllegalStateException( e );
+        }
+    }
+
+    private static byte[] encode( String value ) {
+        try {
+            return value.getBytes( FINGERPRINT_ENCODING );
+        } catch ( UnsupportedEncodingException e ) {
+            // UTF-8 must be supported by every java platform
+            throw new IllegalStateException( e );
+        }
+    }
+
+    private static String toHex( byte[] bytes ) {
+        char[] hex = new char[bytes.length * 2];
+        for ( int index = 0; index < bytes.length; index++ ) {
+            hex[index * 2] = HEX_DIGITS[( bytes[index] >> 4 ) & 0xF];
+            hex[index * 2 + 1] = HEX_DIGITS[bytes[index] & 0xF];
+        }
+        return new String( hex );
+    }
+
+    /**
+     * A filtered capabilities document stored in the {@link FilteredCapabilitiesCache}.
+     */
+    public static class CachedCapabilities {
+
+        private final String sourceDigest;
+
+        private final byte[] filteredCapabilities;
+
+        private final byte[] gzippedCapabilities;
+
+        private final long expiresAt;
+
+        private CachedCapabilities( String sourceDigest, byte[] filteredCapabilities, byte[] gzippedCapabilities,
+                                    long expiresAt ) {
+            this.sourceDigest = sourceDigest;
+            this.filteredCapabilities = filteredCapabilities;
+            this.gzippedCapabilities = gzippedCapabilities;
+            this.expiresAt = expiresAt;
+        }
+
+        /**
+         * @return the digest of the original capabilities document, never <code>null</code>
+         */
+        public String getSourceDigest() {
+            return sourceDigest;
+        }
+
+        /**
+         * @return the filtered capabilities document, must not be modified, never <code>null</code>
+         */
+        public byte[] getFilteredCapabilities() {
+            return filteredCapabilities;
+        }
+
+        /**
+         * @return the gzip encoded filtered capabilities document, must not be modified, never <code>null</code>
+         */
+        public byte[] getGzippedCapabilities() {
+            return gzippedCapabilities;
+        }
+
+        private long getSize() {
+            return filteredCapabilities.length + gzippedCapabilities.length;
+        }
+
+        private boolean isExpired( long now ) {
+            return now >= expiresAt;
+        }
+
+    }
+
+}
@@ -0,0 +1,77 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.service.commons.responsefilter.capabilities;
+
+/**
+ * Management interface of the {@link FilteredCapabilitiesCache}.
+ * 
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public interface FilteredCapabilitiesCacheMBean {
+
+    /**
+     * @return <code>true</code> if documents are cached, <code>false</code> if the cache is disabled
+     */
+    boolean isEnabled();
+
+    /**
+     * @return the number of cached documents (including expired entries not evicted yet)
+     */
+    int getCachedDocuments();
+
+    /**
+     * @return the size of all cached documents (filtered and gzip encoded) in bytes
+     */
+    long getCachedBytes();
+
+    /**
+     * @return the number of requests answered with a cached filtered document
+     */
+    long getHits();
+
+    /**
+     * @return the number of requests filtering the capabilities document because no valid document was cached
+     */
+    long getMisses();
+
+    /**
+     * Removes all cached documents.
+     */
+    void clear();
+
+}
@@ -35,20 +35,21 @@
  ----------------------------------------------------------------------------*/
 package org.deegree.securityproxy.service.commons.responsefilter.capabilities;
 
+import static org.deegree.securityproxy.xml.XmlFactories.getEventFactory;
+import static org.deegree.securityproxy.xml.XmlFactories.getInputFactory;
+import static org.deegree.securityproxy.xml.XmlFactories.getOutputFactory;
+
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 
-import javax.servlet.ServletOutputStream;
 import javax.xml.stream.FactoryConfigurationError;
-import javax.xml.stream.XMLEventFactory;
 import javax.xml.stream.XMLEventReader;
 import javax.xml.stream.XMLEventWriter;
-import javax.xml.stream.XMLInputFactory;
-import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.events.Attribute;
 import javax.xml.stream.events.StartElement;
@@ -83,11 +84,28 @@ public class XmlFilter {
      */
     public void filterXml( StatusCodeResponseBodyWrapper servletResponse, XmlModificationManager xmlModifier )
                             throws IOException, XMLStreamException {
+        filterXml( servletResponse.getBufferedStream(), servletResponse.getRealOutputStream(), xmlModifier );
+    }
+
+    /**
+     * Filters the incoming document and writes the filtered document into the passed stream.
+     * 
+     * @param originalXml
+     *            the document to filter, never <code>null</code>
+     * @param filteredXml
+     *            the stream to write the filtered document in, never <code>null</code>
+     * @param xmlModifier
+     *            decides if elements should be written or not, never <code>null</code>
+     * @throws XMLStreamException
+     *             if an error occurred during reading or writing the document
+     */
+    public void filterXml( InputStream originalXml, OutputStream filteredXml, XmlModificationManager xmlModifier )
+                            throws XMLStreamException {
         BufferingXMLEventReader reader = null;
         XMLEventWriter writer = null;
         try {
-            reader = createReader( servletResponse );
-            writer = createWriter( servletResponse );
+            reader = new BufferingXMLEventReader( getInputFactory().createXMLEventReader( originalXml ) );
+            writer = getOutputFactory().createXMLEventWriter( filteredXml );
 
             copyResponse( reader, writer, xmlModifier );
 
@@ -138,10 +156,9 @@ public class XmlFilter {
                                                                  visitedElements, originalAttributes );
                 allAttributes.add( processedAttribute );
             }
-            XMLEventFactory eventFactory = XMLEventFactory.newFactory();
-            StartElement copiedStartElement = eventFactory.createStartElement( startElement.getName(),
-                                                                               allAttributes.iterator(),
-                                                                               startElement.getNamespaces() );
+            StartElement copiedStartElement = getEventFactory().createStartElement( startElement.getName(),
+                                                                                    allAttributes.iterator(),
+                                                                                    startElement.getNamespaces() );
             writer.add( copiedStartElement );
         } else {
             writer.add( startElement );
@@ -157,8 +174,7 @@ public class XmlFilter {
         String newValue = xmlModifier.determineNewAttributeValue( reader, startElement, attribute, visitedElements );
         if ( newValue != null ) {
             LOG.debug( "New Attribute value " + newValue );
-            XMLEventFactory eventFactory = XMLEventFactory.newFactory();
-            Attribute newAttribute = eventFactory.createAttribute( attribute.getName(), newValue );
+            Attribute newAttribute = getEventFactory().createAttribute( attribute.getName(), newValue );
             return newAttribute;
         }
         LOG.debug( "Attribute does not require modification." );
@@ -171,22 +187,6 @@ public class XmlFilter {
         return xmlModifier != null && xmlModifier.ignore( reader, currentEvent, visitedElements );
     }
 
-    private XMLEventWriter createWriter( StatusCodeResponseBodyWrapper servletResponse )
-                            throws IOException, FactoryConfigurationError, XMLStreamException {
-        ServletOutputStream filteredCapabilitiesStreamToWriteIn = servletResponse.getRealOutputStream();
-
-        XMLOutputFactory outFactory = XMLOutputFactory.newInstance();
-        return outFactory.createXMLEventWriter( filteredCapabilitiesStreamToWriteIn );
-    }
-
-    private BufferingXMLEventReader createReader( StatusCodeResponseBodyWrapper servletResponse )
-                            throws FactoryConfigurationError, XMLStreamException {
-        InputStream originalCapabilities = servletResponse.getBufferedStream();
-        XMLInputFactory inFactory = XMLInputFactory.newInstance();
-        XMLEventReader reader = inFactory.createXMLEventReader( originalCapabilities );
-        return new BufferingXMLEventReader( reader );
-    }
-
     private void skipElementContent( XMLEventReader reader )
                             throws XMLStreamException {
         int depth = 0;
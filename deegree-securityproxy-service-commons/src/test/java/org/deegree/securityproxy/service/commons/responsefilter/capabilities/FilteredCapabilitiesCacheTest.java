@@ -0,0 +1,306 @@
+//$HeadURL$
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.securityproxy.service.commons.responsefilter.capabilities;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.deegree.securityproxy.service.commons.responsefilter.capabilities.FilteredCapabilitiesCache.CachedCapabilities;
+import org.junit.Test;
+
+/**
+ * @author last edited by: $Author: $
+ * 
+ * @version $Revision: $, $Date: $
+ */
+public class FilteredCapabilitiesCacheTest {
+
+    private static final String KEY = "key";
+
+    private static final String DIGEST = "digest";
+
+    private static final byte[] CAPABILITIES = "<Capabilities/>".getBytes();
+
+    @Test
+    public void testGetWithoutEntryShouldReturnNull()
+                    throws Exception {
+        FilteredCapabilitiesCache cache = new FilteredCapabilitiesCache( 10, 1000 );
+
+        assertThat( cache.get( KEY, DIGEST ), is( nullValue() ) );
+    }
+
+    @Test
+    public void testGetAfterPutShouldReturnEntry()
+                    throws Exception {
+        FilteredCapabilitiesCache cache = new FilteredCapabilitiesCache( 10, 1000 );
+        cache.put( KEY, DIGEST, CAPABILITIES );
+
+        CachedCapabilities cachedCapabilities = cache.get( KEY, DIGEST );
+
+        assertThat( cachedCapabilities.getFilteredCapabilities(), is( CAPABILITIES ) );
+    }
+
+    @Test
+    public void testGetShouldCountHitsAndMisses()
+                    throws Exception {
+        FilteredCapabilitiesCache cache = new FilteredCapabilitiesCache( 10, 1000 );
+        cache.get( KEY, DIGEST );
+        cache.put( KEY, DIGEST, CAPABILITIES );
+        cache.get( KEY, DIGEST );
+        cache.get( KEY, DIGEST );
+
+        assertThat( cache.getHits(), is( 2L ) );
+        assertThat( cache.getMisses(), is( 1L ) );
+    }
+
+    @Test
+    public void testGetFromDisabledCacheShouldNotCountMisses()
+                    throws Exception {
+        FilteredCapabilitiesCache cache = new FilteredCapabilitiesCache( 0, 1000 );
+        cache.get( KEY, DIGEST );
+
+        assertThat( cache.getMisses(), is( 0L ) );
+    }
+
+    @Test
+    public void testPutShouldCreateGzippedVariant()
+                    throws Exception {
+        FilteredCapabilitiesCache cache = new FilteredCapabilitiesCache( 10, 1000 );
+        CachedCapabilities cachedCapabilities = cache.put( KEY, DIGEST, CAPABILITIES );
+
+        assertThat( gunzip( cachedCapabilities.getGzippedCapabilities() ), is( CAPABILITIES ) );
+    }
+
+    @Test
+    public void testGetWithOtherSourceDigestShouldReturnNullAndRemoveEntry()
+                    throws Exception {
+        FilteredCapabilitiesCache cache = new FilteredCapabilitiesCache( 10, 1000 );
+        cache.put( KEY, DIGEST, CAPABILITIES );
+
+        assertThat( cache.get( KEY, "otherDigest" ), is( nullValue() ) );
+        assertThat( cache.size(), is( 0 ) );
+    }
+
+    @Test
+    public void testGetAfterTimeToLiveShouldReturnNull()
+                    throws Exception {
+        ControlledTimeCache cache = new ControlledTimeCache( 10, 1000 );
+        cache.put( KEY, DIGEST, CAPABILITIES );
+        cache.now = 999;
+        assertThat( cache.get( KEY, DIGEST ), is( notNullValue() ) );
+
+        cache.now = 1000;
+        assertThat( cache.get( KEY, DIGEST ), is( nullValue() ) );
+    }
+
+    @Test
+    public void testPutMoreThanMaxEntriesShouldEvictLeastRecentlyUsedEntry()
+                    throws Exception {
+        FilteredCapabilitiesCache cache = new FilteredCapabilitiesCache( 2, 1000 );
+        cache.put( "first", DIGEST, CAPABILITIES );
+        cache.put( "second", DIGEST, CAPABILITIES );
+        cache.get( "first", DIGEST );
+        cache.put( "third", DIGEST, CAPABILITIES );
+
+        assertThat( cache.size(), is( 2 ) );
+        assertThat( cache.get( "first", DIGEST ), is( notNullValue() ) );
+        assertThat( cache.get( "second", DIGEST ), is( nullValue() ) );
+        assertThat( cache.get( "third", DIGEST ), is( notNullValue() ) );
+    }
+
+    @Test
+    public void testPutExceedingMaxSizeShouldEvictLeastRecentlyUsedEntry()
+                    throws Exception {
+        long entrySize = calculateSize( new FilteredCapabilitiesCache( 10, 1000 ).put( KEY, DIGEST, CAPABILITIES ) );
+        FilteredCapabilitiesCache cache = new FilteredCapabilitiesCache( 10, 2 * entrySize, 1000 );
+        cache.put( "first", DIGEST, CAPABILITIES );
+        cache.put( "second", DIGEST, CAPABILITIES );
+        cache.get( "first", DIGEST );
+        cache.put( "third", DIGEST, CAPABILITIES );
+
+        assertThat( cache.size(), is( 2 ) );
+        assertThat( cache.getCachedBytes(), is( 2 * entrySize ) );
+        assertThat( cache.get( "first", DIGEST ), is( notNullValue() ) );
+        assertThat( cache.get( "second", DIGEST ), is( nullValue() ) );
+        assertThat( cache.get( "third", DIGEST ), is( notNullValue() ) );
+    }
+
+    @Test
+    public void testPutLargerThanMaxSizeShouldNotStoreEntry()
+                    throws Exception {
+        FilteredCapabilitiesCache cache = new FilteredCapabilitiesCache( 10, CAPABILITIES.length, 1000 );
+        CachedCapabilities cachedCapabilities = cache.put( KEY, DIGEST, CAPABILITIES );
+
+        assertThat( cachedCapabilities.getFilteredCapabilities(), is( CAPABILITIES ) );
+        assertThat( cache.size(), is( 0 ) );
+        assertThat( cache.getCachedBytes(), is( 0L ) );
+    }
+
+    @Test
+    public void testPutWithSameKeyShouldReplaceSizeOfEntry()
+                    throws Exception {
+        FilteredCapabilitiesCache cache = new FilteredCapabilitiesCache( 10, 1000 );
+        long entrySize = calculateSize( cache.put( KEY, DIGEST, CAPABILITIES ) );
+        cache.put( KEY, DIGEST, CAPABILITIES );
+
+        assertThat( cache.getCachedBytes(), is( entrySize ) );
+        cache.get( KEY, "otherDigest" );
+        assertThat( cache.getCachedBytes(), is( 0L ) );
+    }
+
+    @Test
+    public void testPutWithDisabledCacheShouldNotStoreEntry()
+                    throws Exception {
+        FilteredCapabilitiesCache cache = new FilteredCapabilitiesCache( 0, 1000 );
+        CachedCapabilities cachedCapabilities = cache.put( KEY, DIGEST, CAPABILITIES );
+
+        assertThat( cache.isEnabled(), is( false ) );
+        assertThat( cachedCapabilities.getFilteredCapabilities(), is( CAPABILITIES ) );
+        assertThat( cache.get( KEY, DIGEST ), is( nullValue() ) );
+    }
+
+    @Test
+    public void testCreateKeyShouldBeIndependentOfOrderAndDuplicates()
+                    throws Exception {
+        String key = FilteredCapabilitiesCache.createKey( "wms", "serviceName", "1.3.0", asList( "a", "b", "c" ) );
+        String otherKey = FilteredCapabilitiesCache.createKey( "wms", "serviceName", "1.3.0",
+                                                               asList( "c", "a", "b", "a" ) );
+
+        assertThat( key, is( otherKey ) );
+    }
+
+    @Test
+    public void testCreateKeyWithDifferentValuesShouldDiffer()
+                    throws Exception {
+        String key = FilteredCapabilitiesCache.createKey( "wms", "serviceName", "1.3.0", asList( "ab", "c" ) );
+        String otherKey = FilteredCapabilitiesCache.createKey( "wms", "serviceName", "1.3.0", asList( "a", "bc" ) );
+
+        assertThat( key, is( not( otherKey ) ) );
+    }
+
+    @Test
+    public void testCreateKeyWithDifferentServiceNameShouldDiffer()
+                    throws Exception {
+        String key = FilteredCapabilitiesCache.createKey( "wms", "serviceName", "1.3.0",
+                                                          Collections.<String> emptyList() );
+        String otherKey = FilteredCapabilitiesCache.createKey( "wms", "otherServiceName", "1.3.0",
+                                                               Collections.<String> emptyList() );
+
+        assertThat( key, is( not( otherKey ) ) );
+    }
+
+    @Test
+    public void testCreateDigestOfEqualDocumentsShouldBeEqual()
+                    throws Exception {
+        String digest = FilteredCapabilitiesCache.createDigest( new ByteArrayInputStream( CAPABILITIES ) );
+        String otherDigest = FilteredCapabilitiesCache.createDigest( new ByteArrayInputStream( CAPABILITIES ) );
+        String digestOfOtherDocument = FilteredCapabilitiesCache.createDigest( new ByteArrayInputStream(
+                        "<Other/>".getBytes() ) );
+
+        assertThat( digest, is( otherDigest ) );
+        assertThat( digest, is( not( digestOfOtherDocument ) ) );
+    }
+
+    @Test
+    public void testCreateETagShouldDependOnKeySourceDigestAndEncoding()
+                    throws Exception {
+        String eTag = FilteredCapabilitiesCache.createETag( "key", "digest", null );
+
+        assertThat( eTag, is( FilteredCapabilitiesCache.createETag( "key", "digest", null ) ) );
+        assertThat( eTag, is( not( FilteredCapabilitiesCache.createETag( "otherKey", "digest", null ) ) ) );
+        assertThat( eTag, is( not( FilteredCapabilitiesCache.createETag( "key", "otherDigest", null ) ) ) );
+        assertThat( eTag, is( not( FilteredCapabilitiesCache.createETag( "key", "digest", "gzip" ) ) ) );
+    }
+
+    @Test
+    public void testCreateETagOfDocumentShouldBeQuotedWithContentCoding()
+                    throws Exception {
+        String eTag = FilteredCapabilitiesCache.createETag( CAPABILITIES, null );
+        String gzipETag = FilteredCapabilitiesCache.createETag( CAPABILITIES, "gzip" );
+
+        assertThat( eTag.matches( "\"[0-9a-f]{40}\"" ), is( true ) );
+        assertThat( gzipETag.matches( "\"[0-9a-f]{40}-gzip\"" ), is( true ) );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorWithInvalidTimeToLiveShouldFail()
+                    throws Exception {
+        new FilteredCapabilitiesCache( 10, 0 );
+    }
+
+    private static long calculateSize( CachedCapabilities cachedCapabilities ) {
+        return cachedCapabilities.getFilteredCapabilities().length
+               + cachedCapabilities.getGzippedCapabilities().length;
+    }
+
+    private byte[] gunzip( byte[] gzipped )
+                    throws Exception {
+        ByteArrayOutputStream unzipped = new ByteArrayOutputStream();
+        GZIPInputStream gzipStream = new GZIPInputStream( new ByteArrayInputStream( gzipped ) );
+        try {
+            IOUtils.copy( gzipStream, unzipped );
+        } finally {
+            gzipStream.close();
+        }
+        return unzipped.toByteArray();
+    }
+
+    private static class ControlledTimeCache extends FilteredCapabilitiesCache {
+
+        private long now = 0;
+
+        private ControlledTimeCache( int maxEntries, long timeToLive ) {
+            super( maxEntries, timeToLive );
+        }
+
+        @Override
+        protected long currentTimeMillis() {
+            return now;
+        }
+
+    }
+
+}
@@ -111,6 +111,7 @@ public class WcsRequest extends OwsRequest {
     /**
      * @return the serviceName, never <code>null</code>
      */
+    @Override
     public String getServiceName() {
         return serviceName;
     }
@@ -122,6 +123,14 @@ public class WcsRequest extends OwsRequest {
         return Collections.unmodifiableList( coverageNames );
     }
 
+    /**
+     * @return the coverageNames as unmodifiable list, may be empty but never <code>null</code>
+     */
+    @Override
+    public List<String> getLayerNames() {
+        return getCoverageNames();
+    }
+
     @Override
     public String toString() {
         return "WcsRequest [operationType=" + getOperationType() + ", serviceVersion=" + getServiceVersion()
@@ -1,14 +1,14 @@
 package org.deegree.securityproxy.wcs.request;
 
 import static java.util.Arrays.asList;
+import static org.deegree.securityproxy.request.KvpTokenizer.splitCommaSeparatedValue;
+import static org.deegree.securityproxy.request.parser.OwsRequestContext.retrieveContext;
 import static org.deegree.securityproxy.request.parser.OwsRequestParserUtils.checkSingleRequiredParameter;
 import static org.deegree.securityproxy.request.parser.OwsRequestParserUtils.isNotSet;
 import static org.deegree.securityproxy.request.parser.OwsRequestParserUtils.isNotSingle;
 import static org.deegree.securityproxy.request.parser.OwsRequestParserUtils.throwException;
-import static org.deegree.securityproxy.request.KvpNormalizer.normalizeKvpMap;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -16,6 +16,7 @@ import javax.servlet.http.HttpServletRequest;
 
 import org.deegree.securityproxy.request.OwsServiceVersion;
 import org.deegree.securityproxy.request.UnsupportedRequestTypeException;
+import org.deegree.securityproxy.request.parser.OwsRequestContext;
 import org.deegree.securityproxy.request.parser.OwsRequestParser;
 
 /**
@@ -66,13 +67,13 @@ public class WcsRequestParser implements OwsRequestParser {
     private final List<OwsServiceVersion> supportedVersion = asList( VERSION_100, VERSION_110, VERSION_200 );
 
     @Override
-    @SuppressWarnings("unchecked")
     public WcsRequest parse( HttpServletRequest request )
                             throws UnsupportedRequestTypeException {
         if ( request == null )
             throw new IllegalArgumentException( "Request must not be null!" );
-        String serviceName = evaluateServiceName( request );
-        Map<String, String[]> normalizedParameterMap = normalizeKvpMap( request.getParameterMap() );
+        OwsRequestContext context = retrieveContext( request );
+        String serviceName = context.getServiceName();
+        Map<String, String[]> normalizedParameterMap = context.getNormalizedParameterMap();
         checkParameters( normalizedParameterMap );
         return parseRequest( serviceName, normalizedParameterMap );
     }
@@ -115,7 +116,7 @@ public class WcsRequestParser implements OwsRequestParser {
     private List<String> extractCoverages( String[] coverageParameter ) {
         String firstCoverageParameter = coverageParameter[0];
         List<String> separatedCoverages = new ArrayList<String>();
-        Collections.addAll( separatedCoverages, firstCoverageParameter.split( "," ) );
+        separatedCoverages.addAll( splitCommaSeparatedValue( firstCoverageParameter ) );
         return separatedCoverages;
     }
 
@@ -137,17 +138,6 @@ public class WcsRequestParser implements OwsRequestParser {
         throw new IllegalArgumentException( "Unrecognized version " + versionParam );
     }
 
-    private String evaluateServiceName( HttpServletRequest request ) {
-        String servletPath = request.getServletPath();
-        if ( servletPath == null )
-            throw new IllegalArgumentException( "Service name must not be null!" );
-        if ( servletPath.contains( "/" ) ) {
-            String[] splittedServletPath = servletPath.split( "/" );
-            return splittedServletPath[splittedServletPath.length - 1];
-        }
-        return servletPath;
-    }
-
     private void checkParameters( Map<String, String[]> normalizedParameterMap )
                             throws UnsupportedRequestTypeException {
         checkServiceParameter( normalizedParameterMap );
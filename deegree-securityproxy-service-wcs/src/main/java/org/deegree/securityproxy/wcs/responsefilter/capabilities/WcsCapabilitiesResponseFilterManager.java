@@ -41,6 +41,7 @@ import org.deegree.securityproxy.request.OwsRequest;
 import org.deegree.securityproxy.responsefilter.ResponseFilterManager;
 import org.deegree.securityproxy.service.commons.responsefilter.capabilities.AbstractCapabilitiesResponseFilterManager;
 import org.deegree.securityproxy.service.commons.responsefilter.capabilities.DecisionMaker;
+import org.deegree.securityproxy.service.commons.responsefilter.capabilities.FilteredCapabilitiesCache;
 import org.deegree.securityproxy.service.commons.responsefilter.capabilities.XmlModificationManagerCreator;
 import org.deegree.securityproxy.service.commons.responsefilter.capabilities.XmlFilter;
 import org.deegree.securityproxy.wcs.request.WcsRequest;
@@ -66,6 +67,20 @@ public class WcsCapabilitiesResponseFilterManager extends AbstractCapabilitiesRe
         super( capabilitiesFilter, decisionMakerCreator );
     }
 
+    /**
+     * @param capabilitiesFilter
+     *            used to filter the capabilities, never <code>null</code>
+     * @param decisionMakerCreator
+     *            used to create the {@link DecisionMaker}, never <code>null</code>
+     * @param filteredCapabilitiesCache
+     *            caches the filtered capabilities, may be <code>null</code> if the capabilities should not be cached
+     */
+    public WcsCapabilitiesResponseFilterManager( XmlFilter capabilitiesFilter,
+                                                 XmlModificationManagerCreator decisionMakerCreator,
+                                                 FilteredCapabilitiesCache filteredCapabilitiesCache ) {
+        super( capabilitiesFilter, decisionMakerCreator, filteredCapabilitiesCache );
+    }
+
     @Override
     protected boolean isCorrectServiceType( OwsRequest owsRequest ) {
         return WcsRequest.class.equals( owsRequest.getClass() );
@@ -76,4 +91,9 @@ public class WcsCapabilitiesResponseFilterManager extends AbstractCapabilitiesRe
         return GETCAPABILITIES.equals( owsRequest.getOperationType() );
     }
 
-}
\ No newline at end of file
+    @Override
+    protected String retrieveServiceName( OwsRequest owsRequest ) {
+        return ( (WcsRequest) owsRequest ).getServiceName();
+    }
+
+}
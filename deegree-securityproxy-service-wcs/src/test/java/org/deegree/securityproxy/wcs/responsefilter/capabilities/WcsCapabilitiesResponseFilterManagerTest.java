@@ -10,7 +10,6 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
-import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doCallRealMethod;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
@@ -23,6 +22,7 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -42,6 +42,8 @@ import org.deegree.securityproxy.service.commons.responsefilter.capabilities.Xml
 import org.deegree.securityproxy.service.commons.responsefilter.capabilities.XmlModificationManagerCreator;
 import org.deegree.securityproxy.wcs.request.WcsRequest;
 import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 
@@ -87,7 +89,8 @@ public class WcsCapabilitiesResponseFilterManagerTest {
         Authentication authentication = createAuthenticationWithKnownCoverage();
         wcsCapabilitiesResponseFilterManager.filterResponse( response, wcsRequest, authentication );
 
-        verify( capabilitiesFilter ).filterXml( eq( response ), any( XmlModificationManager.class ) );
+        verify( capabilitiesFilter ).filterXml( any( InputStream.class ), any( OutputStream.class ),
+                                                any( XmlModificationManager.class ) );
     }
 
     @Test
@@ -298,17 +301,23 @@ public class WcsCapabilitiesResponseFilterManagerTest {
         when( mockedServletResponse.getBufferedStream() ).thenReturn( new ByteArrayInputStream( new byte[] {} ) );
         when( mockedServletResponse.getOutputStream() ).thenReturn( mock( ServletOutputStream.class ) );
         when( mockedServletResponse.getRealOutputStream() ).thenReturn( mock( ServletOutputStream.class ) );
+        when( mockedServletResponse.getCompressingOutputStream() ).thenReturn( mock( ServletOutputStream.class ) );
         return mockedServletResponse;
     }
 
     private StatusCodeResponseBodyWrapper mockStatusCodeResponseBodyWrapper( ByteArrayOutputStream filteredStream,
-                                                                             String originalXmlFileName )
+                                                                             final String originalXmlFileName )
                     throws IOException {
         StatusCodeResponseBodyWrapper mockedServletResponse = mock( StatusCodeResponseBodyWrapper.class );
         when( mockedServletResponse.getStatus() ).thenReturn( 200 );
-        when( mockedServletResponse.getBufferedStream() ).thenReturn( retrieveResourceAsStream( originalXmlFileName ),
-                                                                      retrieveResourceAsStream( originalXmlFileName ) );
+        when( mockedServletResponse.getBufferedStream() ).thenAnswer( new Answer<InputStream>() {
+            @Override
+            public InputStream answer( InvocationOnMock invocation ) {
+                return retrieveResourceAsStream( originalXmlFileName );
+            }
+        } );
         when( mockedServletResponse.getRealOutputStream() ).thenReturn( createStream( filteredStream ) );
+        when( mockedServletResponse.getCompressingOutputStream() ).thenReturn( createStream( filteredStream ) );
         doCallRealMethod().when( mockedServletResponse ).copyBufferedStreamToRealStream();
         return mockedServletResponse;
     }
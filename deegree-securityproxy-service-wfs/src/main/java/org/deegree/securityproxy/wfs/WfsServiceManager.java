@@ -1,5 +1,7 @@
 package org.deegree.securityproxy.wfs;
 
+import static org.deegree.securityproxy.request.parser.OwsRequestContext.retrieveContext;
+
 import org.deegree.securityproxy.authorization.logging.AuthorizationReport;
 import org.deegree.securityproxy.exception.ServiceExceptionManager;
 import org.deegree.securityproxy.exception.ServiceExceptionWrapper;
@@ -9,9 +11,9 @@ import org.deegree.securityproxy.request.OwsRequest;
 import org.deegree.securityproxy.request.UnsupportedRequestTypeException;
 import org.deegree.securityproxy.request.parser.OwsRequestParser;
 import org.deegree.securityproxy.request.parser.RequestParsingException;
-import org.deegree.securityproxy.request.parser.ServiceTypeParser;
 import org.deegree.securityproxy.responsefilter.ResponseFilterException;
 import org.deegree.securityproxy.responsefilter.ResponseFilterManager;
+import org.deegree.securityproxy.responsefilter.ResponseFilterRoutingTable;
 import org.deegree.securityproxy.responsefilter.logging.DefaultResponseFilterReport;
 import org.deegree.securityproxy.responsefilter.logging.ResponseFilterReport;
 import org.springframework.security.core.Authentication;
@@ -32,12 +34,14 @@ public class WfsServiceManager implements ServiceManager, ServiceExceptionManage
 
     private final OwsRequestParser parser;
 
-    private final List<ResponseFilterManager> filterManagers;
+    private final ResponseFilterRoutingTable filterRoutingTable;
 
     private final ServiceExceptionWrapper serviceExceptionWrapper;
 
     private final Map<String, String[]> additionalKeyValuePairs;
 
+    private final String serviceUrl;
+
     /**
      * Creates a new instance of {@link WfsServiceManager} with default ServiceExceptionWrapper.
      * 
@@ -70,13 +74,40 @@ public class WfsServiceManager implements ServiceManager, ServiceExceptionManage
     public WfsServiceManager( OwsRequestParser parser, List<ResponseFilterManager> filterManagers,
                               ServiceExceptionWrapper serviceExceptionWrapper,
                               Map<String, String[]> additionalKeyValuePairs ) {
+        this( parser, filterManagers, serviceExceptionWrapper, additionalKeyValuePairs, null );
+    }
+
+    /**
+     * Creates a new instance of {@link WfsServiceManager} forwarding all requests to the same backend service. As wfs
+     * requests are not authorized, the url of the backend service can not be taken from the permissions of the user.
+     * 
+     * @param parser
+     *            never <code>null</code>
+     * @param filterManagers
+     *            never <code>null</code>
+     * @param serviceExceptionWrapper
+     *            may be <code>null</code>
+     * @param additionalKeyValuePairs
+     *            a map containing additional key value pairs which will be attached to the incoming request, may be
+     *            <code>null</code>
+     * @param serviceUrl
+     *            the url of the backend service the requests are forwarded to, may be <code>null</code> or empty if
+     *            the requests are not forwarded
+     */
+    public WfsServiceManager( OwsRequestParser parser, List<ResponseFilterManager> filterManagers,
+                              ServiceExceptionWrapper serviceExceptionWrapper,
+                              Map<String, String[]> additionalKeyValuePairs, String serviceUrl ) {
         this.parser = parser;
-        this.filterManagers = filterManagers;
+        this.filterRoutingTable = new ResponseFilterRoutingTable( filterManagers );
         if ( serviceExceptionWrapper != null )
             this.serviceExceptionWrapper = serviceExceptionWrapper;
         else
             this.serviceExceptionWrapper = new ServiceExceptionWrapper();
         this.additionalKeyValuePairs = additionalKeyValuePairs;
+        if ( serviceUrl != null && !serviceUrl.isEmpty() )
+            this.serviceUrl = serviceUrl;
+        else
+            this.serviceUrl = null;
     }
 
     @Override
@@ -87,26 +118,21 @@ public class WfsServiceManager implements ServiceManager, ServiceExceptionManage
 
     @Override
     public AuthorizationReport authorize( Authentication authentication, OwsRequest owsRequest ) {
-        return new AuthorizationReport( "Authorization is disabled.", true, additionalKeyValuePairs );
+        return new AuthorizationReport( "Authorization is disabled.", true, serviceUrl, additionalKeyValuePairs );
     }
 
     @Override
     public boolean isResponseFilterEnabled( OwsRequest owsRequest ) {
-        for ( ResponseFilterManager filterManager : filterManagers ) {
-            if ( filterManager.canBeFiltered( owsRequest ) )
-                return true;
-        }
-        return false;
+        return filterRoutingTable.resolve( owsRequest ) != null;
     }
 
     @Override
     public ResponseFilterReport filterResponse( StatusCodeResponseBodyWrapper wrappedResponse,
                                                 Authentication authentication, OwsRequest owsRequest )
                     throws ResponseFilterException {
-        for ( ResponseFilterManager filterManager : filterManagers ) {
-            if ( filterManager.canBeFiltered( owsRequest ) )
-                return filterManager.filterResponse( wrappedResponse, owsRequest, authentication );
-        }
+        ResponseFilterManager filterManager = filterRoutingTable.resolve( owsRequest );
+        if ( filterManager != null )
+            return filterManager.filterResponse( wrappedResponse, owsRequest, authentication );
         return createEmptyFilterReport();
     }
 
@@ -119,7 +145,7 @@ public class WfsServiceManager implements ServiceManager, ServiceExceptionManage
     public boolean isServiceTypeSupported( String serviceType, HttpServletRequest request ) {
         if ( serviceType != null )
             return doesEqualWfs( serviceType );
-        return doesEqualWfs( new ServiceTypeParser().determineServiceType( request ) );
+        return doesEqualWfs( retrieveContext( request ).getServiceType() );
     }
 
     private boolean doesEqualWfs( String serviceType ) {
@@ -12,7 +12,7 @@ import java.util.Map;
 
 import static org.deegree.securityproxy.request.parser.OwsRequestParserUtils.checkSingleRequiredParameter;
 import static org.deegree.securityproxy.request.parser.OwsRequestParserUtils.evaluateVersion;
-import static org.deegree.securityproxy.request.KvpNormalizer.normalizeKvpMap;
+import static org.deegree.securityproxy.request.parser.OwsRequestContext.retrieveContext;
 
 /**
  * Parses an incoming HTTP GET request into a {@link WfsRequest}. Currently WFS version 1.1.0 is supported.
@@ -41,13 +41,12 @@ public class WfsGetRequestParser implements OwsRequestParser {
 
     private List<OwsServiceVersion> supportedVersion = Collections.singletonList( VERSION_110 );
 
-    @SuppressWarnings("unchecked")
     @Override
     public WfsRequest parse( HttpServletRequest request )
                             throws UnsupportedRequestTypeException {
         checkIfRequestIsNotNull( request );
         checkIfRequestMethodIsGet( request );
-        Map<String, String[]> normalizedParameterMap = normalizeKvpMap( request.getParameterMap() );
+        Map<String, String[]> normalizedParameterMap = retrieveContext( request ).getNormalizedParameterMap();
         checkParameters( normalizedParameterMap );
         String type = normalizedParameterMap.get( REQUEST )[0];
         if ( GETCAPABILITIES.equalsIgnoreCase( type ) )
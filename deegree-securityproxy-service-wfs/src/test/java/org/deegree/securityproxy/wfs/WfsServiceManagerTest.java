@@ -21,6 +21,7 @@ import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.doReturn;
@@ -75,6 +76,39 @@ public class WfsServiceManagerTest {
         assertThat( report.getAdditionalKeyValuePairs(), is( additionalKeyValuePairs ) );
     }
 
+    @Test
+    public void testAuthorizeWithoutServiceUrl()
+                    throws Exception {
+        AuthorizationReport report = wfsServiceManager.authorize( mockAuthentication(), mockOwsRequest() );
+
+        assertThat( report.getServiceUrl(), is( nullValue() ) );
+    }
+
+    @Test
+    public void testAuthorizeWithServiceUrl()
+                    throws Exception {
+        List<ResponseFilterManager> filterManagers = emptyList();
+        WfsServiceManager wfsServiceManagerWithServiceUrl = new WfsServiceManager( parser, filterManagers,
+                        serviceExceptionWrapper, additionalKeyValuePairs, "http://localhost/wfs" );
+        AuthorizationReport report = wfsServiceManagerWithServiceUrl.authorize( mockAuthentication(),
+                                                                                mockOwsRequest() );
+
+        assertThat( report.isAuthorized(), is( true ) );
+        assertThat( report.getServiceUrl(), is( "http://localhost/wfs" ) );
+    }
+
+    @Test
+    public void testAuthorizeWithEmptyServiceUrl()
+                    throws Exception {
+        List<ResponseFilterManager> filterManagers = emptyList();
+        WfsServiceManager wfsServiceManagerWithEmptyServiceUrl = new WfsServiceManager( parser, filterManagers,
+                        serviceExceptionWrapper, additionalKeyValuePairs, "" );
+        AuthorizationReport report = wfsServiceManagerWithEmptyServiceUrl.authorize( mockAuthentication(),
+                                                                                     mockOwsRequest() );
+
+        assertThat( report.getServiceUrl(), is( nullValue() ) );
+    }
+
     @Test
     public void testIsResponseFilterEnabledWithoutFilterManagers()
                     throws Exception {
@@ -1,17 +1,38 @@
 package org.deegree.securityproxy.wfs.responsefilter.capabilities;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import javax.servlet.ServletOutputStream;
+
+import org.deegree.securityproxy.filter.StatusCodeResponseBodyWrapper;
 import org.deegree.securityproxy.request.OwsRequest;
 import org.deegree.securityproxy.request.OwsServiceVersion;
 import org.deegree.securityproxy.service.commons.responsefilter.capabilities.XmlFilter;
+import org.deegree.securityproxy.service.commons.responsefilter.capabilities.XmlModificationManager;
 import org.deegree.securityproxy.service.commons.responsefilter.capabilities.XmlModificationManagerCreator;
 import org.deegree.securityproxy.wfs.request.WfsRequest;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import static org.deegree.securityproxy.wfs.request.WfsGetRequestParser.GETCAPABILITIES;
 import static org.deegree.securityproxy.wfs.request.WfsGetRequestParser.GETFEATURE;
+import static org.deegree.securityproxy.wfs.responsefilter.capabilities.WfsCapabilitiesFilterTest.asXml;
+import static org.deegree.securityproxy.wfs.responsefilter.capabilities.WfsCapabilitiesFilterTest.expectedXml;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.xmlmatchers.XmlMatchers.isEquivalentTo;
 
 /**
  * Tests for {@link WfsCapabilitiesResponseFilterManager}.
@@ -63,6 +84,67 @@ public class WfsCapabilitiesResponseFilterManagerTest {
         assertThat( isCorrect, is( false ) );
     }
 
+    @Test
+    public void testFilterResponseShouldStreamFilteredCapabilitiesWithETag()
+                            throws Exception {
+        ByteArrayOutputStream filteredCapabilities = new ByteArrayOutputStream();
+        StatusCodeResponseBodyWrapper response = mockResponse( filteredCapabilities );
+        createFilterManager( new XmlFilter() ).filterResponse( response, createGetCapabilitiesRequest(), null );
+
+        ArgumentCaptor<String> eTag = ArgumentCaptor.forClass( String.class );
+        verify( response ).setHeader( eq( "ETag" ), eTag.capture() );
+        assertThat( eTag.getValue().matches( "\"[0-9a-f]{40}\"" ), is( true ) );
+        assertThat( asXml( filteredCapabilities ), isEquivalentTo( expectedXml() ) );
+    }
+
+    @Test
+    public void testFilterResponseWithMatchingIfNoneMatchShouldRespondNotModifiedWithoutFiltering()
+                            throws Exception {
+        StatusCodeResponseBodyWrapper firstResponse = mockResponse( new ByteArrayOutputStream() );
+        createFilterManager( new XmlFilter() ).filterResponse( firstResponse, createGetCapabilitiesRequest(), null );
+        ArgumentCaptor<String> eTag = ArgumentCaptor.forClass( String.class );
+        verify( firstResponse ).setHeader( eq( "ETag" ), eTag.capture() );
+
+        XmlFilter xmlFilter = spy( new XmlFilter() );
+        ByteArrayOutputStream filteredCapabilities = new ByteArrayOutputStream();
+        StatusCodeResponseBodyWrapper secondResponse = mockResponse( filteredCapabilities );
+        when( secondResponse.getIfNoneMatch() ).thenReturn( eTag.getValue() );
+        createFilterManager( xmlFilter ).filterResponse( secondResponse, createGetCapabilitiesRequest(), null );
+
+        verify( secondResponse ).setStatus( 304 );
+        verify( secondResponse ).setHeader( "ETag", eTag.getValue() );
+        verify( xmlFilter, never() ).filterXml( any( InputStream.class ), any( OutputStream.class ),
+                                                any( XmlModificationManager.class ) );
+        assertThat( filteredCapabilities.size(), is( 0 ) );
+    }
+
+    private WfsCapabilitiesResponseFilterManager createFilterManager( XmlFilter xmlFilter ) {
+        XmlModificationManagerCreator creator = new WfsCapabilitiesModificationManagerCreator( "newGetDcpUrl?",
+                                                                                               "newPostDcpUrl" );
+        return new WfsCapabilitiesResponseFilterManager( xmlFilter, creator );
+    }
+
+    private StatusCodeResponseBodyWrapper mockResponse( final ByteArrayOutputStream filteredStream )
+                            throws IOException {
+        StatusCodeResponseBodyWrapper mockedServletResponse = mock( StatusCodeResponseBodyWrapper.class );
+        when( mockedServletResponse.getStatus() ).thenReturn( 200 );
+        when( mockedServletResponse.getBufferedStream() ).thenAnswer( new Answer<InputStream>() {
+            @Override
+            public InputStream answer( InvocationOnMock invocation ) {
+                return WfsCapabilitiesFilterTest.class.getResourceAsStream( "wfs_110_capabilities.xml" );
+            }
+        } );
+        ServletOutputStream stream = new ServletOutputStream() {
+            @Override
+            public void write( int b ) {
+                filteredStream.write( b );
+            }
+        };
+        when( mockedServletResponse.getRealOutputStream() ).thenReturn( stream );
+        when( mockedServletResponse.getCompressingOutputStream() ).thenReturn( stream );
+        return mockedServletResponse;
+    }
+
     private OwsRequest createWfsRequest() {
         return new WfsRequest( GETCAPABILITIES, new OwsServiceVersion( 1, 1, 0 ) );
     }
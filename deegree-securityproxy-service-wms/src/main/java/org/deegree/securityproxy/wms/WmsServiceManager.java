@@ -1,5 +1,7 @@
 package org.deegree.securityproxy.wms;
 
+import static org.deegree.securityproxy.request.parser.OwsRequestContext.retrieveContext;
+
 import org.deegree.securityproxy.authorization.RequestAuthorizationManager;
 import org.deegree.securityproxy.authorization.logging.AuthorizationReport;
 import org.deegree.securityproxy.exception.ServiceExceptionManager;
@@ -10,9 +12,9 @@ import org.deegree.securityproxy.request.OwsRequest;
 import org.deegree.securityproxy.request.UnsupportedRequestTypeException;
 import org.deegree.securityproxy.request.parser.OwsRequestParser;
 import org.deegree.securityproxy.request.parser.RequestParsingException;
-import org.deegree.securityproxy.request.parser.ServiceTypeParser;
 import org.deegree.securityproxy.responsefilter.ResponseFilterException;
 import org.deegree.securityproxy.responsefilter.ResponseFilterManager;
+import org.deegree.securityproxy.responsefilter.ResponseFilterRoutingTable;
 import org.deegree.securityproxy.responsefilter.logging.DefaultResponseFilterReport;
 import org.deegree.securityproxy.responsefilter.logging.ResponseFilterReport;
 import org.springframework.security.core.Authentication;
@@ -35,7 +37,7 @@ class WmsServiceManager implements ServiceManager, ServiceExceptionManager {
 
     private final RequestAuthorizationManager requestAuthorizationManager;
 
-    private final List<ResponseFilterManager> filterManagers;
+    private final ResponseFilterRoutingTable filterRoutingTable;
 
     private final ServiceExceptionWrapper serviceExceptionWrapper;
 
@@ -44,7 +46,7 @@ class WmsServiceManager implements ServiceManager, ServiceExceptionManager {
                               ServiceExceptionWrapper serviceExceptionWrapper ) {
         this.parser = parser;
         this.requestAuthorizationManager = requestAuthorizationManager;
-        this.filterManagers = filterManagers;
+        this.filterRoutingTable = new ResponseFilterRoutingTable( filterManagers );
         if ( serviceExceptionWrapper != null )
             this.serviceExceptionWrapper = serviceExceptionWrapper;
         else
@@ -64,21 +66,16 @@ class WmsServiceManager implements ServiceManager, ServiceExceptionManager {
 
     @Override
     public boolean isResponseFilterEnabled( OwsRequest owsRequest ) {
-        for ( ResponseFilterManager filterManager : filterManagers ) {
-            if ( filterManager.canBeFiltered( owsRequest ) )
-                return true;
-        }
-        return false;
+        return filterRoutingTable.resolve( owsRequest ) != null;
     }
 
     @Override
     public ResponseFilterReport filterResponse( StatusCodeResponseBodyWrapper wrappedResponse,
                                                 Authentication authentication, OwsRequest owsRequest )
                     throws ResponseFilterException {
-        for ( ResponseFilterManager filterManager : filterManagers ) {
-            if ( filterManager.canBeFiltered( owsRequest ) )
-                return filterManager.filterResponse( wrappedResponse, owsRequest, authentication );
-        }
+        ResponseFilterManager filterManager = filterRoutingTable.resolve( owsRequest );
+        if ( filterManager != null )
+            return filterManager.filterResponse( wrappedResponse, owsRequest, authentication );
         return createEmptyFilterReport();
     }
 
@@ -91,7 +88,7 @@ class WmsServiceManager implements ServiceManager, ServiceExceptionManager {
     public boolean isServiceTypeSupported( String serviceType, HttpServletRequest request ) {
         if ( serviceType != null )
             return doesEqualWms( serviceType );
-        return doesEqualWms( new ServiceTypeParser().determineServiceType( request ) );
+        return doesEqualWms( retrieveContext( request ).getServiceType() );
     }
 
     private boolean doesEqualWms( String serviceType ) {
@@ -159,6 +159,7 @@ public class WmsRequest extends OwsRequest {
     /**
      * @return the serviceName, never <code>null</code>
      */
+    @Override
     public String getServiceName() {
         return serviceName;
     }
@@ -166,6 +167,7 @@ public class WmsRequest extends OwsRequest {
     /**
      * @return the layerNames as unmodifiable list, may be empty but never <code>null</code>
      */
+    @Override
     public List<String> getLayerNames() {
         return Collections.unmodifiableList( layerNames );
     }
@@ -2,13 +2,13 @@ package org.deegree.securityproxy.wms.request;
 
 import static java.lang.String.format;
 import static java.util.Arrays.asList;
+import static org.deegree.securityproxy.request.KvpTokenizer.splitCommaSeparatedValue;
+import static org.deegree.securityproxy.request.parser.OwsRequestContext.retrieveContext;
 import static org.deegree.securityproxy.request.parser.OwsRequestParserUtils.checkRequiredParameter;
 import static org.deegree.securityproxy.request.parser.OwsRequestParserUtils.checkSingleRequiredParameter;
 import static org.deegree.securityproxy.request.parser.OwsRequestParserUtils.evaluateVersion;
-import static org.deegree.securityproxy.request.KvpNormalizer.normalizeKvpMap;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -16,6 +16,7 @@ import javax.servlet.http.HttpServletRequest;
 
 import org.deegree.securityproxy.request.OwsServiceVersion;
 import org.deegree.securityproxy.request.UnsupportedRequestTypeException;
+import org.deegree.securityproxy.request.parser.OwsRequestContext;
 import org.deegree.securityproxy.request.parser.OwsRequestParser;
 
 import com.vividsolutions.jts.geom.Envelope;
@@ -71,28 +72,28 @@ public class WmsRequestParser implements OwsRequestParser {
     private final List<OwsServiceVersion> supportedVersion = asList( VERSION_130 );
 
     @Override
-    @SuppressWarnings("unchecked")
     public WmsRequest parse( HttpServletRequest request )
                             throws UnsupportedRequestTypeException {
         if ( request == null )
             throw new IllegalArgumentException( "Request must not be null!" );
-        String serviceName = evaluateServiceName( request );
-        Map<String, String[]> normalizedParameterMap = normalizeKvpMap( request.getParameterMap() );
+        OwsRequestContext context = retrieveContext( request );
+        String serviceName = context.getServiceName();
+        Map<String, String[]> normalizedParameterMap = context.getNormalizedParameterMap();
         checkParameters( normalizedParameterMap );
         return parseRequest( serviceName, normalizedParameterMap );
     }
 
     Envelope parseBbox( String bboxParameter ) {
-        String[] coordinates = bboxParameter.split( "," );
-        if ( coordinates.length != 4 ) {
+        List<String> coordinates = splitCommaSeparatedValue( bboxParameter );
+        if ( coordinates.size() != 4 ) {
             String msg = format( "Format of Parameter 'BBox' is invalid, must be minX,minY,maxX,maxY, was %s",
                                  bboxParameter );
             throw new IllegalArgumentException( msg );
         }
-        double minX = parseDouble( "minX", coordinates[0] );
-        double minY = parseDouble( "minY", coordinates[1] );
-        double maxX = parseDouble( "maxY", coordinates[2] );
-        double maxY = parseDouble( "maxY", coordinates[3] );
+        double minX = parseDouble( "minX", coordinates.get( 0 ) );
+        double minY = parseDouble( "minY", coordinates.get( 1 ) );
+        double maxX = parseDouble( "maxY", coordinates.get( 2 ) );
+        double maxY = parseDouble( "maxY", coordinates.get( 3 ) );
 
         return new Envelope( minX, maxX, minY, maxY );
     }
@@ -136,22 +137,11 @@ public class WmsRequestParser implements OwsRequestParser {
         return new WmsRequest( GETCAPABILITIES, version, serviceName );
     }
 
-    private String evaluateServiceName( HttpServletRequest request ) {
-        String servletPath = request.getServletPath();
-        if ( servletPath == null )
-            throw new IllegalArgumentException( "Service name must not be null!" );
-        if ( servletPath.contains( "/" ) ) {
-            String[] splittedServletPath = servletPath.split( "/" );
-            return splittedServletPath[splittedServletPath.length - 1];
-        }
-        return servletPath;
-    }
-
     private List<String> extractLayers( String[] layerParameters ) {
         List<String> separatedLayers = new ArrayList<String>();
         if ( layerParameters != null ) {
             for ( String layerParameter : layerParameters ) {
-                Collections.addAll( separatedLayers, layerParameter.split( "," ) );
+                separatedLayers.addAll( splitCommaSeparatedValue( layerParameter ) );
             }
         }
         return separatedLayers;
@@ -41,6 +41,7 @@ import org.deegree.securityproxy.request.OwsRequest;
 import org.deegree.securityproxy.responsefilter.ResponseFilterManager;
 import org.deegree.securityproxy.service.commons.responsefilter.capabilities.AbstractCapabilitiesResponseFilterManager;
 import org.deegree.securityproxy.service.commons.responsefilter.capabilities.DecisionMaker;
+import org.deegree.securityproxy.service.commons.responsefilter.capabilities.FilteredCapabilitiesCache;
 import org.deegree.securityproxy.service.commons.responsefilter.capabilities.XmlModificationManagerCreator;
 import org.deegree.securityproxy.service.commons.responsefilter.capabilities.XmlFilter;
 import org.deegree.securityproxy.wms.request.WmsRequest;
@@ -65,6 +66,20 @@ public class WmsCapabilitiesResponseFilterManager extends AbstractCapabilitiesRe
         super( capabilitiesFilter, decisionMakerCreator );
     }
 
+    /**
+     * @param capabilitiesFilter
+     *            used to filter the capabilities, never <code>null</code>
+     * @param decisionMakerCreator
+     *            used to create the {@link DecisionMaker}, never <code>null</code>
+     * @param filteredCapabilitiesCache
+     *            caches the filtered capabilities, may be <code>null</code> if the capabilities should not be cached
+     */
+    public WmsCapabilitiesResponseFilterManager( XmlFilter capabilitiesFilter,
+                                                 XmlModificationManagerCreator decisionMakerCreator,
+                                                 FilteredCapabilitiesCache filteredCapabilitiesCache ) {
+        super( capabilitiesFilter, decisionMakerCreator, filteredCapabilitiesCache );
+    }
+
     @Override
     protected boolean isCorrectServiceType( OwsRequest owsRequest ) {
         return WmsRequest.class.equals( owsRequest.getClass() );
@@ -75,4 +90,9 @@ public class WmsCapabilitiesResponseFilterManager extends AbstractCapabilitiesRe
         return GETCAPABILITIES.equalsIgnoreCase( owsRequest.getOperationType() );
     }
 
-}
\ No newline at end of file
+    @Override
+    protected String retrieveServiceName( OwsRequest owsRequest ) {
+        return ( (WmsRequest) owsRequest ).getServiceName();
+    }
+
+}
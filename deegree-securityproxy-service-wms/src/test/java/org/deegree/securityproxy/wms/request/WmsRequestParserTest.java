@@ -46,6 +46,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Vector;
 
+import static java.util.Arrays.asList;
 import static org.deegree.securityproxy.wms.request.WmsRequestParser.GETCAPABILITIES;
 import static org.deegree.securityproxy.wms.request.WmsRequestParser.GETFEATUREINFO;
 import static org.deegree.securityproxy.wms.request.WmsRequestParser.GETMAP;
@@ -208,6 +209,24 @@ public class WmsRequestParserTest {
         assertThat( layerNames, hasItem( LAYER_NAME_2 ) );
     }
 
+    @Test
+    public void testParseFromGetMapRequestWithQueryString()
+                            throws UnsupportedRequestTypeException {
+        HttpServletRequest request = Mockito.mock( HttpServletRequest.class );
+        when( request.getMethod() ).thenReturn( "GET" );
+        when( request.getServletPath() ).thenReturn( SERVICE_NAME_WITH_PATH );
+        when( request.getQueryString() ).thenReturn( "service=WMS&version=1.3.0&request=GetMap&layers=" + LAYER_NAME
+                                                             + "%2CotherLayer&styles=&crs=EPSG%3A4326&bbox="
+                                                             + BBOX_NAME + "&width=50&height=50&format=image%2Fpng" );
+        WmsRequest wmsRequest = (WmsRequest) parser.parse( request );
+
+        assertThat( wmsRequest.getLayerNames(), is( asList( LAYER_NAME, "otherLayer" ) ) );
+        assertThat( wmsRequest.getBbox(), is( BBOX ) );
+        assertThat( wmsRequest.getCrs(), is( CRS_NAME ) );
+        assertThat( wmsRequest.getFormat(), is( "image/png" ) );
+        assertThat( wmsRequest.getServiceName(), is( SERVICE_NAME ) );
+    }
+
     @Test
     public void testParseFromGetMapRequestShouldParseFormat()
                             throws UnsupportedRequestTypeException {
@@ -4,10 +4,15 @@ import org.deegree.securityproxy.authentication.ows.domain.LimitedOwsServiceVers
 import org.deegree.securityproxy.authentication.ows.raster.OwsPermission;
 import org.deegree.securityproxy.filter.StatusCodeResponseBodyWrapper;
 import org.deegree.securityproxy.request.OwsRequest;
+import org.deegree.securityproxy.service.commons.responsefilter.capabilities.FilteredCapabilitiesCache;
 import org.deegree.securityproxy.service.commons.responsefilter.capabilities.XmlFilter;
 import org.deegree.securityproxy.service.commons.responsefilter.capabilities.XmlModificationManagerCreator;
 import org.deegree.securityproxy.wms.request.WmsRequest;
+import org.apache.commons.io.IOUtils;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 
@@ -21,6 +26,7 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 import static org.deegree.securityproxy.wms.request.WmsRequestParser.GETCAPABILITIES;
 import static org.deegree.securityproxy.wms.request.WmsRequestParser.GETFEATUREINFO;
@@ -29,9 +35,12 @@ import static org.deegree.securityproxy.wms.request.WmsRequestParser.VERSION_130
 import static org.deegree.securityproxy.wms.request.WmsRequestParser.WMS_SERVICE;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doCallRealMethod;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.xmlmatchers.XmlMatchers.isEquivalentTo;
 import static org.xmlmatchers.transform.XmlConverters.the;
@@ -169,6 +178,117 @@ public class WmsCapabilitiesResponseFilterManagerTest {
         assertThat( asXml( filteredCapabilities ), isEquivalentTo( expectedXml( "wms_1_3_0-ReplacedDcpUrls.xml" ) ) );
     }
 
+    @Test
+    public void testFilterResponseWithCacheShouldReuseFilteredResponseOfSamePermissions()
+                    throws Exception {
+        FilteredCapabilitiesCache cache = new FilteredCapabilitiesCache( 10, 60000 );
+        WmsCapabilitiesResponseFilterManager filterManagerWithCache = createFilterManagerWithCache( cache );
+        WmsRequest wmsRequest = createWms130CapabilitiesRequest();
+
+        ByteArrayOutputStream firstFilteredCapabilities = new ByteArrayOutputStream();
+        filterManagerWithCache.filterResponse( mockStatusCodeResponseBodyWrapperWithFreshStreams( firstFilteredCapabilities,
+                                                                                                  false ),
+                                               wmsRequest, createAuthenticationTwoLayersGetMap() );
+        ByteArrayOutputStream secondFilteredCapabilities = new ByteArrayOutputStream();
+        filterManagerWithCache.filterResponse( mockStatusCodeResponseBodyWrapperWithFreshStreams( secondFilteredCapabilities,
+                                                                                                  false ),
+                                               wmsRequest, createAuthenticationOneLayerGetMapOneLayerGetFeatureInfo() );
+
+        assertThat( cache.size(), is( 1 ) );
+        assertThat( asXml( firstFilteredCapabilities ), isEquivalentTo( expectedXml( "wms_1_3_0-Filtered.xml" ) ) );
+        assertThat( asXml( secondFilteredCapabilities ), isEquivalentTo( expectedXml( "wms_1_3_0-Filtered.xml" ) ) );
+    }
+
+    @Test
+    public void testFilterResponseWithCacheAndDifferentPermissionsShouldCacheBoth()
+                    throws Exception {
+        FilteredCapabilitiesCache cache = new FilteredCapabilitiesCache( 10, 60000 );
+        WmsCapabilitiesResponseFilterManager filterManagerWithCache = createFilterManagerWithCache( cache );
+        WmsRequest wmsRequest = createWms130CapabilitiesRequest();
+
+        filterManagerWithCache.filterResponse( mockStatusCodeResponseBodyWrapperWithFreshStreams( new ByteArrayOutputStream(),
+                                                                                                  false ),
+                                               wmsRequest, createAuthenticationTwoLayersGetMap() );
+        ByteArrayOutputStream filteredCapabilities = new ByteArrayOutputStream();
+        filterManagerWithCache.filterResponse( mockStatusCodeResponseBodyWrapperWithFreshStreams( filteredCapabilities,
+                                                                                                  false ),
+                                               wmsRequest, createAuthenticationUnknownLayerGetMap() );
+
+        assertThat( cache.size(), is( 2 ) );
+        assertThat( asXml( filteredCapabilities ), isEquivalentTo( expectedXml( "wms_1_3_0-FilteredComplete.xml" ) ) );
+    }
+
+    @Test
+    public void testFilterResponseWithCacheAndGzipAcceptedShouldWriteGzippedResponse()
+                    throws Exception {
+        FilteredCapabilitiesCache cache = new FilteredCapabilitiesCache( 10, 60000 );
+        ByteArrayOutputStream filteredCapabilities = new ByteArrayOutputStream();
+        StatusCodeResponseBodyWrapper response = mockStatusCodeResponseBodyWrapperWithFreshStreams( filteredCapabilities,
+                                                                                                    true );
+        createFilterManagerWithCache( cache ).filterResponse( response, createWms130CapabilitiesRequest(),
+                                                              createAuthenticationTwoLayersGetMap() );
+
+        verify( response ).setHeader( "Content-Encoding", "gzip" );
+        assertThat( asXml( gunzip( filteredCapabilities ) ), isEquivalentTo( expectedXml( "wms_1_3_0-Filtered.xml" ) ) );
+    }
+
+    @Test
+    public void testFilterResponseShouldSetETag()
+                    throws Exception {
+        StatusCodeResponseBodyWrapper response = mockStatusCodeResponseBodyWrapperWithFreshStreams( new ByteArrayOutputStream(),
+                                                                                                    false );
+        createFilterManager().filterResponse( response, createWms130CapabilitiesRequest(),
+                                              createAuthenticationTwoLayersGetMap() );
+
+        String eTag = retrieveETag( response );
+        assertThat( eTag.startsWith( "\"" ), is( true ) );
+        assertThat( eTag.endsWith( "\"" ), is( true ) );
+    }
+
+    @Test
+    public void testFilterResponseWithMatchingIfNoneMatchShouldRespondNotModified()
+                    throws Exception {
+        WmsCapabilitiesResponseFilterManager filterManager = createFilterManager();
+        StatusCodeResponseBodyWrapper firstResponse = mockStatusCodeResponseBodyWrapperWithFreshStreams( new ByteArrayOutputStream(),
+                                                                                                         false );
+        filterManager.filterResponse( firstResponse, createWms130CapabilitiesRequest(),
+                                      createAuthenticationTwoLayersGetMap() );
+        String eTag = retrieveETag( firstResponse );
+
+        ByteArrayOutputStream filteredCapabilities = new ByteArrayOutputStream();
+        StatusCodeResponseBodyWrapper secondResponse = mockStatusCodeResponseBodyWrapperWithFreshStreams( filteredCapabilities,
+                                                                                                          false );
+        when( secondResponse.getIfNoneMatch() ).thenReturn( eTag );
+        filterManager.filterResponse( secondResponse, createWms130CapabilitiesRequest(),
+                                      createAuthenticationTwoLayersGetMap() );
+
+        verify( secondResponse ).setStatus( 304 );
+        verify( secondResponse ).setHeader( "ETag", eTag );
+        assertThat( filteredCapabilities.size(), is( 0 ) );
+    }
+
+    @Test
+    public void testFilterResponseWithIfNoneMatchOfDifferentPermissionsShouldFilterResponse()
+                    throws Exception {
+        WmsCapabilitiesResponseFilterManager filterManager = createFilterManager();
+        StatusCodeResponseBodyWrapper firstResponse = mockStatusCodeResponseBodyWrapperWithFreshStreams( new ByteArrayOutputStream(),
+                                                                                                         false );
+        filterManager.filterResponse( firstResponse, createWms130CapabilitiesRequest(),
+                                      createAuthenticationTwoLayersGetMap() );
+        String eTag = retrieveETag( firstResponse );
+
+        ByteArrayOutputStream filteredCapabilities = new ByteArrayOutputStream();
+        StatusCodeResponseBodyWrapper secondResponse = mockStatusCodeResponseBodyWrapperWithFreshStreams( filteredCapabilities,
+                                                                                                          false );
+        when( secondResponse.getIfNoneMatch() ).thenReturn( eTag );
+        filterManager.filterResponse( secondResponse, createWms130CapabilitiesRequest(),
+                                      createAuthenticationUnknownLayerGetMap() );
+
+        verify( secondResponse, never() ).setStatus( 304 );
+        assertThat( retrieveETag( secondResponse ).equals( eTag ), is( false ) );
+        assertThat( asXml( filteredCapabilities ), isEquivalentTo( expectedXml( "wms_1_3_0-FilteredComplete.xml" ) ) );
+    }
+
     private WmsCapabilitiesResponseFilterManager createFilterManager() {
         XmlFilter capabilitiesFilter = new XmlFilter();
         XmlModificationManagerCreator decisionMakerCreator = new WmsCapabilitiesModificationManagerCreator();
@@ -182,6 +302,12 @@ public class WmsCapabilitiesResponseFilterManagerTest {
         return new WmsCapabilitiesResponseFilterManager( capabilitiesFilter, decisionMakerCreator );
     }
 
+    private WmsCapabilitiesResponseFilterManager createFilterManagerWithCache( FilteredCapabilitiesCache cache ) {
+        XmlFilter capabilitiesFilter = new XmlFilter();
+        XmlModificationManagerCreator decisionMakerCreator = new WmsCapabilitiesModificationManagerCreator();
+        return new WmsCapabilitiesResponseFilterManager( capabilitiesFilter, decisionMakerCreator, cache );
+    }
+
     private WmsRequest createWms130CapabilitiesRequest() {
         return new WmsRequest( GETCAPABILITIES, VERSION_130, "serviceName" );
     }
@@ -259,17 +385,57 @@ public class WmsCapabilitiesResponseFilterManagerTest {
     }
 
     private StatusCodeResponseBodyWrapper mockStatusCodeResponseBodyWrapper( ByteArrayOutputStream filteredStream,
-                                                                             String originalXmlFileName )
+                                                                             final String originalXmlFileName )
                     throws IOException {
         StatusCodeResponseBodyWrapper mockedServletResponse = mock( StatusCodeResponseBodyWrapper.class );
         when( mockedServletResponse.getStatus() ).thenReturn( 200 );
-        when( mockedServletResponse.getBufferedStream() ).thenReturn( retrieveResourceAsStream( originalXmlFileName ),
-                                                                      retrieveResourceAsStream( originalXmlFileName ) );
+        when( mockedServletResponse.getBufferedStream() ).thenAnswer( new Answer<InputStream>() {
+            @Override
+            public InputStream answer( InvocationOnMock invocation ) {
+                return retrieveResourceAsStream( originalXmlFileName );
+            }
+        } );
         when( mockedServletResponse.getRealOutputStream() ).thenReturn( createStream( filteredStream ) );
+        when( mockedServletResponse.getCompressingOutputStream() ).thenReturn( createStream( filteredStream ) );
         doCallRealMethod().when( mockedServletResponse ).copyBufferedStreamToRealStream();
         return mockedServletResponse;
     }
 
+    private StatusCodeResponseBodyWrapper mockStatusCodeResponseBodyWrapperWithFreshStreams( ByteArrayOutputStream filteredStream,
+                                                                                             boolean isGzipAccepted )
+                    throws IOException {
+        StatusCodeResponseBodyWrapper mockedServletResponse = mock( StatusCodeResponseBodyWrapper.class );
+        when( mockedServletResponse.getStatus() ).thenReturn( 200 );
+        when( mockedServletResponse.isGzipAccepted() ).thenReturn( isGzipAccepted );
+        when( mockedServletResponse.getBufferedStream() ).thenAnswer( new Answer<InputStream>() {
+            @Override
+            public InputStream answer( InvocationOnMock invocation ) {
+                return retrieveResourceAsStream( "wms_1_3_0.xml" );
+            }
+        } );
+        when( mockedServletResponse.getRealOutputStream() ).thenReturn( createStream( filteredStream ) );
+        when( mockedServletResponse.getCompressingOutputStream() ).thenReturn( createStream( filteredStream ) );
+        return mockedServletResponse;
+    }
+
+    private String retrieveETag( StatusCodeResponseBodyWrapper response ) {
+        ArgumentCaptor<String> eTag = ArgumentCaptor.forClass( String.class );
+        verify( response ).setHeader( eq( "ETag" ), eTag.capture() );
+        return eTag.getValue();
+    }
+
+    private ByteArrayOutputStream gunzip( ByteArrayOutputStream gzippedStream )
+                    throws IOException {
+        ByteArrayOutputStream unzippedStream = new ByteArrayOutputStream();
+        GZIPInputStream gzipInputStream = new GZIPInputStream( new ByteArrayInputStream( gzippedStream.toByteArray() ) );
+        try {
+            IOUtils.copy( gzipInputStream, unzippedStream );
+        } finally {
+            gzipInputStream.close();
+        }
+        return unzippedStream;
+    }
+
     private Source expectedXml( String expectedFile ) {
         return new StreamSource( retrieveResourceAsStream( expectedFile ) );
     }
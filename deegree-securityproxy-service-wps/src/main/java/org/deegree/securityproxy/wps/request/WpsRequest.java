@@ -92,6 +92,7 @@ public class WpsRequest extends OwsRequest {
     /**
      * @return the serviceName, never <code>null</code>
      */
+    @Override
     public String getServiceName() {
         return serviceName;
     }
@@ -103,6 +104,14 @@ public class WpsRequest extends OwsRequest {
         return identifiers;
     }
 
+    /**
+     * @return the identifiers of the requested processes, never <code>null</code>
+     */
+    @Override
+    public List<String> getLayerNames() {
+        return getIdentifiers();
+    }
+
     @Override
     public String toString() {
         return "WpsRequest [operationType=" + getOperationType() + ", serviceVersion=" + getServiceVersion()
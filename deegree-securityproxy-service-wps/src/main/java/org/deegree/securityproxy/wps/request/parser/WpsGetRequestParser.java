@@ -1,14 +1,13 @@
 package org.deegree.securityproxy.wps.request.parser;
 
 import static java.util.Arrays.asList;
+import static org.deegree.securityproxy.request.KvpTokenizer.splitCommaSeparatedValue;
+import static org.deegree.securityproxy.request.parser.OwsRequestContext.retrieveContext;
 import static org.deegree.securityproxy.request.parser.OwsRequestParserUtils.checkRequiredParameter;
 import static org.deegree.securityproxy.request.parser.OwsRequestParserUtils.checkSingleRequiredParameter;
-import static org.deegree.securityproxy.request.parser.OwsRequestParserUtils.evaluateServiceName;
 import static org.deegree.securityproxy.request.parser.OwsRequestParserUtils.evaluateVersion;
-import static org.deegree.securityproxy.request.KvpNormalizer.normalizeKvpMap;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -16,6 +15,7 @@ import javax.servlet.http.HttpServletRequest;
 
 import org.deegree.securityproxy.request.OwsServiceVersion;
 import org.deegree.securityproxy.request.UnsupportedRequestTypeException;
+import org.deegree.securityproxy.request.parser.OwsRequestContext;
 import org.deegree.securityproxy.request.parser.OwsRequestParser;
 import org.deegree.securityproxy.wps.request.WpsRequest;
 
@@ -49,13 +49,13 @@ public class WpsGetRequestParser implements OwsRequestParser {
     private final List<OwsServiceVersion> supportedVersion = asList( VERSION_100 );
 
     @Override
-    @SuppressWarnings("unchecked")
     public WpsRequest parse( HttpServletRequest request )
                     throws UnsupportedRequestTypeException {
         if ( request == null )
             throw new IllegalArgumentException( "Request must not be null!" );
-        String serviceName = evaluateServiceName( request );
-        Map<String, String[]> normalizedParameterMap = normalizeKvpMap( request.getParameterMap() );
+        OwsRequestContext context = retrieveContext( request );
+        String serviceName = context.getServiceName();
+        Map<String, String[]> normalizedParameterMap = context.getNormalizedParameterMap();
         checkParameters( normalizedParameterMap );
         return parseRequest( serviceName, normalizedParameterMap );
     }
@@ -131,7 +131,7 @@ public class WpsGetRequestParser implements OwsRequestParser {
         List<String> separatedIdentifiers = new ArrayList<String>();
         if ( identifierParameters != null ) {
             for ( String identifierParameter : identifierParameters ) {
-                Collections.addAll( separatedIdentifiers, identifierParameter.split( "," ) );
+                separatedIdentifiers.addAll( splitCommaSeparatedValue( identifierParameter ) );
             }
         }
         return separatedIdentifiers;
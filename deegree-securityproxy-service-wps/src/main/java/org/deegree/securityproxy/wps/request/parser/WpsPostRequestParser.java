@@ -35,7 +35,8 @@
  ----------------------------------------------------------------------------*/
 package org.deegree.securityproxy.wps.request.parser;
 
-import static org.deegree.securityproxy.xml.XmlStreamUtils.createReader;
+import static org.deegree.securityproxy.request.parser.OwsRequestContext.retrieveContext;
+import static org.deegree.securityproxy.request.parser.PostRequestPreScanner.retrievePreScan;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -43,15 +44,13 @@ import java.util.List;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.xml.namespace.QName;
-import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
-import javax.xml.stream.XMLStreamReader;
 
 import org.deegree.securityproxy.request.OwsRequest;
+import org.deegree.securityproxy.request.PostRequestPreScan;
 import org.deegree.securityproxy.request.OwsServiceVersion;
 import org.deegree.securityproxy.request.UnsupportedRequestTypeException;
 import org.deegree.securityproxy.request.parser.OwsRequestParser;
-import org.deegree.securityproxy.request.parser.OwsRequestParserUtils;
 import org.deegree.securityproxy.request.parser.RequestParsingException;
 import org.deegree.securityproxy.wps.request.WpsRequest;
 
@@ -73,12 +72,12 @@ public class WpsPostRequestParser implements OwsRequestParser {
     public OwsRequest parse( HttpServletRequest request )
                     throws UnsupportedRequestTypeException, RequestParsingException {
         try {
-            XMLStreamReader reader = createReader( request.getInputStream() );
+            PostRequestPreScan preScan = retrievePreScan( request );
 
-            checkElementName( reader );
-            checkServiceAttribute( reader );
+            checkElementName( preScan );
+            checkServiceAttribute( preScan );
 
-            return parseRequest( request, reader );
+            return parseRequest( request, preScan );
         } catch ( IOException e ) {
             throw new RequestParsingException( e );
         } catch ( XMLStreamException e ) {
@@ -86,44 +85,37 @@ public class WpsPostRequestParser implements OwsRequestParser {
         }
     }
 
-    private OwsRequest parseRequest( HttpServletRequest request, XMLStreamReader reader )
-                    throws XMLStreamException {
-        String serviceName = OwsRequestParserUtils.evaluateServiceName( request );
-        OwsServiceVersion version = parseVersion( reader );
+    private OwsRequest parseRequest( HttpServletRequest request, PostRequestPreScan preScan ) {
+        String serviceName = retrieveContext( request ).getServiceName();
+        OwsServiceVersion version = parseVersion( preScan );
 
-        List<String> identifiers = parseIdentifiers( reader );
+        List<String> identifiers = parseIdentifiers( preScan );
         return new WpsRequest( "Execute", version, serviceName, identifiers );
     }
 
-    private OwsServiceVersion parseVersion( XMLStreamReader parser ) {
-        String versionValue = parser.getAttributeValue( null, "version" );
+    private OwsServiceVersion parseVersion( PostRequestPreScan preScan ) {
+        String versionValue = preScan.getVersion();
         if ( versionValue != null )
             return new OwsServiceVersion( versionValue );
         throw new IllegalArgumentException( "version is not set" );
     }
 
-    private List<String> parseIdentifiers( XMLStreamReader reader )
-                    throws XMLStreamException {
+    private List<String> parseIdentifiers( PostRequestPreScan preScan ) {
         List<String> identifiers = new ArrayList<String>();
-        while ( reader.getEventType() != XMLStreamConstants.END_DOCUMENT ) {
-            if ( reader.isStartElement() && IDENTIFIER_NAME.equals( reader.getName() ) ) {
-                String identifier = reader.getElementText();
-                identifiers.add( identifier );
-                return identifiers;
-            }
-            reader.next();
-        }
+        List<String> scannedIdentifiers = preScan.getIdentifiers( IDENTIFIER_NAME );
+        if ( !scannedIdentifiers.isEmpty() )
+            identifiers.add( scannedIdentifiers.get( 0 ) );
         return identifiers;
     }
 
-    private void checkServiceAttribute( XMLStreamReader parser ) {
-        String serviceValue = parser.getAttributeValue( null, "service" );
+    private void checkServiceAttribute( PostRequestPreScan preScan ) {
+        String serviceValue = preScan.getService();
         if ( !"WPS".equalsIgnoreCase( serviceValue ) )
             throw new IllegalArgumentException( "Request is not WPS request!" );
     }
 
-    private void checkElementName( XMLStreamReader parser ) {
-        QName rootElementName = parser.getName();
+    private void checkElementName( PostRequestPreScan preScan ) {
+        QName rootElementName = preScan.getRootElementName();
         if ( !EXECUTE_NAME.equals( rootElementName ) )
             throw new IllegalArgumentException( "Request is not Execute request!" );
     }
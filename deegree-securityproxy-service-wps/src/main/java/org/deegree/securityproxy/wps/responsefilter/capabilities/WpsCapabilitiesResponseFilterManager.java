@@ -40,6 +40,7 @@ import static org.deegree.securityproxy.wps.request.parser.WpsGetRequestParser.G
 import org.deegree.securityproxy.request.OwsRequest;
 import org.deegree.securityproxy.responsefilter.ResponseFilterManager;
 import org.deegree.securityproxy.service.commons.responsefilter.capabilities.AbstractCapabilitiesResponseFilterManager;
+import org.deegree.securityproxy.service.commons.responsefilter.capabilities.FilteredCapabilitiesCache;
 import org.deegree.securityproxy.service.commons.responsefilter.capabilities.XmlFilter;
 import org.deegree.securityproxy.service.commons.responsefilter.capabilities.XmlModificationManager;
 import org.deegree.securityproxy.service.commons.responsefilter.capabilities.XmlModificationManagerCreator;
@@ -66,6 +67,20 @@ public class WpsCapabilitiesResponseFilterManager extends AbstractCapabilitiesRe
         super( capabilitiesFilter, xmlModificationManagerCreator );
     }
 
+    /**
+     * @param capabilitiesFilter
+     *            used to filter the capabilities, never <code>null</code>
+     * @param xmlModificationManagerCreator
+     *            used to create the {@link XmlModificationManager}, never <code>null</code>
+     * @param filteredCapabilitiesCache
+     *            caches the filtered capabilities, may be <code>null</code> if the capabilities should not be cached
+     */
+    public WpsCapabilitiesResponseFilterManager( XmlFilter capabilitiesFilter,
+                                                 XmlModificationManagerCreator xmlModificationManagerCreator,
+                                                 FilteredCapabilitiesCache filteredCapabilitiesCache ) {
+        super( capabilitiesFilter, xmlModificationManagerCreator, filteredCapabilitiesCache );
+    }
+
     @Override
     protected boolean isCorrectServiceType( OwsRequest request ) {
         return WpsRequest.class.equals( request.getClass() );
@@ -76,4 +91,9 @@ public class WpsCapabilitiesResponseFilterManager extends AbstractCapabilitiesRe
         return GETCAPABILITIES.equals( request.getOperationType() );
     }
 
-}
\ No newline at end of file
+    @Override
+    protected String retrieveServiceName( OwsRequest owsRequest ) {
+        return ( (WpsRequest) owsRequest ).getServiceName();
+    }
+
+}
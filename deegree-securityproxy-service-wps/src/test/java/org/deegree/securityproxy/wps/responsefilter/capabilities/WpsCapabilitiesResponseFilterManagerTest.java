@@ -34,6 +34,8 @@ import org.deegree.securityproxy.service.commons.responsefilter.capabilities.Xml
 import org.deegree.securityproxy.service.commons.responsefilter.capabilities.XmlModificationManagerCreator;
 import org.deegree.securityproxy.wps.request.WpsRequest;
 import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 
@@ -244,17 +246,23 @@ public class WpsCapabilitiesResponseFilterManagerTest {
         when( mockedServletResponse.getBufferedStream() ).thenReturn( new ByteArrayInputStream( new byte[] {} ) );
         when( mockedServletResponse.getOutputStream() ).thenReturn( mock( ServletOutputStream.class ) );
         when( mockedServletResponse.getRealOutputStream() ).thenReturn( mock( ServletOutputStream.class ) );
+        when( mockedServletResponse.getCompressingOutputStream() ).thenReturn( mock( ServletOutputStream.class ) );
         return mockedServletResponse;
     }
 
     private StatusCodeResponseBodyWrapper mockStatusCodeResponseBodyWrapper( ByteArrayOutputStream filteredStream,
-                                                                             String originalXmlFileName )
+                                                                             final String originalXmlFileName )
                     throws IOException {
         StatusCodeResponseBodyWrapper mockedServletResponse = mock( StatusCodeResponseBodyWrapper.class );
         when( mockedServletResponse.getStatus() ).thenReturn( 200 );
-        when( mockedServletResponse.getBufferedStream() ).thenReturn( retrieveResourceAsStream( originalXmlFileName ),
-                                                                      retrieveResourceAsStream( originalXmlFileName ) );
+        when( mockedServletResponse.getBufferedStream() ).thenAnswer( new Answer<InputStream>() {
+            @Override
+            public InputStream answer( InvocationOnMock invocation ) {
+                return retrieveResourceAsStream( originalXmlFileName );
+            }
+        } );
         when( mockedServletResponse.getRealOutputStream() ).thenReturn( createStream( filteredStream ) );
+        when( mockedServletResponse.getCompressingOutputStream() ).thenReturn( createStream( filteredStream ) );
         doCallRealMethod().when( mockedServletResponse ).copyBufferedStreamToRealStream();
         return mockedServletResponse;
     }